@@ -209,8 +209,15 @@ public class BoonQBitFactory implements Factory {
 
     @Override
     public MethodCall<Object> createMethodCallFromHttpRequest(final Request<Object> request, Object args) {
+        return createMethodCallFromHttpRequest(request, args, 0L);
+    }
+
+    @Override
+    public MethodCall<Object> createMethodCallFromHttpRequest(final Request<Object> request, Object args,
+                                                              final long deadline) {
 
         MethodCallBuilder methodCallBuilder = new MethodCallBuilder();
+        methodCallBuilder.setDeadline(deadline);
         methodCallBuilder.setOriginatingRequest(request);
         methodCallBuilder.setBody(args);
         methodCallBuilder.setHeaders(request.headers());
@@ -19,22 +19,23 @@
 package io.advantageous.qbit.boon;
 
 import io.advantageous.boon.core.Str;
-import io.advantageous.boon.primitive.CharBuf;
 import io.advantageous.qbit.Factory;
 import io.advantageous.qbit.client.ClientProxy;
+import io.advantageous.qbit.client.ProxyMethods;
 import io.advantageous.qbit.client.RemoteTCPClientProxy;
 import io.advantageous.qbit.client.ServiceProxyFactory;
 import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.impl.MethodCallImpl;
 import io.advantageous.qbit.service.EndPoint;
 import io.advantageous.qbit.util.Timer;
 
-import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static io.advantageous.boon.core.Str.sputs;
+import static io.advantageous.qbit.service.ServiceContext.serviceContext;
 
 
 /**
@@ -44,7 +45,7 @@ import static io.advantageous.boon.core.Str.sputs;
  */
 public class BoonServiceProxyFactory implements ServiceProxyFactory {
 
-    private static volatile long generatedMessageId;
+    private static final AtomicLong generatedMessageId = new AtomicLong();
     private final Factory factory;
 
 
@@ -70,91 +71,106 @@ public class BoonServiceProxyFactory implements ServiceProxyFactory {
 
         final String returnAddress = returnAddressArg;
 
-        final ThreadLocal<CharBuf> addressCreatorBufRef = new ThreadLocal<CharBuf>() {
-            @Override
-            protected CharBuf initialValue() {
-                return CharBuf.createCharBuf(255);
-            }
-        };
+        final ProxyMethods<RemoteMethod> proxyMethods = ProxyMethods.proxyMethods(
+                method -> new RemoteMethod(method, objectAddress),
+                serviceInterface, port == 0 ? ClientProxy.class : RemoteTCPClientProxy.class);
 
 
-        InvocationHandler invocationHandler = new InvocationHandler() {
+        final ProxyMethods.Invoker<RemoteMethod> invoker = new ProxyMethods.Invoker<RemoteMethod>() {
 
-            long timestamp = Timer.timer().now();
-            int times = 10;
 
             @Override
-            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-
+            public Object invoke(Object proxy, RemoteMethod remoteMethod, Object[] args) {
 
-
-
-                switch (method.getName()) {
-                    case "port":
+                switch (remoteMethod.kind) {
+                    case PORT:
                         return port;
-                    case "host":
+                    case HOST:
                         return host;
-                    case "flush":
-                    case "clientProxyFlush":
+                    case FLUSH:
                         endPoint.flush();
                         return null;
-                    case "toString":
+                    case TO_STRING:
                         return port == 0 ? sputs("{Local Proxy", serviceName, "}") :
                                 sputs("{Remote Proxy", serviceName, host, port, "}");
-                    case "equals":
+                    case EQUALS:
                         return proxy == args[0];
-                    case "hashCode":
-                        return proxy.hashCode();
-                    case "connected":
+                    case HASH_CODE:
+                        return System.identityHashCode(proxy);
+                    case CONNECTED:
                         return connected.get();
-
                 }
 
 
-                long messageId = generatedMessageId++;
-
-                times--;
-                if ( times == 0 ) {
-                    timestamp = Timer.timer().now();
-                    times = 10;
-                } else {
-                    timestamp++;
-                }
-
-
-                final CharBuf addressBuf = addressCreatorBufRef.get();
-
-                addressBuf.recycle();
-
-                addressBuf.add(objectAddress).add("/").add(method.getName());
-
-                final String address = addressBuf.toString();
-
+                /* Starts at one, MethodCallBuilder replaces an id of zero with one of its own. */
+                long messageId = generatedMessageId.incrementAndGet();
 
                 final MethodCall<Object> call =
-                        factory.createMethodCallToBeEncodedAndSent(messageId, address,
-                                returnAddress, serviceName, method.getName(), timestamp, args, null);
+                        factory.createMethodCallToBeEncodedAndSent(messageId, remoteMethod.address,
+                                returnAddress, serviceName, remoteMethod.name, Timer.timer().now(), args, null);
+
+                /* Calls made while a service is handling a call get what is left of that call's time. */
+                final long deadline = serviceContext().deadline();
+                if (deadline != 0L && call instanceof MethodCallImpl) {
+                    ((MethodCallImpl) call).deadline(deadline);
+                }
 
                 endPoint.call(call);
                 return null;
             }
         };
 
-
-
-        if (port == 0) {
-            return (T) Proxy.newProxyInstance(serviceInterface.getClassLoader(),
-                    new Class[]{serviceInterface, ClientProxy.class}, invocationHandler);
-        } else {
-            return (T) Proxy.newProxyInstance(serviceInterface.getClassLoader(),
-                    new Class[]{serviceInterface, RemoteTCPClientProxy.class}, invocationHandler);
-        }
-
-
+        return proxyMethods.newProxy(serviceInterface.getClassLoader(), invoker);
     }
 
     @Override
     public <T> T createProxy(Class<T> serviceInterface, String serviceName, EndPoint endPoint) {
         return createProxyWithReturnAddress(serviceInterface, serviceName, "local", 0, new AtomicBoolean(true), "", endPoint);
     }
+
+    private enum Kind {
+        PORT, HOST, FLUSH, TO_STRING, EQUALS, HASH_CODE, CONNECTED, CALL
+    }
+
+    /**
+     * What the proxy does for a method, and the address it sends calls to.
+     */
+    private static final class RemoteMethod {
+
+        private final Kind kind;
+        private final String name;
+        private final String address;
+
+        private RemoteMethod(final Method method, final String objectAddress) {
+            this.name = method.getName();
+            this.address = Str.add(objectAddress, "/", name);
+
+            switch (name) {
+                case "port":
+                    kind = Kind.PORT;
+                    break;
+                case "host":
+                    kind = Kind.HOST;
+                    break;
+                case "flush":
+                case "clientProxyFlush":
+                    kind = Kind.FLUSH;
+                    break;
+                case "toString":
+                    kind = Kind.TO_STRING;
+                    break;
+                case "equals":
+                    kind = Kind.EQUALS;
+                    break;
+                case "hashCode":
+                    kind = Kind.HASH_CODE;
+                    break;
+                case "connected":
+                    kind = Kind.CONNECTED;
+                    break;
+                default:
+                    kind = Kind.CALL;
+            }
+        }
+    }
 }
@@ -20,7 +20,6 @@ package io.advantageous.qbit.client;
 
 import io.advantageous.boon.core.Conversions;
 import io.advantageous.boon.core.Str;
-import io.advantageous.boon.core.StringScanner;
 import io.advantageous.boon.core.Sys;
 import io.advantageous.boon.core.reflection.ClassMeta;
 import io.advantageous.boon.core.reflection.MapObjectConversion;
@@ -36,21 +35,20 @@ import io.advantageous.qbit.message.Response;
 import io.advantageous.qbit.message.impl.MethodCallImpl;
 import io.advantageous.qbit.reactive.Callback;
 import io.advantageous.qbit.service.BeforeMethodCall;
+import io.advantageous.qbit.service.impl.CallbackRegistry;
+import io.advantageous.qbit.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static io.advantageous.boon.core.Exceptions.die;
 import static io.advantageous.boon.core.Str.sputs;
-import static io.advantageous.qbit.service.Protocol.PROTOCOL_ARG_SEPARATOR;
 
 
 /**
@@ -78,7 +76,7 @@ public class BoonClient implements Client {
     /**
      * Map of handlers so we can do the whole async call back thing.
      */
-    private Map<HandlerKey, Callback<Object>> handlers = new ConcurrentHashMap<>();
+    private final CallbackRegistry handlers = new CallbackRegistry();
     /**
      * Logger.
      */
@@ -90,6 +88,10 @@ public class BoonClient implements Client {
     private WebSocket webSocket;
 
     private AtomicBoolean connected = new AtomicBoolean();
+    /**
+     * How long calls without a deadline of their own may wait for an answer, 0 for no limit.
+     */
+    private volatile long callTimeoutMillis;
 
     /**
      * @param httpClient       httpClient
@@ -106,6 +108,17 @@ public class BoonClient implements Client {
     }
 
 
+    /**
+     * Gives calls that do not already have a deadline one, so the server can drop them once nobody waits anymore.
+     *
+     * @param callTimeoutMillis time in milliseconds a call may take, 0 for no limit
+     * @return this
+     */
+    public BoonClient setCallTimeoutMillis(final long callTimeoutMillis) {
+        this.callTimeoutMillis = callTimeoutMillis;
+        return this;
+    }
+
     /**
      * Stop client. Stops processing call backs.
      */
@@ -143,13 +156,10 @@ public class BoonClient implements Client {
         for (Message<Object> message : messages) {
             if (message instanceof Response) {
                 final Response<Object> response = ((Response) message);
-                final String[] split = StringScanner.split(response.returnAddress(), (char) PROTOCOL_ARG_SEPARATOR);
-                final HandlerKey key = split.length == 2 ? new HandlerKey(split[1], response.id()) : new HandlerKey(split[0], response.id());
-                final Callback<Object> handler = handlers.get(key);
+                final Callback<Object> handler = handlers.remove(response.returnAddress(), response.id());
 
                 if (handler != null) {
                     handleAsyncCallback(response, handler);
-                    handlers.remove(key);
                 } // else there was no handler, it was a one way method.
             }
         }
@@ -266,6 +276,11 @@ public class BoonClient implements Client {
             @Override
             public boolean before(final MethodCall call) {
 
+                final long timeout = callTimeoutMillis;
+                if (timeout > 0 && call.deadline() == 0L && call instanceof MethodCallImpl) {
+                    ((MethodCallImpl) call).deadline(Timer.timer().now() + timeout);
+                }
+
                 final Object body = call.body();
                 if (body instanceof Object[]) {
 
@@ -274,7 +289,7 @@ public class BoonClient implements Client {
                     if (list.length > 0) {
                         final Object o = list[0];
                         if (o instanceof Callback) {
-                            handlers.put(new HandlerKey(call.returnAddress(), call.id()), createHandler(serviceInterface, call, (Callback) o));
+                            handlers.register(call.returnAddress(), call.id(), createHandler(serviceInterface, call, (Callback) o));
 
                             if (list.length - 1 == 0) {
                                 list = new Object[0];
@@ -395,38 +410,4 @@ public class BoonClient implements Client {
         connected.set(true);
 
     }
-
-    /**
-     * Key to store callbackWithTimeout in call back map.
-     */
-    private class HandlerKey {
-        /**
-         * Return address
-         */
-        final String returnAddress;
-        /**
-         * Message id
-         */
-        final long messageId;
-
-        private HandlerKey(String returnAddress, long messageId) {
-            this.returnAddress = returnAddress;
-            this.messageId = messageId;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            HandlerKey that = (HandlerKey) o;
-            return messageId == that.messageId && !(returnAddress != null ? !returnAddress.equals(that.returnAddress) : that.returnAddress != null);
-        }
-
-        @Override
-        public int hashCode() {
-            int result = returnAddress != null ? returnAddress.hashCode() : 0;
-            result = 31 * result + (int) (messageId ^ (messageId >>> 32));
-            return result;
-        }
-    }
 }
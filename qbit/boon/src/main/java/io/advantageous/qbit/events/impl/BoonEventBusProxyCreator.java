@@ -25,11 +25,10 @@ import io.advantageous.boon.core.reflection.AnnotationData;
 import io.advantageous.boon.core.reflection.ClassMeta;
 import io.advantageous.qbit.annotation.AnnotationUtils;
 import io.advantageous.qbit.client.ClientProxy;
+import io.advantageous.qbit.client.ProxyMethods;
 import io.advantageous.qbit.events.EventBusProxyCreator;
 import io.advantageous.qbit.events.EventManager;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Proxy;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -63,19 +62,24 @@ public class BoonEventBusProxyCreator implements EventBusProxyCreator {
         }
         final Map<String, String> methodToChannelMap = createMethodToChannelMap(channelPrefix, eventBusProxyInterface);
 
-        final InvocationHandler invocationHandler = (proxy, method, args) -> {
+        final ProxyMethods<EventMethod> eventMethods = ProxyMethods.proxyMethods(
+                method -> new EventMethod(flushMethodNameSet.contains(method.getName()),
+                        methodToChannelMap.get(method.toString())),
+                eventBusProxyInterface, ClientProxy.class);
 
-            if (flushMethodNameSet.contains(method.getName())) {
+        return eventMethods.newProxy(Thread.currentThread().getContextClassLoader(), (proxy, method, args) -> {
+
+            if (method.flush) {
                 flushServiceProxy(eventManager);
                 return null;
             }
-            final String channelName = methodToChannelMap.get(method.toString());
-            eventManager.sendArray(channelName, args);
+            if (method.channelName == null) {
+                return null;
+            }
+            eventManager.sendArray(method.channelName, args);
 
             return null;
-        };
-        final Object o = Proxy.newProxyInstance(Thread.currentThread().getContextClassLoader(), new Class[]{eventBusProxyInterface, ClientProxy.class}, invocationHandler);
-        return (T) o;
+        });
 
     }
 
@@ -107,4 +111,18 @@ public class BoonEventBusProxyCreator implements EventBusProxyCreator {
         return methodToChannelMap;
     }
 
+    /**
+     * What the proxy does for a method: flush, send to a channel, or nothing when there is no channel.
+     */
+    private static final class EventMethod {
+
+        private final boolean flush;
+        private final String channelName;
+
+        private EventMethod(final boolean flush, final String channelName) {
+            this.flush = flush;
+            this.channelName = flush ? null : channelName;
+        }
+    }
+
 }
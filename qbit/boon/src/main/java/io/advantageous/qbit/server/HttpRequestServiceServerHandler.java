@@ -36,7 +36,9 @@ import io.advantageous.qbit.message.Request;
 import io.advantageous.qbit.message.Response;
 import io.advantageous.qbit.queue.SendQueue;
 import io.advantageous.qbit.service.ServiceBundle;
+import io.advantageous.qbit.service.ServiceDeadlineExceededException;
 import io.advantageous.qbit.service.ServiceMethodNotFoundException;
+import io.advantageous.qbit.service.ServiceOverloadedException;
 import io.advantageous.qbit.util.MultiMap;
 import io.advantageous.qbit.util.Timer;
 import org.slf4j.Logger;
@@ -146,6 +148,13 @@ public class HttpRequestServiceServerHandler {
         }
 
 
+        /* Flow control says the bundle is backed up. Turn the request away now instead of blocking the IO thread. */
+        if (methodCallSendQueue.isUnderPressure()) {
+            writeResponse(request.getReceiver(), 503, "application/json",
+                    "\"service unavailable\"", request.getHeaders());
+            return;
+        }
+
         if (httpMethodHandlerInfo.serviceMethodURIsWithVoidReturn.contains(uri)) {
             writeResponse(request.getReceiver(), 200,
                     "application/json", "\"success\"", request.getHeaders());
@@ -163,7 +172,9 @@ public class HttpRequestServiceServerHandler {
             args = jsonMapper.fromJson(new String(request.getBody(), StandardCharsets.UTF_8));
         }
 
-        final MethodCall<Object> methodCall = QBit.factory().createMethodCallFromHttpRequest(request, args);
+        /* Past the timeout the client already got a 408, so there is no point running the call after that. */
+        final long deadline = timeoutInSeconds > 0 ? request.timestamp() + timeoutInSeconds * 1000L : 0L;
+        final MethodCall<Object> methodCall = QBit.factory().createMethodCallFromHttpRequest(request, args, deadline);
 
 
         if (debug) {
@@ -457,6 +468,12 @@ public class HttpRequestServiceServerHandler {
             if (obj instanceof ServiceMethodNotFoundException) {
                 writeResponse(httpRequest.getReceiver(), 404, "application/json", jsonMapper.toJson(response.body()), httpRequest.getHeaders());
 
+            } else if (obj instanceof ServiceOverloadedException) {
+                writeResponse(httpRequest.getReceiver(), 503, "application/json", "\"service unavailable\"", httpRequest.getHeaders());
+
+            } else if (obj instanceof ServiceDeadlineExceededException) {
+                writeResponse(httpRequest.getReceiver(), 408, "application/json", "\"timed out\"", httpRequest.getHeaders());
+
             } else {
                 writeResponse(httpRequest.getReceiver(), 500, "application/json", jsonMapper.toJson(response.body()), httpRequest.getHeaders());
 
@@ -30,6 +30,7 @@ import io.advantageous.qbit.message.impl.MethodCallImpl;
 import io.advantageous.qbit.message.impl.ResponseImpl;
 import io.advantageous.qbit.queue.SendQueue;
 import io.advantageous.qbit.service.ServiceBundle;
+import io.advantageous.qbit.service.ServiceOverloadedException;
 import io.advantageous.qbit.spi.ProtocolEncoder;
 import io.advantageous.qbit.spi.ProtocolParser;
 import io.advantageous.qbit.util.Timer;
@@ -143,6 +144,16 @@ public class WebSocketServiceServerHandler {
                         createMethodCallListToBeParsedFromBody(webSocketMessage.getRemoteAddress(),
                                 webSocketMessage.getMessage(), webSocketMessage);
 
+                /* Flow control says the bundle is backed up. Answer with errors instead of queuing more work. */
+                if (methodCallSendQueue.isUnderPressure()) {
+                    for (MethodCall<Object> methodCall : methodCallListToBeParsedFromBody) {
+                        handleResponseFromServiceBundleToWebSocketSender(new ResponseImpl<>(methodCall,
+                                new ServiceOverloadedException("Call rejected, service is overloaded",
+                                        methodCall.address())), webSocketMessage);
+                    }
+                    return;
+                }
+
                 methodCallSendQueue.sendBatch(methodCallListToBeParsedFromBody);
             }catch (Exception ex) {
                 logger.error("", ex);
@@ -25,10 +25,13 @@ import io.advantageous.boon.core.reflection.ClassMeta;
 import io.advantageous.boon.core.reflection.MethodAccess;
 import io.advantageous.boon.primitive.Arry;
 import io.advantageous.qbit.annotation.AnnotationUtils;
+import io.advantageous.qbit.annotation.PriorityLevel;
 import io.advantageous.qbit.annotation.RequestMethod;
 import io.advantageous.qbit.bindings.ArgParamBinding;
 import io.advantageous.qbit.bindings.MethodBinding;
+import io.advantageous.qbit.bindings.PathParamConverter;
 import io.advantageous.qbit.bindings.RequestParamBinding;
+import io.advantageous.qbit.bindings.UriRouteTrie;
 import io.advantageous.qbit.http.request.HttpRequest;
 import io.advantageous.qbit.message.Event;
 import io.advantageous.qbit.message.MethodCall;
@@ -38,11 +41,16 @@ import io.advantageous.qbit.message.impl.ResponseImpl;
 import io.advantageous.qbit.queue.QueueCallBackHandler;
 import io.advantageous.qbit.queue.SendQueue;
 import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.service.CachePolicy;
 import io.advantageous.qbit.service.ServiceMethodHandler;
 
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static io.advantageous.boon.core.Exceptions.die;
 import static io.advantageous.boon.core.IO.puts;
@@ -65,11 +73,24 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
 
     private String name = "";
     private TreeSet<String> addresses = new TreeSet<>();
+    private final Set<String> priorityMethodNames = new LinkedHashSet<>();
+    private final Set<String> priorityAddresses = new LinkedHashSet<>();
+    private final Set<String> idempotentMethodNames = new LinkedHashSet<>();
+    private final Set<String> idempotentAddresses = new LinkedHashSet<>();
+    private final Map<String, CachePolicy> cachePolicies = new LinkedHashMap<>();
 
     private Map<String, Map<String, Pair<MethodBinding, MethodAccess>>> methodMap = new LinkedHashMap<>();
 
     private SendQueue<Response<Object>> responseSendQueue;
     private Map<String, MethodAccess> eventMap = new ConcurrentHashMap<>();
+    /* Built at init, read only after that. */
+    private final Map<Method, MethodInvoker> invokers = new HashMap<>();
+    /* URI templates with path variables, compiled at init. */
+    private final UriRouteTrie<Map<String, UriRoute>> uriRoutes = new UriRouteTrie<>();
+    /* Length of the path variable bounds array a route match needs, set at init. */
+    private int uriBoundsLength;
+    /* @BatchHandler methods by name, built at init. */
+    private final Map<String, BatchMethod> batchMethods = new HashMap<>();
 
     public BoonServiceMethodCallHandler(final boolean invokeDynamic) {
         this.invokeDynamic = invokeDynamic;
@@ -126,6 +147,17 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
     }
 
     private Response<Object> invokeByAddressWithComplexBinding(MethodCall<Object> methodCall) {
+
+        /* Per call, a synchronous service queue handles calls on every sending thread at once. */
+        final int[] bounds = new int[uriBoundsLength];
+        final Map<String, UriRoute> routes = uriRoutes.match(methodCall.address(), bounds);
+        if (routes != null) {
+            final UriRoute route = selectRoute(methodCall, routes);
+            if (route != null) {
+                return invokeRoute(methodCall, route, bounds);
+            }
+        }
+
         String mAddress = addresses.lower(methodCall.address());
 
         final Map<String, Pair<MethodBinding, MethodAccess>> mappings = methodMap.get(mAddress);
@@ -207,6 +239,45 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
 
     }
 
+    private UriRoute selectRoute(final MethodCall<Object> methodCall, final Map<String, UriRoute> routes) {
+        UriRoute route = null;
+        final Request<Object> request = methodCall.originatingRequest();
+        if (request instanceof HttpRequest) {
+            route = routes.get(((HttpRequest) request).getMethod());
+        }
+        if (route == null && routes.size() == 1) {
+            route = routes.values().iterator().next();
+        }
+        return route;
+    }
+
+    private Response<Object> invokeRoute(final MethodCall<Object> methodCall, final UriRoute route,
+                                         final int[] bounds) {
+
+        final MethodAccess methodAccess = route.methodAccess;
+        final MethodInvoker invoker = invokers.get(methodAccess.method());
+        final Class<?>[] parameterTypes = invoker != null ? invoker.parameterTypes() : methodAccess.parameterTypes();
+        final Object[] args = new Object[parameterTypes.length];
+        for (int index = 0; index < parameterTypes.length; index++) {
+            if (parameterTypes[index] == Callback.class) {
+                args[index] = createCallBackHandler(methodCall);
+            }
+        }
+
+        final String uri = methodCall.address();
+        final int[] paramPositions = route.paramPositions;
+        final PathParamConverter[] converters = route.converters;
+        for (int variable = 0; variable < paramPositions.length; variable++) {
+            final int position = paramPositions[variable];
+            if (position != -1) {
+                args[position] = converters[variable].convert(uri, bounds[variable * 2], bounds[variable * 2 + 1]);
+            }
+        }
+
+        final Object returnValue = invoke(invoker, methodAccess, args, true);
+        return response(methodAccess, methodCall, returnValue);
+    }
+
     private Response<Object> invokeByAddressWithSimpleBinding(
             final MethodCall<Object> methodCall,
             final Pair<MethodBinding, MethodAccess> pair
@@ -231,21 +302,23 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
 
     private Response<Object> mapArgsAsyncHandlersAndInvoke(MethodCall<Object> methodCall, MethodAccess method) {
 
+        final MethodInvoker invoker = invokers.get(method.method());
+        final Class<?>[] parameterTypes = invoker != null ? invoker.parameterTypes() : method.parameterTypes();
 
-        if (method.parameterTypes().length == 0) {
+        if (parameterTypes.length == 0) {
 
-            Object returnValue = method.invokeDynamicObject(service, null);
+            Object returnValue = invoke(invoker, method, MethodInvoker.NO_ARGS, invokeDynamic);
             return response(method, methodCall, returnValue);
 
         }
 
-        if (method.parameterTypes().length == 1) {
+        if (parameterTypes.length == 1) {
 
 
             Object body = methodCall.body();
 
             if (body == null || (body instanceof String && Str.isEmpty(body))) {
-                if (method.parameterTypes()[0] != Callback.class) {
+                if (parameterTypes[0] != Callback.class) {
                     body = methodCall.params();
                     Object returnValue = method.invokeDynamicObject(service, body);
                     return response(method, methodCall, returnValue);
@@ -256,14 +329,14 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
 
         boolean hasHandlers = hasHandlers(methodCall);
 
-        hasHandlers = hasHandlers(method) || hasHandlers;
+        hasHandlers = (invoker != null ? invoker.hasCallbackParameter() : hasHandlers(method)) || hasHandlers;
 
         Object returnValue;
 
 
         if (hasHandlers) {
             Object body = methodCall.body();
-            List<Object> argsList = prepareArgumentList(methodCall, method.parameterTypes());
+            List<Object> argsList = prepareArgumentList(methodCall, parameterTypes);
 
 
             if (body instanceof List || body instanceof Object[]) {
@@ -278,35 +351,18 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
             }
 
 
-            if (invokeDynamic) {
-                returnValue = method.invokeDynamicObject(service, argsList);
-            } else {
-                returnValue = method.invoke(service, argsList.toArray(new Object[argsList.size()]));
-            }
+            returnValue = invoke(invoker, method, argsList.toArray(new Object[argsList.size()]), invokeDynamic);
 
         } else {
 
-            if (invokeDynamic) {
-
-                if (methodCall.body() instanceof List) {
-                    final List argsList = (List) methodCall.body();
-                    returnValue = method.invokeDynamic(service, argsList.toArray(new Object[argsList.size()]));
-                } else if (methodCall.body() instanceof Object[]) {
-                    final Object[] argsList = (Object[]) methodCall.body();
-                    returnValue = method.invokeDynamic(service, argsList);
-                } else {
-                    returnValue = method.invokeDynamic(service, methodCall.body());
-                }
+            if (methodCall.body() instanceof List) {
+                final List argsList = (List) methodCall.body();
+                returnValue = invoke(invoker, method, argsList.toArray(new Object[argsList.size()]), invokeDynamic);
+            } else if (methodCall.body() instanceof Object[]) {
+                final Object[] argsList = (Object[]) methodCall.body();
+                returnValue = invoke(invoker, method, argsList, invokeDynamic);
             } else {
-                if (methodCall.body() instanceof List) {
-                    final List argsList = (List) methodCall.body();
-                    returnValue = method.invoke(service, argsList.toArray(new Object[argsList.size()]));
-                } else if (methodCall.body() instanceof Object[]) {
-                    final Object[] argsList = (Object[]) methodCall.body();
-                    returnValue = method.invoke(service, argsList);
-                } else {
-                    returnValue = method.invoke(service, methodCall.body());
-                }
+                returnValue = invoke(invoker, method, new Object[]{methodCall.body()}, invokeDynamic);
             }
         }
 
@@ -315,6 +371,21 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
     }
 
 
+    /**
+     * Uses the method handle built at init when there is one, and Boon's reflection otherwise.
+     */
+    private Object invoke(final MethodAccess method, final Object[] args, final boolean coerce) {
+        return invoke(invokers.get(method.method()), method, args, coerce);
+    }
+
+    private Object invoke(final MethodInvoker invoker, final MethodAccess method, final Object[] args,
+                          final boolean coerce) {
+        if (invoker != null) {
+            return invoker.invoke(args, coerce);
+        }
+        return coerce ? method.invokeDynamic(service, args) : method.invoke(service, args);
+    }
+
     private boolean hasHandlers(MethodAccess method) {
 
         for (Class<?> paramType : method.parameterTypes()) {
@@ -691,13 +762,35 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
             }
 
             registerMethod(methodAccess);
+
+            if (methodAccess.hasAnnotation("BatchHandler")) {
+                batchMethods.put(methodAccess.name(), new BatchMethod(methodAccess));
+            }
+
+            final MethodInvoker invoker = MethodInvoker.methodInvoker(service, methodAccess);
+            if (invoker != null) {
+                invokers.put(methodAccess.method(), invoker);
+            }
         }
 
         addresses.addAll(methodMap.keySet());
+        uriBoundsLength = uriRoutes.maxVariables() * 2;
     }
 
     private void registerMethod(MethodAccess methodAccess) {
 
+        if (isIdempotent(methodAccess)) {
+            idempotentMethodNames.add(methodAccess.name());
+        }
+
+        if (methodAccess.hasAnnotation("Cacheable")) {
+            cachePolicies.put(methodAccess.name(), readCachePolicy(methodAccess));
+        }
+
+        if (isHighPriority(methodAccess)) {
+            priorityMethodNames.add(methodAccess.name());
+        }
+
         if (!methodAccess.hasAnnotation("RequestMapping") || !methodAccess.hasAnnotation("ServiceMethod")) {
 
 
@@ -763,6 +856,233 @@ public class BoonServiceMethodCallHandler implements ServiceMethodHandler {
 
         mappings.put(methodBinding.method(), new Pair<>(methodBinding, methodAccess));
 
+        if (!methodBinding.parameters().isEmpty()) {
+            final String template = Str.join('/', address, methodAddress);
+            Map<String, UriRoute> routes = uriRoutes.get(template);
+            if (routes == null) {
+                routes = new HashMap<>(4);
+                uriRoutes.put(template, routes);
+            }
+            routes.put(methodBinding.method(), new UriRoute(methodAccess, methodBinding.parameters()));
+        }
+
+        if (isHighPriority(methodAccess)) {
+            priorityAddresses.add(methodBinding.address());
+        }
+
+        if (isIdempotent(methodAccess)) {
+            idempotentAddresses.add(methodBinding.address());
+        }
+
+        final CachePolicy cachePolicy = cachePolicies.get(methodAccess.name());
+        if (cachePolicy != null) {
+            cachePolicy.addAddress(methodBinding.address());
+        }
+
+    }
+
+    /**
+     * A method bound to a URI template, with the method parameter and converter for each path variable.
+     */
+    private static final class UriRoute {
+
+        private final MethodAccess methodAccess;
+        private final int[] paramPositions;
+        private final PathParamConverter[] converters;
+
+        private UriRoute(final MethodAccess methodAccess, final List<ArgParamBinding> bindings) {
+            this.methodAccess = methodAccess;
+            final Class<?>[] parameterTypes = methodAccess.parameterTypes();
+            this.paramPositions = new int[bindings.size()];
+            this.converters = new PathParamConverter[bindings.size()];
+
+            for (int variable = 0; variable < bindings.size(); variable++) {
+                final ArgParamBinding binding = bindings.get(variable);
+                int position = binding.getMethodParamPosition();
+                if (position == -1) {
+                    position = namedParamPosition(methodAccess, binding.getMethodParamName());
+                }
+                if (position == -1 && variable < parameterTypes.length) {
+                    position = variable;
+                }
+                if (position >= parameterTypes.length) {
+                    die("Parameter position is more than param length of method", methodAccess);
+                }
+                paramPositions[variable] = position;
+                converters[variable] = position == -1 ? null : PathParamConverter.converter(parameterTypes[position]);
+            }
+        }
+
+        private static int namedParamPosition(final MethodAccess methodAccess, final String paramName) {
+            final List<List<AnnotationData>> annotationDataForParams = methodAccess.annotationDataForParams();
+            for (int index = 0; index < annotationDataForParams.size(); index++) {
+                for (AnnotationData paramAnnotation : annotationDataForParams.get(index)) {
+                    if (paramAnnotation.getName().equalsIgnoreCase("name") || paramAnnotation.getName().equalsIgnoreCase("PathVariable")) {
+                        if (paramName.equals(paramAnnotation.getValues().get("value"))) {
+                            return index;
+                        }
+                    }
+                }
+            }
+            return -1;
+        }
+    }
+
+    @Override
+    public String batchHandler(final MethodCall<Object> methodCall) {
+        if (batchMethods.isEmpty()) {
+            return null;
+        }
+        final String methodName = methodCall.name();
+        if (methodName != null && !methodName.isEmpty()) {
+            return batchMethods.containsKey(methodName) ? methodName : null;
+        }
+        final Map<String, Pair<MethodBinding, MethodAccess>> mappings = methodMap.get(methodCall.address());
+        if (mappings == null || mappings.size() != 1) {
+            return null;
+        }
+        final String boundName = mappings.values().iterator().next().getSecond().name();
+        return batchMethods.containsKey(boundName) ? boundName : null;
+    }
+
+    @Override
+    public List<Response<Object>> receiveMethodCallBatch(final String batchHandler,
+                                                         final List<MethodCall<Object>> methodCalls) {
+
+        final BatchMethod batchMethod = batchMethods.get(batchHandler);
+        final List<Response<Object>> responses = new ArrayList<>(methodCalls.size());
+
+        final Object returnValue;
+        try {
+            final List<Object> items = new ArrayList<>(methodCalls.size());
+            for (MethodCall<Object> methodCall : methodCalls) {
+                items.add(batchMethod.item(methodCall));
+            }
+            returnValue = invoke(batchMethod.methodAccess, new Object[]{items}, false);
+        } catch (Exception ex) {
+            Throwable error = ex;
+            if (ex.getCause() instanceof InvocationTargetException) {
+                error = ((InvocationTargetException) ex.getCause()).getTargetException();
+            }
+            for (MethodCall<Object> methodCall : methodCalls) {
+                responses.add(new ResponseImpl<>(methodCall, error));
+            }
+            return responses;
+        }
+
+        final boolean fanOut = returnValue instanceof List && ((List) returnValue).size() == methodCalls.size();
+        for (int index = 0; index < methodCalls.size(); index++) {
+            final Object result = fanOut ? ((List) returnValue).get(index) : returnValue;
+            responses.add(response(batchMethod.methodAccess, methodCalls.get(index), result));
+        }
+        return responses;
+    }
+
+    /**
+     * A {@code @BatchHandler} method and the type of the items in its list.
+     */
+    private static final class BatchMethod {
+
+        private final MethodAccess methodAccess;
+        private final Class<?> itemType;
+
+        private BatchMethod(final MethodAccess methodAccess) {
+            this.methodAccess = methodAccess;
+            final Class<?>[] parameterTypes = methodAccess.parameterTypes();
+            if (parameterTypes.length != 1 || !parameterTypes[0].isAssignableFrom(ArrayList.class)) {
+                die("BatchHandler method must take one List parameter", methodAccess.name());
+            }
+            final Type listType = methodAccess.method().getGenericParameterTypes()[0];
+            final Type itemType = listType instanceof ParameterizedType
+                    ? ((ParameterizedType) listType).getActualTypeArguments()[0] : Object.class;
+            this.itemType = itemType instanceof Class ? (Class<?>) itemType : Object.class;
+        }
+
+        /**
+         * The caller's one argument, skipping callbacks, converted to the list's item type.
+         */
+        private Object item(final MethodCall<Object> methodCall) {
+            Object item = methodCall.body();
+            if (item instanceof Object[]) {
+                item = firstArg(Arrays.asList((Object[]) item));
+            } else if (item instanceof List) {
+                item = firstArg((List<?>) item);
+            }
+            if (item == null || itemType == Object.class || itemType.isInstance(item)) {
+                return item;
+            }
+            return Conversions.coerce(itemType, item);
+        }
+
+        private static Object firstArg(final List<?> args) {
+            for (Object arg : args) {
+                if (!(arg instanceof Callback)) {
+                    return arg;
+                }
+            }
+            return null;
+        }
+    }
+
+    private boolean isHighPriority(final MethodAccess methodAccess) {
+        if (!methodAccess.hasAnnotation("Priority")) {
+            return false;
+        }
+        final Object value = methodAccess.annotation("Priority").getValues().get("value");
+        return value == null || PriorityLevel.HIGH.name().equals(value.toString());
+    }
+
+    @Override
+    public Collection<String> priorityMethodNames() {
+        return priorityMethodNames;
+    }
+
+    @Override
+    public Collection<String> priorityAddresses() {
+        return priorityAddresses;
+    }
+
+    /**
+     * Calls that join an idempotent call wait for its response, so a method that never answers can not be one.
+     */
+    private boolean isIdempotent(final MethodAccess methodAccess) {
+        if (!methodAccess.hasAnnotation("Idempotent")) {
+            return false;
+        }
+        final Class<?> returnType = methodAccess.returnType();
+        if ((returnType == void.class || returnType == Void.class) && !hasHandlers(methodAccess)) {
+            die("Idempotent method must return a value or take a Callback", methodAccess.name());
+        }
+        return true;
+    }
+
+    private CachePolicy readCachePolicy(final MethodAccess methodAccess) {
+        final Map<String, Object> values = methodAccess.annotation("Cacheable").getValues();
+        final Object ttl = values.get("ttl");
+        final Object timeUnit = values.get("timeUnit");
+        final Object maxEntries = values.get("maxEntries");
+        final Object invalidateOn = values.get("invalidateOn");
+
+        final TimeUnit unit = timeUnit == null ? TimeUnit.SECONDS : TimeUnit.valueOf(timeUnit.toString());
+        return new CachePolicy(methodAccess.name(),
+                unit.toMillis(ttl instanceof Number ? ((Number) ttl).longValue() : 60),
+                maxEntries instanceof Number ? ((Number) maxEntries).intValue() : 1000,
+                invalidateOn == null ? null : invalidateOn.toString());
+    }
+
+    @Override
+    public Collection<String> idempotentMethodNames() {
+        return idempotentMethodNames;
+    }
+
+    @Override
+    public Collection<String> idempotentAddresses() {
+        return idempotentAddresses;
+    }
+
+    @Override
+    public Collection<CachePolicy> cachePolicies() {
+        return cachePolicies.values();
     }
 
     @Override
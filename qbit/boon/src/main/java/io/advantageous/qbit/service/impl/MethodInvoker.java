@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.boon.core.reflection.MethodAccess;
+import io.advantageous.qbit.reactive.Callback;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Calls one service method through a {@link MethodHandle} that is bound to the service and built once at init.
+ * <p>
+ * When every argument is already of the parameter's type (or null for an object parameter) the handle is
+ * invoked directly with no coercion and no boxing beyond what the caller already did. Otherwise it falls back
+ * to Boon's {@link MethodAccess#invokeDynamic}, which coerces, or {@link MethodAccess#invoke}.
+ */
+final class MethodInvoker {
+
+    static final Object[] NO_ARGS = new Object[0];
+
+    private final MethodAccess methodAccess;
+    private final Object service;
+    private final MethodHandle handle;
+    private final Class<?>[] parameterTypes;
+    private final Class<?>[] argumentTypes;
+    private final boolean[] primitive;
+    private final boolean callbackParameter;
+
+    private MethodInvoker(final MethodAccess methodAccess, final Object service, final MethodHandle handle,
+                          final Class<?>[] parameterTypes) {
+        this.methodAccess = methodAccess;
+        this.service = service;
+        this.handle = handle;
+        this.parameterTypes = parameterTypes;
+        this.argumentTypes = new Class<?>[parameterTypes.length];
+        this.primitive = new boolean[parameterTypes.length];
+        boolean callbackParameter = false;
+        for (int index = 0; index < parameterTypes.length; index++) {
+            primitive[index] = parameterTypes[index].isPrimitive();
+            argumentTypes[index] = MethodType.methodType(parameterTypes[index]).wrap().returnType();
+            callbackParameter |= parameterTypes[index] == Callback.class;
+        }
+        this.callbackParameter = callbackParameter;
+    }
+
+    /**
+     * @param service      service the handle is bound to
+     * @param methodAccess method
+     * @return invoker or null if the method can not be turned into a handle
+     */
+    static MethodInvoker methodInvoker(final Object service, final MethodAccess methodAccess) {
+
+        final Method method = methodAccess.method();
+        if (method == null || Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+
+        try {
+            method.setAccessible(true);
+            final int parameterCount = method.getParameterTypes().length;
+            final MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(service)
+                    .asType(MethodType.genericMethodType(parameterCount))
+                    .asSpreader(Object[].class, parameterCount);
+            return new MethodInvoker(methodAccess, service, handle, method.getParameterTypes());
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @param args          arguments
+     * @param invokeDynamic coerce arguments that are not of the right type
+     * @return return value, null for void
+     */
+    Object invoke(final Object[] args, final boolean invokeDynamic) {
+
+        if (!argumentsMatch(args)) {
+            return invokeDynamic ? methodAccess.invokeDynamic(service, args) : methodAccess.invoke(service, args);
+        }
+
+        try {
+            return handle.invokeExact(args);
+        } catch (Error error) {
+            /* Not something the service method answered with, so not turned into an error response. */
+            throw error;
+        } catch (Throwable throwable) {
+            /* Same shape as a reflective call so callers unwrap it the same way. */
+            throw new IllegalStateException("Unable to invoke " + methodAccess.name(),
+                    new InvocationTargetException(throwable));
+        }
+    }
+
+    /**
+     * Parameter types read once at init. {@link MethodAccess#parameterTypes()} copies them on every call.
+     * Callers must not modify the array.
+     */
+    Class<?>[] parameterTypes() {
+        return parameterTypes;
+    }
+
+    /**
+     * @return true if one of the parameters is a {@link Callback}
+     */
+    boolean hasCallbackParameter() {
+        return callbackParameter;
+    }
+
+    private boolean argumentsMatch(final Object[] args) {
+
+        if (args.length != argumentTypes.length) {
+            return false;
+        }
+
+        for (int index = 0; index < args.length; index++) {
+            final Object arg = args[index];
+            if (arg == null ? primitive[index] : !argumentTypes[index].isInstance(arg)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -28,6 +28,7 @@ import io.advantageous.qbit.message.MethodCall;
 import io.advantageous.qbit.message.Response;
 import io.advantageous.qbit.service.Protocol;
 import io.advantageous.qbit.util.MultiMap;
+import io.advantageous.qbit.util.Timer;
 
 import java.util.Collection;
 import java.util.Map;
@@ -123,7 +124,11 @@ public class BoonProtocolEncoder implements ProtocolEncoder {
 //        }
 
         buf.addChar(PROTOCOL_SEPARATOR);
-        encodeHeadersAndParams(buf, methodCall.headers());
+        if (methodCall.deadline() != 0L) {
+            encodeHeadersAndDeadline(buf, methodCall.headers(), methodCall.deadline());
+        } else {
+            encodeHeadersAndParams(buf, methodCall.headers());
+        }
         buf.addChar(PROTOCOL_SEPARATOR);
         encodeHeadersAndParams(buf, methodCall.params());
         buf.addChar(PROTOCOL_SEPARATOR);
@@ -186,7 +191,25 @@ public class BoonProtocolEncoder implements ProtocolEncoder {
         }
     }
 
+    /**
+     * Sends the time left instead of the deadline itself, the receiver turns it back into a deadline on its own clock.
+     */
+    private void encodeHeadersAndDeadline(CharBuf buf, MultiMap<String, String> headers, long deadline) {
+
+        encodeHeadersAndParams(buf, headers, DEADLINE_HEADER);
+
+        buf.add(DEADLINE_HEADER);
+        buf.addChar(Protocol.PROTOCOL_KEY_HEADER_DELIM);
+        buf.add(Math.max(0L, deadline - Timer.timer().now()));
+        buf.addChar(Protocol.PROTOCOL_VALUE_HEADER_DELIM);
+        buf.addChar(Protocol.PROTOCOL_ENTRY_HEADER_DELIM);
+    }
+
     private void encodeHeadersAndParams(CharBuf buf, MultiMap<String, String> headerOrParams) {
+        encodeHeadersAndParams(buf, headerOrParams, null);
+    }
+
+    private void encodeHeadersAndParams(CharBuf buf, MultiMap<String, String> headerOrParams, String skipKey) {
 
         if ( headerOrParams == null ) {
             return;
@@ -198,7 +221,7 @@ public class BoonProtocolEncoder implements ProtocolEncoder {
 
             final Collection<String> values = entry.getValue();
 
-            if ( values.size() == 0 ) {
+            if ( values.size() == 0 || ( skipKey != null && skipKey.equals(entry.getKey()) ) ) {
                 continue;
             }
 
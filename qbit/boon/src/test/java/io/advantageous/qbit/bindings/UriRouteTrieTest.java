@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.bindings;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class UriRouteTrieTest {
+
+    @Test
+    public void testMatch() {
+        final UriRouteTrie<String> trie = new UriRouteTrie<>();
+        trie.put("/employee/{id}/", "employee");
+        trie.put("/employee/{id}/promote/{0}", "promote");
+        trie.put("/employee/boss/promote/{0}", "boss");
+        trie.put("/dept/{0}/employee/{1}/{2}", "deptEmployee");
+
+        assertEquals(3, trie.maxVariables());
+        assertEquals("promote", trie.get("employee/{name}/promote/{level}/"));
+
+        final int[] bounds = new int[trie.maxVariables() * 2];
+        final String uri = "/employee/42/promote/7";
+        assertEquals("promote", trie.match(uri, bounds));
+        assertEquals("42", uri.substring(bounds[0], bounds[1]));
+        assertEquals("7", uri.substring(bounds[2], bounds[3]));
+
+        assertEquals("boss", trie.match("/employee/boss/promote/1/", bounds));
+        assertEquals("employee", trie.match("/employee/boss", bounds));
+
+        assertNull(trie.match("/employee", bounds));
+        assertNull(trie.match("/employee//promote/7", bounds));
+        assertNull(trie.match("/employee/42/demote/7", bounds));
+        assertNull(trie.match("/dept/1/employee/2", bounds));
+    }
+
+    @Test
+    public void testConverters() {
+        assertEquals(-42, PathParamConverter.converter(int.class).convert("/a/-42", 3, 6));
+        assertEquals(9000000000L, PathParamConverter.converter(Long.class).convert("/a/9000000000/b", 3, 13));
+        assertEquals("abc", PathParamConverter.converter(String.class).convert("/abc/", 1, 4));
+        assertEquals(1.5, PathParamConverter.converter(double.class).convert("1.5", 0, 3));
+        assertEquals(PathParamConverter.NOT_A_LONG, PathParamConverter.parseLong("12x", 0, 3));
+    }
+}
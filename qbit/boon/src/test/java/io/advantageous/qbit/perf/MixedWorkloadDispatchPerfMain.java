@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.perf;
+
+import io.advantageous.boon.core.Sys;
+import io.advantageous.qbit.message.MethodCallBuilder;
+import io.advantageous.qbit.service.ServiceBuilder;
+import io.advantageous.qbit.service.dispatchers.ServiceWorkers;
+import io.advantageous.qbit.util.Histogram;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import static io.advantageous.boon.core.IO.puts;
+import static io.advantageous.qbit.queue.QueueBuilder.queueBuilder;
+import static io.advantageous.qbit.service.ServiceBuilder.serviceBuilder;
+
+/**
+ * Compares round robin, least loaded and power of two choices dispatch on a mixed workload.
+ * Most calls return at once, one in twenty blocks for two milliseconds like a call to a slow downstream service.
+ * Calls are sent in small bursts at a fixed rate whether or not the workers keep up, and the time from send
+ * to the end of each fast call is recorded.
+ * Round robin keeps handing fast calls to a worker that is stuck on a slow one, which shows up in the p99 of the fast calls.
+ */
+public class MixedWorkloadDispatchPerfMain {
+
+    static final int WORKERS = 4;
+    static final int CALLS = 10_000;
+    static final int SLOW_MICROS = 2_000;
+    static final int SLOW_EVERY = 20;
+    /* Mean blocking is about 100 micros a call, so at 10 calls a millisecond four workers are a quarter busy. */
+    static final int BURST = 10;
+    static final long BURST_GAP_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    public static void main(String... args) throws Exception {
+
+        for (int run = 0; run < 2; run++) {
+            run("round robin", () -> ServiceWorkers.workers(0, TimeUnit.MILLISECONDS));
+            run("least loaded", () -> ServiceWorkers.leastLoadedWorkers(0, TimeUnit.MILLISECONDS));
+            run("power of two", () -> ServiceWorkers.powerOfTwoChoicesWorkers(0, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    static void run(final String name, final Supplier<ServiceWorkers> dispatcherSupplier) {
+
+        final ServiceWorkers dispatcher = dispatcherSupplier.get();
+        final ServiceBuilder serviceBuilder = serviceBuilder()
+                .setRequestQueueBuilder(queueBuilder().setBatchSize(1));
+        final MixedWorkService[] services = new MixedWorkService[WORKERS];
+        for (int index = 0; index < WORKERS; index++) {
+            services[index] = new MixedWorkService();
+            dispatcher.addServices(serviceBuilder.setServiceObject(services[index]).build());
+        }
+        dispatcher.start();
+        Sys.sleep(100);
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        long nextSend = System.nanoTime();
+        for (int index = 0; index < CALLS; index++) {
+            if (index % BURST == 0) {
+                LockSupport.parkNanos(nextSend - System.nanoTime());
+                nextSend += BURST_GAP_NANOS;
+            }
+            final int micros = random.nextInt(SLOW_EVERY) == 0 ? SLOW_MICROS : 0;
+            dispatcher.accept(MethodCallBuilder.methodWithArgs("work", System.nanoTime(), micros));
+        }
+
+        final Histogram latency = new Histogram(TimeUnit.SECONDS.toMicros(10));
+        final long[] dispatched = dispatcher.dispatchedByWorker();
+        for (int index = 0; index < WORKERS; index++) {
+            while (services[index].done < dispatched[index]) {
+                Sys.sleep(1);
+            }
+            latency.add(services[index].latency);
+        }
+        dispatcher.stop();
+
+        puts(String.format("%-14s p50 %6d us  p99 %6d us  p99.9 %6d us  max %6d us",
+                name, latency.valueAtPercentile(50), latency.valueAtPercentile(99),
+                latency.valueAtPercentile(99.9), latency.max()));
+    }
+
+    public static class MixedWorkService {
+
+        final Histogram latency = new Histogram(TimeUnit.SECONDS.toMicros(10));
+        volatile long done;
+
+        void work(final long sentNanos, final int micros) {
+            if (micros > 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+            } else {
+                latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentNanos));
+            }
+            done++;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.perf;
+
+import io.advantageous.qbit.queue.Queue;
+import io.advantageous.qbit.queue.QueueBuilder;
+import io.advantageous.qbit.queue.ReceiveQueue;
+import io.advantageous.qbit.queue.SendQueue;
+
+import java.lang.management.ManagementFactory;
+
+import static io.advantageous.boon.core.IO.puts;
+
+/**
+ * Measures bytes allocated per message by the send and receive threads of a queue,
+ * with and without batch recycling.
+ * <p>
+ * Run with -Xmx1g. The messages are preallocated so anything measured is queue overhead.
+ */
+public class QueueAllocationPerfMain {
+
+    static final int BATCH_SIZE = 100;
+    static final int MESSAGES = 20_000_000;
+    static final Integer[] ITEMS = new Integer[1024];
+
+    static {
+        for (int index = 0; index < ITEMS.length; index++) {
+            ITEMS[index] = index + 1_000;
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+
+        for (int run = 0; run < 3; run++) {
+            run("copy", new QueueBuilder().setBatchSize(BATCH_SIZE).setSize(1_000));
+            run("recycle", new QueueBuilder().setBatchSize(BATCH_SIZE).setSize(1_000).setRecycleBatches(true));
+            run("ring+recycle", new QueueBuilder().setBatchSize(BATCH_SIZE)
+                    .setRingBuffer(1_024, io.advantageous.qbit.queue.ProducerMode.SINGLE).setRecycleBatches(true));
+        }
+    }
+
+    static void run(final String name, final QueueBuilder queueBuilder) throws Exception {
+
+        final Queue<Integer> queue = queueBuilder.setName(name).build();
+        final long[] bytes = new long[2];
+
+        final Thread writer = new Thread(() -> {
+            final SendQueue<Integer> sendQueue = queue.sendQueue();
+            final long start = allocatedBytes();
+            for (int index = 0; index < MESSAGES; index++) {
+                sendQueue.send(ITEMS[index & 1023]);
+            }
+            sendQueue.flushSends();
+            bytes[0] = allocatedBytes() - start;
+        });
+
+        final Thread reader = new Thread(() -> {
+            final ReceiveQueue<Integer> receiveQueue = queue.receiveQueue();
+            final long start = allocatedBytes();
+            int count = 0;
+            while (count < MESSAGES) {
+                if (receiveQueue.pollWait() != null) {
+                    count++;
+                }
+            }
+            bytes[1] = allocatedBytes() - start;
+        });
+
+        final long startTime = System.nanoTime();
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+        final long duration = System.nanoTime() - startTime;
+
+        puts(name, "send bytes/msg", (double) bytes[0] / MESSAGES,
+                "receive bytes/msg", (double) bytes[1] / MESSAGES,
+                "msg/sec", MESSAGES * 1_000_000_000L / duration);
+    }
+
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.perf;
+
+import io.advantageous.boon.core.Sys;
+import io.advantageous.qbit.concurrent.VirtualThreads;
+import io.advantageous.qbit.queue.QueueBuilder;
+import io.advantageous.qbit.service.ServiceBuilder;
+import io.advantageous.qbit.service.ServiceProxyUtils;
+import io.advantageous.qbit.service.ServiceQueue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.advantageous.boon.core.IO.puts;
+
+/**
+ * Starts 1,000 mostly idle services, sends each of them calls, and reports the live thread count, start up time
+ * and the time to get every call through. Runs once with a platform thread per service and once with a virtual
+ * thread per service. Virtual threads need JDK 21+, on older JDKs that run is skipped.
+ */
+public class VirtualThreadServicesPerfMain {
+
+    static final int SERVICES = Integer.getInteger("services", 1_000);
+    static final int CALLS_PER_SERVICE = Integer.getInteger("calls", 1_000);
+
+    public static void main(String... args) throws Exception {
+
+        for (int run = 0; run < 2; run++) {
+            run("platform", false);
+            if (VirtualThreads.isSupported()) {
+                run("virtual", true);
+            } else {
+                puts("virtual threads need JDK 21+, running on", System.getProperty("java.version"));
+            }
+        }
+        System.exit(0);
+    }
+
+    static void run(final String name, final boolean virtualThreads) throws Exception {
+
+        final AtomicLong calls = new AtomicLong();
+        final int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        long start = System.nanoTime();
+        final List<ServiceQueue> serviceQueues = new ArrayList<>(SERVICES);
+        final List<AdderClientInterface> proxies = new ArrayList<>(SERVICES);
+        for (int index = 0; index < SERVICES; index++) {
+            /* Default queues preallocate 100,000 slots each, too much for 1,000 services. */
+            final ServiceQueue serviceQueue = new ServiceBuilder().setServiceObject(new CountingService(calls))
+                    .setRequestQueueBuilder(new QueueBuilder().setLinkTransferQueue())
+                    .setResponseQueueBuilder(new QueueBuilder().setLinkTransferQueue())
+                    .setInvokeDynamic(false).setVirtualThreads(virtualThreads).build().start();
+            serviceQueues.add(serviceQueue);
+            proxies.add(serviceQueue.createProxy(AdderClientInterface.class));
+        }
+        final long startUpMillis = (System.nanoTime() - start) / 1_000_000;
+
+        /* Listeners start after a short delay. */
+        Sys.sleep(500);
+        final int threads = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+
+        start = System.nanoTime();
+        for (int call = 0; call < CALLS_PER_SERVICE; call++) {
+            for (AdderClientInterface proxy : proxies) {
+                proxy.add("a", 1);
+            }
+        }
+        proxies.forEach(ServiceProxyUtils::flushServiceProxy);
+
+        final long expected = (long) SERVICES * CALLS_PER_SERVICE;
+        while (calls.get() < expected) {
+            Sys.sleep(1);
+        }
+        final long callMillis = (System.nanoTime() - start) / 1_000_000;
+
+        serviceQueues.forEach(ServiceQueue::stop);
+        Sys.sleep(500);
+
+        puts(name, "services", SERVICES, "platform threads added", threads, "start up ms", startUpMillis,
+                "calls", expected, "ms", callMillis, "calls/s", expected * 1_000 / Math.max(callMillis, 1));
+    }
+
+    public static class CountingService {
+
+        private final AtomicLong calls;
+
+        CountingService(final AtomicLong calls) {
+            this.calls = calls;
+        }
+
+        public void add(String name, int value) {
+            calls.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.perf;
+
+import io.advantageous.boon.core.Sys;
+import io.advantageous.qbit.queue.Queue;
+import io.advantageous.qbit.queue.QueueBuilder;
+import io.advantageous.qbit.queue.ReceiveQueueListener;
+import io.advantageous.qbit.queue.SendQueue;
+import io.advantageous.qbit.queue.WaitStrategy;
+import io.advantageous.qbit.queue.impl.BackOffWaitStrategy;
+import io.advantageous.qbit.queue.impl.BlockingWaitStrategy;
+import io.advantageous.qbit.queue.impl.BusySpinWaitStrategy;
+import io.advantageous.qbit.queue.impl.YieldingWaitStrategy;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static io.advantageous.boon.core.IO.puts;
+
+/**
+ * Measures p50/p99 hand-off latency from sendAndFlush to the listener's receive for each wait strategy.
+ * Messages are sent one at a time with a gap between them so the listener is waiting on an empty queue,
+ * which is the case the wait strategy is for.
+ */
+public class WaitStrategyLatencyPerfMain {
+
+    static final int MESSAGES = 20_000;
+    static final long GAP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    public static void main(String... args) throws Exception {
+
+        for (int run = 0; run < 2; run++) {
+            run("blocking", new BlockingWaitStrategy());
+            run("back off", new BackOffWaitStrategy());
+            run("yielding", new YieldingWaitStrategy());
+            run("busy spin", new BusySpinWaitStrategy());
+        }
+    }
+
+    static void run(final String name, final WaitStrategy waitStrategy) throws Exception {
+
+        final Queue<long[]> queue = new QueueBuilder().setName(name).setBatchSize(1).setPollWait(100)
+                .setWaitStrategy(waitStrategy).build();
+
+        final long[] latencies = new long[MESSAGES];
+        final CountDownLatch latch = new CountDownLatch(MESSAGES);
+
+        queue.startListener(new ReceiveQueueListener<long[]>() {
+            int index;
+
+            @Override
+            public void receive(long[] item) {
+                latencies[index++] = System.nanoTime() - item[0];
+                latch.countDown();
+            }
+        });
+
+        /* The listener thread starts after a delay. Do not count that. */
+        Sys.sleep(200);
+
+        final SendQueue<long[]> sendQueue = queue.sendQueue();
+        for (int index = 0; index < MESSAGES; index++) {
+            LockSupport.parkNanos(GAP_NANOS);
+            sendQueue.sendAndFlush(new long[]{System.nanoTime()});
+        }
+
+        latch.await(60, TimeUnit.SECONDS);
+        queue.stop();
+
+        Arrays.sort(latencies);
+        puts(name, "p50 us", latencies[MESSAGES / 2] / 1_000.0,
+                "p99 us", latencies[MESSAGES * 99 / 100] / 1_000.0,
+                "p99.9 us", latencies[MESSAGES * 999 / 1000] / 1_000.0);
+    }
+}
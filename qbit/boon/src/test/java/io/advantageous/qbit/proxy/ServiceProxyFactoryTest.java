@@ -25,7 +25,9 @@ import io.advantageous.qbit.queue.SendQueue;
 import io.advantageous.qbit.reactive.Callback;
 import io.advantageous.qbit.Factory;
 import io.advantageous.qbit.QBit;
+import io.advantageous.qbit.annotation.GenerateProxy;
 import io.advantageous.qbit.annotation.RequestMapping;
+import io.advantageous.qbit.client.ClientProxy;
 import io.advantageous.qbit.message.MethodCall;
 import io.advantageous.qbit.message.Response;
 import io.advantageous.qbit.queue.ReceiveQueue;
@@ -34,6 +36,7 @@ import io.advantageous.qbit.service.ServiceBundleBuilder;
 import io.advantageous.boon.core.Sys;
 import org.junit.Test;
 
+import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -179,6 +182,48 @@ public class ServiceProxyFactoryTest {
 
     }
 
+    @Test
+    public void testProxyObjectMethodsAndAddress() {
+        final SomeInterface myService = serviceBundle.createLocalProxy(SomeInterface.class, "myService");
+        final SomeInterface other = serviceBundle.createLocalProxy(SomeInterface.class, "myService");
+
+        calls.clear();
+
+        ok = myService.equals(myService) || die();
+        ok = !myService.equals(other) || die();
+        ok = myService.hashCode() == myService.hashCode() || die();
+        ok = myService.toString().contains("myService") || die(myService.toString());
+        ok = calls.isEmpty() || die(calls);
+
+        myService.method1();
+        myService.method1();
+
+        ok = calls.size() == 2 || die(calls);
+        ok = calls.get(1).name().equals("method1") || die(calls.get(1).name());
+        ok = calls.get(1).address().endsWith("myService/method1") || die(calls.get(1).address());
+    }
+
+    @Test
+    public void testGeneratedProxy() {
+        final GeneratedInterface myService = serviceBundle.createLocalProxy(GeneratedInterface.class, "myService");
+
+        calls.clear();
+
+        ok = !Proxy.isProxyClass(myService.getClass()) || die(myService.getClass());
+        ok = myService instanceof ClientProxy || die(myService.getClass());
+        ok = myService.equals(myService) || die();
+        ok = myService.toString().contains("myService") || die(myService.toString());
+        ok = calls.isEmpty() || die(calls);
+
+        myService.method1();
+        myService.method2("Hello", 5);
+
+        ok = calls.size() == 2 || die(calls);
+        ok = calls.get(1).address().endsWith("myService/method2") || die(calls.get(1).address());
+        final Object[] args = (Object[]) calls.get(1).body();
+        ok = args[0].equals("Hello") && args[1].equals(5) || die(args);
+    }
+
     @Test
     public void callingActualService() {
 
@@ -424,6 +469,14 @@ public class ServiceProxyFactoryTest {
     }
 
 
+    @GenerateProxy
+    public static interface GeneratedInterface {
+        void method1();
+
+        void method2(String hi, int amount);
+    }
+
+
     public static interface MyServiceInterfaceForClient {
 
         void method1();
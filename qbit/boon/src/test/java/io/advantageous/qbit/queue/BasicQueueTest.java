@@ -19,12 +19,24 @@
 package io.advantageous.qbit.queue;
 
 import io.advantageous.boon.core.Lists;
+import io.advantageous.qbit.queue.impl.BackOffWaitStrategy;
+import io.advantageous.qbit.queue.impl.BlockingWaitStrategy;
+import io.advantageous.qbit.queue.impl.BusySpinWaitStrategy;
+import io.advantageous.qbit.queue.impl.FlowControl;
+import io.advantageous.qbit.queue.impl.SharedQueueScheduler;
+import io.advantageous.qbit.queue.impl.YieldingWaitStrategy;
 import org.junit.Test;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static io.advantageous.boon.core.Exceptions.die;
 import static io.advantageous.boon.core.IO.puts;
@@ -361,4 +373,650 @@ public class BasicQueueTest {
     }
 
 
+    @Test
+    public void testUsingAutoFlushManyWriters() throws Exception {
+
+
+        final QueueBuilder builder = new QueueBuilder().setName("test").setPollWait(1000).setBatchSize(100)
+                .setLinkTransferQueue();
+        final Queue<String> queue = builder.build();
+
+        final AtomicInteger count = new AtomicInteger();
+
+        final SendQueue<String> sendQueue = queue.sendQueueWithAutoFlush(10, TimeUnit.MILLISECONDS);
+        final ReceiveQueue<String> receiveQueue = queue.receiveQueue();
+
+        sendQueue.start();
+
+        final List<Thread> writerThreads = new ArrayList<>();
+        for (int writer = 0; writer < 8; writer++) {
+            writerThreads.add(new Thread(() -> {
+                for (int index = 0; index < 10_050; index++) {
+                    sendQueue.send("item" + index);
+                }
+                /* No flush. The last partial batch is left for the periodic flush. */
+            }));
+        }
+
+        Thread readerThread = new Thread(() -> {
+            while (receiveQueue.pollWait() != null) {
+                count.incrementAndGet();
+            }
+        });
+
+        writerThreads.forEach(Thread::start);
+        readerThread.start();
+        for (Thread writerThread : writerThreads) {
+            writerThread.join();
+        }
+        readerThread.join();
+        sendQueue.stop();
+
+        puts(count);
+
+        ok = count.get() == 8 * 10_050 || die("count should be", 8 * 10_050, count);
+
+    }
+
+
+    @Test
+    public void testRecycleBatches() throws Exception {
+
+
+        final QueueBuilder builder = new QueueBuilder().setName("test").setPollWait(1000).setBatchSize(10)
+                .setRecycleBatches(true);
+        final Queue<String> queue = builder.build();
+
+        final AtomicInteger count = new AtomicInteger();
+
+        final SendQueue<String> sendQueue = queue.sendQueue();
+        final ReceiveQueue<String> receiveQueue = queue.receiveQueue();
+
+
+        Thread writerThread = new Thread(() -> {
+            for (int index = 0; index < 1000; index++) {
+                sendQueue.send("item" + index);
+                if (index % 7 == 0) {
+                    sendQueue.flushSends(); //partial batches
+                }
+            }
+            sendQueue.sendMany("hello", "how", "are", "you");
+            sendQueue.sendBatch(Lists.list("Good", "Thanks"));
+            sendQueue.flushSends();
+        });
+
+
+        Thread readerThread = new Thread(() -> {
+            String item = receiveQueue.pollWait();
+            while (item != null) {
+                count.incrementAndGet();
+                item = receiveQueue.pollWait();
+            }
+        });
+
+        writerThread.start();
+        readerThread.start();
+        writerThread.join();
+        readerThread.join();
+
+        puts(count);
+
+        ok = count.get() == 1006 || die("count should be 1006", count.get());
+
+    }
+
+
+    @Test
+    public void testWaitStrategies() throws Exception {
+
+        for (WaitStrategy waitStrategy : new WaitStrategy[]{new BlockingWaitStrategy(),
+                new BusySpinWaitStrategy(), new YieldingWaitStrategy(), new BackOffWaitStrategy()}) {
+
+            final Queue<String> queue = new QueueBuilder().setName("test").setPollWait(20).setBatchSize(10)
+                    .setWaitStrategy(waitStrategy).build();
+
+            final AtomicInteger count = new AtomicInteger();
+            final AtomicInteger idle = new AtomicInteger();
+
+            queue.startListener(new ReceiveQueueListener<String>() {
+                @Override
+                public void receive(String item) {
+                    count.incrementAndGet();
+                }
+
+                @Override
+                public void idle() {
+                    idle.incrementAndGet();
+                }
+            });
+
+            final SendQueue<String> sendQueue = queue.sendQueue();
+
+            for (int index = 0; index < 100; index++) {
+                sendQueue.send("item" + index);
+                if (index % 10 == 0) {
+                    sleep(1);
+                    sendQueue.flushSends();
+                }
+            }
+            sendQueue.flushSends();
+
+            sleep(200);
+            queue.stop();
+
+            puts(waitStrategy.getClass().getSimpleName(), count, idle);
+            ok = count.get() == 100 || die("count should be 100", count.get(), waitStrategy);
+            ok = idle.get() > 0 || die("idle should have been called", waitStrategy);
+        }
+    }
+
+
+    @Test
+    public void testFlowControlReject() {
+
+        final List<Object> rejected = new ArrayList<>();
+        final Queue<String> queue = new QueueBuilder().setName("test").setBatchSize(10).setSize(2)
+                .setFlowControl(1000, 500, OverflowPolicy.REJECT).setRejectionHandler(rejected::add).build();
+
+        final SendQueue<String> sendQueue = queue.sendQueue();
+        for (int index = 0; index < 30; index++) {
+            sendQueue.send("item" + index);
+        }
+
+        ok = rejected.size() == 10 || die("third batch should be rejected", rejected.size());
+        ok = "item20".equals(rejected.get(0)) || die(rejected.get(0));
+    }
+
+    @Test
+    public void testFlowControlDropOldest() {
+
+        final List<Object> rejected = new ArrayList<>();
+        final Queue<String> queue = new QueueBuilder().setName("test").setBatchSize(10).setSize(2)
+                .setFlowControl(1000, 500, OverflowPolicy.DROP_OLDEST).setRejectionHandler(rejected::add).build();
+
+        final SendQueue<String> sendQueue = queue.sendQueue();
+        for (int index = 0; index < 30; index++) {
+            sendQueue.send("item" + index);
+        }
+
+        ok = rejected.size() == 10 || die("first batch should be dropped", rejected.size());
+        ok = "item0".equals(rejected.get(0)) || die(rejected.get(0));
+
+        final ReceiveQueue<String> receiveQueue = queue.receiveQueue();
+        ok = "item10".equals(receiveQueue.poll()) || die();
+    }
+
+    @Test
+    public void testFlowControlShedWithWaterMarks() {
+
+        final List<Object> rejected = new ArrayList<>();
+        final Queue<String> queue = new QueueBuilder().setName("test").setBatchSize(10).setRecycleBatches(true)
+                .setFlowControl(20, 10, OverflowPolicy.SHED).setRejectionHandler(rejected::add).build();
+
+        final SendQueue<String> sendQueue = queue.sendQueue();
+        final ReceiveQueue<String> receiveQueue = queue.receiveQueue();
+
+        for (int index = 0; index < 20; index++) {
+            sendQueue.send("item" + index);
+        }
+        ok = sendQueue.isUnderPressure() || die("should be over the high water mark");
+
+        for (int index = 20; index < 30; index++) {
+            sendQueue.send("item" + index);
+        }
+        ok = rejected.size() == 10 || die("third batch should be shed", rejected.size());
+
+        /* Read one batch, depth drops to the low water mark. */
+        for (int index = 0; index < 10; index++) {
+            ok = ("item" + index).equals(receiveQueue.poll()) || die(index);
+        }
+        ok = !sendQueue.isUnderPressure() || die("should be back at the low water mark");
+
+        for (int index = 30; index < 40; index++) {
+            sendQueue.send("item" + index);
+        }
+        ok = rejected.size() == 10 || die("should accept again", rejected.size());
+    }
+
+
+
+    @Test
+    public void testFlowControlPressureClearsOnceDrained() throws Exception {
+
+        final FlowControl flowControl = new FlowControl(20, 10, OverflowPolicy.SHED, null);
+        final int producers = 4;
+        final int batches = 200_000;
+        final AtomicInteger producing = new AtomicInteger(producers);
+
+        final List<Thread> threads = new ArrayList<>();
+        for (int producer = 0; producer < producers; producer++) {
+            threads.add(new Thread(() -> {
+                for (int index = 0; index < batches; index++) {
+                    flowControl.sent(10);
+                }
+                producing.decrementAndGet();
+            }));
+        }
+        /* One consumer, so it never takes more than was sent. */
+        threads.add(new Thread(() -> {
+            while (producing.get() > 0 || flowControl.depth() > 0) {
+                if (flowControl.depth() >= 10) {
+                    flowControl.received(10);
+                }
+            }
+        }));
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(30_000);
+        }
+
+        ok = flowControl.depth() == 0 || die(flowControl.depth());
+        ok = !flowControl.isUnderPressure() || die("empty queue should not be under pressure");
+    }
+
+    @Test
+    public void testSharedScheduler() throws Exception {
+
+        final SharedQueueScheduler scheduler = new SharedQueueScheduler(2, "test");
+        final int queueCount = 50;
+
+        final List<Queue<String>> queues = new ArrayList<>();
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicInteger idle = new AtomicInteger();
+        final AtomicInteger shutdown = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+
+        for (int index = 0; index < queueCount; index++) {
+
+            final Queue<String> queue = new QueueBuilder().setName("test" + index).setPollWait(20).setBatchSize(10)
+                    .setLinkTransferQueue().setSharedScheduler(scheduler).build();
+            final AtomicInteger inside = new AtomicInteger();
+
+            queue.startListener(new ReceiveQueueListener<String>() {
+                @Override
+                public void receive(String item) {
+                    if (inside.incrementAndGet() != 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    count.incrementAndGet();
+                    Thread.yield();
+                    inside.decrementAndGet();
+                }
+
+                @Override
+                public void idle() {
+                    idle.incrementAndGet();
+                }
+
+                @Override
+                public void shutdown() {
+                    shutdown.incrementAndGet();
+                }
+            });
+            queues.add(queue);
+        }
+
+        final List<Thread> senders = new ArrayList<>();
+        for (int sender = 0; sender < 4; sender++) {
+            final Thread thread = new Thread(() -> {
+                for (Queue<String> queue : queues) {
+                    final SendQueue<String> sendQueue = queue.sendQueue();
+                    for (int index = 0; index < 100; index++) {
+                        sendQueue.send("item" + index);
+                    }
+                    sendQueue.flushSends();
+                }
+            });
+            thread.start();
+            senders.add(thread);
+        }
+        for (Thread thread : senders) {
+            thread.join();
+        }
+
+        for (int index = 0; index < 100 && count.get() < queueCount * 400; index++) {
+            sleep(10);
+        }
+        sleep(100);
+
+        queues.forEach(Queue::stop);
+        sleep(100);
+        scheduler.shutdown();
+
+        puts(count, idle, shutdown, overlaps);
+        ok = count.get() == queueCount * 400 || die("count should be", queueCount * 400, count.get());
+        ok = overlaps.get() == 0 || die("a queue was processed by two threads at once", overlaps.get());
+        ok = idle.get() > 0 || die("idle should have been called");
+        ok = shutdown.get() == queueCount || die("shutdown should be called once per queue", shutdown.get());
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+
+        /* Falls back to a platform thread on JDKs without virtual threads. */
+        final Queue<String> queue = new QueueBuilder().setName("virtual").setPollWait(20).setBatchSize(10)
+                .setVirtualThreads(true).build();
+
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+
+        queue.startListener(new ReceiveQueueListener<String>() {
+            @Override
+            public void receive(String item) {
+                thread.set(Thread.currentThread());
+                count.incrementAndGet();
+            }
+        });
+
+        final SendQueue<String> sendQueue = queue.sendQueue();
+        for (int index = 0; index < 100; index++) {
+            sendQueue.send("item" + index);
+        }
+        sendQueue.flushSends();
+
+        for (int index = 0; index < 100 && count.get() < 100; index++) {
+            sleep(10);
+        }
+        queue.stop();
+
+        ok = count.get() == 100 || die("count should be 100", count.get());
+        ok = thread.get().getName().startsWith("QueueListener virtual") || die(thread.get().getName());
+    }
+
+    @Test
+    public void testDrain() {
+
+        for (boolean recycle : new boolean[]{false, true}) {
+
+            final Queue<String> queue = new QueueBuilder().setName("drain").setBatchSize(10)
+                    .setRecycleBatches(recycle).setFlowControl(1000, 500, OverflowPolicy.REJECT).build();
+            final SendQueue<String> sendQueue = queue.sendQueue();
+            final ReceiveQueue<String> receiveQueue = queue.receiveQueue();
+
+            for (int index = 0; index < 25; index++) {
+                sendQueue.send("item" + index);
+            }
+            sendQueue.flushSends();
+
+            final List<String> items = new ArrayList<>();
+            final List<Integer> lengths = new ArrayList<>();
+            final BatchConsumer<String> consumer = (array, offset, length) -> {
+                lengths.add(length);
+                for (int index = offset; index < offset + length; index++) {
+                    items.add((String) array[index]);
+                }
+            };
+
+            ok = receiveQueue.drain(consumer, 15) == 15 || die("max should be honored", recycle);
+            ok = receiveQueue.drain(consumer) == 10 || die("rest should be drained", recycle);
+            ok = receiveQueue.drain(consumer) == 0 || die("queue should be empty", recycle);
+
+            ok = lengths.equals(Lists.list(10, 5, 5, 5)) || die(lengths, recycle);
+            for (int index = 0; index < 25; index++) {
+                ok = items.get(index).equals("item" + index) || die(items, recycle);
+            }
+            ok = !sendQueue.isUnderPressure() || die();
+        }
+    }
+
+    @Test
+    public void testDefaultDrainPolls() {
+
+        final ArrayDeque<String> deque = new ArrayDeque<>();
+        for (int index = 0; index < 100; index++) {
+            deque.add("item" + index);
+        }
+
+        /* Only poll is implemented, so drain has to fall back to polling. */
+        final ReceiveQueue<String> receiveQueue = new ReceiveQueue<String>() {
+            public String pollWait() {
+                return deque.poll();
+            }
+
+            public String poll() {
+                return deque.poll();
+            }
+
+            public String take() {
+                return deque.poll();
+            }
+
+            public Iterable<String> readBatch(int max) {
+                throw new UnsupportedOperationException();
+            }
+
+            public Iterable<String> readBatch() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        final List<String> items = new ArrayList<>();
+        final List<Integer> lengths = new ArrayList<>();
+        final BatchConsumer<String> consumer = (array, offset, length) -> {
+            lengths.add(length);
+            for (int index = offset; index < offset + length; index++) {
+                items.add((String) array[index]);
+            }
+        };
+
+        ok = receiveQueue.drain(consumer, 70) == 70 || die("max should be honored", lengths);
+        ok = receiveQueue.drain(consumer) == 30 || die("rest should be drained", lengths);
+        ok = receiveQueue.drain(consumer) == 0 || die("queue should be empty", lengths);
+
+        ok = lengths.equals(Lists.list(64, 6, 30)) || die(lengths);
+        for (int index = 0; index < 100; index++) {
+            ok = items.get(index).equals("item" + index) || die(items);
+        }
+    }
+
+    @Test
+    public void testReceiveBatch() throws Exception {
+
+        final Queue<String> queue = new QueueBuilder().setName("batches").setPollWait(20).setBatchSize(10)
+                .build();
+
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicInteger singles = new AtomicInteger();
+        final List<Integer> lengths = new ArrayList<>();
+
+        queue.startListener(new ReceiveQueueListener<String>() {
+            @Override
+            public void receive(String item) {
+                singles.incrementAndGet();
+            }
+
+            @Override
+            public void receiveBatch(Object[] items, int offset, int length) {
+                synchronized (lengths) {
+                    lengths.add(length);
+                }
+                count.addAndGet(length);
+            }
+        });
+
+        sleep(100);
+
+        final SendQueue<String> sendQueue = queue.sendQueue();
+        for (int index = 0; index < 100; index++) {
+            sendQueue.send("item" + index);
+        }
+        sendQueue.flushSends();
+
+        for (int index = 0; index < 100 && count.get() < 100; index++) {
+            sleep(10);
+        }
+        queue.stop();
+
+        puts(lengths);
+        ok = count.get() == 100 || die("count should be 100", count.get());
+        ok = singles.get() == 0 || die("receive should not be called", singles.get());
+        synchronized (lengths) {
+            ok = lengths.stream().allMatch(length -> length == 10) || die("whole batches expected", lengths);
+        }
+    }
+
+    @Test
+    public void testPriorityLanes() {
+
+        for (boolean recycle : new boolean[]{false, true}) {
+
+            final Queue<String> queue = new QueueBuilder().setName("lanes").setBatchSize(10).setRecycleBatches(recycle)
+                    .setPriorityLane(item -> item.toString().startsWith("high")).setPriorityBurst(3).build();
+            final SendQueue<String> sendQueue = queue.sendQueue();
+            final ReceiveQueue<String> receiveQueue = queue.receiveQueue();
+
+            for (int index = 0; index < 5; index++) {
+                sendQueue.send("normal" + index);
+            }
+            for (int index = 0; index < 7; index++) {
+                sendQueue.send("high" + index);
+            }
+            sendQueue.flushSends();
+
+            final List<String> items = new ArrayList<>();
+            String item;
+            while ((item = receiveQueue.poll()) != null) {
+                items.add(item);
+            }
+
+            /* High priority first, but after every 3 in a row one normal item gets through. */
+            ok = items.equals(Lists.list("high0", "high1", "high2", "normal0", "high3", "high4", "high5",
+                    "normal1", "high6", "normal2", "normal3", "normal4")) || die(items, recycle);
+        }
+    }
+
+    @Test
+    public void testPriorityLanesDrain() {
+
+        final Queue<String> queue = new QueueBuilder().setName("lanesDrain").setBatchSize(10)
+                .setPriorityLane(item -> item.toString().startsWith("high")).setPriorityBurst(4).build();
+        final SendQueue<String> sendQueue = queue.sendQueue();
+        final ReceiveQueue<String> receiveQueue = queue.receiveQueue();
+
+        for (int index = 0; index < 6; index++) {
+            sendQueue.send("normal" + index);
+        }
+        for (int index = 0; index < 6; index++) {
+            sendQueue.send("high" + index);
+        }
+        sendQueue.flushSends();
+
+        final List<String> items = new ArrayList<>();
+        final int count = receiveQueue.drain((array, offset, length) -> {
+            for (int index = offset; index < offset + length; index++) {
+                items.add((String) array[index]);
+            }
+        });
+
+        ok = count == 12 || die(count);
+        ok = items.equals(Lists.list("high0", "high1", "high2", "high3", "normal0", "high4", "high5",
+                "normal1", "normal2", "normal3", "normal4", "normal5")) || die(items);
+    }
+
+    @Test
+    public void testPriorityLaneLimit() {
+
+        final Queue<String> queue = new QueueBuilder().setName("lanesLimit").setBatchSize(10)
+                .setPriorityLane(item -> item.toString().startsWith("high")).setPriorityLaneLimit(4).build();
+        final SendQueue<String> sendQueue = queue.sendQueue();
+        final ReceiveQueue<String> receiveQueue = queue.receiveQueue();
+
+        for (int index = 0; index < 6; index++) {
+            sendQueue.send("high" + index);
+        }
+        sendQueue.send("normal0");
+        sendQueue.flushSends();
+
+        final List<String> items = new ArrayList<>();
+        String item;
+        while ((item = receiveQueue.poll()) != null) {
+            items.add(item);
+        }
+
+        /* The lane is full after four, so the rest wait in the normal lane. */
+        ok = items.equals(Lists.list("high0", "high1", "high2", "high3", "high4", "high5", "normal0")) || die(items);
+
+        /* Drained, so the lane takes high priority items again. */
+        sendQueue.send("normal1");
+        sendQueue.send("high6");
+        ok = "high6".equals(receiveQueue.poll()) || die("high6 should be back in the high priority lane");
+    }
+
+    @Test
+    public void testPriorityLanesListener() throws Exception {
+
+        for (boolean shared : new boolean[]{false, true}) {
+
+            final Queue<String> queue = new QueueBuilder().setName("lanesListener").setPollWait(1000)
+                    .setSharedScheduler(shared ? SharedQueueScheduler.sharedQueueScheduler() : null)
+                    .setPriorityLane(item -> item.toString().startsWith("high")).build();
+
+            final List<String> items = new CopyOnWriteArrayList<>();
+            queue.startListener(new ReceiveQueueListener<String>() {
+                @Override
+                public void receive(String item) {
+                    items.add(item);
+                }
+            });
+            sleep(100);
+
+            /* The listener is waiting on the normal lane with a long poll wait. A priority item has to wake it up. */
+            final long start = System.currentTimeMillis();
+            queue.sendQueue().sendAndFlush("high0");
+
+            for (int index = 0; index < 100 && items.isEmpty(); index++) {
+                sleep(5);
+            }
+            final long time = System.currentTimeMillis() - start;
+            queue.stop();
+
+            ok = items.equals(Lists.list("high0")) || die(items, shared);
+            ok = time < 500 || die("priority item should not wait for the poll wait", time, shared);
+        }
+    }
+
+    @Test
+    public void testQueueStats() throws Exception {
+
+        final Map<String, Integer> totals = new ConcurrentHashMap<>();
+        final Map<String, Integer> last = new ConcurrentHashMap<>();
+
+        final Queue<String> queue = new QueueBuilder().setName("stats").setBatchSize(10).setPollWait(10)
+                .setStatsInterval(50).setStatsSampleEvery(1)
+                .setStatsRecorder((timestamp, names, counts) -> {
+                    for (int index = 0; index < names.length; index++) {
+                        totals.merge(names[index], counts[index], Integer::sum);
+                        last.put(names[index], counts[index]);
+                    }
+                }).build();
+
+        final AtomicInteger count = new AtomicInteger();
+        queue.startListener(new ReceiveQueueListener<String>() {
+            @Override
+            public void receive(String item) {
+                count.incrementAndGet();
+            }
+        });
+
+        final SendQueue<String> sendQueue = queue.sendQueue();
+        for (int index = 0; index < 95; index++) {
+            sendQueue.send("item" + index);
+        }
+        sendQueue.flushSends();
+
+        for (int index = 0; index < 100 && (count.get() < 95 || totals.getOrDefault("queue.stats.received", 0) < 95);
+             index++) {
+            sleep(10);
+        }
+        queue.stop();
+
+        puts(totals);
+        ok = totals.get("queue.stats.sent") == 95 || die(totals);
+        ok = totals.get("queue.stats.received") == 95 || die(totals);
+        ok = totals.get("queue.stats.batches") == 10 || die(totals);
+        ok = last.get("queue.stats.depth") == 0 || die(last);
+        ok = totals.get("queue.stats.batchSize.max") >= 10 || die(totals);
+        ok = totals.get("queue.stats.empty") > 0 || die(totals);
+        ok = totals.get("queue.stats.idle") > 0 || die(totals);
+    }
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue;
+
+import io.advantageous.qbit.queue.impl.MultiProducerRingBufferQueue;
+import io.advantageous.qbit.queue.impl.SingleProducerRingBufferQueue;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.IO.puts;
+import static io.advantageous.boon.core.Sys.sleep;
+
+public class RingBufferQueueTest {
+
+    boolean ok;
+
+    @Test
+    public void testOfferPollWrap() {
+
+        final SingleProducerRingBufferQueue ring = new SingleProducerRingBufferQueue(6);
+
+        ok = ring.capacity() == 8 || die("capacity should round up to 8", ring.capacity());
+
+        for (int lap = 0; lap < 3; lap++) {
+            for (int index = 0; index < 8; index++) {
+                ok = ring.offer("item" + index) || die("offer failed", index);
+            }
+
+            ok = !ring.offer("full") || die("ring should be full");
+            ok = ring.size() == 8 || die("size should be 8", ring.size());
+            ok = ring.remainingCapacity() == 0 || die();
+
+            for (int index = 0; index < 8; index++) {
+                ok = ("item" + index).equals(ring.poll()) || die("wrong order", index);
+            }
+
+            ok = ring.poll() == null || die("ring should be empty");
+            ok = ring.isEmpty() || die();
+        }
+    }
+
+    @Test
+    public void testTimedPollOnEmpty() throws Exception {
+
+        final MultiProducerRingBufferQueue ring = new MultiProducerRingBufferQueue(16);
+
+        final long start = System.currentTimeMillis();
+        ok = ring.poll(20, TimeUnit.MILLISECONDS) == null || die();
+        final long duration = System.currentTimeMillis() - start;
+
+        ok = duration >= 15 || die("timed poll returned too soon", duration);
+    }
+
+    @Test
+    public void testMultipleProducers() throws Exception {
+
+        final MultiProducerRingBufferQueue ring = new MultiProducerRingBufferQueue(64);
+        final int producers = 4;
+        final int perProducer = 50_000;
+        final CountDownLatch latch = new CountDownLatch(producers);
+        final AtomicLong sum = new AtomicLong();
+
+        for (int producer = 0; producer < producers; producer++) {
+            new Thread(() -> {
+                try {
+                    for (int index = 1; index <= perProducer; index++) {
+                        ring.put(index);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                latch.countDown();
+            }).start();
+        }
+
+        Thread consumer = new Thread(() -> {
+            for (int count = 0; count < producers * perProducer; count++) {
+                try {
+                    sum.addAndGet((Integer) ring.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        consumer.start();
+
+        latch.await(10, TimeUnit.SECONDS);
+        consumer.join(10_000);
+
+        final long expected = (long) producers * perProducer * (perProducer + 1) / 2;
+        ok = sum.get() == expected || die("sum was off", sum.get(), expected);
+        ok = ring.isEmpty() || die();
+    }
+
+    @Test
+    public void testRingBufferQueueWithListener() {
+
+        final Queue<String> queue = new QueueBuilder().setName("ring").setPollWait(100).setBatchSize(10)
+                .setRingBuffer(128, ProducerMode.SINGLE).build();
+
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicInteger empty = new AtomicInteger();
+        final AtomicInteger limit = new AtomicInteger();
+
+        queue.startListener(new ReceiveQueueListener<String>() {
+            @Override
+            public void receive(String item) {
+                count.incrementAndGet();
+            }
+
+            @Override
+            public void empty() {
+                empty.incrementAndGet();
+            }
+
+            @Override
+            public void limit() {
+                limit.incrementAndGet();
+            }
+        });
+
+        final SendQueue<String> sendQueue = queue.sendQueue();
+        for (int index = 0; index < 1000; index++) {
+            sendQueue.send("item" + index);
+        }
+        sendQueue.flushSends();
+
+        for (int index = 0; index < 100 && count.get() < 1000; index++) {
+            sleep(10);
+        }
+
+        puts(count, empty, limit);
+        ok = count.get() == 1000 || die("count should be 1000", count.get());
+        ok = empty.get() > 0 || die("empty should have been called");
+        ok = limit.get() > 0 || die("limit should have been called");
+
+        queue.stop();
+    }
+
+    @Test
+    public void testMultiProducerRingBufferQueueWithSendQueues() throws Exception {
+
+        final Queue<String> queue = new QueueBuilder().setName("ring").setPollWait(100).setBatchSize(10)
+                .setRingBuffer(16, ProducerMode.MULTI).build();
+
+        final AtomicInteger count = new AtomicInteger();
+        final ReceiveQueue<String> receiveQueue = queue.receiveQueue();
+
+        Thread reader = new Thread(() -> {
+            while (receiveQueue.pollWait() != null) {
+                count.incrementAndGet();
+            }
+        });
+
+        Thread writer1 = new Thread(() -> {
+            final SendQueue<String> sendQueue = queue.sendQueue();
+            for (int index = 0; index < 1000; index++) {
+                sendQueue.send("a" + index);
+            }
+            sendQueue.flushSends();
+        });
+
+        Thread writer2 = new Thread(() -> {
+            final SendQueue<String> sendQueue = queue.sendQueue();
+            for (int index = 0; index < 1000; index++) {
+                sendQueue.send("b" + index);
+            }
+            sendQueue.flushSends();
+        });
+
+        writer1.start();
+        writer2.start();
+        reader.start();
+
+        writer1.join();
+        writer2.join();
+        reader.join();
+
+        ok = count.get() == 2000 || die("count should be 2000", count.get());
+    }
+}
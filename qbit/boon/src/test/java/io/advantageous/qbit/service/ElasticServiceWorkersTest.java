@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service;
+
+import io.advantageous.boon.core.Sys;
+import io.advantageous.qbit.message.MethodCallBuilder;
+import io.advantageous.qbit.service.dispatchers.ElasticServiceWorkers;
+import io.advantageous.qbit.service.dispatchers.ServiceWorkers;
+import io.advantageous.qbit.util.Timer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.qbit.queue.QueueBuilder.queueBuilder;
+import static io.advantageous.qbit.service.ServiceBuilder.serviceBuilder;
+
+public class ElasticServiceWorkersTest {
+
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch hold = new CountDownLatch(1);
+    final List<String> decisions = new ArrayList<>();
+    ElasticServiceWorkers workers;
+    long now;
+    boolean ok = true;
+
+    @Before
+    public void setup() {
+        final ServiceBuilder serviceBuilder = serviceBuilder()
+                .setRequestQueueBuilder(queueBuilder().setBatchSize(1));
+
+        workers = ServiceWorkers.elasticWorkers(
+                () -> serviceBuilder.setServiceObject(new BlockingService(release, hold)).build())
+                .setName("blocking").setMinWorkers(1).setMaxWorkers(3)
+                .setCooldownMillis(1_000)
+                .setCheckInterval(0, TimeUnit.MILLISECONDS)
+                .setFlushInterval(0, TimeUnit.MILLISECONDS)
+                .setStatsRecorder((timestamp, names, counts) ->
+                        decisions.add(names[0] + "=" + counts[0] + (counts[3] == 1 ? " up" : " down")));
+        now = Timer.timer().now();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        hold.countDown();
+        workers.stop();
+    }
+
+    @Test
+    public void testGrowsOnBacklogAndShrinksWhenIdle() {
+
+        workers.setScaleUpPendingCalls(2).start();
+        ok = workers.workerCount() == 1 || die(workers.workerCount());
+
+        workers.accept(MethodCallBuilder.methodWithArgs("block"));
+        for (int index = 0; index < 10; index++) {
+            workers.accept(MethodCallBuilder.methodWithArgs("fast"));
+        }
+
+        workers.checkScaling(now += 100);
+        workers.checkScaling(now += 100);
+        workers.checkScaling(now += 100);
+        ok = workers.workerCount() == 3 || die("max is 3", workers.workerCount());
+        ok = workers.scaleUps() == 2 || die(workers.scaleUps());
+
+        /* Still within the cooldown of the last scale up. */
+        release.countDown();
+        waitForNoPendingCalls();
+        workers.checkScaling(now += 100);
+        ok = workers.workerCount() == 3 || die(workers.workerCount());
+
+        workers.checkScaling(now += 1_000);
+        workers.checkScaling(now += 100);
+        workers.checkScaling(now += 100);
+        ok = workers.workerCount() == 1 || die("min is 1", workers.workerCount());
+        ok = workers.scaleDowns() == 2 || die(workers.scaleDowns());
+
+        ok = decisions.toString().equals("[blocking.workers=2 up, blocking.workers=3 up, " +
+                "blocking.workers=2 down, blocking.workers=1 down]") || die(decisions);
+
+        workers.accept(MethodCallBuilder.methodWithArgs("fast"));
+        waitForNoPendingCalls();
+    }
+
+    @Test
+    public void testGrowsWhenCallsStall() {
+
+        workers.setScaleUpPendingCalls(0).setScaleUpSojournMillis(50).start();
+
+        workers.accept(MethodCallBuilder.methodWithArgs("block"));
+        workers.accept(MethodCallBuilder.methodWithArgs("fast"));
+
+        workers.checkScaling(now += 100);
+        ok = workers.workerCount() == 2 || die(workers.workerCount());
+        ok = decisions.toString().equals("[blocking.workers=2 up]") || die(decisions);
+    }
+
+    @Test
+    public void testScaleDownDoesNotLookLikeStall() {
+
+        workers.setScaleUpPendingCalls(0).setScaleUpSojournMillis(50).start();
+
+        workers.accept(MethodCallBuilder.methodWithArgs("block"));
+        workers.accept(MethodCallBuilder.methodWithArgs("fast"));
+        workers.checkScaling(now += 100);
+        ok = workers.workerCount() == 2 || die(workers.workerCount());
+
+        /* The first worker is blocked so these mostly go to the second one, which is retired below. */
+        for (int index = 0; index < 10; index++) {
+            workers.accept(MethodCallBuilder.methodWithArgs("fast"));
+        }
+        release.countDown();
+        waitForPendingCalls(0);
+        workers.checkScaling(now += 100);
+
+        workers.checkScaling(now += 1_000);
+        ok = workers.workerCount() == 1 || die(workers.workerCount());
+
+        /* Calls are still getting done, the retired worker's count must not hide that. */
+        workers.accept(MethodCallBuilder.methodWithArgs("fast"));
+        workers.accept(MethodCallBuilder.methodWithArgs("fast"));
+        workers.accept(MethodCallBuilder.methodWithArgs("hold"));
+        waitForPendingCalls(1);
+        workers.checkScaling(now += 10);
+
+        ok = workers.workerCount() == 1 || die(workers.workerCount());
+        ok = workers.scaleUps() == 1 || die(workers.scaleUps());
+        ok = decisions.toString().equals("[blocking.workers=2 up, blocking.workers=1 down]") || die(decisions);
+    }
+
+    private void waitForNoPendingCalls() {
+        waitForPendingCalls(0);
+    }
+
+    private void waitForPendingCalls(final long expected) {
+        for (int index = 0; index < 5_000; index++) {
+            long pending = 0;
+            for (long workerPending : workers.pendingCallsByWorker()) {
+                pending += workerPending;
+            }
+            if (pending == expected) {
+                return;
+            }
+            Sys.sleep(1);
+        }
+        die("calls still pending", expected);
+    }
+
+    public static class BlockingService {
+
+        private final CountDownLatch release;
+        private final CountDownLatch hold;
+
+        public BlockingService(final CountDownLatch release, final CountDownLatch hold) {
+            this.release = release;
+            this.hold = hold;
+        }
+
+        void block() throws InterruptedException {
+            release.await(10, TimeUnit.SECONDS);
+        }
+
+        void hold() throws InterruptedException {
+            hold.await(10, TimeUnit.SECONDS);
+        }
+
+        void fast() {
+        }
+    }
+}
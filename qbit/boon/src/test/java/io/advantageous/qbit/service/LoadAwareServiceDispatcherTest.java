@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service;
+
+import io.advantageous.boon.core.Sys;
+import io.advantageous.qbit.message.MethodCallBuilder;
+import io.advantageous.qbit.service.dispatchers.ServiceWorkers;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.qbit.queue.QueueBuilder.queueBuilder;
+import static io.advantageous.qbit.service.ServiceBuilder.serviceBuilder;
+
+public class LoadAwareServiceDispatcherTest {
+
+    boolean ok = true;
+
+    @Test
+    public void testLeastLoadedSkipsBusyWorker() {
+        fastCallsAvoidBusyWorker(ServiceWorkers.leastLoadedWorkers(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testPowerOfTwoChoicesSkipsBusyWorker() {
+        fastCallsAvoidBusyWorker(ServiceWorkers.powerOfTwoChoicesWorkers(0, TimeUnit.MILLISECONDS));
+    }
+
+    private void fastCallsAvoidBusyWorker(final ServiceWorkers dispatcher) {
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final ServiceBuilder serviceBuilder = serviceBuilder()
+                .setRequestQueueBuilder(queueBuilder().setBatchSize(1));
+        dispatcher.addServices(serviceBuilder.setServiceObject(new SlowFastService(release)).build(),
+                serviceBuilder.setServiceObject(new SlowFastService(release)).build());
+        dispatcher.start();
+
+        final int busy;
+        try {
+            dispatcher.accept(MethodCallBuilder.methodWithArgs("slow"));
+            busy = dispatcher.dispatchedByWorker()[0] == 1 ? 0 : 1;
+            ok = dispatcher.pendingCalls(busy) == 1 || die(dispatcher.pendingCalls(busy));
+
+            for (int index = 0; index < 20; index++) {
+                dispatcher.accept(MethodCallBuilder.methodWithArgs("fast"));
+                waitForIdle(dispatcher, 1 - busy);
+            }
+
+            final long[] dispatched = dispatcher.dispatchedByWorker();
+            ok = dispatched[busy] == 1 && dispatched[1 - busy] == 20 || die(Arrays.toString(dispatched));
+            ok = dispatcher.pendingCalls(busy) == 1 || die(dispatcher.pendingCalls(busy));
+        } finally {
+            release.countDown();
+        }
+
+        waitForIdle(dispatcher, busy);
+        ok = dispatcher.pendingCalls(busy) == 0 || die(dispatcher.pendingCalls(busy));
+        dispatcher.stop();
+    }
+
+    private void waitForIdle(final ServiceWorkers dispatcher, final int worker) {
+        for (int index = 0; index < 5_000 && dispatcher.pendingCalls(worker) > 0; index++) {
+            Sys.sleep(1);
+        }
+    }
+
+    public static class SlowFastService {
+
+        private final CountDownLatch release;
+
+        public SlowFastService(final CountDownLatch release) {
+            this.release = release;
+        }
+
+        void slow() throws InterruptedException {
+            release.await(10, TimeUnit.SECONDS);
+        }
+
+        void fast() {
+        }
+    }
+}
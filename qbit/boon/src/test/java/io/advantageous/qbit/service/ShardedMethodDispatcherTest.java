@@ -56,13 +56,17 @@
 package io.advantageous.qbit.service;
 
 import io.advantageous.qbit.client.ClientProxy;
+import io.advantageous.qbit.message.MethodCallBuilder;
 import io.advantageous.qbit.queue.QueueBuilder;
+import io.advantageous.qbit.service.dispatchers.ConsistentHashShardRule;
 import io.advantageous.qbit.service.dispatchers.ServiceWorkers;
+import io.advantageous.qbit.service.dispatchers.ShardedMethodDispatcher;
 import io.advantageous.qbit.test.TimedTesting;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.advantageous.boon.core.Exceptions.die;
@@ -147,6 +151,80 @@ public class ShardedMethodDispatcherTest extends TimedTesting {
     }
 
 
+    @Test
+    public void testShardIndexHandlesMinValue() {
+        ok = ServiceWorkers.shardIndex(Integer.MIN_VALUE, 10) == 8 || die(ServiceWorkers.shardIndex(Integer.MIN_VALUE, 10));
+        ok = ServiceWorkers.shardIndex(-7, 10) == 7 || die();
+        ok = ServiceWorkers.shardIndex(17, 10) == 7 || die();
+    }
+
+    @Test
+    public void testConsistentHashSpreadAndMovement() {
+        final ConsistentHashShardRule rule = ConsistentHashShardRule.consistentHashShardRule(args -> args[0]);
+
+        final int keys = 20_000;
+        final int[] perWorker = new int[10];
+        int moved = 0;
+        for (int key = 0; key < keys; key++) {
+            final int before = rule.worker(key, 10);
+            perWorker[before]++;
+            if (rule.worker(key, 11) != before) {
+                moved++;
+            }
+        }
+
+        for (int count : perWorker) {
+            ok = count > keys / 10 / 2 && count < keys / 10 * 3 / 2 || die("uneven shares", perWorker);
+        }
+
+        /* Adding an eleventh worker should move about 1/11 of the keys, not 10/11. */
+        ok = moved < keys / 5 || die("moved", moved);
+        ok = rule.shard("method", new Object[]{"bob"}, 11) == rule.worker("bob".hashCode(), 11) || die();
+    }
+
+    @Test
+    public void testHotShardRelocation() {
+
+        final ShardedMethodDispatcher hot = ServiceWorkers.consistentHashWorkers(50, TimeUnit.MILLISECONDS,
+                ConsistentHashShardRule.consistentHashShardRule(args -> "sameKey"));
+        hot.setHotShardDepth(10).setRelocatable(methodCall -> methodCall.name().equals("pickSuggestions"));
+
+        final ServiceBuilder serviceBuilder = serviceBuilder();
+        for (int index = 0; index < 4; index++) {
+            hot.addServices(serviceBuilder.setServiceObject(new HotService()).build());
+        }
+        hot.start();
+
+        for (int index = 0; index < 100; index++) {
+            hot.accept(MethodCallBuilder.methodWithArgs("pickSuggestions", "sameKey"));
+        }
+        hot.flush();
+
+        final long[] dispatched = hot.dispatchedByWorker();
+        final long[] relocated = hot.relocatedByShard();
+        int workersUsed = 0;
+        long relocatedTotal = 0;
+        for (int worker = 0; worker < dispatched.length; worker++) {
+            workersUsed += dispatched[worker] > 0 ? 1 : 0;
+            relocatedTotal += relocated[worker];
+        }
+        ok = workersUsed > 1 || die("hot key stayed on one worker", dispatched);
+        ok = relocatedTotal > 0 || die();
+
+        super.waitForTrigger(5, o -> HotService.totalCount.get() >= 100);
+        ok = HotService.totalCount.get() == 100 || die(HotService.totalCount);
+        hot.stop();
+    }
+
+    public static class HotService {
+
+        static AtomicInteger totalCount = new AtomicInteger();
+
+        void pickSuggestions(String username) {
+            totalCount.incrementAndGet();
+        }
+    }
+
     public static interface MultiWorkerClient extends ClientProxy {
         void pickSuggestions(String username);
     }
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class AddressRouterTest {
+
+    @Test
+    public void testExactAndLongestPrefix() {
+        final AddressRouter<String> empty = AddressRouter.empty();
+        AddressRouter<String> router = empty
+                .with("/services/employee", "employee", true)
+                .with("/services/employee/promote", "promote", true)
+                .with("/services/emp", "exactOnly", false)
+                .with("employeeService", "byName", false);
+
+        assertEquals("employee", router.get("/services/employee"));
+        assertEquals("employee", router.get("/services/employee/add/1"));
+        assertEquals("promote", router.get("/services/employee/promote/1"));
+        assertEquals("exactOnly", router.get("/services/emp"));
+        assertEquals("byName", router.get("employeeService"));
+
+        /* Exact-only addresses do not match as a prefix. */
+        assertNull(router.get("/services/empX"));
+        assertNull(router.get("/services/em"));
+        assertNull(router.get("/other"));
+        assertNull(router.get(""));
+
+        /* Adding returns a new router and leaves the old one alone. */
+        final AddressRouter<String> next = router.with("/services/employee/fire", "fire", false);
+        assertEquals("fire", next.get("/services/employee/fire"));
+        assertEquals("employee", router.get("/services/employee/fire"));
+        assertNull(empty.get("/services/employee"));
+
+        /* Once an address routes prefixes, re-registering it exact-only keeps that. */
+        router = router.with("/services/employee", "employee2", false);
+        assertSame("employee2", router.get("/services/employee/add"));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.annotation.BatchHandler;
+import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.service.ServiceBuilder;
+import io.advantageous.qbit.service.ServiceQueue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.advantageous.boon.core.Exceptions.die;
+
+public class BatchHandlerTest {
+
+    ServiceQueue serviceQueue;
+    AuditWriter auditWriter;
+    AuditClient client;
+    boolean ok = true;
+
+    @Before
+    public void setup() {
+        auditWriter = new AuditWriter();
+        serviceQueue = new ServiceBuilder().setServiceObject(auditWriter).setInvokeDynamic(false).build().start();
+        serviceQueue.startCallBackHandler();
+        client = serviceQueue.createProxy(AuditClient.class);
+    }
+
+    @After
+    public void tearDown() {
+        serviceQueue.stop();
+    }
+
+    @Test
+    public void testCallsFromOneBatchGoToOneInvocation() throws Exception {
+
+        final int calls = 10;
+        final CountDownLatch latch = new CountDownLatch(calls);
+        final int[] positions = new int[calls];
+        for (int index = 0; index < calls; index++) {
+            final int caller = index;
+            client.save(position -> {
+                positions[caller] = position;
+                latch.countDown();
+            }, new Record("user" + index));
+        }
+        client.clientProxyFlush();
+
+        ok = latch.await(5, TimeUnit.SECONDS) || die("callbacks not called", latch.getCount());
+        ok = auditWriter.batchSizes.size() == 1 || die(auditWriter.batchSizes);
+        ok = auditWriter.batchSizes.get(0) == calls || die(auditWriter.batchSizes);
+        for (int index = 0; index < calls; index++) {
+            ok = positions[index] == index || die(index, positions[index]);
+        }
+        ok = auditWriter.users.get(3).equals("user3") || die(auditWriter.users);
+    }
+
+    @Test
+    public void testVoidBatchHandler() throws Exception {
+
+        for (int index = 1; index <= 5; index++) {
+            client.count(index);
+        }
+        client.clientProxyFlush();
+
+        for (int index = 0; index < 500 && auditWriter.total.get() < 15; index++) {
+            Thread.sleep(10);
+        }
+        ok = auditWriter.total.get() == 15 || die(auditWriter.total);
+        ok = auditWriter.countBatches.get() < 5 || die(auditWriter.countBatches);
+    }
+
+    @Test
+    public void testErrorGoesToEveryCaller() throws Exception {
+
+        final CountDownLatch latch = new CountDownLatch(3);
+        for (int index = 0; index < 3; index++) {
+            client.save(new Callback<Integer>() {
+                @Override
+                public void accept(Integer position) {
+                    die("expected an error");
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    latch.countDown();
+                }
+            }, new Record("fail"));
+        }
+        client.clientProxyFlush();
+
+        ok = latch.await(5, TimeUnit.SECONDS) || die("errors not sent", latch.getCount());
+    }
+
+    interface AuditClient {
+
+        void save(Callback<Integer> position, Record record);
+
+        void count(int amount);
+
+        void clientProxyFlush();
+    }
+
+    public static class Record {
+
+        final String user;
+
+        public Record(String user) {
+            this.user = user;
+        }
+    }
+
+    public static class AuditWriter {
+
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final List<String> users = new CopyOnWriteArrayList<>();
+        final AtomicInteger total = new AtomicInteger();
+        final AtomicInteger countBatches = new AtomicInteger();
+
+        @BatchHandler
+        public List<Integer> save(List<Record> records) {
+            final List<Integer> positions = new ArrayList<>(records.size());
+            for (Record record : records) {
+                if (record.user.equals("fail")) {
+                    throw new IllegalStateException("audit store is down");
+                }
+                positions.add(users.size());
+                users.add(record.user);
+            }
+            batchSizes.add(records.size());
+            return positions;
+        }
+
+        @BatchHandler
+        public void count(List<Integer> amounts) {
+            countBatches.incrementAndGet();
+            for (int amount : amounts) {
+                total.addAndGet(amount);
+            }
+        }
+    }
+}
@@ -24,6 +24,7 @@ import io.advantageous.boon.core.Str;
 import io.advantageous.boon.core.reflection.MethodAccess;
 import io.advantageous.qbit.Factory;
 import io.advantageous.qbit.QBit;
+import io.advantageous.qbit.annotation.PathVariable;
 import io.advantageous.qbit.annotation.RequestMapping;
 import io.advantageous.qbit.bindings.MethodBinding;
 import io.advantageous.qbit.message.Response;
@@ -110,6 +111,48 @@ public class BoonServiceMethodCallHandlerTest {
 
     }
 
+    @Test
+    public void testMethodHandleAndCoercion() {
+
+        BoonServiceMethodCallHandler impl = new BoonServiceMethodCallHandler(true);
+        impl.init(new Foo(), "", "", null);
+
+        final Factory factory = QBit.factory();
+
+        /* Types match, so this goes through the method handle. */
+        Response<Object> response = impl.receiveMethodCall(
+                factory.createMethodCallByNames("add", "", "", Lists.list(1, 2), null));
+        ok = Integer.valueOf(3).equals(response.body()) || die(response.body());
+
+        /* Strings have to be coerced, so this falls back to Boon. */
+        response = impl.receiveMethodCall(
+                factory.createMethodCallByNames("add", "", "", Lists.list("3", "4"), null));
+        ok = Integer.valueOf(7).equals(response.body()) || die(response.body());
+
+        /* The service's own exception comes back in the response, not a wrapper. */
+        response = impl.receiveMethodCall(
+                factory.createMethodCallByNames("fail", "", "", Lists.list("boom"), null));
+        ok = response.wasErrors() || die(response);
+        ok = response.body() instanceof IllegalArgumentException || die(response.body());
+    }
+
+    @Test
+    public void testErrorIsNotTurnedIntoAResponse() {
+
+        BoonServiceMethodCallHandler impl = new BoonServiceMethodCallHandler(true);
+        impl.init(new Foo(), "", "", null);
+
+        final Factory factory = QBit.factory();
+
+        boolean thrown = false;
+        try {
+            impl.receiveMethodCall(factory.createMethodCallByNames("crash", "", "", Lists.list("boom"), null));
+        } catch (AssertionError error) {
+            thrown = "boom".equals(error.getMessage());
+        }
+        ok = thrown || die("an Error from the service method should not become an error response");
+    }
+
     @Test
     public void testTwoBasicArgsInURIParams() {
 
@@ -127,6 +170,28 @@ public class BoonServiceMethodCallHandlerTest {
 
     }
 
+    @Test
+    public void testNamedAndPositionalURIParams() {
+
+        BoonServiceMethodCallHandler impl = new BoonServiceMethodCallHandler(true);
+        impl.init(new Foo(), "", "", null);
+
+        final Factory factory = QBit.factory();
+
+        Response<Object> response = impl.receiveMethodCall(
+                factory.createMethodCallByAddress("/boo/baz/employee/9000000000/level/3", null, null, null));
+        ok = "9000000000:3".equals(response.body()) || die(response.body());
+
+        /* The literal segment wins over the path variable. */
+        response = impl.receiveMethodCall(
+                factory.createMethodCallByAddress("/boo/baz/employee/boss/level/3/", null, null, null));
+        ok = "boss:3".equals(response.body()) || die(response.body());
+
+        response = impl.receiveMethodCall(
+                factory.createMethodCallByAddress("/boo/baz/employee/-12/level/4", null, null, null));
+        ok = "-12:4".equals(response.body()) || die(response.body());
+    }
+
     @Test
     public void someMethod2() {
 
@@ -254,6 +319,16 @@ public class BoonServiceMethodCallHandlerTest {
             puts("geoff a", a, "b", b);
         }
 
+        @RequestMapping("/employee/{id}/level/{1}")
+        public String level(@PathVariable("id") long id, int level) {
+            return id + ":" + level;
+        }
+
+        @RequestMapping("/employee/boss/level/{0}")
+        public String bossLevel(int level) {
+            return "boss:" + level;
+        }
+
         @RequestMapping("/geoff/chandles/")
         public void someMethod(String a, int b) {
 
@@ -273,6 +348,19 @@ public class BoonServiceMethodCallHandlerTest {
 
             methodCalled = true;
         }
+
+        public int add(int a, int b) {
+            methodCalled = true;
+            return a + b;
+        }
+
+        public void fail(String message) {
+            throw new IllegalArgumentException(message);
+        }
+
+        public void crash(String message) {
+            throw new AssertionError(message);
+        }
     }
 
 }
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.annotation.Idempotent;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.MethodCallBuilder;
+import io.advantageous.qbit.message.Response;
+import io.advantageous.qbit.message.impl.ResponseImpl;
+import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.service.ServiceBundle;
+import io.advantageous.qbit.service.ServiceBundleBuilder;
+import io.advantageous.qbit.service.ServiceDeadlineExceededException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.advantageous.boon.core.Exceptions.die;
+
+public class CallCoalescerTest {
+
+    ServiceBundle serviceBundle;
+    LookupService lookupService;
+    LookupClient client;
+    boolean ok = true;
+
+    @Before
+    public void setup() {
+        serviceBundle = new ServiceBundleBuilder().setAddress("/root").setCoalesceWindowMillis(10_000).buildAndStart();
+        lookupService = new LookupService();
+        serviceBundle.addServiceObject("lookup", lookupService);
+        serviceBundle.startReturnHandlerProcessor();
+        client = serviceBundle.createLocalProxy(LookupClient.class, "lookup");
+    }
+
+    @After
+    public void tearDown() {
+        serviceBundle.stop();
+    }
+
+    @Test
+    public void testIdenticalCallsShareOneResponse() throws Exception {
+
+        final CountDownLatch latch = new CountDownLatch(6);
+        final Map<Integer, String> results = new ConcurrentHashMap<>();
+        for (int index = 0; index < 6; index++) {
+            final int caller = index;
+            client.lookup(value -> {
+                results.put(caller, value);
+                latch.countDown();
+            }, caller < 5 ? "hot" : "cold");
+        }
+        client.clientProxyFlush();
+
+        waitFor(() -> lookupService.lookups.get() >= 2);
+        client.release();
+        client.clientProxyFlush();
+
+        ok = latch.await(5, TimeUnit.SECONDS) || die("callbacks not called", latch.getCount());
+        ok = lookupService.lookups.get() == 2 || die(lookupService.lookups);
+        for (int index = 0; index < 5; index++) {
+            ok = "value of hot".equals(results.get(index)) || die(index, results);
+        }
+        ok = "value of cold".equals(results.get(5)) || die(results);
+
+        final CallCoalescer coalescer = ((ServiceBundleImpl) serviceBundle).callCoalescer();
+        ok = coalescer.coalescedCalls() == 4 || die(coalescer.coalescedCalls());
+        waitFor(() -> coalescer.callsInFlight() == 0);
+        ok = coalescer.callsInFlight() == 0 || die(coalescer.callsInFlight());
+    }
+
+    @Test
+    public void testCallsAfterResponseAreSentAgain() throws Exception {
+
+        final CountDownLatch first = new CountDownLatch(1);
+        client.lookup(value -> first.countDown(), "hot");
+        client.clientProxyFlush();
+        waitFor(() -> lookupService.lookups.get() >= 1);
+        client.release();
+        client.clientProxyFlush();
+        ok = first.await(5, TimeUnit.SECONDS) || die();
+
+        final CountDownLatch second = new CountDownLatch(1);
+        client.lookup(value -> second.countDown(), "hot");
+        client.clientProxyFlush();
+        waitFor(() -> lookupService.lookups.get() >= 2);
+        client.release();
+        client.clientProxyFlush();
+        ok = second.await(5, TimeUnit.SECONDS) || die();
+
+        ok = ((ServiceBundleImpl) serviceBundle).callCoalescer().coalescedCalls() == 0 || die();
+    }
+
+    @Test
+    public void testOtherMethodsAreNotCoalesced() throws Exception {
+
+        for (int index = 0; index < 3; index++) {
+            client.touch("hot");
+        }
+        client.clientProxyFlush();
+
+        waitFor(() -> lookupService.touches.get() >= 3);
+        ok = lookupService.touches.get() == 3 || die(lookupService.touches);
+    }
+
+    @Test
+    public void testSlowCallStillAnswersFollowersAfterTheWindow() {
+
+        final CallCoalescer coalescer = new CallCoalescer(100, 1_000)
+                .register("", Collections.singletonList("lookup"), Collections.emptyList());
+
+        final MethodCall<Object> leader = lookupCall(1, 0);
+        final MethodCall<Object> follower = lookupCall(2, 0);
+
+        ok = !coalescer.join(leader, 0) || die();
+        ok = coalescer.join(follower, 10) || die();
+
+        /* Past the window nothing joins, but the followers keep waiting on the leader. */
+        ok = coalescer.sweep(500).isEmpty() || die();
+        ok = !coalescer.join(lookupCall(3, 0), 500) || die();
+        ok = coalescer.callsInFlight() == 2 || die(coalescer.callsInFlight());
+
+        final List<Response<Object>> copies = coalescer.complete(new ResponseImpl<>(leader, "slow"));
+        ok = copies.size() == 1 || die(copies);
+        ok = copies.get(0).id() == 2 || die(copies.get(0).id());
+        ok = "slow".equals(copies.get(0).body()) || die(copies.get(0).body());
+    }
+
+    @Test
+    public void testUnansweredFlightIsSweptAndFollowersGetAnError() {
+
+        final CallCoalescer coalescer = new CallCoalescer(100, 1_000)
+                .register("", Collections.singletonList("lookup"), Collections.emptyList());
+
+        final MethodCall<Object> leader = lookupCall(1, 0);
+        final MethodCall<Object> follower = lookupCall(2, 0);
+
+        ok = !coalescer.join(leader, 0) || die();
+        ok = coalescer.join(follower, 10) || die();
+
+        ok = coalescer.sweep(999).isEmpty() || die();
+        ok = coalescer.callsInFlight() == 1 || die(coalescer.callsInFlight());
+
+        final List<Response<Object>> errors = coalescer.sweep(1_000);
+        ok = errors.size() == 1 || die(errors);
+        ok = errors.get(0).wasErrors() || die(errors.get(0));
+        ok = errors.get(0).id() == 2 || die(errors.get(0).id());
+        ok = errors.get(0).body() instanceof ServiceDeadlineExceededException || die(errors.get(0).body());
+        ok = coalescer.callsInFlight() == 0 || die(coalescer.callsInFlight());
+
+        /* Nothing left to answer when the leader's response comes in late. */
+        ok = coalescer.complete(new ResponseImpl<>(leader, "late")).isEmpty() || die();
+    }
+
+    @Test
+    public void testFlightIsGivenUpAtTheLeadersDeadline() {
+
+        final CallCoalescer coalescer = new CallCoalescer(100, 1_000)
+                .register("", Collections.singletonList("lookup"), Collections.emptyList());
+
+        ok = !coalescer.join(lookupCall(1, 300), 0) || die();
+        ok = coalescer.join(lookupCall(2, 0), 10) || die();
+
+        ok = coalescer.sweep(299).isEmpty() || die();
+        final List<Response<Object>> errors = coalescer.sweep(300);
+        ok = errors.size() == 1 || die(errors);
+        ok = errors.get(0).id() == 2 || die(errors.get(0).id());
+    }
+
+    private static MethodCall<Object> lookupCall(final long id, final long deadline) {
+        return new MethodCallBuilder().setName("lookup").setId(id).setDeadline(deadline)
+                .setReturnAddress("client").setBody(new Object[]{"hot"}).build();
+    }
+
+    @Test
+    public void testVoidIdempotentMethodIsRefused() {
+        boolean refused = false;
+        try {
+            serviceBundle.addServiceObject("fireAndForget", new FireAndForgetService());
+        } catch (Exception ex) {
+            refused = true;
+        }
+        ok = refused || die("void @Idempotent method without a callback was accepted");
+    }
+
+    private void waitFor(final java.util.function.BooleanSupplier condition) throws InterruptedException {
+        for (int index = 0; index < 500 && !condition.getAsBoolean(); index++) {
+            Thread.sleep(10);
+        }
+    }
+
+    interface LookupClient {
+
+        void lookup(Callback<String> value, String key);
+
+        void touch(String key);
+
+        void release();
+
+        void clientProxyFlush();
+    }
+
+    public static class LookupService {
+
+        final AtomicInteger lookups = new AtomicInteger();
+        final AtomicInteger touches = new AtomicInteger();
+        final List<Callback<String>> waiting = new ArrayList<>();
+        final List<String> keys = new ArrayList<>();
+
+        /* Answers later, like a cache miss going to a slow store. */
+        @Idempotent
+        public void lookup(final Callback<String> value, final String key) {
+            lookups.incrementAndGet();
+            waiting.add(value);
+            keys.add(key);
+        }
+
+        public void touch(final String key) {
+            touches.incrementAndGet();
+        }
+
+        public void release() {
+            for (int index = 0; index < waiting.size(); index++) {
+                waiting.get(index).accept("value of " + keys.get(index));
+            }
+            waiting.clear();
+            keys.clear();
+        }
+    }
+
+    public static class FireAndForgetService {
+
+        @Idempotent
+        public void store(final String key) {
+        }
+    }
+}
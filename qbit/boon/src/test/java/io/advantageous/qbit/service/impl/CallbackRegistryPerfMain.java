@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.reactive.Callback;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.advantageous.boon.core.IO.puts;
+
+/**
+ * Compares the callback registry with the map of return address and id keys it replaced, registering and then
+ * answering 1M outstanding callbacks. Not JMH, so look at the later runs.
+ */
+public class CallbackRegistryPerfMain {
+
+    static final int OUTSTANDING = 1_000_000;
+    static final String RETURN_ADDRESS = "http://localhost:8080/services-service-0c7a1e3e";
+
+    static final Callback<Object> CALLBACK = result -> {
+    };
+
+    public static void main(String... args) {
+
+        long answered = 0;
+        for (int run = 0; run < 5; run++) {
+            answered += runKeyMap();
+            answered += runRegistry();
+        }
+        puts(answered);
+    }
+
+    static int runRegistry() {
+
+        final CallbackRegistry registry = new CallbackRegistry();
+
+        long start = System.nanoTime();
+        for (int id = 1; id <= OUTSTANDING; id++) {
+            registry.register(RETURN_ADDRESS, id, CALLBACK);
+        }
+        final long register = System.nanoTime() - start;
+
+        int answered = 0;
+        start = System.nanoTime();
+        for (int id = 1; id <= OUTSTANDING; id++) {
+            if (registry.remove(RETURN_ADDRESS, id) != null) {
+                answered++;
+            }
+        }
+        final long remove = System.nanoTime() - start;
+
+        puts("registry", "register ns/call", (double) register / OUTSTANDING,
+                "remove ns/call", (double) remove / OUTSTANDING);
+        return answered;
+    }
+
+    static int runKeyMap() {
+
+        final Map<Key, Callback<Object>> handlers = new ConcurrentHashMap<>();
+
+        long start = System.nanoTime();
+        for (int id = 1; id <= OUTSTANDING; id++) {
+            handlers.put(new Key(RETURN_ADDRESS, id), CALLBACK);
+        }
+        final long register = System.nanoTime() - start;
+
+        int answered = 0;
+        start = System.nanoTime();
+        for (int id = 1; id <= OUTSTANDING; id++) {
+            if (handlers.remove(new Key(RETURN_ADDRESS, id)) != null) {
+                answered++;
+            }
+        }
+        final long remove = System.nanoTime() - start;
+
+        puts("key map", "register ns/call", (double) register / OUTSTANDING,
+                "remove ns/call", (double) remove / OUTSTANDING);
+        return answered;
+    }
+
+    /**
+     * The return address and message id key the registry replaced.
+     */
+    static final class Key {
+        final String returnAddress;
+        final long messageId;
+
+        Key(final String returnAddress, final long messageId) {
+            this.returnAddress = returnAddress;
+            this.messageId = messageId;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key that = (Key) o;
+            return messageId == that.messageId && returnAddress.equals(that.returnAddress);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * returnAddress.hashCode() + (int) (messageId ^ (messageId >>> 32));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.service.Protocol;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.advantageous.boon.core.Exceptions.die;
+
+public class CallbackRegistryTest {
+
+    boolean ok = true;
+
+    @Test
+    public void testRemoveTakesTheCallback() {
+
+        final CallbackRegistry registry = new CallbackRegistry();
+        final Callback<Object> callback = result -> {
+        };
+        registry.register("client", 1L, callback);
+
+        ok = registry.size() == 1 || die(registry.size());
+        ok = registry.remove("other", 1L) == null || die();
+        ok = registry.remove("client", 2L) == null || die();
+        ok = registry.remove("client", 1L) == callback || die();
+        ok = registry.remove("client", 1L) == null || die();
+        ok = registry.size() == 0 || die(registry.size());
+    }
+
+    @Test
+    public void testSameIdForDifferentReturnAddresses() {
+
+        final CallbackRegistry registry = new CallbackRegistry();
+        final Callback<Object> first = result -> {
+        };
+        final Callback<Object> second = result -> {
+        };
+        final Callback<Object> noAddress = result -> {
+        };
+        registry.register("first", 7L, first);
+        registry.register("second", 7L, second);
+        registry.register(null, 7L, noAddress);
+
+        ok = registry.remove("second", 7L) == second || die();
+        ok = registry.remove(null, 7L) == noAddress || die();
+        ok = registry.remove("first", 7L) == first || die();
+    }
+
+    @Test
+    public void testReplyAddressWithWebSocketPrefix() {
+
+        final CallbackRegistry registry = new CallbackRegistry();
+        final Callback<Object> callback = result -> {
+        };
+        registry.register("client", 1L, callback);
+        registry.register("client", 2L, callback);
+
+        final String replyAddress = "websocket-1" + (char) Protocol.PROTOCOL_ARG_SEPARATOR + "client";
+        ok = registry.remove(replyAddress, 1L) == callback || die();
+        ok = registry.remove(replyAddress, 2L) == callback || die();
+        ok = registry.size() == 0 || die(registry.size());
+    }
+
+    @Test
+    public void testManyOutstandingCallbacks() {
+
+        final CallbackRegistry registry = new CallbackRegistry();
+        final List<Callback<Object>> callbacks = new ArrayList<>();
+        for (int index = 0; index < 100_000; index++) {
+            final Callback<Object> callback = result -> {
+            };
+            callbacks.add(callback);
+            registry.register("client", index * 3L, callback);
+        }
+        ok = registry.size() == 100_000 || die(registry.size());
+
+        /* Remove every other one, then check the rest can still be found past the shifted slots. */
+        for (int index = 0; index < 100_000; index += 2) {
+            ok = registry.remove("client", index * 3L) == callbacks.get(index) || die(index);
+        }
+        for (int index = 1; index < 100_000; index += 2) {
+            ok = registry.remove("client", index * 3L) == callbacks.get(index) || die(index);
+        }
+        ok = registry.size() == 0 || die(registry.size());
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.boon.core.Sys;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.MethodCallBuilder;
+import io.advantageous.qbit.message.Response;
+import io.advantageous.qbit.service.Protocol;
+import io.advantageous.qbit.service.ServiceBuilder;
+import io.advantageous.qbit.service.ServiceDeadlineExceededException;
+import io.advantageous.qbit.service.ServiceQueue;
+import io.advantageous.qbit.util.MultiMap;
+import io.advantageous.qbit.util.MultiMapImpl;
+import io.advantageous.qbit.util.Timer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.qbit.service.ServiceContext.serviceContext;
+
+public class DeadlineTest {
+
+    ServiceQueue serviceQueue;
+    ServiceQueue downstreamQueue;
+    boolean ok = true;
+
+    @After
+    public void tearDown() {
+        if (serviceQueue != null) {
+            serviceQueue.stop();
+        }
+        if (downstreamQueue != null) {
+            downstreamQueue.stop();
+        }
+    }
+
+    @Test
+    public void testExpiredCallIsNotRun() {
+
+        final Worker worker = new Worker();
+        serviceQueue = new ServiceBuilder().setServiceObject(worker).setInvokeDynamic(false).build().start();
+
+        final long now = Timer.timer().now();
+        serviceQueue.requests().sendAndFlush(new MethodCallBuilder().setName("work").setDeadline(now - 1).build());
+
+        final Response<Object> response = serviceQueue.responses().pollWait();
+        ok = response != null || die();
+        ok = response.wasErrors() || die(response);
+        ok = response.body() instanceof ServiceDeadlineExceededException || die(response.body());
+        ok = worker.calls.get() == 0 || die(worker.calls);
+        ok = ((BaseServiceQueueImpl) serviceQueue).expiredCalls() == 1 || die();
+    }
+
+    @Test
+    public void testCallBeforeDeadlineRuns() {
+
+        final Worker worker = new Worker();
+        serviceQueue = new ServiceBuilder().setServiceObject(worker).setInvokeDynamic(false).build().start();
+
+        serviceQueue.requests().sendAndFlush(new MethodCallBuilder().setName("work")
+                .setDeadline(Timer.timer().now() + 10_000).build());
+
+        final Response<Object> response = serviceQueue.responses().pollWait();
+        ok = response != null || die();
+        ok = !response.wasErrors() || die(response);
+        ok = worker.calls.get() == 1 || die(worker.calls);
+    }
+
+    @Test
+    public void testHeaderBudgetBecomesDeadline() {
+
+        final MultiMap<String, String> headers = new MultiMapImpl<>();
+        headers.put(Protocol.DEADLINE_HEADER, "500");
+
+        final long before = Timer.timer().now();
+        final MethodCall<Object> methodCall = new MethodCallBuilder().setName("work").setHeaders(headers).build();
+        ok = methodCall.deadline() >= before + 500 || die(methodCall.deadline());
+        ok = methodCall.deadline() <= Timer.timer().now() + 500 || die(methodCall.deadline());
+
+        /* An earlier explicit deadline wins. */
+        final MethodCall<Object> earlier = new MethodCallBuilder().setName("work").setHeaders(headers)
+                .setDeadline(before + 10).build();
+        ok = earlier.deadline() == before + 10 || die(earlier.deadline());
+
+        ok = MethodCallBuilder.transformed(earlier, new Object[0]).deadline() == before + 10 || die();
+    }
+
+    @Test
+    public void testDeadlinePropagatesToDownstreamCalls() {
+
+        final Downstream downstream = new Downstream();
+        downstreamQueue = new ServiceBuilder().setServiceObject(downstream).setInvokeDynamic(false).build().start();
+        final DownstreamClient downstreamClient = downstreamQueue.createProxy(DownstreamClient.class);
+
+        serviceQueue = new ServiceBuilder().setServiceObject(new Relay(downstreamClient))
+                .setInvokeDynamic(false).build().start();
+
+        final long deadline = Timer.timer().now() + 10_000;
+        serviceQueue.requests().sendAndFlush(new MethodCallBuilder().setName("relay").setDeadline(deadline).build());
+
+        for (int index = 0; index < 500 && downstream.deadline.get() == -1; index++) {
+            Sys.sleep(10);
+        }
+        ok = downstream.deadline.get() == deadline || die(downstream.deadline.get(), deadline);
+    }
+
+    interface DownstreamClient {
+
+        void record();
+
+        void clientProxyFlush();
+    }
+
+    public static class Worker {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        public int work() {
+            return calls.incrementAndGet();
+        }
+    }
+
+    public static class Relay {
+
+        private final DownstreamClient downstreamClient;
+
+        public Relay(final DownstreamClient downstreamClient) {
+            this.downstreamClient = downstreamClient;
+        }
+
+        public void relay() {
+            downstreamClient.record();
+            downstreamClient.clientProxyFlush();
+        }
+    }
+
+    public static class Downstream {
+
+        final AtomicLong deadline = new AtomicLong(-1);
+
+        public void record() {
+            deadline.set(serviceContext().deadline());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.boon.core.Sys;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.MethodCallBuilder;
+import io.advantageous.qbit.message.Response;
+import io.advantageous.qbit.queue.SendQueue;
+import io.advantageous.qbit.service.ServiceBuilder;
+import io.advantageous.qbit.service.ServiceOverloadedException;
+import io.advantageous.qbit.service.ServiceQueue;
+import io.advantageous.qbit.util.Timer;
+import org.junit.Test;
+
+import static io.advantageous.boon.core.Exceptions.die;
+
+public class LoadShedderTest {
+
+    boolean ok = true;
+
+    @Test
+    public void testShortBurstIsNotShed() {
+
+        final LoadShedder loadShedder = new LoadShedder(10, 100);
+
+        ok = loadShedder.admit(50, 1_000) || die();
+        ok = loadShedder.admit(50, 1_050) || die();
+        /* A call under the target ends the burst. */
+        ok = loadShedder.admit(1, 1_099) || die();
+        ok = loadShedder.admit(50, 1_150) || die();
+        ok = loadShedder.admit(50, 1_200) || die();
+
+        ok = loadShedder.admitted() == 5 || die(loadShedder);
+        ok = loadShedder.shed() == 0 || die(loadShedder);
+    }
+
+    @Test
+    public void testShedsOnceWaitStaysAboveTargetForInterval() {
+
+        final LoadShedder loadShedder = new LoadShedder(10, 100);
+
+        ok = loadShedder.admit(50, 1_000) || die();
+        ok = loadShedder.admit(50, 1_099) || die();
+        ok = !loadShedder.admit(50, 1_100) || die();
+        ok = loadShedder.isShedding() || die();
+
+        /* Calls that did not wait long still get through while shedding. */
+        ok = loadShedder.admit(5, 1_101) || die();
+        ok = !loadShedder.isShedding() || die();
+
+        ok = loadShedder.admitted() == 3 || die(loadShedder);
+        ok = loadShedder.shed() == 1 || die(loadShedder);
+    }
+
+    @Test
+    public void testEmptyQueueStopsShedding() {
+
+        final LoadShedder loadShedder = new LoadShedder(10, 100);
+
+        loadShedder.admit(50, 1_000);
+        ok = !loadShedder.admit(50, 1_100) || die();
+        loadShedder.empty();
+        ok = loadShedder.admit(50, 1_101) || die();
+    }
+
+    @Test
+    public void testServiceQueueAnswersShedCallsWithError() {
+
+        final ServiceQueue serviceQueue = new ServiceBuilder().setServiceObject(new SlowService())
+                .setInvokeDynamic(false).setLoadShedTargetMillis(10).setLoadShedIntervalMillis(1)
+                .build().start();
+        try {
+            final SendQueue<MethodCall<Object>> requests = serviceQueue.requests();
+            final long waitingSince = Timer.timer().now() - 1_000;
+
+            /* Same batch, so the queue does not run empty between the two. */
+            requests.send(new MethodCallBuilder().setName("slow").setTimestamp(waitingSince).build());
+            requests.send(new MethodCallBuilder().setName("slow").setTimestamp(waitingSince).build());
+            requests.flushSends();
+
+            final Response<Object> first = serviceQueue.responses().pollWait();
+            final Response<Object> second = serviceQueue.responses().pollWait();
+            ok = first != null && second != null || die(first, second);
+            ok = !first.wasErrors() || die(first);
+            ok = second.wasErrors() || die(second);
+            ok = second.body() instanceof ServiceOverloadedException || die(second.body());
+
+            final LoadShedder loadShedder = ((BaseServiceQueueImpl) serviceQueue).loadShedder();
+            ok = loadShedder.admitted() == 1 || die(loadShedder);
+            ok = loadShedder.shed() == 1 || die(loadShedder);
+        } finally {
+            serviceQueue.stop();
+        }
+    }
+
+    public static class SlowService {
+
+        public boolean slow() {
+            Sys.sleep(20);
+            return true;
+        }
+    }
+}
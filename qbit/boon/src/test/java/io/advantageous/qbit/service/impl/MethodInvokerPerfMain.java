@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.boon.core.reflection.ClassMeta;
+import io.advantageous.boon.core.reflection.MethodAccess;
+
+import static io.advantageous.boon.core.IO.puts;
+
+/**
+ * Compares Boon's invokeDynamic with the method handle invoker for 0, 1 and 5 argument methods
+ * when the arguments are already of the right type. Not JMH, so look at the later runs.
+ */
+public class MethodInvokerPerfMain {
+
+    static final int CALLS = 20_000_000;
+
+    public static class Service {
+        long total;
+
+        public void zero() {
+            total++;
+        }
+
+        public int one(int value) {
+            total += value;
+            return value;
+        }
+
+        public int five(int a, long b, String c, Integer d, Object e) {
+            total += a + b + d;
+            return a;
+        }
+    }
+
+    public static void main(String... args) {
+
+        final Service service = new Service();
+        final ClassMeta<Service> classMeta = ClassMeta.classMeta(Service.class);
+
+        final Object[] noArgs = new Object[0];
+        final Object[] oneArg = {1};
+        final Object[] fiveArgs = {1, 2L, "three", 4, service};
+
+        for (int run = 0; run < 5; run++) {
+            run("zero", service, classMeta.method("zero"), noArgs);
+            run("one", service, classMeta.method("one"), oneArg);
+            run("five", service, classMeta.method("five"), fiveArgs);
+        }
+        puts(service.total);
+    }
+
+    static void run(final String name, final Service service, final MethodAccess methodAccess, final Object[] args) {
+
+        final MethodInvoker invoker = MethodInvoker.methodInvoker(service, methodAccess);
+
+        long start = System.nanoTime();
+        for (int index = 0; index < CALLS; index++) {
+            methodAccess.invokeDynamic(service, args);
+        }
+        final long boon = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int index = 0; index < CALLS; index++) {
+            invoker.invoke(args, true);
+        }
+        final long handle = System.nanoTime() - start;
+
+        puts(name, "invokeDynamic ns/call", (double) boon / CALLS, "method handle ns/call", (double) handle / CALLS);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.service.MethodLatency;
+import io.advantageous.qbit.service.ServiceBuilder;
+import io.advantageous.qbit.service.ServiceQueue;
+import io.advantageous.qbit.util.Histogram;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static io.advantageous.boon.core.Exceptions.die;
+
+public class MethodStatsTest {
+
+    ServiceQueue serviceQueue;
+    WorkClient client;
+    final Map<String, Integer> published = new ConcurrentHashMap<>();
+    boolean ok = true;
+
+    @Before
+    public void setup() {
+        serviceQueue = new ServiceBuilder().setServiceObject(new Worker()).setInvokeDynamic(false)
+                .setMethodStatsRecorder((timestamp, names, counts) -> {
+                    for (int index = 0; index < names.length; index++) {
+                        published.put(names[index], counts[index]);
+                    }
+                })
+                .setMethodStatsIntervalMillis(10)
+                .build().start();
+        serviceQueue.startCallBackHandler();
+        client = serviceQueue.createProxy(WorkClient.class);
+    }
+
+    @After
+    public void tearDown() {
+        serviceQueue.stop();
+    }
+
+    @Test
+    public void testLatencyIsRecordedPerMethod() throws Exception {
+
+        final CountDownLatch latch = new CountDownLatch(10);
+        for (int index = 0; index < 10; index++) {
+            client.work(done -> latch.countDown(), 2);
+        }
+        client.ping();
+        client.clientProxyFlush();
+        ok = latch.await(5, TimeUnit.SECONDS) || die();
+
+        waitFor(() -> serviceQueue.methodLatencies().containsKey("work"));
+
+        final MethodLatency work = serviceQueue.methodLatencies().get("work");
+        ok = work != null || die(serviceQueue.methodLatencies());
+        ok = work.calls() == 10 || die(work);
+        ok = work.execution().valueAtPercentile(50) >= 1_500 || die(work);
+        ok = serviceQueue.methodLatencies().get("ping").calls() == 1 || die(serviceQueue.methodLatencies());
+
+        final String calls = published.keySet().stream().filter(name -> name.endsWith(".work.calls"))
+                .findFirst().orElse(null);
+        ok = calls != null || die(published);
+        ok = calls.startsWith("service.") || die(calls);
+        ok = published.get(calls) == 10 || die(published);
+    }
+
+    @Test
+    public void testQueueWaitAfterIdleProxy() throws Exception {
+
+        /* The proxy sits idle first, its calls must not look like they waited all that time. */
+        Thread.sleep(500);
+        client.ping();
+        client.ping();
+        client.clientProxyFlush();
+
+        waitFor(() -> serviceQueue.methodLatencies().containsKey("ping")
+                && serviceQueue.methodLatencies().get("ping").calls() == 2);
+
+        final MethodLatency ping = serviceQueue.methodLatencies().get("ping");
+        ok = ping != null && ping.calls() == 2 || die(serviceQueue.methodLatencies());
+        ok = ping.queueWait().max() < 250_000 || die("queue wait should not include the idle time", ping);
+    }
+
+    @Test
+    public void testMergedLatencyHasCallsOfBoth() {
+
+        final MethodLatency first = new MethodLatency(new Histogram(1_000),
+                new Histogram(1_000));
+        final MethodLatency second = new MethodLatency(new Histogram(1_000),
+                new Histogram(1_000));
+        first.execution().record(10);
+        second.execution().record(500);
+        second.execution().record(600);
+
+        final MethodLatency merged = first.add(second);
+        ok = merged.calls() == 3 || die(merged);
+        ok = merged.execution().max() == 600 || die(merged);
+        ok = first.calls() == 1 || die(first);
+    }
+
+    private void waitFor(final java.util.function.BooleanSupplier condition) throws InterruptedException {
+        for (int index = 0; index < 500 && !condition.getAsBoolean(); index++) {
+            Thread.sleep(10);
+        }
+    }
+
+    interface WorkClient {
+
+        void work(Callback<Boolean> done, int millis);
+
+        void ping();
+
+        void clientProxyFlush();
+    }
+
+    public static class Worker {
+
+        public boolean work(final int millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }
+
+        public void ping() {
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.QBit;
+import io.advantageous.qbit.annotation.Cacheable;
+import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.service.ServiceBundle;
+import io.advantageous.qbit.service.ServiceBundleBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.advantageous.boon.core.Exceptions.die;
+
+public class ResponseCacheTest {
+
+    ServiceBundle serviceBundle;
+    PriceService priceService;
+    PriceClient client;
+    ResponseCache responseCache;
+    boolean ok = true;
+
+    @Before
+    public void setup() {
+        serviceBundle = new ServiceBundleBuilder().setAddress("/root").setCacheResponses(true)
+                .setCacheEventManager(QBit.factory().createEventManager()).build();
+        priceService = new PriceService();
+        serviceBundle.addServiceObject("prices", priceService);
+        serviceBundle.start();
+        serviceBundle.startReturnHandlerProcessor();
+        client = serviceBundle.createLocalProxy(PriceClient.class, "prices");
+        responseCache = ((ServiceBundleImpl) serviceBundle).responseCache();
+    }
+
+    @After
+    public void tearDown() {
+        serviceBundle.stop();
+    }
+
+    @Test
+    public void testRepeatedCallsAreAnsweredFromCache() throws Exception {
+
+        ok = "price of apple 1".equals(price("apple")) || die();
+        ok = "price of apple 1".equals(price("apple")) || die();
+        ok = "price of apple 1".equals(price("apple")) || die();
+
+        ok = priceService.lookups.get() == 1 || die(priceService.lookups);
+        ok = responseCache.hits() == 2 || die(responseCache.hits());
+        ok = responseCache.misses() == 1 || die(responseCache.misses());
+    }
+
+    @Test
+    public void testDifferentArgumentsAreCachedSeparately() throws Exception {
+
+        ok = "price of apple 1".equals(price("apple")) || die();
+        ok = "price of pear 2".equals(price("pear")) || die();
+        ok = "price of apple 1".equals(price("apple")) || die();
+
+        ok = priceService.lookups.get() == 2 || die(priceService.lookups);
+        ok = responseCache.size() == 2 || die(responseCache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+
+        price("apple");
+        price("pear");
+        price("apple");
+        price("plum");
+
+        ok = responseCache.size() == 2 || die(responseCache.size());
+        ok = responseCache.evictions() == 1 || die(responseCache.evictions());
+
+        price("apple");
+        ok = priceService.lookups.get() == 3 || die(priceService.lookups);
+
+        price("pear");
+        ok = priceService.lookups.get() == 4 || die(priceService.lookups);
+    }
+
+    @Test
+    public void testInvalidationEmptiesCache() throws Exception {
+
+        ok = "price of apple 1".equals(price("apple")) || die();
+        responseCache.invalidate("prices changed");
+        ok = "price of apple 2".equals(price("apple")) || die();
+
+        ok = priceService.lookups.get() == 2 || die(priceService.lookups);
+    }
+
+    @Test
+    public void testErrorsAreNotCached() throws Exception {
+
+        final CountDownLatch first = new CountDownLatch(1);
+        client.price(new Callback<String>() {
+            @Override
+            public void accept(final String value) {
+                die(value);
+            }
+
+            @Override
+            public void onError(final Throwable error) {
+                first.countDown();
+            }
+        }, "");
+        client.clientProxyFlush();
+        ok = first.await(5, TimeUnit.SECONDS) || die();
+
+        ok = "price of apple 2".equals(price("apple")) || die();
+        ok = responseCache.size() == 1 || die(responseCache.size());
+    }
+
+    private String price(final String item) throws InterruptedException {
+        final AtomicReference<String> price = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        client.price(value -> {
+            price.set(value);
+            latch.countDown();
+        }, item);
+        client.clientProxyFlush();
+        ok = latch.await(5, TimeUnit.SECONDS) || die("no response for", item);
+        return price.get();
+    }
+
+    interface PriceClient {
+
+        void price(Callback<String> price, String item);
+
+        void clientProxyFlush();
+    }
+
+    public static class PriceService {
+
+        final AtomicInteger lookups = new AtomicInteger();
+
+        @Cacheable(ttl = 10, maxEntries = 2, invalidateOn = "prices changed")
+        public String price(final String item) {
+            final int lookup = lookups.incrementAndGet();
+            if (item.isEmpty()) {
+                throw new IllegalArgumentException("no item");
+            }
+            return "price of " + item + " " + lookup;
+        }
+    }
+}
@@ -96,6 +96,34 @@ public class ServiceBundleImplTest {
     }
 
 
+    @Test
+    public void testPriorityLanes() {
+
+        final ServiceBundle bundle = new ServiceBundleBuilder().setAddress("/lanes").setPriorityLanes(true)
+                .buildAndStart();
+        final ServiceImplTest.PriorityService priorityService = new ServiceImplTest.PriorityService();
+        bundle.addServiceObject("priorityService", priorityService);
+
+        final PriorityServiceInterface priorityProxy =
+                bundle.createLocalProxy(PriorityServiceInterface.class, "priorityService");
+
+        for (int index = 0; index < 10; index++) {
+            priorityProxy.bulk(index);
+        }
+        priorityProxy.clientProxyFlush();
+        Sys.sleep(15);
+        priorityProxy.health();
+        priorityProxy.clientProxyFlush();
+
+        for (int index = 0; index < 100 && priorityService.calls.size() < 11; index++) {
+            Sys.sleep(10);
+        }
+        bundle.stop();
+
+        ok = priorityService.calls.size() == 11 || die(priorityService.calls);
+        ok = priorityService.calls.indexOf("health") < 3 || die(priorityService.calls);
+    }
+
     @Test
     public void testWithService() {
 
@@ -215,6 +243,14 @@ public class ServiceBundleImplTest {
     }
 
 
+    interface PriorityServiceInterface {
+        void bulk(int index);
+
+        void health();
+
+        void clientProxyFlush();
+    }
+
     interface MockServiceInterface {
         void method1();
 
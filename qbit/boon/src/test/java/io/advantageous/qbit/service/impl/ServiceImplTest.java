@@ -20,13 +20,24 @@ package io.advantageous.qbit.service.impl;
 
 import io.advantageous.boon.core.Sys;
 import io.advantageous.qbit.QBit;
+import io.advantageous.qbit.annotation.Priority;
+import io.advantageous.qbit.http.request.HttpRequest;
+import io.advantageous.qbit.http.request.HttpRequestBuilder;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.MethodCallBuilder;
+import io.advantageous.qbit.queue.SendQueue;
 import io.advantageous.qbit.reactive.Callback;
 import io.advantageous.qbit.service.ServiceBuilder;
 import io.advantageous.qbit.service.ServiceQueue;
+import io.advantageous.qbit.util.MultiMap;
+import io.advantageous.qbit.util.MultiMapImpl;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -104,6 +115,78 @@ public class ServiceImplTest {
         ok = returnString.get().equals("hello") || die();
     }
 
+    @Test
+    public void testSharedScheduler() throws Exception {
+
+        final ServiceQueue sharedServiceQueue = new ServiceBuilder().setServiceObject(new MockService())
+                .setInvokeDynamic(false).useSharedScheduler().build().start();
+        sharedServiceQueue.startCallBackHandler();
+        final MockServiceInterface sharedProxy = sharedServiceQueue.createProxy(MockServiceInterface.class);
+
+        AtomicReference<String> returnString = new AtomicReference<>();
+        sharedProxy.methodWithCallBack(s -> returnString.set(s), "shared");
+        sharedProxy.clientProxyFlush();
+
+        Sys.sleep(1000);
+
+        sharedServiceQueue.stop();
+
+        ok = callCount == 1 || die(callCount);
+
+        ok = "shared".equals(returnString.get()) || die(returnString.get());
+    }
+
+    @Test
+    public void testPriorityLanes() throws Exception {
+
+        final PriorityService priorityService = new PriorityService();
+        final ServiceQueue serviceQueue = new ServiceBuilder().setServiceObject(priorityService)
+                .setInvokeDynamic(false).build().start();
+        final SendQueue<MethodCall<Object>> requests = serviceQueue.requests();
+
+        for (int index = 0; index < 10; index++) {
+            requests.send(new MethodCallBuilder().setName("bulk").setBody(index).build());
+        }
+        requests.flushSends();
+        Sys.sleep(15);
+
+        /* One by annotation, one by header. */
+        requests.sendAndFlush(new MethodCallBuilder().setName("health").build());
+        final MultiMap<String, String> headers = new MultiMapImpl<>();
+        headers.put(MethodCallPriority.PRIORITY_HEADER, "HIGH");
+        requests.sendAndFlush(new MethodCallBuilder().setName("admin").setHeaders(headers).build());
+
+        for (int index = 0; index < 100 && priorityService.calls.size() < 12; index++) {
+            Sys.sleep(10);
+        }
+        serviceQueue.stop();
+
+        final List<String> calls = priorityService.calls;
+        ok = calls.size() == 12 || die(calls);
+        ok = calls.indexOf("health") < 3 || die("health should jump the bulk calls", calls);
+        ok = calls.indexOf("admin") < 4 || die("admin should jump the bulk calls", calls);
+    }
+
+    @Test
+    public void testPriorityHeaderIsIgnoredOnClientCalls() {
+
+        final MethodCallPriority priority = new MethodCallPriority().register("",
+                Collections.singletonList("health"), Collections.emptyList());
+        final HttpRequest httpRequest = HttpRequestBuilder.httpRequestBuilder().setUri("/services/admin").build();
+
+        final MultiMap<String, String> high = new MultiMapImpl<>();
+        high.put(MethodCallPriority.PRIORITY_HEADER, "HIGH");
+        final MultiMap<String, String> normal = new MultiMapImpl<>();
+        normal.put(MethodCallPriority.PRIORITY_HEADER, "NORMAL");
+
+        ok = priority.test(new MethodCallBuilder().setName("admin").setHeaders(high).build())
+                || die("a call made in process can ask for the high priority lane");
+        ok = !priority.test(new MethodCallBuilder().setName("admin").setHeaders(high)
+                .setOriginatingRequest(httpRequest).build()) || die("an HTTP client must not jump the queue");
+        ok = priority.test(new MethodCallBuilder().setName("health").setHeaders(normal)
+                .setOriginatingRequest(httpRequest).build()) || die("an HTTP client must not demote @Priority methods");
+    }
+
     @After
     public void tearDown() {
         callCount = 0;
@@ -122,6 +205,25 @@ public class ServiceImplTest {
 
     }
 
+    public static class PriorityService {
+
+        final List<String> calls = new CopyOnWriteArrayList<>();
+
+        public void bulk(int index) {
+            Sys.sleep(20);
+            calls.add("bulk" + index);
+        }
+
+        @Priority
+        public void health() {
+            calls.add("health");
+        }
+
+        public void admin() {
+            calls.add("admin");
+        }
+    }
+
     class MockService {
         public void method1() {
             callCount++;
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.MethodCallBuilder;
+import io.advantageous.qbit.queue.SendQueue;
+import io.advantageous.qbit.service.ServiceBuilder;
+import io.advantageous.qbit.service.ServiceQueue;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static io.advantageous.boon.core.Exceptions.die;
+import static io.advantageous.boon.core.IO.puts;
+
+/**
+ * Measures the garbage the service queue dispatch path makes per call.
+ * The service queue handles calls on the sending thread, so the thread's allocation
+ * counter sees everything from receiving the call to invoking the method.
+ */
+public class ServiceQueueAllocationTest {
+
+    private static final int WARM_UP = 50_000;
+    private static final int CALLS = 200_000;
+
+    /* Allows for the odd allocation the JVM makes on the side, a TLAB refill or a deopt. */
+    private static final double MAX_BYTES_PER_CALL = 4;
+
+    /*
+     * A call that returns a value has to hand a response to the caller, so it makes the response
+     * and the boxed return value and nothing else.
+     */
+    private static final double MAX_RESPONSE_BYTES_PER_CALL = 96;
+
+    boolean ok;
+
+    public static class CountingService {
+
+        long count;
+
+        public void ping() {
+            count++;
+        }
+
+        public void add(int amount) {
+            count += amount;
+        }
+
+        public long total() {
+            return count;
+        }
+    }
+
+    @Test
+    public void testDispatchGarbagePerCall() {
+
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        final CountingService service = new CountingService();
+        final ServiceQueue serviceQueue = new ServiceBuilder().setAsyncResponse(false)
+                .setServiceObject(service).build().start();
+
+        final SendQueue<MethodCall<Object>> requests = serviceQueue.requests();
+
+        final MethodCall<Object> ping = new MethodCallBuilder().setName("ping").setBody(new Object[0]).build();
+        final MethodCall<Object> add = new MethodCallBuilder().setName("add").setBody(new Object[]{1}).build();
+
+        final double pingBytes = bytesPerCall(threads, requests, ping);
+        final double addBytes = bytesPerCall(threads, requests, add);
+        ok = service.count == 2L * (WARM_UP + CALLS) || die(service.count);
+
+        /* A fresh call per send, as real callers do, built before the counter is read. */
+        final MethodCall<Object>[] totals = calls("total", WARM_UP + CALLS);
+        final double totalBytes = bytesPerCall(threads, requests, totals);
+
+        puts("bytes per call, ping", pingBytes, "add", addBytes, "total", totalBytes);
+
+        ok = pingBytes <= MAX_BYTES_PER_CALL || die("ping allocates", pingBytes, "bytes per call");
+        ok = addBytes <= MAX_BYTES_PER_CALL || die("add allocates", addBytes, "bytes per call");
+        ok = totalBytes <= MAX_RESPONSE_BYTES_PER_CALL || die("total allocates", totalBytes, "bytes per call");
+
+        serviceQueue.stop();
+    }
+
+    private static double bytesPerCall(final com.sun.management.ThreadMXBean threads,
+                                       final SendQueue<MethodCall<Object>> requests,
+                                       final MethodCall<Object> call) {
+
+        final long threadId = Thread.currentThread().getId();
+
+        for (int index = 0; index < WARM_UP; index++) {
+            requests.send(call);
+        }
+
+        final long before = threads.getThreadAllocatedBytes(threadId);
+        for (int index = 0; index < CALLS; index++) {
+            requests.send(call);
+        }
+        final long after = threads.getThreadAllocatedBytes(threadId);
+        return (after - before) / (double) CALLS;
+    }
+
+    private static double bytesPerCall(final com.sun.management.ThreadMXBean threads,
+                                       final SendQueue<MethodCall<Object>> requests,
+                                       final MethodCall<Object>[] calls) {
+
+        final long threadId = Thread.currentThread().getId();
+
+        for (int index = 0; index < WARM_UP; index++) {
+            requests.send(calls[index]);
+        }
+
+        final long before = threads.getThreadAllocatedBytes(threadId);
+        for (int index = WARM_UP; index < WARM_UP + CALLS; index++) {
+            requests.send(calls[index]);
+        }
+        final long after = threads.getThreadAllocatedBytes(threadId);
+        return (after - before) / (double) CALLS;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MethodCall<Object>[] calls(final String name, final int count) {
+
+        final MethodCall<Object>[] calls = new MethodCall[count];
+        for (int index = 0; index < count; index++) {
+            calls[index] = new MethodCallBuilder().setName(name).setBody(new Object[0]).build();
+        }
+        return calls;
+    }
+}
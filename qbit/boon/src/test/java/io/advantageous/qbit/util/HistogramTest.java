@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.util;
+
+import org.junit.Test;
+
+import static io.advantageous.boon.core.Exceptions.die;
+
+public class HistogramTest {
+
+    boolean ok;
+
+    @Test
+    public void testPercentiles() {
+
+        final Histogram histogram = new Histogram(1_000_000);
+
+        for (int value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+
+        ok = histogram.totalCount() == 10_000 || die(histogram.totalCount());
+        ok = histogram.max() == 10_000 || die(histogram.max());
+
+        /* Buckets are about 3% wide. */
+        ok = Math.abs(histogram.valueAtPercentile(50) - 5_000) <= 5_000 * 0.04 || die(histogram.valueAtPercentile(50));
+        ok = Math.abs(histogram.valueAtPercentile(99) - 9_900) <= 9_900 * 0.04 || die(histogram.valueAtPercentile(99));
+        ok = histogram.valueAtPercentile(100) == 10_000 || die(histogram.valueAtPercentile(100));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+
+        final Histogram histogram = new Histogram(100);
+        for (int value = 0; value < 64; value++) {
+            histogram.record(value);
+        }
+        ok = histogram.valueAtPercentile(50) == 31 || die(histogram.valueAtPercentile(50));
+        ok = histogram.valueAtPercentile(1) == 0 || die(histogram.valueAtPercentile(1));
+    }
+
+    @Test
+    public void testBucketsAreContiguous() {
+
+        for (long value = 0; value < 1_000_000; value++) {
+            final int index = Histogram.index(value);
+            ok = Histogram.highestEquivalentValue(index) >= value || die(value);
+            ok = index == 0 || Histogram.highestEquivalentValue(index - 1) < value || die(value);
+        }
+    }
+
+    @Test
+    public void testMergeAndClamp() {
+
+        final Histogram first = new Histogram(1_000);
+        final Histogram second = new Histogram(1_000);
+
+        first.record(10);
+        second.record(20);
+        second.record(5_000);
+
+        first.add(second);
+
+        ok = first.totalCount() == 3 || die(first.totalCount());
+        ok = first.max() == 1_000 || die(first.max());
+        ok = first.valueAtPercentile(50) == 20 || die(first.valueAtPercentile(50));
+
+        final Histogram copy = first.copy();
+        first.reset();
+        ok = first.totalCount() == 0 || die();
+        ok = copy.totalCount() == 3 || die();
+    }
+}
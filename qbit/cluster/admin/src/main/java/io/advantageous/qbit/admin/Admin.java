@@ -19,6 +19,12 @@
 package io.advantageous.qbit.admin;
 
 import io.advantageous.qbit.annotation.RequestMapping;
+import io.advantageous.qbit.service.MethodLatency;
+import io.advantageous.qbit.service.ServiceQueue;
+import io.advantageous.qbit.system.QBitSystemManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Created by rhightower on 2/9/15.
@@ -26,8 +32,53 @@ import io.advantageous.qbit.annotation.RequestMapping;
 @RequestMapping("/admin")
 public class Admin {
 
+    private final QBitSystemManager systemManager;
+
+    public Admin() {
+        this(null);
+    }
+
+    /**
+     * @param systemManager system manager the services to report on are registered with
+     */
+    public Admin(final QBitSystemManager systemManager) {
+        this.systemManager = systemManager;
+    }
+
     @RequestMapping("/ok")
     public String ok() {
         return "ok";
     }
+
+    /**
+     * Queue wait and execution percentiles in microseconds of each method, by service and method, from the last
+     * stats interval that had calls. Services with the same name, such as the workers of a pool, are merged.
+     * Only services built with method stats on are listed.
+     *
+     * @return percentiles by service name and method
+     */
+    @RequestMapping("/latency")
+    public Map<String, Map<String, Map<String, Long>>> latency() {
+
+        final Map<String, Map<String, MethodLatency>> merged = new LinkedHashMap<>();
+        if (systemManager != null) {
+            for (ServiceQueue serviceQueue : systemManager.serviceQueues()) {
+                final Map<String, MethodLatency> methodLatencies = serviceQueue.methodLatencies();
+                if (methodLatencies.isEmpty()) {
+                    continue;
+                }
+                final Map<String, MethodLatency> methods =
+                        merged.computeIfAbsent(serviceQueue.name(), name -> new LinkedHashMap<>());
+                methodLatencies.forEach((method, methodLatency) -> methods.merge(method, methodLatency, MethodLatency::add));
+            }
+        }
+
+        final Map<String, Map<String, Map<String, Long>>> latency = new LinkedHashMap<>();
+        merged.forEach((service, methods) -> {
+            final Map<String, Map<String, Long>> percentiles = new LinkedHashMap<>();
+            methods.forEach((method, methodLatency) -> percentiles.put(method, methodLatency.percentiles()));
+            latency.put(service, percentiles);
+        });
+        return latency;
+    }
 }
@@ -31,6 +31,7 @@ public class ConsulServiceDiscoveryBuilder {
 
     private ServicePoolListener servicePoolListener;
     private ExecutorService executorService;
+    private boolean virtualThreads;
 
     public String getConsulHost() {
         return consulHost;
@@ -107,6 +108,21 @@ public class ConsulServiceDiscoveryBuilder {
         return this;
     }
 
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Do the long polls on virtual threads when no executor service is set (JDK 21+).
+     *
+     * @param virtualThreads use virtual threads
+     * @return this
+     */
+    public ConsulServiceDiscoveryBuilder setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
     public ServiceDiscoveryImpl build() {
 
         final ConsulServiceDiscoveryProvider consulServiceDiscoveryProvider =
@@ -116,7 +132,7 @@ public class ConsulServiceDiscoveryBuilder {
                 getPeriodicScheduler(), getServiceChangedEventChannel(),
                 consulServiceDiscoveryProvider,
                 getServicePoolListener(),
-                getExecutorService());
+                getExecutorService(), isVirtualThreads());
 
     }
 }
@@ -275,6 +275,19 @@ public interface Factory {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Request request
+     *
+     * @param request  incoming request that we want to createWithWorkers a MethodCall from.
+     * @param args     args
+     * @param deadline time in milliseconds after which the caller no longer waits for the answer, 0 for none
+     * @return request
+     */
+    default MethodCall<Object> createMethodCallFromHttpRequest(
+            Request<Object> request, Object args, long deadline) {
+        throw new UnsupportedOperationException();
+    }
+
 
     /**
      * Creates a JSON Mapper.
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a method that takes a list and gets all of the calls to it from one request queue batch in a single call,
+ * as in {@code @BatchHandler void save(List<Record> records)}. Callers still call {@code save(record)} one record
+ * at a time.
+ * <p>
+ * The handler runs at the end of the batch, after the other calls in the batch. If it returns a list with one
+ * result per call, each caller gets its own result. Otherwise each caller gets the whole return value.
+ * If it throws, each caller gets the error.
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BatchHandler {
+
+}
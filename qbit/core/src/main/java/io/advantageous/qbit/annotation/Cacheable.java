@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.annotation;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the responses of this method by arguments.
+ * <p>
+ * When the service bundle caches responses, a call with the same arguments as an earlier call that succeeded
+ * less than {@link #ttl()} ago is answered from the cache and never reaches the service queue.
+ * Each method keeps at most {@link #maxEntries()} responses and evicts the least recently used first.
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cacheable {
+
+    /**
+     * How long a response stays in the cache.
+     */
+    long ttl() default 60;
+
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * Responses kept for this method.
+     */
+    int maxEntries() default 1000;
+
+    /**
+     * Event bus channel that empties this method's cache when any event is sent to it. Empty for none.
+     */
+    String invalidateOn() default "";
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a service interface that gets its client proxy classes generated at compile time.
+ * <p>
+ * The annotation processor that ships with qbit core writes a local and a remote proxy class next to the interface.
+ * Proxies for the interface are then created from those classes. Each method calls its service directly
+ * with the method's address worked out when the proxy was created, instead of going through
+ * {@code java.lang.reflect.Proxy} and an invocation handler.
+ * Interfaces without this annotation keep using {@code java.lang.reflect.Proxy}.
+ */
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface GenerateProxy {
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Puts calls to this method in the service's high priority request lane, ahead of bulk work.
+ * Meant for health checks, stats check-ins and admin calls that must get through when the service is saturated.
+ * <p>
+ * Callers inside the process can also ask for the high priority lane per call with the {@code QBIT_PRIORITY} header.
+ * The header is ignored on calls that came in over HTTP or WebSocket.
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Priority {
+
+    PriorityLevel value() default PriorityLevel.HIGH;
+
+}
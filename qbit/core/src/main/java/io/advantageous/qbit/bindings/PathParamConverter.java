@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.bindings;
+
+import io.advantageous.boon.core.Conversions;
+
+/**
+ * Converts a URI path variable, given by its bounds in the URI, into a method argument.
+ * Converters are picked once per parameter when a URI template is registered.
+ */
+public interface PathParamConverter {
+
+    /**
+     * Picks a converter for a parameter type.
+     * Integer and long types are parsed in place; anything else is coerced from the path segment.
+     *
+     * @param type parameter type
+     * @return converter
+     */
+    static PathParamConverter converter(final Class<?> type) {
+        if (type == String.class || type == Object.class || type == CharSequence.class) {
+            return String::substring;
+        } else if (type == int.class || type == Integer.class) {
+            return (uri, start, end) -> {
+                final long value = parseLong(uri, start, end);
+                return value == NOT_A_LONG || value != (int) value
+                        ? Conversions.coerce(type, uri.substring(start, end))
+                        : (Object) (int) value;
+            };
+        } else if (type == long.class || type == Long.class) {
+            return (uri, start, end) -> {
+                final long value = parseLong(uri, start, end);
+                return value == NOT_A_LONG
+                        ? Conversions.coerce(type, uri.substring(start, end))
+                        : (Object) value;
+            };
+        }
+        return (uri, start, end) -> Conversions.coerce(type, uri.substring(start, end));
+    }
+
+    /**
+     * Returned by {@link #parseLong(String, int, int)} when the segment is not a plain decimal long.
+     */
+    long NOT_A_LONG = Long.MIN_VALUE;
+
+    /**
+     * Parses a decimal long out of a region of a string without creating a substring.
+     *
+     * @return the value, or {@link #NOT_A_LONG} if the region is not a decimal long
+     */
+    static long parseLong(final String string, final int start, final int end) {
+        int index = start;
+        final boolean negative = index < end && string.charAt(index) == '-';
+        if (negative) {
+            index++;
+        }
+        final int digits = end - index;
+        if (digits <= 0 || digits > 18) {
+            return NOT_A_LONG;
+        }
+        long value = 0;
+        for (; index < end; index++) {
+            final int digit = string.charAt(index) - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_A_LONG;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Converts the path variable found at {@code uri[start, end)}.
+     */
+    Object convert(String uri, int start, int end);
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.bindings;
+
+import java.util.Arrays;
+
+/**
+ * Routes URIs to values registered under URI templates such as
+ * {@code /employee/{0}/promote/{level}}.
+ * <p>
+ * Templates are compiled into a trie of path segments when they are registered.
+ * A lookup walks the URI once, matching literal segments in place, and records where
+ * each template variable starts and ends in the URI instead of splitting it.
+ * Literal segments take precedence over variables.
+ * A leading and a trailing slash are ignored on both templates and URIs.
+ * <p>
+ * Registration is not thread safe; lookups are once registration is done.
+ *
+ * @param <T> value stored under each template
+ */
+public class UriRouteTrie<T> {
+
+    private final Node<T> root = new Node<>();
+
+    private int maxVariables;
+
+    /**
+     * Registers a value under a URI template, replacing any value registered under a template
+     * with the same shape ({@code /a/{0}} and {@code /a/{id}} have the same shape).
+     *
+     * @param template URI template
+     * @param value    value to store
+     */
+    public void put(final String template, final T value) {
+        node(template, true).value = value;
+    }
+
+    /**
+     * Gets the value registered under a URI template.
+     *
+     * @param template URI template
+     * @return value or null
+     */
+    public T get(final String template) {
+        final Node<T> node = node(template, false);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Finds the value whose template matches the URI.
+     * The bounds of the k-th template variable are written to {@code bounds[2k]} (start)
+     * and {@code bounds[2k + 1]} (end, exclusive).
+     *
+     * @param uri    uri to match
+     * @param bounds receives variable bounds, at least {@code 2 * maxVariables()} long, can be null
+     * @return matched value or null
+     */
+    public T match(final String uri, final int[] bounds) {
+        int start = 0;
+        int end = uri.length();
+        if (start < end && uri.charAt(start) == '/') {
+            start++;
+        }
+        if (end > start && uri.charAt(end - 1) == '/') {
+            end--;
+        }
+        if (start == end) {
+            return root.value;
+        }
+        return match(root, uri, start, end, 0, bounds);
+    }
+
+    /**
+     * @return the most variables any registered template has
+     */
+    public int maxVariables() {
+        return maxVariables;
+    }
+
+    private T match(final Node<T> node, final String uri, final int start, final int end,
+                    final int variable, final int[] bounds) {
+
+        if (start > end) {
+            return node.value;
+        }
+
+        int segmentEnd = uri.indexOf('/', start);
+        if (segmentEnd == -1 || segmentEnd > end) {
+            segmentEnd = end;
+        }
+
+        final Node<T> literal = node.literal(uri, start, segmentEnd);
+        if (literal != null) {
+            final T value = match(literal, uri, segmentEnd + 1, end, variable, bounds);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        if (node.variable != null && segmentEnd > start) {
+            final T value = match(node.variable, uri, segmentEnd + 1, end, variable + 1, bounds);
+            if (value != null) {
+                if (bounds != null) {
+                    bounds[variable * 2] = start;
+                    bounds[variable * 2 + 1] = segmentEnd;
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private Node<T> node(final String template, final boolean create) {
+        int start = 0;
+        int end = template.length();
+        if (start < end && template.charAt(start) == '/') {
+            start++;
+        }
+        if (end > start && template.charAt(end - 1) == '/') {
+            end--;
+        }
+
+        Node<T> node = root;
+        int variables = 0;
+
+        while (start < end && node != null) {
+            int segmentEnd = template.indexOf('/', start);
+            if (segmentEnd == -1 || segmentEnd > end) {
+                segmentEnd = end;
+            }
+
+            if (segmentEnd - start >= 2 && template.charAt(start) == '{' && template.charAt(segmentEnd - 1) == '}') {
+                variables++;
+                if (node.variable == null && create) {
+                    node.variable = new Node<>();
+                }
+                node = node.variable;
+            } else {
+                Node<T> child = node.literal(template, start, segmentEnd);
+                if (child == null && create) {
+                    child = node.addLiteral(template.substring(start, segmentEnd));
+                }
+                node = child;
+            }
+            start = segmentEnd + 1;
+        }
+
+        if (create) {
+            maxVariables = Math.max(maxVariables, variables);
+        }
+        return node;
+    }
+
+    private static int hash(final String string, final int start, final int end) {
+        int hash = 0;
+        for (int index = start; index < end; index++) {
+            hash = 31 * hash + string.charAt(index);
+        }
+        return hash;
+    }
+
+    private static final class Node<T> {
+
+        private String[] literals = new String[0];
+        private int[] hashes = new int[0];
+        private Node<T>[] children = newChildren(0);
+        private Node<T> variable;
+        private T value;
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newChildren(final int size) {
+            return (Node<T>[]) new Node[size];
+        }
+
+        private Node<T> literal(final String string, final int start, final int end) {
+            if (literals.length == 0) {
+                return null;
+            }
+            final int length = end - start;
+            final int hash = hash(string, start, end);
+            for (int index = 0; index < hashes.length; index++) {
+                if (hashes[index] == hash) {
+                    final String literal = literals[index];
+                    if (literal.length() == length && literal.regionMatches(0, string, start, length)) {
+                        return children[index];
+                    }
+                }
+            }
+            return null;
+        }
+
+        private Node<T> addLiteral(final String literal) {
+            final int size = literals.length;
+            literals = Arrays.copyOf(literals, size + 1);
+            hashes = Arrays.copyOf(hashes, size + 1);
+            children = Arrays.copyOf(children, size + 1);
+            literals[size] = literal;
+            hashes[size] = literal.hashCode();
+            children[size] = new Node<>();
+            return children[size];
+        }
+    }
+}
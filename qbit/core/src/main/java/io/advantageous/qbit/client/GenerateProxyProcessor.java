@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.client;
+
+import io.advantageous.qbit.annotation.GenerateProxy;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Writes the client proxy classes for interfaces marked {@link GenerateProxy}.
+ * <p>
+ * For an interface {@code Foo} it writes {@code Foo$$QBitProxy}, which implements {@code Foo} and {@link ClientProxy},
+ * and {@code Foo$$QBitRemoteProxy}, which extends it and implements {@link RemoteTCPClientProxy}.
+ * Each proxy method passes its arguments to a {@link ProxyTarget} together with the value the target gave
+ * for the method when the proxy was constructed. {@link ProxyMethods#newProxy} picks these classes up at runtime.
+ * <p>
+ * Registered in {@code META-INF/services}, so it runs for any code compiled against qbit core.
+ */
+@SupportedAnnotationTypes("io.advantageous.qbit.annotation.GenerateProxy")
+public class GenerateProxyProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateProxy.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error(element, "@GenerateProxy only works on interfaces");
+                continue;
+            }
+            if (!accessible(element)) {
+                error(element, "@GenerateProxy interfaces can not be private");
+                continue;
+            }
+            try {
+                generate((TypeElement) element);
+            } catch (IOException e) {
+                error(element, "Unable to write proxy for " + element + ": " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void generate(final TypeElement serviceInterface) throws IOException {
+
+        final Elements elements = processingEnv.getElementUtils();
+        final String packageName = elements.getPackageOf(serviceInterface).getQualifiedName().toString();
+        final String binaryName = elements.getBinaryName(serviceInterface).toString();
+        final String baseName = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+
+        final String typeParameters = typeParameters(serviceInterface.getTypeParameters());
+        final String typeArguments = typeArguments(serviceInterface.getTypeParameters());
+        final DeclaredType serviceType = (DeclaredType) serviceInterface.asType();
+
+        final List<ExecutableElement> localMethods = new ArrayList<>();
+        final Set<String> signatures = new HashSet<>();
+        addMethods(localMethods, signatures, serviceType, methods(serviceInterface));
+        addMethods(localMethods, signatures, serviceType, methods(type(ClientProxy.class)));
+        addMethods(localMethods, signatures, serviceType, objectMethods());
+
+        final List<ExecutableElement> remoteMethods = new ArrayList<>();
+        addMethods(remoteMethods, new HashSet<>(signatures), serviceType, methods(type(RemoteTCPClientProxy.class)));
+
+        final String localName = baseName + ProxyMethods.LOCAL_PROXY_SUFFIX;
+        final String remoteName = baseName + ProxyMethods.REMOTE_PROXY_SUFFIX;
+
+        writeClass(serviceInterface, packageName, localName,
+                "public class " + localName + typeParameters + " implements "
+                        + serviceInterface.getQualifiedName() + typeArguments + ", " + ClientProxy.class.getName(),
+                true, serviceType, localMethods);
+
+        writeClass(serviceInterface, packageName, remoteName,
+                "public final class " + remoteName + typeParameters + " extends " + localName + typeArguments
+                        + " implements " + RemoteTCPClientProxy.class.getName(),
+                false, serviceType, remoteMethods);
+    }
+
+    private void writeClass(final TypeElement serviceInterface, final String packageName, final String className,
+                            final String declaration, final boolean base, final DeclaredType serviceType,
+                            final List<ExecutableElement> methods) throws IOException {
+
+        final StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/* Generated by ").append(GenerateProxyProcessor.class.getName())
+                .append(" for ").append(serviceInterface.getQualifiedName()).append(". */\n");
+        source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        source.append(declaration).append(" {\n\n");
+
+        if (base) {
+            source.append("    protected final ").append(ProxyTarget.class.getName()).append(" target;\n");
+        }
+        for (int index = 0; index < methods.size(); index++) {
+            source.append("    private final Object method").append(index).append(";\n");
+        }
+
+        source.append("\n    public ").append(className).append("(final ").append(ProxyTarget.class.getName())
+                .append(" target) {\n");
+        source.append(base ? "        this.target = target;\n" : "        super(target);\n");
+        for (int index = 0; index < methods.size(); index++) {
+            final ExecutableElement method = methods.get(index);
+            source.append("        this.method").append(index).append(" = target.method(\"")
+                    .append(method.getSimpleName()).append('"');
+            /* Erased as declared, so they match the reflected method's parameter types. */
+            for (VariableElement parameter : method.getParameters()) {
+                source.append(", ").append(processingEnv.getTypeUtils().erasure(parameter.asType())).append(".class");
+            }
+            source.append(");\n");
+        }
+        source.append("    }\n");
+
+        for (int index = 0; index < methods.size(); index++) {
+            writeMethod(source, "method" + index, serviceType, methods.get(index));
+        }
+        source.append("}\n");
+
+        final String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, serviceInterface).openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    private void writeMethod(final StringBuilder source, final String field, final DeclaredType serviceType,
+                             final ExecutableElement method) {
+
+        final ExecutableType type = executableType(serviceType, method);
+        final List<? extends TypeMirror> parameterTypes = type.getParameterTypes();
+        final TypeMirror returnType = type.getReturnType();
+
+        source.append("\n    @Override\n    public ");
+        final String typeParameters = typeParameters(method.getTypeParameters());
+        if (!typeParameters.isEmpty()) {
+            source.append(typeParameters).append(' ');
+        }
+        source.append(returnType).append(' ').append(method.getSimpleName()).append('(');
+        for (int index = 0; index < parameterTypes.size(); index++) {
+            if (index > 0) {
+                source.append(", ");
+            }
+            final TypeMirror parameterType = parameterTypes.get(index);
+            if (method.isVarArgs() && index == parameterTypes.size() - 1) {
+                source.append(((ArrayType) parameterType).getComponentType()).append("...");
+            } else {
+                source.append(parameterType);
+            }
+            source.append(" arg").append(index);
+        }
+        source.append(") {\n        ");
+
+        final StringBuilder call = new StringBuilder("target.call(this, ").append(field).append(", ");
+        if (parameterTypes.isEmpty()) {
+            call.append("null");
+        } else {
+            call.append("new Object[]{");
+            for (int index = 0; index < parameterTypes.size(); index++) {
+                call.append(index > 0 ? ", arg" : "arg").append(index);
+            }
+            call.append('}');
+        }
+        call.append(')');
+
+        if (returnType.getKind() == TypeKind.VOID) {
+            source.append(call).append(";\n");
+        } else if (returnType.getKind().isPrimitive()) {
+            final TypeElement boxed = processingEnv.getTypeUtils().boxedClass((PrimitiveType) returnType);
+            source.append("final Object result = ").append(call).append(";\n");
+            source.append("        return result == null ? ").append(defaultValue(returnType.getKind()))
+                    .append(" : (").append(boxed.getQualifiedName()).append(") result;\n");
+        } else {
+            source.append("return (").append(returnType).append(") ").append(call).append(";\n");
+        }
+        source.append("    }\n");
+    }
+
+    /**
+     * Adds the methods a proxy has to implement, skipping static and private ones and signatures already added.
+     */
+    private void addMethods(final List<ExecutableElement> methods, final Set<String> signatures,
+                            final DeclaredType serviceType, final List<ExecutableElement> candidates) {
+
+        final Types types = processingEnv.getTypeUtils();
+        for (ExecutableElement method : candidates) {
+            final Set<Modifier> modifiers = method.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.PRIVATE)
+                    || modifiers.contains(Modifier.FINAL)) {
+                continue;
+            }
+            final StringBuilder signature = new StringBuilder(method.getSimpleName()).append('(');
+            for (TypeMirror parameterType : executableType(serviceType, method).getParameterTypes()) {
+                signature.append(types.erasure(parameterType)).append(',');
+            }
+            if (signatures.add(signature.toString())) {
+                methods.add(method);
+            }
+        }
+    }
+
+    private List<ExecutableElement> methods(final TypeElement type) {
+        final List<ExecutableElement> methods = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (method.getEnclosingElement().getKind() == ElementKind.INTERFACE) {
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * The {@code Object} methods {@code java.lang.reflect.Proxy} passes to its handler.
+     */
+    private List<ExecutableElement> objectMethods() {
+        final List<ExecutableElement> methods = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(type(Object.class).getEnclosedElements())) {
+            final String name = method.getSimpleName().toString();
+            if ((name.equals("toString") || name.equals("hashCode")) && method.getParameters().isEmpty()
+                    || name.equals("equals") && method.getParameters().size() == 1) {
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    private ExecutableType executableType(final DeclaredType serviceType, final ExecutableElement method) {
+        final Element owner = method.getEnclosingElement();
+        if (processingEnv.getTypeUtils().isSubtype(processingEnv.getTypeUtils().erasure(serviceType),
+                processingEnv.getTypeUtils().erasure(owner.asType()))) {
+            return (ExecutableType) processingEnv.getTypeUtils().asMemberOf(serviceType, method);
+        }
+        return (ExecutableType) method.asType();
+    }
+
+    private TypeElement type(final Class<?> type) {
+        return processingEnv.getElementUtils().getTypeElement(type.getCanonicalName());
+    }
+
+    private static String typeParameters(final List<? extends TypeParameterElement> typeParameters) {
+        if (typeParameters.isEmpty()) {
+            return "";
+        }
+        final StringBuilder builder = new StringBuilder("<");
+        for (TypeParameterElement typeParameter : typeParameters) {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(typeParameter.getSimpleName());
+            final List<? extends TypeMirror> bounds = typeParameter.getBounds();
+            if (!(bounds.size() == 1 && bounds.get(0).toString().equals("java.lang.Object"))) {
+                for (int index = 0; index < bounds.size(); index++) {
+                    builder.append(index == 0 ? " extends " : " & ").append(bounds.get(index));
+                }
+            }
+        }
+        return builder.append('>').toString();
+    }
+
+    private static String typeArguments(final List<? extends TypeParameterElement> typeParameters) {
+        if (typeParameters.isEmpty()) {
+            return "";
+        }
+        final StringBuilder builder = new StringBuilder("<");
+        for (TypeParameterElement typeParameter : typeParameters) {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(typeParameter.getSimpleName());
+        }
+        return builder.append('>').toString();
+    }
+
+    private static String defaultValue(final TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN:
+                return "false";
+            case CHAR:
+                return "'\\0'";
+            default:
+                return "0";
+        }
+    }
+
+    private static boolean accessible(final Element element) {
+        for (Element current = element; current != null && current.getKind() != ElementKind.PACKAGE;
+             current = current.getEnclosingElement()) {
+            if (current.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void error(final Element element, final String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
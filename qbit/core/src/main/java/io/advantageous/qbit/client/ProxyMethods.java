@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.client;
+
+import io.advantageous.qbit.annotation.GenerateProxy;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Per method data for a client proxy, worked out once when the proxy is created.
+ * <p>
+ * Proxy invocation handlers look their method up here instead of switching on the method name,
+ * building addresses or calling {@code Method.toString()} on every call.
+ * The table is read only once built, so it can be shared by every thread calling the proxy.
+ * <p>
+ * {@link #newProxy} creates the proxy from the class generated for a {@link GenerateProxy} interface
+ * when there is one, and with {@code java.lang.reflect.Proxy} otherwise. Both get their per method data from here.
+ *
+ * @param <T> per method data
+ */
+public final class ProxyMethods<T> {
+
+    /**
+     * Suffix of the generated local proxy class name, appended to the interface's binary name.
+     */
+    public static final String LOCAL_PROXY_SUFFIX = "$$QBitProxy";
+
+    /**
+     * Suffix of the generated remote proxy class name, which also implements {@link RemoteTCPClientProxy}.
+     */
+    public static final String REMOTE_PROXY_SUFFIX = "$$QBitRemoteProxy";
+
+    private static final ClassValue<Constructor<?>> localProxyConstructors = generatedProxyConstructors(LOCAL_PROXY_SUFFIX);
+    private static final ClassValue<Constructor<?>> remoteProxyConstructors = generatedProxyConstructors(REMOTE_PROXY_SUFFIX);
+
+    private final Map<Method, T> methods;
+    private final Class<?>[] interfaces;
+
+    private ProxyMethods(final Map<Method, T> methods, final Class<?>[] interfaces) {
+        this.methods = methods;
+        this.interfaces = interfaces;
+    }
+
+    /**
+     * Builds the table for the public methods of the interfaces and the
+     * {@code toString}, {@code equals} and {@code hashCode} methods proxies pass on from Object.
+     *
+     * @param mapper     computes the data for a method
+     * @param interfaces interfaces the proxy implements
+     * @param <T>        per method data
+     * @return method table
+     */
+    public static <T> ProxyMethods<T> proxyMethods(final Function<Method, T> mapper, final Class<?>... interfaces) {
+        final Map<Method, T> methods = new HashMap<>();
+        try {
+            for (Method method : new Method[]{
+                    Object.class.getMethod("toString"),
+                    Object.class.getMethod("equals", Object.class),
+                    Object.class.getMethod("hashCode")}) {
+                methods.put(method, mapper.apply(method));
+            }
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Class<?> anInterface : interfaces) {
+            for (Method method : anInterface.getMethods()) {
+                methods.putIfAbsent(method, mapper.apply(method));
+            }
+        }
+        return new ProxyMethods<>(methods, interfaces);
+    }
+
+    /**
+     * @param method method passed to the invocation handler
+     * @return data for the method, null if the method is not on the proxy's interfaces
+     */
+    public T get(final Method method) {
+        return methods.get(method);
+    }
+
+    /**
+     * Looks a method up by signature. Only used while a generated proxy is being constructed.
+     *
+     * @param name           method name
+     * @param parameterTypes erased parameter types
+     * @return data for the method, null if the method is not on the proxy's interfaces
+     */
+    public T get(final String name, final Class<?>... parameterTypes) {
+        for (Map.Entry<Method, T> entry : methods.entrySet()) {
+            final Method method = entry.getKey();
+            if (method.getName().equals(name) && Arrays.equals(method.getParameterTypes(), parameterTypes)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates a proxy implementing the interfaces this table was built for.
+     * <p>
+     * The first interface is the service interface. If it is marked {@link GenerateProxy} the generated class is used,
+     * the remote one when the table was built for {@link RemoteTCPClientProxy}.
+     *
+     * @param classLoader loader for the {@code java.lang.reflect.Proxy} class when no class was generated
+     * @param invoker     handles calls to the proxy
+     * @param <P>         proxy type
+     * @return proxy
+     */
+    @SuppressWarnings("unchecked")
+    public <P> P newProxy(final ClassLoader classLoader, final Invoker<T> invoker) {
+
+        final Class<?> serviceInterface = interfaces[0];
+        final Constructor<?> constructor = (Arrays.asList(interfaces).contains(RemoteTCPClientProxy.class)
+                ? remoteProxyConstructors : localProxyConstructors).get(serviceInterface);
+
+        if (constructor == null) {
+            return (P) Proxy.newProxyInstance(classLoader, interfaces,
+                    (proxy, method, args) -> invoker.invoke(proxy, methods.get(method), args));
+        }
+
+        final ProxyTarget target = new ProxyTarget() {
+            @Override
+            public Object method(final String name, final Class<?>... parameterTypes) {
+                return get(name, parameterTypes);
+            }
+
+            @Override
+            public Object call(final Object proxy, final Object method, final Object[] args) {
+                return invoker.invoke(proxy, (T) method, args);
+            }
+        };
+
+        try {
+            return (P) constructor.newInstance(target);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create generated proxy for " + serviceInterface.getName(), e);
+        }
+    }
+
+    private static ClassValue<Constructor<?>> generatedProxyConstructors(final String suffix) {
+        return new ClassValue<Constructor<?>>() {
+            @Override
+            protected Constructor<?> computeValue(final Class<?> serviceInterface) {
+                if (!serviceInterface.isAnnotationPresent(GenerateProxy.class)) {
+                    return null;
+                }
+                try {
+                    return Class.forName(serviceInterface.getName() + suffix, true, serviceInterface.getClassLoader())
+                            .getConstructor(ProxyTarget.class);
+                } catch (ReflectiveOperationException e) {
+                    /* Compiled without the annotation processor. */
+                    return null;
+                }
+            }
+        };
+    }
+
+    /**
+     * Handles a call to a proxy, with the method's data already looked up.
+     *
+     * @param <T> per method data
+     */
+    @FunctionalInterface
+    public interface Invoker<T> {
+
+        /**
+         * @param proxy  proxy the method was called on
+         * @param method data for the method, null if the method is not on the proxy's interfaces
+         * @param args   arguments, null if the method has none
+         * @return method result, null for void methods
+         */
+        Object invoke(Object proxy, T method, Object[] args);
+    }
+}
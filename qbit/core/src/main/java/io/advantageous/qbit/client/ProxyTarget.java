@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.client;
+
+/**
+ * What a generated proxy class sends its method calls to.
+ * <p>
+ * When it is constructed, a generated proxy looks up each of its methods once with {@link #method}. It then passes
+ * the value it got back to {@link #call} on every call, so nothing is looked up per call.
+ *
+ * @see io.advantageous.qbit.annotation.GenerateProxy
+ */
+public interface ProxyTarget {
+
+    /**
+     * @param name           method name
+     * @param parameterTypes erased parameter types
+     * @return what the proxy passes to {@link #call} for this method
+     */
+    Object method(String name, Class<?>... parameterTypes);
+
+    /**
+     * @param proxy  proxy the method was called on
+     * @param method value {@link #method} returned for the method
+     * @param args   arguments, null if the method has none
+     * @return method result, null for void methods
+     */
+    Object call(Object proxy, Object method, Object[] args);
+}
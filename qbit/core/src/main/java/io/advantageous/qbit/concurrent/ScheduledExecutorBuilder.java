@@ -33,6 +33,7 @@ public class ScheduledExecutorBuilder {
     private Runnable runnable;
     private int priority = Thread.NORM_PRIORITY;
     private boolean daemon;
+    private boolean virtualThreads;
 
     public static ScheduledExecutorBuilder scheduledExecutorBuilder() {
         return new ScheduledExecutorBuilder();
@@ -47,6 +48,22 @@ public class ScheduledExecutorBuilder {
         return this;
     }
 
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Runs on a virtual thread when the JDK has them, otherwise on a platform thread.
+     * Priority and daemon do not apply to virtual threads.
+     *
+     * @param virtualThreads use a virtual thread
+     * @return this
+     */
+    public ScheduledExecutorBuilder setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
     public int getPriority() {
         return priority;
     }
@@ -113,7 +130,8 @@ public class ScheduledExecutorBuilder {
 
     public ExecutorContext build() {
         return new ScheduledThreadContext(this.getRunnable(), this.getInitialDelay(),
-                this.getPeriod(), this.getUnit(), this.getThreadName(), this.getDescription(), priority, daemon
+                this.getPeriod(), this.getUnit(), this.getThreadName(), this.getDescription(), priority, daemon,
+                virtualThreads
         );
     }
 }
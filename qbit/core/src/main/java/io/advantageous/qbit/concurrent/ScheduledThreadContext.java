@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 
@@ -36,6 +37,7 @@ public class ScheduledThreadContext implements ExecutorContext {
     private final boolean debug = false || GlobalConstants.DEBUG || logger.isDebugEnabled();
     private final int priority;
     private final boolean daemon;
+    private final boolean virtualThreads;
     private final Runnable runnable;
     private final int initialDelay;
     private final int period;
@@ -52,6 +54,17 @@ public class ScheduledThreadContext implements ExecutorContext {
                                   final TimeUnit unit,
                                   final String threadName,
                                   final String description, int priority, boolean daemon) {
+        this(runnable, initialDelay, period, unit, threadName, description, priority, daemon, false);
+    }
+
+    public ScheduledThreadContext(final Runnable runnable,
+                                  final int initialDelay,
+                                  final int period,
+                                  final TimeUnit unit,
+                                  final String threadName,
+                                  final String description, int priority, boolean daemon,
+                                  boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
         this.initialDelay = initialDelay;
         this.period = period;
         this.unit = unit;
@@ -72,15 +85,7 @@ public class ScheduledThreadContext implements ExecutorContext {
         if (monitor != null) {
             throw new IllegalStateException(description + " Must be stopped before it can be started");
         }
-        monitor = Executors.newScheduledThreadPool(1,
-                runnable -> {
-                    Thread thread = new Thread(runnable);
-                    thread.setName(threadName);
-                    thread.setPriority(priority);
-                    if (daemon) thread.setDaemon(daemon);
-                    return thread;
-                }
-        );
+        monitor = Executors.newScheduledThreadPool(1, threadFactory());
         /** This wants to be configurable. */
         future = monitor.scheduleAtFixedRate(() -> {
             try {
@@ -92,6 +97,24 @@ public class ScheduledThreadContext implements ExecutorContext {
         }, initialDelay, period, unit);
     }
 
+    private ThreadFactory threadFactory() {
+
+        if (virtualThreads) {
+            if (VirtualThreads.isSupported()) {
+                return VirtualThreads.threadFactory(threadName);
+            }
+            logger.warn("Virtual threads are not supported by this JDK, using a platform thread for: " + description);
+        }
+
+        return runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName(threadName);
+            thread.setPriority(priority);
+            if (daemon) thread.setDaemon(daemon);
+            return thread;
+        };
+    }
+
     @Override
     public void stop() {
 
@@ -28,7 +28,35 @@ public interface MethodCall<T> extends Request<T> {
 
     String objectName();
 
+    /**
+     * Absolute time in milliseconds after which nobody is waiting for the answer to this call.
+     *
+     * @return deadline, or 0 if the call has none
+     */
+    default long deadline() {
+        return 0L;
+    }
+
+    /**
+     * @param now current time in milliseconds
+     * @return true if the call has a deadline and it has passed
+     */
+    default boolean expired(long now) {
+        final long deadline = deadline();
+        return deadline != 0L && now >= deadline;
+    }
 
+    /**
+     * Time in milliseconds this process got the call, what time spent waiting in queues is measured from.
+     * A call that came in over HTTP or WebSocket has the sender's clock in its timestamp, so the time its
+     * request was received is used instead.
+     *
+     * @return time the call was received
+     */
+    default long receivedTime() {
+        final Request<Object> request = originatingRequest();
+        return request != null ? request.timestamp() : timestamp();
+    }
 
     default Object[] args() {
         Object body = this.body();
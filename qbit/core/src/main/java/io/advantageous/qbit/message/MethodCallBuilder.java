@@ -50,6 +50,7 @@ public class MethodCallBuilder {
     private String objectName;
     private String returnAddress;
     private Request<Object> originatingRequest;
+    private long deadline;
 
     public static MethodCall<Object> transformed(final MethodCall<Object> methodCall,
                                                  final Object arg) {
@@ -65,7 +66,8 @@ public class MethodCallBuilder {
                 .setBody(arg)
                 .setObjectName(methodCall.objectName())
                 .setReturnAddress(methodCall.returnAddress())
-                .setOriginatingRequest(methodCall.originatingRequest()).build();
+                .setOriginatingRequest(methodCall.originatingRequest())
+                .setDeadline(methodCall.deadline()).build();
 
     }
 
@@ -193,6 +195,19 @@ public class MethodCallBuilder {
         return this;
     }
 
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @param deadline absolute time in milliseconds after which the call is not worth running, 0 for none
+     * @return this
+     */
+    public MethodCallBuilder setDeadline(long deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
     public MethodCall<Object> build() {
 
         if (timestamp == 0L) {
@@ -216,11 +231,36 @@ public class MethodCallBuilder {
             }
         }
 
+        deadlineFromHeaders();
+
         return new MethodCallImpl(getTimestamp(), getId(), getName(), getAddress(), getParams(), getHeaders(),
-                getBody(), getObjectName(), getReturnAddress(), getOriginatingRequest());
+                getBody(), getObjectName(), getReturnAddress(), getOriginatingRequest(), getDeadline());
 
     }
 
+    /**
+     * Callers send the time they have left instead of an absolute deadline, so the two clocks do not need to agree.
+     * The deadline can only get earlier.
+     */
+    private void deadlineFromHeaders() {
+        if (headers == null || headers.isEmpty()) {
+            return;
+        }
+        final String budget = headers.getFirst(Protocol.DEADLINE_HEADER);
+        if (budget == null || budget.isEmpty()) {
+            return;
+        }
+        final long headerDeadline;
+        try {
+            headerDeadline = timer.now() + Math.max(0L, Long.parseLong(budget.trim()));
+        } catch (NumberFormatException ex) {
+            return;
+        }
+        if (deadline == 0L || headerDeadline < deadline) {
+            deadline = headerDeadline;
+        }
+    }
+
     public boolean hasParams() {
         return params != null && params.size() > 0;
     }
@@ -41,9 +41,14 @@ public class MethodCallImpl implements MethodCall<Object> {
     private final String returnAddress;
     private Object transformedBody;
     private Request<Object> originatingRequest;
+    private long deadline;
 
 
     public MethodCallImpl(long timestamp, long id, String name, String address, MultiMap<String, String> params, MultiMap<String, String> headers, Object body, String objectName, String returnAddress, Request<Object> originatingRequest) {
+        this(timestamp, id, name, address, params, headers, body, objectName, returnAddress, originatingRequest, 0L);
+    }
+
+    public MethodCallImpl(long timestamp, long id, String name, String address, MultiMap<String, String> params, MultiMap<String, String> headers, Object body, String objectName, String returnAddress, Request<Object> originatingRequest, long deadline) {
         this.timestamp = timestamp;
         this.id = id;
         this.name = name;
@@ -54,6 +59,7 @@ public class MethodCallImpl implements MethodCall<Object> {
         this.objectName = objectName;
         this.returnAddress = returnAddress;
         this.originatingRequest = originatingRequest;
+        this.deadline = deadline;
     }
 
     @Override
@@ -66,6 +72,11 @@ public class MethodCallImpl implements MethodCall<Object> {
         return timestamp;
     }
 
+    @Override
+    public long deadline() {
+        return deadline;
+    }
+
     @Override
     public boolean isHandled() {
         return false;
@@ -127,6 +138,10 @@ public class MethodCallImpl implements MethodCall<Object> {
         this.originatingRequest = originatingRequest;
     }
 
+    public void deadline(long deadline) {
+        this.deadline = deadline;
+    }
+
     @Override
     public boolean isSingleton() {
         return true;
@@ -20,6 +20,7 @@ package io.advantageous.qbit.meta.provider;
 
 import io.advantageous.boon.core.Str;
 import io.advantageous.boon.core.StringScanner;
+import io.advantageous.qbit.bindings.UriRouteTrie;
 import io.advantageous.qbit.meta.*;
 
 import java.util.Map;
@@ -32,6 +33,7 @@ public class StandardMetaDataProvider implements MetaDataProvider {
 
     final Map<String, RequestMetaData> metaDataMap = new ConcurrentHashMap<>(100);
     final NavigableMap<String, RequestMetaData> treeMap = new TreeMap<>();
+    final UriRouteTrie<RequestMetaData> uriRoutes = new UriRouteTrie<>();
 
 
 
@@ -82,6 +84,8 @@ public class StandardMetaDataProvider implements MetaDataProvider {
             metaDataMap.put(path, metaData);
         } else {
             treeMap.put(path, metaData);
+            uriRoutes.put(Str.join('/', context.getRootURI(), servicePath, requestMeta.getRequestURI())
+                    .replace("//", "/").toLowerCase(), metaData);
         }
 
     }
@@ -93,6 +97,11 @@ public class StandardMetaDataProvider implements MetaDataProvider {
         RequestMetaData requestMetaData = metaDataMap.get(path);
 
         if (requestMetaData == null) {
+            requestMetaData = uriRoutes.match(path, null);
+            if (requestMetaData != null) {
+                return requestMetaData;
+            }
+
             final Map.Entry<String, RequestMetaData> entry = treeMap.lowerEntry(path);
 
             if (entry == null) {
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue;
+
+/**
+ * Gets items a batch at a time, straight from the array the sender flushed. No copy, no collection.
+ * <p>
+ * The array belongs to the queue. It may be reused as soon as {@code accept} returns,
+ * so do not hold on to it.
+ *
+ * @param <T> type of the items in the array
+ */
+@FunctionalInterface
+public interface BatchConsumer<T> {
+
+    /**
+     * @param items  array holding the items, cast each one to {@code T}
+     * @param offset index of the first item
+     * @param length number of items
+     */
+    void accept(Object[] items, int offset, int length);
+}
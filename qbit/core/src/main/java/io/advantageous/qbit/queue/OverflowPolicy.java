@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue;
+
+/**
+ * What a send queue does when flow control says there is no room.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Block the sending thread until the receiver catches up. This is what queues always did.
+     */
+    BLOCK,
+
+    /**
+     * Do not enqueue when the queue is full, hand the items to the rejection handler right away.
+     */
+    REJECT,
+
+    /**
+     * Evict the oldest batch in the queue to make room. Evicted items go to the rejection handler.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Reject as soon as the queue is over its high water mark and keep rejecting until it drains down to the
+     * low water mark. Rejected items go to the rejection handler. Service bundles answer rejected calls with an
+     * error that HTTP turns into a 503.
+     */
+    SHED
+}
@@ -62,8 +62,7 @@ public interface Queue<T> {
     default SendQueue<T> sendQueueWithAutoFlush(final PeriodicScheduler periodicScheduler,
                                                 final int interval, final TimeUnit timeUnit) {
 
-        SendQueue<T> sendQueue = sendQueue();
-        return new AutoFlushingSendQueue<>(sendQueue, periodicScheduler, interval, timeUnit);
+        return new AutoFlushingSendQueue<>(this::sendQueue, periodicScheduler, interval, timeUnit);
     }
 
     /**
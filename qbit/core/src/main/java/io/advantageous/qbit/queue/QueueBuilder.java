@@ -20,8 +20,16 @@ package io.advantageous.qbit.queue;
 
 import io.advantageous.qbit.GlobalConstants;
 import io.advantageous.qbit.queue.impl.BasicQueue;
+import io.advantageous.qbit.queue.impl.BlockingWaitStrategy;
+import io.advantageous.qbit.queue.impl.FlowControl;
+import io.advantageous.qbit.queue.impl.MultiProducerRingBufferQueue;
+import io.advantageous.qbit.queue.impl.QueueStats;
+import io.advantageous.qbit.queue.impl.SharedQueueScheduler;
+import io.advantageous.qbit.queue.impl.SingleProducerRingBufferQueue;
 
 import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Allows for the programmatic construction of a queue.
@@ -38,6 +46,20 @@ public class QueueBuilder implements Cloneable {
     private String name;
     private Class<? extends BlockingQueue> queueClass = ArrayBlockingQueue.class;
     private boolean checkIfBusy = false;
+    private boolean recycleBatches = false;
+    private WaitStrategy waitStrategy = new BlockingWaitStrategy();
+    private int highWaterMark = -1;
+    private int lowWaterMark = -1;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private Consumer<Object> rejectionHandler;
+    private SharedQueueScheduler sharedScheduler;
+    private boolean virtualThreads;
+    private Predicate<Object> priorityLane;
+    private int priorityBurst = 32;
+    private int priorityLaneLimit = 1024;
+    private QueueStatsRecorder statsRecorder;
+    private int statsInterval = 1000;
+    private int statsSampleEvery = 16;
 
     public static QueueBuilder queueBuilder() {
         return new QueueBuilder();
@@ -97,6 +119,21 @@ public class QueueBuilder implements Cloneable {
     }
 
 
+    /**
+     * Use a preallocated ring buffer instead of a java.util.concurrent blocking queue.
+     *
+     * @param capacity     number of batches the ring can hold, rounded up to a power of two
+     * @param producerMode SINGLE only if one thread will ever send to this queue
+     * @return this
+     */
+    public QueueBuilder setRingBuffer(final int capacity, final ProducerMode producerMode) {
+        size = capacity;
+        queueClass = producerMode == ProducerMode.SINGLE ?
+                SingleProducerRingBufferQueue.class : MultiProducerRingBufferQueue.class;
+        return this;
+    }
+
+
     public int getSize() {
         return size;
     }
@@ -134,6 +171,232 @@ public class QueueBuilder implements Cloneable {
 
     }
 
+    public boolean isRecycleBatches() {
+        return recycleBatches;
+    }
+
+    /**
+     * Reuse batch arrays. The receive side hands each batch array back to the send side when it is done
+     * with it instead of the send side allocating a new array every flush.
+     *
+     * @param recycleBatches recycle batches
+     * @return this
+     */
+    public QueueBuilder setRecycleBatches(boolean recycleBatches) {
+        this.recycleBatches = recycleBatches;
+        return this;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * How the listener thread waits when its queue is empty.
+     * Pick busy spin, yielding, back off or blocking (the default) to trade CPU for hand-off latency.
+     *
+     * @param waitStrategy wait strategy
+     * @return this
+     */
+    public QueueBuilder setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+        return this;
+    }
+
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    public QueueBuilder setHighWaterMark(int highWaterMark) {
+        this.highWaterMark = highWaterMark;
+        return this;
+    }
+
+    public int getLowWaterMark() {
+        return lowWaterMark;
+    }
+
+    public QueueBuilder setLowWaterMark(int lowWaterMark) {
+        this.lowWaterMark = lowWaterMark;
+        return this;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public QueueBuilder setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    public Consumer<Object> getRejectionHandler() {
+        return rejectionHandler;
+    }
+
+    /**
+     * Gets every item that flow control rejected or dropped.
+     * This is called from the sending thread.
+     *
+     * @param rejectionHandler rejection handler
+     * @return this
+     */
+    public QueueBuilder setRejectionHandler(Consumer<Object> rejectionHandler) {
+        this.rejectionHandler = rejectionHandler;
+        return this;
+    }
+
+    /**
+     * Turns on flow control. Depth is counted in items, not batches.
+     *
+     * @param highWaterMark  depth at which the queue is under pressure
+     * @param lowWaterMark   depth at which the queue is no longer under pressure
+     * @param overflowPolicy what to do when there is no room
+     * @return this
+     */
+    public QueueBuilder setFlowControl(int highWaterMark, int lowWaterMark, OverflowPolicy overflowPolicy) {
+        this.highWaterMark = highWaterMark;
+        this.lowWaterMark = lowWaterMark;
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    public SharedQueueScheduler getSharedScheduler() {
+        return sharedScheduler;
+    }
+
+    /**
+     * Runs the listener on a pool shared with other queues instead of on its own thread.
+     * Null, the default, gives the listener a dedicated thread.
+     *
+     * @param sharedScheduler shared scheduler
+     * @return this
+     */
+    public QueueBuilder setSharedScheduler(SharedQueueScheduler sharedScheduler) {
+        this.sharedScheduler = sharedScheduler;
+        return this;
+    }
+
+    /**
+     * Runs the listener on the JVM wide pool that is sized to the number of cores.
+     *
+     * @return this
+     */
+    public QueueBuilder useSharedScheduler() {
+        return setSharedScheduler(SharedQueueScheduler.sharedQueueScheduler());
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Runs the listener on its own virtual thread instead of a platform thread when the JDK has them (21+).
+     * The blocking wait on an empty queue then parks the virtual thread and frees its carrier.
+     * Has no effect when a shared scheduler is set.
+     *
+     * @param virtualThreads use a virtual thread for the listener
+     * @return this
+     */
+    public QueueBuilder setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    public Predicate<Object> getPriorityLane() {
+        return priorityLane;
+    }
+
+    /**
+     * Splits the queue into a high priority lane and a normal lane. Items the predicate matches go to the
+     * high priority lane, which the listener always drains first. Once the high priority lane holds
+     * {@link #setPriorityLaneLimit(int) its limit} of unread items, matching items go to the normal lane and its
+     * flow control until it drains to half that. Null, the default, is a single lane.
+     *
+     * @param priorityLane picks the items that go to the high priority lane
+     * @return this
+     */
+    public QueueBuilder setPriorityLane(Predicate<Object> priorityLane) {
+        this.priorityLane = priorityLane;
+        return this;
+    }
+
+    public int getPriorityBurst() {
+        return priorityBurst;
+    }
+
+    /**
+     * Starvation guard for the priority lane. After this many high priority items in a row the listener
+     * takes one item from the normal lane.
+     *
+     * @param priorityBurst high priority items in a row before a normal one gets through
+     * @return this
+     */
+    public QueueBuilder setPriorityBurst(int priorityBurst) {
+        this.priorityBurst = priorityBurst;
+        return this;
+    }
+
+    public int getPriorityLaneLimit() {
+        return priorityLaneLimit;
+    }
+
+    /**
+     * Most unread items the high priority lane holds before high priority items go to the normal lane.
+     *
+     * @param priorityLaneLimit high priority lane limit in items
+     * @return this
+     */
+    public QueueBuilder setPriorityLaneLimit(int priorityLaneLimit) {
+        this.priorityLaneLimit = priorityLaneLimit;
+        return this;
+    }
+
+    public QueueStatsRecorder getStatsRecorder() {
+        return statsRecorder;
+    }
+
+    /**
+     * Turns on instrumentation: rate, depth, batch sizes, time in queue and listener callback counts.
+     * They are published to the recorder from the listener thread once per stats interval.
+     * Null, the default, is off.
+     *
+     * @param statsRecorder where to publish, {@code statService::recordAllCounts} works
+     * @return this
+     */
+    public QueueBuilder setStatsRecorder(QueueStatsRecorder statsRecorder) {
+        this.statsRecorder = statsRecorder;
+        return this;
+    }
+
+    public int getStatsInterval() {
+        return statsInterval;
+    }
+
+    /**
+     * @param statsInterval how often to publish stats in milliseconds
+     * @return this
+     */
+    public QueueBuilder setStatsInterval(int statsInterval) {
+        this.statsInterval = statsInterval;
+        return this;
+    }
+
+    public int getStatsSampleEvery() {
+        return statsSampleEvery;
+    }
+
+    /**
+     * Time in queue is measured on every Nth batch a sender flushes. 1 measures every batch.
+     *
+     * @param statsSampleEvery batches per sample
+     * @return this
+     */
+    public QueueBuilder setStatsSampleEvery(int statsSampleEvery) {
+        this.statsSampleEvery = statsSampleEvery;
+        return this;
+    }
+
     public String getName() {
         return name;
     }
@@ -145,9 +408,27 @@ public class QueueBuilder implements Cloneable {
     }
 
 
+    private FlowControl createFlowControl() {
+        if (highWaterMark <= 0) {
+            return null;
+        }
+        return new FlowControl(highWaterMark, lowWaterMark < 0 ? highWaterMark / 2 : lowWaterMark,
+                overflowPolicy, rejectionHandler);
+    }
+
+    private QueueStats createQueueStats() {
+        if (statsRecorder == null) {
+            return null;
+        }
+        return new QueueStats(name, statsRecorder, statsInterval, statsSampleEvery, batchSize);
+    }
+
     public <T> Queue<T> build() {
         return new BasicQueue<>(this.getName(), this.getPollWait(), TimeUnit.MILLISECONDS, this.getBatchSize(),
-                this.queueClass, this.isCheckIfBusy(), this.getSize(), this.getCheckEvery(), this.isTryTransfer());
+                this.queueClass, this.isCheckIfBusy(), this.getSize(), this.getCheckEvery(), this.isTryTransfer(),
+                this.isRecycleBatches(), this.getWaitStrategy(), this.createFlowControl(), this.getSharedScheduler(),
+                this.isVirtualThreads(), this.getPriorityLane(), this.getPriorityBurst(), this.getPriorityLaneLimit(),
+                this.createQueueStats());
     }
 
 }
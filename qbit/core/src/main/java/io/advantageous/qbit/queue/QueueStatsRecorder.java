@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.queue;
+
+/**
+ * Where a queue publishes its instrumentation. Has the same shape as {@code StatService.recordAllCounts}
+ * from the admin module so {@code statService::recordAllCounts} can be passed in as is.
+ *
+ * @see QueueBuilder#setStatsRecorder(QueueStatsRecorder)
+ */
+public interface QueueStatsRecorder {
+
+    /**
+     * Called from the queue's listener thread once per stats interval.
+     *
+     * @param timestamp time in the clock of {@code io.advantageous.qbit.util.Timer}
+     * @param names     stat names
+     * @param counts    stat values, same order as names
+     */
+    void recordAllCounts(long timestamp, String[] names, int[] counts);
+}
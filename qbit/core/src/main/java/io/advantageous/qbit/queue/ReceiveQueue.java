@@ -72,4 +72,50 @@ public interface ReceiveQueue<T> extends Input {
      * @return batch of values
      */
     Iterable<T> readBatch();
+
+
+    /**
+     * Hands every item currently in the queue to the consumer, one batch array at a time with no copying.
+     * Does not wait.
+     *
+     * @param consumer consumer
+     * @return number of items drained
+     */
+    default int drain(BatchConsumer<T> consumer) {
+        return drain(consumer, Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * Hands up to max items currently in the queue to the consumer, one batch array at a time with no copying.
+     * Does not wait.
+     * <p>
+     * Queues that keep batch arrays hand those over. This default polls the items one at a time into an array
+     * of its own, for queues that do not.
+     *
+     * @param consumer consumer
+     * @param max      max number of items to drain
+     * @return number of items drained
+     */
+    default int drain(BatchConsumer<T> consumer, int max) {
+        if (max <= 0) {
+            return 0;
+        }
+        final Object[] items = new Object[Math.min(max, 64)];
+        int drained = 0;
+        int count = 0;
+        T item;
+        while (drained < max && (item = poll()) != null) {
+            items[count++] = item;
+            drained++;
+            if (count == items.length) {
+                consumer.accept(items, 0, count);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            consumer.accept(items, 0, count);
+        }
+        return drained;
+    }
 }
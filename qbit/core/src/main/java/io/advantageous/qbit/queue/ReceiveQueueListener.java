@@ -38,6 +38,24 @@ public interface ReceiveQueueListener<T> extends Input {
      */
     void receive(T item);
 
+    /**
+     * Notifies a queue listener that a batch of items has been received.
+     * Override this to get items a batch at a time straight from the queue's arrays instead of one
+     * at a time through {@link #receive(Object)}. The array is reused once this returns so do not hold on to it.
+     * When overridden, startBatch is called once before each run of batches instead of once per item.
+     *
+     * @param items  array holding the items
+     * @param offset index of the first item
+     * @param length number of items
+     */
+    @SuppressWarnings("unchecked")
+    default void receiveBatch(Object[] items, int offset, int length) {
+        final int end = offset + length;
+        for (int index = offset; index < end; index++) {
+            receive((T) items[index]);
+        }
+    }
+
     /**
      * Notifies the queue listener that currently the queue is empty.
      * This is good for batch operations. This could mean the queue is empty or we reached our max batch size limit.
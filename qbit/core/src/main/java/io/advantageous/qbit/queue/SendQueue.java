@@ -45,6 +45,16 @@ public interface SendQueue<T> extends Output {
 
     void flushSends();
 
+    /**
+     * True if flow control is on and the queue is over its high water mark (and has not yet drained down to
+     * its low water mark). Front ends can check this to reject work early instead of blocking.
+     *
+     * @return under pressure
+     */
+    default boolean isUnderPressure() {
+        return false;
+    }
+
     default void start(){}
     default void stop(){}
 
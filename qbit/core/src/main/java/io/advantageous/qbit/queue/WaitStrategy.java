@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue;
+
+/**
+ * Decides how a queue listener thread waits once it has drained its queue.
+ * <p>
+ * This trades CPU for latency. Busy spinning gives the lowest hand-off latency and burns a core.
+ * Blocking uses no CPU while waiting but pays for a thread wake up on every hand-off.
+ * <p>
+ * Implementations are shared between queues so they must not keep state between calls.
+ *
+ * @see io.advantageous.qbit.queue.impl.BlockingWaitStrategy
+ * @see io.advantageous.qbit.queue.impl.BusySpinWaitStrategy
+ * @see io.advantageous.qbit.queue.impl.YieldingWaitStrategy
+ * @see io.advantageous.qbit.queue.impl.BackOffWaitStrategy
+ */
+public interface WaitStrategy {
+
+    /**
+     * Wait for the next item after the queue was found empty.
+     *
+     * @param queue         queue to wait on
+     * @param waitTimeNanos how long to wait before giving up
+     * @param <T>           type of item
+     * @return the item or null if nothing showed up in time, which means the queue is idle
+     */
+    <T> T waitForItem(ReceiveQueue<T> queue, long waitTimeNanos);
+}
@@ -27,18 +27,29 @@ import io.advantageous.qbit.concurrent.PeriodicScheduler;
 import io.advantageous.qbit.queue.SendQueue;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
+ * Send queue that many threads can share and that flushes itself periodically.
+ * <p>
+ * Each producer thread batches into its own stripe, a send queue of its own, so producers never contend
+ * with each other. The periodic flush visits every stripe but never waits on one: if the owner is in the
+ * middle of a send it asks the owner to flush on its way out instead.
+ *
  * @author rhightower
  * on 2/24/15.
  */
 public class AutoFlushingSendQueue<T> implements SendQueue<T> {
 
-    private final SendQueue<T> sendQueue;
-    private final ReentrantLock lock = new ReentrantLock();
+    private final Supplier<SendQueue<T>> sendQueueSupplier;
+    private final Stripe<T> sharedStripe;
+    private final ThreadLocal<Stripe<T>> stripes = new ThreadLocal<>();
+    private final List<Stripe<T>> allStripes = new CopyOnWriteArrayList<>();
 
     private final PeriodicScheduler periodicScheduler;
     private final int interval;
@@ -46,12 +57,40 @@ public class AutoFlushingSendQueue<T> implements SendQueue<T> {
 
     private  ScheduledFuture scheduledFuture;
 
-    public AutoFlushingSendQueue(final SendQueue<T> sendQueue,
+    /**
+     * Every producer thread gets its own send queue from the supplier.
+     *
+     * @param sendQueueSupplier creates a send queue per producer thread, usually {@code queue::sendQueue}
+     * @param periodicScheduler scheduler for the periodic flush
+     * @param interval          flush interval
+     * @param timeUnit          flush interval time unit
+     */
+    public AutoFlushingSendQueue(final Supplier<SendQueue<T>> sendQueueSupplier,
                                  final PeriodicScheduler periodicScheduler,
                                  int interval,
                                  TimeUnit timeUnit) {
-        this.sendQueue = sendQueue;
+        this.sendQueueSupplier = sendQueueSupplier;
+        this.sharedStripe = null;
+        this.periodicScheduler = periodicScheduler;
+        this.interval = interval;
+        this.timeUnit = timeUnit;
+    }
 
+    /**
+     * All producer threads share the one send queue, one at a time.
+     *
+     * @param sendQueue         send queue to share
+     * @param periodicScheduler scheduler for the periodic flush
+     * @param interval          flush interval
+     * @param timeUnit          flush interval time unit
+     */
+    public AutoFlushingSendQueue(final SendQueue<T> sendQueue,
+                                 final PeriodicScheduler periodicScheduler,
+                                 int interval,
+                                 TimeUnit timeUnit) {
+        this.sendQueueSupplier = null;
+        this.sharedStripe = new Stripe<>(sendQueue, null);
+        this.allStripes.add(sharedStripe);
         this.periodicScheduler = periodicScheduler;
         this.interval = interval;
         this.timeUnit = timeUnit;
@@ -59,7 +98,7 @@ public class AutoFlushingSendQueue<T> implements SendQueue<T> {
 
     @Override
     public void start() {
-        scheduledFuture = periodicScheduler.repeat(() -> flushSends(), interval, timeUnit);
+        scheduledFuture = periodicScheduler.repeat(this::flushAll, interval, timeUnit);
     }
 
     @Override
@@ -67,14 +106,28 @@ public class AutoFlushingSendQueue<T> implements SendQueue<T> {
         scheduledFuture.cancel(true);
     }
 
+    private Stripe<T> stripe() {
+        if (sharedStripe != null) {
+            return sharedStripe;
+        }
+        Stripe<T> stripe = stripes.get();
+        if (stripe == null) {
+            stripe = new Stripe<>(sendQueueSupplier.get(), Thread.currentThread());
+            stripes.set(stripe);
+            allStripes.add(stripe);
+        }
+        return stripe;
+    }
+
     @Override
     public void send(T item) {
 
+        final Stripe<T> stripe = stripe();
+        stripe.acquire();
         try {
-            lock.lock();
-            sendQueue.send(item);
-        }finally {
-            lock.unlock();
+            stripe.sendQueue.send(item);
+        } finally {
+            stripe.release();
         }
 
     }
@@ -82,61 +135,127 @@ public class AutoFlushingSendQueue<T> implements SendQueue<T> {
     @Override
     public void sendAndFlush(T item) {
 
+        final Stripe<T> stripe = stripe();
+        stripe.acquire();
         try {
-            lock.lock();
-            sendQueue.sendAndFlush(item);
-        }finally {
-            lock.unlock();
+            stripe.sendQueue.sendAndFlush(item);
+        } finally {
+            stripe.release();
         }
     }
 
     @Override
     public void sendMany(T... items) {
 
+        final Stripe<T> stripe = stripe();
+        stripe.acquire();
         try {
-            lock.lock();
-            sendQueue.sendMany(items);
-        }finally {
-            lock.unlock();
+            stripe.sendQueue.sendMany(items);
+        } finally {
+            stripe.release();
         }
     }
 
     @Override
     public void sendBatch(Collection<T> items) {
 
+        final Stripe<T> stripe = stripe();
+        stripe.acquire();
         try {
-            lock.lock();
-            sendQueue.sendBatch(items);
-        }finally {
-            lock.unlock();
+            stripe.sendQueue.sendBatch(items);
+        } finally {
+            stripe.release();
         }
     }
 
     @Override
     public void sendBatch(Iterable<T> items) {
 
+        final Stripe<T> stripe = stripe();
+        stripe.acquire();
         try {
-            lock.lock();
-            sendQueue.sendBatch(items);
-        }finally {
-            lock.unlock();
+            stripe.sendQueue.sendBatch(items);
+        } finally {
+            stripe.release();
         }
     }
 
     @Override
     public boolean shouldBatch() {
-        return sendQueue.shouldBatch();
+        return stripe().sendQueue.shouldBatch();
     }
 
     @Override
-    public void flushSends() {
+    public boolean isUnderPressure() {
+        return stripe().sendQueue.isUnderPressure();
+    }
 
+    /**
+     * Flushes the calling thread's stripe, then every other stripe that is not busy.
+     */
+    @Override
+    public void flushSends() {
 
+        final Stripe<T> stripe = stripe();
+        stripe.acquire();
         try {
-            lock.lock();
-            sendQueue.flushSends();
-        }finally {
-            lock.unlock();
+            stripe.sendQueue.flushSends();
+        } finally {
+            stripe.release();
+        }
+        flushAll();
+    }
+
+    private void flushAll() {
+
+        for (Stripe<T> stripe : allStripes) {
+            if (stripe.tryAcquire()) {
+                try {
+                    stripe.sendQueue.flushSends();
+                } finally {
+                    stripe.release();
+                }
+                if (stripe.owner != null && !stripe.owner.isAlive()) {
+                    allStripes.remove(stripe);
+                }
+            } else {
+                stripe.flushRequested = true;
+            }
+        }
+    }
+
+    /**
+     * A producer thread's send queue. The busy flag is only ever contended by the periodic flush, which
+     * never waits for it.
+     */
+    private static final class Stripe<T> {
+
+        private final SendQueue<T> sendQueue;
+        private final Thread owner;
+        private final AtomicBoolean busy = new AtomicBoolean();
+        private volatile boolean flushRequested;
+
+        private Stripe(final SendQueue<T> sendQueue, final Thread owner) {
+            this.sendQueue = sendQueue;
+            this.owner = owner;
+        }
+
+        private void acquire() {
+            while (!busy.compareAndSet(false, true)) {
+                Thread.yield();
+            }
+        }
+
+        private boolean tryAcquire() {
+            return busy.compareAndSet(false, true);
+        }
+
+        private void release() {
+            if (flushRequested) {
+                flushRequested = false;
+                sendQueue.flushSends();
+            }
+            busy.set(false);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.queue.ReceiveQueue;
+import io.advantageous.qbit.queue.WaitStrategy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spins, then yields, then parks for twice as long each time (up to maxParkNanos) until the wait time is up.
+ * A quiet service ends up parked and uses little CPU, a busy one stays in the spin and yield phases.
+ */
+public class BackOffWaitStrategy implements WaitStrategy {
+
+    private final int spinTries;
+    private final int yieldTries;
+    private final long minParkNanos;
+    private final long maxParkNanos;
+
+    public BackOffWaitStrategy() {
+        this(100, 100, TimeUnit.MICROSECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(8));
+    }
+
+    public BackOffWaitStrategy(final int spinTries,
+                               final int yieldTries,
+                               final long minParkNanos,
+                               final long maxParkNanos) {
+        this.spinTries = spinTries;
+        this.yieldTries = yieldTries;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+    }
+
+    @Override
+    public <T> T waitForItem(final ReceiveQueue<T> queue, final long waitTimeNanos) {
+
+        final long deadline = System.nanoTime() + waitTimeNanos;
+        long parkNanos = minParkNanos;
+        int tries = 0;
+
+        while (true) {
+            final T item = queue.poll();
+            if (item != null) {
+                return item;
+            }
+
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+
+            if (tries < spinTries) {
+                tries++;
+            } else if (tries < spinTries + yieldTries) {
+                tries++;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(Math.min(parkNanos, remaining));
+                if (Thread.currentThread().isInterrupted()) {
+                    return null;
+                }
+                parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+            }
+        }
+    }
+}
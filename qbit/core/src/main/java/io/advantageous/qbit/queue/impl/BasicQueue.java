@@ -31,6 +31,7 @@ import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TransferQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 import static io.advantageous.qbit.concurrent.ScheduledExecutorBuilder.scheduledExecutorBuilder;
 
@@ -55,6 +56,19 @@ public class BasicQueue<T> implements Queue<T> {
     private final boolean tryTransfer;
     private final boolean debug = GlobalConstants.DEBUG;
     private final int checkEvery;
+    private final BatchArrayPool batchArrayPool;
+    private final FlowControl flowControl;
+    private final SharedQueueScheduler scheduler;
+    private final boolean virtualThreads;
+    /* The high priority lane and what sends to it, both null unless the queue has lanes. */
+    private final BlockingQueue<Object> priorityQueue;
+    private final Predicate<Object> priorityLane;
+    private final int priorityBurst;
+    /* Counts what is on the high priority lane, so senders can spill over to the normal lane. */
+    private final FlowControl priorityFlowControl;
+    private final PriorityLaneReceiveQueue.Doorbell doorbell;
+    private final QueueStats stats;
+    private volatile SharedQueueScheduler.SharedQueueWorker<T> worker;
     private AtomicBoolean stop = new AtomicBoolean();
     private ExecutorContext executorContext;
 
@@ -66,17 +80,51 @@ public class BasicQueue<T> implements Queue<T> {
                       final boolean checkIfBusy,
                       final int size,
                       final int checkEvery, boolean tryTransfer) {
+        this(name, waitTime, timeUnit, batchSize, queueClass, checkIfBusy, size, checkEvery, tryTransfer, false,
+                new BlockingWaitStrategy(), null, null, false, null, 0, 0, null);
+    }
+
+    public BasicQueue(final String name,
+                      final int waitTime,
+                      final TimeUnit timeUnit,
+                      final int batchSize,
+                      final Class<? extends BlockingQueue> queueClass,
+                      final boolean checkIfBusy,
+                      final int size,
+                      final int checkEvery,
+                      final boolean tryTransfer,
+                      final boolean recycleBatches,
+                      final WaitStrategy waitStrategy,
+                      final FlowControl flowControl,
+                      final SharedQueueScheduler scheduler,
+                      final boolean virtualThreads,
+                      final Predicate<Object> priorityLane,
+                      final int priorityBurst,
+                      final int priorityLaneLimit,
+                      final QueueStats stats) {
 
 
         this.tryTransfer = tryTransfer;
+        this.flowControl = flowControl;
+        this.scheduler = scheduler;
+        this.virtualThreads = virtualThreads;
         this.name = name;
         this.waitTime = waitTime;
         this.timeUnit = timeUnit;
         this.batchSize = batchSize;
+        this.priorityLane = priorityLane;
+        this.priorityBurst = priorityBurst > 0 ? priorityBurst : 1;
+        this.stats = stats;
+        this.priorityQueue = priorityLane == null ? null : new LinkedTransferQueue<>();
+        this.doorbell = priorityLane == null ? null : new PriorityLaneReceiveQueue.Doorbell();
+        /* Never rejects, the lane is unbounded. It only tells senders when the lane is full. */
+        this.priorityFlowControl = priorityLane == null || priorityLaneLimit <= 0 ? null
+                : new FlowControl(priorityLaneLimit, priorityLaneLimit / 2, OverflowPolicy.REJECT, null);
 
         boolean shouldCheckIfBusy;
 
-        this.receiveQueueManager = new BasicReceiveQueueManager<>();
+        this.receiveQueueManager = new BasicReceiveQueueManager<>(
+                waitStrategy == null ? new BlockingWaitStrategy() : waitStrategy, timeUnit.toNanos(waitTime));
 
 
         if (size == -1) {
@@ -104,6 +152,10 @@ public class BasicQueue<T> implements Queue<T> {
         }
 
         this.checkEvery = checkEvery;
+
+        /* More batches than this in flight and the extras are left to the GC. */
+        this.batchArrayPool = recycleBatches ?
+                new BatchArrayPool(batchSize, size > 0 ? Math.min(size, 1024) : 1024) : null;
     }
 
 
@@ -115,7 +167,15 @@ public class BasicQueue<T> implements Queue<T> {
      */
     @Override
     public ReceiveQueue<T> receiveQueue() {
-        return new BasicReceiveQueue<>(queue, waitTime, timeUnit, batchSize);
+        final BasicReceiveQueue<T> receiveQueue =
+                new BasicReceiveQueue<>(queue, waitTime, timeUnit, batchSize, batchArrayPool, flowControl, stats);
+        if (priorityLane == null) {
+            return receiveQueue;
+        }
+        return new PriorityLaneReceiveQueue<>(
+                new BasicReceiveQueue<>(priorityQueue, waitTime, timeUnit, batchSize, batchArrayPool,
+                        priorityFlowControl, stats),
+                receiveQueue, doorbell, priorityBurst, batchSize, timeUnit.toNanos(waitTime));
     }
 
     /**
@@ -126,21 +186,41 @@ public class BasicQueue<T> implements Queue<T> {
      */
     @Override
     public SendQueue<T> sendQueue() {
-        return new BasicSendQueue<>(batchSize, this.queue, checkIfBusy, checkEvery, tryTransfer);
+        if (priorityLane == null) {
+            return new BasicSendQueue<>(batchSize, this.queue, checkIfBusy, checkEvery, tryTransfer, batchArrayPool,
+                    flowControl, scheduler == null ? null : this::signalWorker, stats);
+        }
+        return new PriorityLaneSendQueue<>(
+                new BasicSendQueue<>(batchSize, priorityQueue, false, checkEvery, false, batchArrayPool,
+                        priorityFlowControl, this::signalLanes, stats),
+                new BasicSendQueue<>(batchSize, this.queue, checkIfBusy, checkEvery, tryTransfer, batchArrayPool,
+                        flowControl, this::signalLanes, stats),
+                priorityLane);
     }
 
 
     @Override
-    public void startListener(final ReceiveQueueListener<T> listener) {
+    public void startListener(final ReceiveQueueListener<T> queueListener) {
 
         if (executorContext != null) {
             throw new IllegalStateException("Queue.startListener::Unable to start up twice: " + name);
         }
 
+        final ReceiveQueueListener<T> listener = stats == null ? queueListener : stats.instrument(queueListener);
+
+        if (scheduler != null) {
+            this.worker = scheduler.worker("QueueListener " + name, this::hasPending, receiveQueue(), listener, batchSize,
+                    timeUnit.toNanos(waitTime));
+            this.executorContext = worker;
+            executorContext.start();
+            return;
+        }
+
         this.executorContext = scheduledExecutorBuilder()
                 .setThreadName("QueueListener " + name)
                 .setInitialDelay(50)
                 .setPeriod(50).setRunnable(() -> manageQueue(listener))
+                .setVirtualThreads(virtualThreads)
                 .build();
 
         executorContext.start();
@@ -155,6 +235,24 @@ public class BasicQueue<T> implements Queue<T> {
         stop = new AtomicBoolean();
     }
 
+    private boolean hasPending() {
+        return !queue.isEmpty() || (priorityQueue != null && !priorityQueue.isEmpty());
+    }
+
+    private void signalLanes() {
+        doorbell.ring();
+        if (scheduler != null) {
+            signalWorker();
+        }
+    }
+
+    private void signalWorker() {
+        final SharedQueueScheduler.SharedQueueWorker<T> worker = this.worker;
+        if (worker != null) {
+            worker.signal();
+        }
+    }
+
     private void manageQueue(ReceiveQueueListener<T> listener) {
         this.receiveQueueManager.manageQueue(receiveQueue(), listener, batchSize, stop);
     }
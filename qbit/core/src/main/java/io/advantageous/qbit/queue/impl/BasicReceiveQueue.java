@@ -18,9 +18,11 @@
 
 package io.advantageous.qbit.queue.impl;
 
+import io.advantageous.qbit.queue.BatchConsumer;
 import io.advantageous.qbit.queue.ReceiveQueue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
@@ -39,14 +41,29 @@ class BasicReceiveQueue<T> implements ReceiveQueue<T> {
     private final TimeUnit timeUnit;
     private final int batchSize;
     private final BlockingQueue<Object> queue;
+    private final BatchArrayPool batchArrayPool;
+    private final FlowControl flowControl;
+    private final QueueStats stats;
     private Object[] lastQueue = null;
     private int lastQueueIndex;
+    private int lastQueueLength;
+    private boolean lastQueuePooled;
+    /* Lets drain hand single items that were not sent in a batch to a batch consumer. */
+    private final Object[] single = new Object[1];
 
     public BasicReceiveQueue(BlockingQueue<Object> queue, long waitTime, TimeUnit timeUnit, int batchSize) {
+        this(queue, waitTime, timeUnit, batchSize, null, null, null);
+    }
+
+    public BasicReceiveQueue(BlockingQueue<Object> queue, long waitTime, TimeUnit timeUnit, int batchSize,
+                             BatchArrayPool batchArrayPool, FlowControl flowControl, QueueStats stats) {
         this.queue = queue;
         this.waitTime = waitTime;
         this.timeUnit = timeUnit;
         this.batchSize = batchSize;
+        this.batchArrayPool = batchArrayPool;
+        this.flowControl = flowControl;
+        this.stats = stats;
     }
 
     @Override
@@ -69,21 +86,51 @@ class BasicReceiveQueue<T> implements ReceiveQueue<T> {
 
     private T getItemFromLocalQueue() {
 
-        if (lastQueue.length == 0) {
+        if (lastQueueLength == 0) {
+            lastQueue = null;
             return null;
         }
 
         T item = (T) lastQueue[lastQueueIndex];
+
+        if (lastQueuePooled) {
+            /* Pooled arrays get reused so do not hold on to the item. */
+            lastQueue[lastQueueIndex] = null;
+        }
         lastQueueIndex++;
 
-        if (lastQueueIndex == lastQueue.length) {
-            lastQueueIndex = 0;
-            lastQueue = null;
+        if (isLocalQueueDone()) {
+            finishLocalQueue();
         }
         return item;
 
     }
 
+    private boolean isLocalQueueDone() {
+        return lastQueueIndex == lastQueueLength || (lastQueuePooled && lastQueue[lastQueueIndex] == null);
+    }
+
+    private void startLocalQueue(final Object[] batch) {
+        lastQueue = batch;
+        lastQueueIndex = 0;
+        lastQueuePooled = batchArrayPool != null && batchArrayPool.owns(lastQueue);
+        lastQueueLength = lastQueuePooled ? lastQueue.length - 1 : lastQueue.length;
+    }
+
+    private void finishLocalQueue() {
+        if (flowControl != null) {
+            flowControl.received(lastQueueIndex);
+        }
+        if (stats != null) {
+            stats.received(lastQueueIndex);
+        }
+        if (lastQueuePooled) {
+            batchArrayPool.release(lastQueue);
+        }
+        lastQueueIndex = 0;
+        lastQueue = null;
+    }
+
 
     @Override
     public T poll() {
@@ -117,9 +164,13 @@ class BasicReceiveQueue<T> implements ReceiveQueue<T> {
 
     private T extractItem(Object o) {
 
+        if (o instanceof QueueStats.Stamped) {
+            o = stats.unstamp((QueueStats.Stamped) o);
+        }
+
         if (o instanceof Object[]) {
 
-            lastQueue = (Object[]) o;
+            startLocalQueue((Object[]) o);
             //uts("batch size", lastQueue.length);
             return getItemFromLocalQueue();
         } else {
@@ -136,13 +187,108 @@ class BasicReceiveQueue<T> implements ReceiveQueue<T> {
         } else {
             List<T> batch = new ArrayList<>();
             batch.add(item);
-            while ((item = this.poll()) != null) {
+            while (batch.size() < max && (item = this.poll()) != null) {
                 batch.add(item);
             }
             return batch;
         }
     }
 
+    @Override
+    public int drain(final BatchConsumer<T> consumer) {
+        return drain(consumer, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drain(final BatchConsumer<T> consumer, final int max) {
+
+        int count = 0;
+
+        while (count < max) {
+
+            if (lastQueue == null) {
+                Object o = queue.poll();
+                if (o == null) {
+                    break;
+                }
+                if (o instanceof QueueStats.Stamped) {
+                    o = stats.unstamp((QueueStats.Stamped) o);
+                }
+                if (!(o instanceof Object[])) {
+                    count += drainSingle(o, consumer);
+                    continue;
+                }
+                startLocalQueue((Object[]) o);
+            }
+            count += drainLocalQueue(consumer, max - count);
+        }
+        return count;
+    }
+
+    /**
+     * Drains starting with an item the caller just got from poll, so that item goes out in the same
+     * batch as the rest of its array instead of on its own.
+     *
+     * @param polled   item returned by the last call to poll, pollWait or take
+     * @param consumer consumer
+     * @param max      max number of items to drain, including polled
+     * @return number of items drained
+     */
+    int drain(final T polled, final BatchConsumer<T> consumer, final int max) {
+
+        if (lastQueue != null && lastQueueIndex > 0) {
+            /* The polled item is the one just before the cursor. Step back over it. */
+            lastQueueIndex--;
+            lastQueue[lastQueueIndex] = polled;
+            return drain(consumer, max);
+        }
+
+        return drainSingle(polled, consumer) + drain(consumer, max - 1);
+    }
+
+    private int drainSingle(final Object item, final BatchConsumer<T> consumer) {
+        single[0] = item;
+        try {
+            consumer.accept(single, 0, 1);
+        } finally {
+            single[0] = null;
+        }
+        return 1;
+    }
+
+    private int drainLocalQueue(final BatchConsumer<T> consumer, final int max) {
+
+        final Object[] batch = lastQueue;
+        final int start = lastQueueIndex;
+        int end = lastQueueLength;
+
+        if (lastQueuePooled) {
+            /* A partly filled pooled array ends at the first null. */
+            end = start;
+            while (end < lastQueueLength && batch[end] != null) {
+                end++;
+            }
+        }
+        if (end - start > max) {
+            end = start + max;
+        }
+
+        lastQueueIndex = end;
+        try {
+            if (end > start) {
+                consumer.accept(batch, start, end - start);
+            }
+        } finally {
+            if (lastQueuePooled) {
+                Arrays.fill(batch, start, end, null);
+            }
+            if (isLocalQueueDone()) {
+                finishLocalQueue();
+            }
+        }
+        return end - start;
+    }
+
     @Override
     public Iterable<T> readBatch() {
         return readBatch(batchSize);
@@ -20,9 +20,11 @@ package io.advantageous.qbit.queue.impl;
 
 import io.advantageous.boon.core.Sys;
 import io.advantageous.qbit.GlobalConstants;
+import io.advantageous.qbit.queue.BatchConsumer;
 import io.advantageous.qbit.queue.ReceiveQueue;
 import io.advantageous.qbit.queue.ReceiveQueueListener;
 import io.advantageous.qbit.queue.ReceiveQueueManager;
+import io.advantageous.qbit.queue.WaitStrategy;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -36,13 +38,25 @@ public class BasicReceiveQueueManager<T> implements ReceiveQueueManager<T> {
 
     private final boolean debug = false || GlobalConstants.DEBUG;
 
+    private final WaitStrategy waitStrategy;
 
-    //boolean sleepWait = false;
+    private final long waitTimeNanos;
+
+    public BasicReceiveQueueManager() {
+        this(new BlockingWaitStrategy(), 0);
+    }
+
+    public BasicReceiveQueueManager(final WaitStrategy waitStrategy, final long waitTimeNanos) {
+        this.waitStrategy = waitStrategy;
+        this.waitTimeNanos = waitTimeNanos;
+    }
 
     @Override
     public void manageQueue(ReceiveQueue<T> inputQueue, ReceiveQueueListener<T> listener, int batchSize, AtomicBoolean stop) {
 
 
+        final BatchConsumer<T> batchConsumer = batchConsumer(listener);
+
         T item = inputQueue.poll(); //Initialize things.
 
         int count = 0;
@@ -53,29 +67,8 @@ public class BasicReceiveQueueManager<T> implements ReceiveQueueManager<T> {
 
 
             /* Collect a batch of items as long as no item is null. */
-            while (item != null) {
-
-                listener.startBatch();
-
-                count++;
-
-                /* Notify listener that we have an item. */
-                listener.receive(item);
-
-
-                /* If the batch size has hit the max then we need to break. */
-                if (count >= batchSize) {
-
-                    if (debug) {
-                        System.out.println("BasicReceiveQueueManager limit reached " + batchSize);
-                    }
-                    listener.limit();
-                    break;
-                }
-                /* Grab the next item from the queue. */
-                item = inputQueue.poll();
-                count++;
-
+            if (item != null) {
+                count = processBatch(item, inputQueue, listener, batchSize, batchConsumer);
             }
 
             /* Notify listener that the queue is empty. */
@@ -92,7 +85,7 @@ public class BasicReceiveQueueManager<T> implements ReceiveQueueManager<T> {
 
             /* Get the next item, but wait this time since the queue was empty. */
 
-            item = inputQueue.pollWait();
+            item = waitStrategy.waitForItem(inputQueue, waitTimeNanos);
 
 
             if (item == null) {
@@ -133,62 +126,94 @@ public class BasicReceiveQueueManager<T> implements ReceiveQueueManager<T> {
 
     }
 
-//    /*
-//
-//            if (sleepWait) {
-//
-//                item = inputQueue.poll();
-//
-//            /* See if a yield helps. Try to keep the thread alive. */
-//    if (item != null) {
-//        continue;
-//    } else {
-//        Thread.yield();
-//    }
-//
-//
-//    item = inputQueue.poll();
-//
-//            /* See if a yield helps. Try to keep the thread alive. */
-//    if (item != null) {
-//        continue;
-//    } else {
-//        LockSupport.parkNanos(1_000_000);
-//    }
-//
-//
-//    item = inputQueue.poll();
-//
-//            /* See if a yield helps. Try to keep the thread alive. */
-//    if (item != null) {
-//        continue;
-//    } else {
-//
-//        LockSupport.parkNanos(2_000_000);
-//    }
-//
-//
-//    item = inputQueue.poll();
-//
-//            /* See if a yield helps. Try to keep the thread alive. */
-//    if (item != null) {
-//        continue;
-//    } else {
-//
-//        LockSupport.parkNanos(4_000_000);
-//    }
-//
-//
-//    item = inputQueue.poll();
-//
-//            /* See if a yield helps. Try to keep the thread alive. */
-//    if (item != null) {
-//        continue;
-//    } else {
-//        LockSupport.parkNanos(8_000_000);
-//
-//    }
-//}
-//
-//*/
+    /**
+     * Returns the listener's receiveBatch as a consumer if the listener overrides it, otherwise null.
+     *
+     * @param listener listener
+     * @return batch consumer or null
+     */
+    static <T> BatchConsumer<T> batchConsumer(final ReceiveQueueListener<T> listener) {
+        try {
+            final Class<?> declaringClass = listener.getClass()
+                    .getMethod("receiveBatch", Object[].class, int.class, int.class).getDeclaringClass();
+            return declaringClass == ReceiveQueueListener.class ? null : listener::receiveBatch;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Same as the item at a time version but hands the listener whole batches when it has a batch consumer.
+     *
+     * @param item          first item, already taken off the queue
+     * @param inputQueue    queue to keep polling
+     * @param listener      listener
+     * @param batchSize     max batch size
+     * @param batchConsumer listener's receiveBatch, or null to hand items over one at a time
+     * @return count, {@code count >= batchSize} means the limit was hit
+     */
+    static <T> int processBatch(final T item, final ReceiveQueue<T> inputQueue, final ReceiveQueueListener<T> listener,
+                                final int batchSize, final BatchConsumer<T> batchConsumer) {
+
+        if (batchConsumer == null) {
+            return processBatch(item, inputQueue, listener, batchSize);
+        }
+
+        listener.startBatch();
+
+        final int count;
+        if (inputQueue instanceof BasicReceiveQueue) {
+            count = ((BasicReceiveQueue<T>) inputQueue).drain(item, batchConsumer, batchSize);
+        } else {
+            batchConsumer.accept(new Object[]{item}, 0, 1);
+            count = 1 + inputQueue.drain(batchConsumer, batchSize - 1);
+        }
+
+        if (count >= batchSize) {
+            listener.limit();
+        }
+        return count;
+    }
+
+    /**
+     * Hands the listener items starting with {@code item} until the queue is empty or the batch size is hit.
+     * Shared with {@link SharedQueueScheduler} so both ways of running a listener call it the same way.
+     *
+     * @param item       first item, already taken off the queue
+     * @param inputQueue queue to keep polling
+     * @param listener   listener
+     * @param batchSize  max batch size
+     * @return count, {@code count >= batchSize} means the limit was hit
+     */
+    static <T> int processBatch(T item, final ReceiveQueue<T> inputQueue, final ReceiveQueueListener<T> listener,
+                                final int batchSize) {
+
+        int count = 0;
+
+        while (item != null) {
+
+            listener.startBatch();
+
+            count++;
+
+            /* Notify listener that we have an item. */
+            listener.receive(item);
+
+
+            /* If the batch size has hit the max then we need to break. */
+            if (count >= batchSize) {
+
+                if (GlobalConstants.DEBUG) {
+                    System.out.println("BasicReceiveQueueManager limit reached " + batchSize);
+                }
+                listener.limit();
+                break;
+            }
+            /* Grab the next item from the queue. */
+            item = inputQueue.poll();
+            count++;
+
+        }
+        return count;
+    }
 }
@@ -40,7 +40,13 @@ public class BasicSendQueue<T> implements SendQueue<T> {
 
     private final TransferQueue<Object> transferQueue;
 
-    private final Object[] queueLocal;
+    private final BatchArrayPool batchArrayPool;
+    private final FlowControl flowControl;
+    /* Wakes up the listener when it runs on a shared pool instead of waiting on the queue. */
+    private final Runnable sentSignal;
+    private final QueueStats stats;
+    private int untilSample;
+    private Object[] queueLocal;
     private final int checkBusyEvery;
     private final boolean tryTransfer;
     private final boolean checkBusy;
@@ -54,11 +60,28 @@ public class BasicSendQueue<T> implements SendQueue<T> {
             final boolean checkBusy,
             final int checkBusyEvery,
             final boolean tryTransfer) {
+        this(batchSize, queue, checkBusy, checkBusyEvery, tryTransfer, null, null, null, null);
+    }
 
+    public BasicSendQueue(
+            final int batchSize,
+            final BlockingQueue<Object> queue,
+            final boolean checkBusy,
+            final int checkBusyEvery,
+            final boolean tryTransfer,
+            final BatchArrayPool batchArrayPool,
+            final FlowControl flowControl,
+            final Runnable sentSignal,
+            final QueueStats stats) {
+
+        this.sentSignal = sentSignal;
+        this.stats = stats;
         this.tryTransfer = tryTransfer;
+        this.flowControl = flowControl;
         this.batchSize = batchSize;
         this.queue = queue;
-        queueLocal = new Object[batchSize];
+        this.batchArrayPool = batchArrayPool;
+        queueLocal = batchArrayPool == null ? new Object[batchSize] : batchArrayPool.acquire();
         if (queue instanceof TransferQueue && checkBusy) {
             transferQueue = ((TransferQueue) queue);
             this.checkBusy = true;
@@ -102,8 +125,13 @@ public class BasicSendQueue<T> implements SendQueue<T> {
 
         }
 
-        return true;//might be other ways to determine this like flow control, not implemented yet.
+        return true;
+
+    }
 
+    @Override
+    public boolean isUnderPressure() {
+        return flowControl != null && flowControl.isUnderPressure();
     }
 
     @Override
@@ -124,21 +152,21 @@ public class BasicSendQueue<T> implements SendQueue<T> {
     @Override
     public final void sendMany(T... items) {
         flushSends();
-        sendArray(items);
+        sendArray(items, items.length);
     }
 
     @Override
     public void sendBatch(Iterable<T> items) {
         flushSends();
         final Object[] array = objectArray(items);
-        sendArray(array);
+        sendArray(array, array.length);
     }
 
     @Override
     public void sendBatch(Collection<T> items) {
         flushSends();
         final Object[] array = objectArray(items);
-        sendArray(array);
+        sendArray(array, array.length);
 
     }
 
@@ -166,28 +194,138 @@ public class BasicSendQueue<T> implements SendQueue<T> {
 
     private void sendLocalQueue() {
 
+        if (batchArrayPool != null) {
+
+            /* Hand off the local array itself and refill a recycled one. No copy. */
+            if (index < batchSize) {
+                queueLocal[index] = null;
+            }
+            final Object[] batch = queueLocal;
+            final int count = index;
+            queueLocal = batchArrayPool.acquire();
+            index = 0;
+            sendArray(batch, count);
+            return;
+        }
+
         final Object[] copy = fastObjectArraySlice(queueLocal, 0, index);
-        sendArray(copy);
+        sendArray(copy, index);
         index = 0;
     }
 
     private void sendArray(
-            final Object[] array) {
+            final Object[] array, final int count) {
 
+        final Object batch = stampIfSampled(array);
+        boolean sent = true;
 
-        if (checkBusy && tryTransfer) {
-            if (!transferQueue.tryTransfer(array)) {
-                transferQueue.offer(array);
+        if (flowControl != null) {
+            sent = sendArrayWithFlowControl(batch, array, count);
+        } else if (checkBusy && tryTransfer) {
+            if (!transferQueue.tryTransfer(batch)) {
+                transferQueue.offer(batch);
             }
         } else if (checkBusy) {
-            transferQueue.offer(array);
+            transferQueue.offer(batch);
         } else  {
             try {
-                queue.put(array);
+                queue.put(batch);
             } catch (InterruptedException e) {
                 throw new IllegalStateException("Unable to send", e);
             }
         }
+
+        if (stats != null && sent) {
+            stats.sent(count);
+        }
+
+        if (sentSignal != null) {
+            sentSignal.run();
+        }
+    }
+
+    private Object stampIfSampled(final Object[] array) {
+        if (stats == null || --untilSample > 0) {
+            return array;
+        }
+        untilSample = stats.sampleEvery();
+        return stats.stamp(array);
+    }
+
+    /**
+     * @return false if the batch was rejected
+     */
+    private boolean sendArrayWithFlowControl(final Object batch, final Object[] array, final int count) {
+
+        switch (flowControl.overflowPolicy()) {
+            case SHED:
+                if (flowControl.isUnderPressure() || !queue.offer(batch)) {
+                    rejectBatch(array);
+                    return false;
+                }
+                break;
+            case REJECT:
+                if (!queue.offer(batch)) {
+                    rejectBatch(array);
+                    return false;
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(batch)) {
+                    Object oldest = queue.poll();
+                    if (oldest instanceof QueueStats.Stamped) {
+                        oldest = ((QueueStats.Stamped) oldest).batch;
+                    }
+                    if (oldest instanceof Object[]) {
+                        final int rejected = rejectBatch((Object[]) oldest);
+                        flowControl.received(rejected);
+                        if (stats != null) {
+                            stats.sent(-rejected);
+                        }
+                    } else if (oldest != null) {
+                        /* Put on the queue as is, so it was never counted in the depth. */
+                        flowControl.rejected(oldest);
+                    }
+                }
+                break;
+            default:
+                try {
+                    queue.put(batch);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException("Unable to send", e);
+                }
+        }
+        flowControl.sent(count);
+        return true;
+    }
+
+    /**
+     * Hand every item in the batch to the rejection handler.
+     *
+     * @param batch batch that did not make it into the queue or was evicted from it
+     * @return number of items rejected
+     */
+    private int rejectBatch(final Object[] batch) {
+
+        final boolean pooled = batchArrayPool != null && batchArrayPool.owns(batch);
+        final int length = pooled ? batch.length - 1 : batch.length;
+
+        int count = 0;
+        for (; count < length; count++) {
+            final Object item = batch[count];
+            if (item == null) {
+                break;
+            }
+            if (pooled) {
+                batch[count] = null;
+            }
+            flowControl.rejected(item);
+        }
+
+        if (pooled) {
+            batchArrayPool.release(batch);
+        }
+        return count;
     }
 
     @Override
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+/**
+ * Hands exhausted batch arrays from the receive side back to the send side so they can be refilled
+ * instead of garbage collected.
+ * <p>
+ * Pooled arrays are one slot longer than the batch size. The extra slot holds a reference to the pool
+ * that made the array so the receiver can tell a pooled array from one passed to sendMany or sendBatch.
+ * A pooled array that is not full is terminated by a null.
+ * The return channel is a lock-free ring. If the ring is full the array is just dropped.
+ */
+public class BatchArrayPool {
+
+    private final int batchSize;
+    private final RingBufferQueue freeArrays;
+
+    public BatchArrayPool(final int batchSize, final int poolSize) {
+        this.batchSize = batchSize;
+        this.freeArrays = new MultiProducerRingBufferQueue(poolSize);
+    }
+
+    /**
+     * Get an empty batch array to fill.
+     *
+     * @return array of batchSize + 1
+     */
+    public Object[] acquire() {
+        Object[] array = (Object[]) freeArrays.poll();
+        if (array == null) {
+            array = new Object[batchSize + 1];
+            array[batchSize] = this;
+        }
+        return array;
+    }
+
+    /**
+     * Return an array whose items have all been read and nulled out.
+     *
+     * @param array array from acquire
+     */
+    public void release(final Object[] array) {
+        freeArrays.offer(array);
+    }
+
+    /**
+     * @param array batch array taken off of the queue
+     * @return true if this array came from this pool
+     */
+    public boolean owns(final Object[] array) {
+        return array.length == batchSize + 1 && array[batchSize] == this;
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+}
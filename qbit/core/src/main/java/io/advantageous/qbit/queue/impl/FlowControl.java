@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.queue.OverflowPolicy;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Credit based flow control shared by the send and receive sides of one queue.
+ * <p>
+ * Depth is the number of items that have been flushed to the queue but not yet read off of it.
+ * It is updated once per batch, not once per item.
+ * The queue is under pressure once depth reaches the high water mark and stays that way until depth
+ * falls to the low water mark.
+ * <p>
+ * Depth and the pressure flag live in one atomic long, depth shifted left by one with the flag in the low bit,
+ * so the flag always changes in the same step as the depth that crossed a water mark. With a separate flag a
+ * receiver could drain the queue between a sender crossing the high water mark and setting the flag, and the
+ * flag would stay set on an empty queue.
+ */
+public class FlowControl {
+
+    private static final long PRESSURE = 1L;
+
+    private final AtomicLong state = new AtomicLong();
+    private final int highWaterMark;
+    private final int lowWaterMark;
+    private final OverflowPolicy overflowPolicy;
+    private final Consumer<Object> rejectionHandler;
+
+    public FlowControl(final int highWaterMark,
+                       final int lowWaterMark,
+                       final OverflowPolicy overflowPolicy,
+                       final Consumer<Object> rejectionHandler) {
+
+        if (lowWaterMark > highWaterMark) {
+            throw new IllegalArgumentException("FlowControl:: low water mark " + lowWaterMark
+                    + " is above high water mark " + highWaterMark);
+        }
+        this.highWaterMark = highWaterMark;
+        this.lowWaterMark = lowWaterMark;
+        this.overflowPolicy = overflowPolicy == null ? OverflowPolicy.BLOCK : overflowPolicy;
+        this.rejectionHandler = rejectionHandler;
+    }
+
+    public void sent(final int count) {
+        while (true) {
+            final long current = state.get();
+            final long depth = (current >> 1) + count;
+            final boolean pressure = (current & PRESSURE) != 0 || depth >= highWaterMark;
+            if (state.compareAndSet(current, (depth << 1) | (pressure ? PRESSURE : 0L))) {
+                return;
+            }
+        }
+    }
+
+    public void received(final int count) {
+        while (true) {
+            final long current = state.get();
+            final long depth = (current >> 1) - count;
+            final boolean pressure = (current & PRESSURE) != 0 && depth > lowWaterMark;
+            if (state.compareAndSet(current, (depth << 1) | (pressure ? PRESSURE : 0L))) {
+                return;
+            }
+        }
+    }
+
+    public void rejected(final Object item) {
+        if (rejectionHandler != null) {
+            rejectionHandler.accept(item);
+        }
+    }
+
+    public boolean isUnderPressure() {
+        return (state.get() & PRESSURE) != 0;
+    }
+
+    public long depth() {
+        return state.get() >> 1;
+    }
+
+    public OverflowPolicy overflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int highWaterMark() {
+        return highWaterMark;
+    }
+
+    public int lowWaterMark() {
+        return lowWaterMark;
+    }
+}
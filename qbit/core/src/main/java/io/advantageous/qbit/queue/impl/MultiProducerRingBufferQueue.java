@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+/**
+ * Ring buffer that any number of threads can send to.
+ * Producers claim a slot by CASing the producer cursor.
+ */
+public class MultiProducerRingBufferQueue extends RingBufferQueue {
+
+    public MultiProducerRingBufferQueue(final int capacity) {
+        super(capacity);
+    }
+
+    public MultiProducerRingBufferQueue() {
+        super();
+    }
+
+    @Override
+    protected boolean publish(final Object item) {
+        while (true) {
+            final long position = producerCursor();
+            final long sequence = sequences.get((int) position & mask);
+            final long difference = sequence - position;
+
+            if (difference == 0) {
+                if (casProducerCursor(position, position + 1)) {
+                    writeSlot(position, item);
+                    return true;
+                }
+            } else if (difference < 0) {
+                /* The consumer has not freed this slot yet, so we are full. */
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.queue.BatchConsumer;
+import io.advantageous.qbit.queue.ReceiveQueue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Receives from a high priority lane and a normal lane. The priority lane is always looked at first,
+ * but after {@code burst} priority items in a row one normal item is let through so bulk work can not
+ * be starved by a flood of control traffic.
+ * <p>
+ * This is not thread safe. BasicQueue creates one per listener thread.
+ *
+ * @param <T> type
+ */
+class PriorityLaneReceiveQueue<T> implements ReceiveQueue<T> {
+
+    private final ReceiveQueue<T> priority;
+    private final ReceiveQueue<T> normal;
+    private final Doorbell doorbell;
+    private final int burst;
+    private final int batchSize;
+    private final long waitNanos;
+    private int streak;
+
+    PriorityLaneReceiveQueue(final ReceiveQueue<T> priority,
+                             final ReceiveQueue<T> normal,
+                             final Doorbell doorbell,
+                             final int burst,
+                             final int batchSize,
+                             final long waitNanos) {
+        this.priority = priority;
+        this.normal = normal;
+        this.doorbell = doorbell;
+        this.burst = burst;
+        this.batchSize = batchSize;
+        this.waitNanos = waitNanos;
+    }
+
+    @Override
+    public T poll() {
+
+        if (streak < burst) {
+            final T item = priority.poll();
+            if (item != null) {
+                streak++;
+                return item;
+            }
+        }
+
+        final T item = normal.poll();
+        if (item != null) {
+            streak = 0;
+            return item;
+        }
+
+        /* Nothing in the normal lane so the guard does not apply. */
+        final T priorityItem = priority.poll();
+        streak = priorityItem == null ? 0 : 1;
+        return priorityItem;
+    }
+
+    @Override
+    public T pollWait() {
+        final T item = poll();
+        return item != null ? item : doorbell.await(this::poll, waitNanos);
+    }
+
+    @Override
+    public T take() {
+        final T item = poll();
+        return item != null ? item : doorbell.await(this::poll, Long.MAX_VALUE);
+    }
+
+    @Override
+    public Iterable<T> readBatch(final int max) {
+
+        T item = this.poll();
+        if (item == null) {
+            return Collections.emptyList();
+        } else {
+            List<T> batch = new ArrayList<>();
+            batch.add(item);
+            while (batch.size() < max && (item = this.poll()) != null) {
+                batch.add(item);
+            }
+            return batch;
+        }
+    }
+
+    @Override
+    public Iterable<T> readBatch() {
+        return readBatch(batchSize);
+    }
+
+    @Override
+    public int drain(final BatchConsumer<T> consumer) {
+        return drain(consumer, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drain(final BatchConsumer<T> consumer, final int max) {
+
+        int count = 0;
+
+        while (count < max) {
+
+            final int fromPriority = priority.drain(consumer, Math.min(max - count, burst));
+            count += fromPriority;
+
+            if (count >= max) {
+                break;
+            }
+
+            /* If the priority lane is still busy the normal lane only gets the one slot the guard owes it. */
+            final int fromNormal = normal.drain(consumer, Math.min(max - count, fromPriority < burst ? burst : 1));
+            count += fromNormal;
+
+            if (fromPriority == 0 && fromNormal == 0) {
+                break;
+            }
+        }
+        streak = 0;
+        return count;
+    }
+
+    /**
+     * Lets the one listener wait on both lanes at once. Senders ring it after every flush to either lane,
+     * which costs one volatile read unless the listener is actually asleep.
+     */
+    static final class Doorbell {
+
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition rung = lock.newCondition();
+
+        void ring() {
+            if (waiting.get() > 0) {
+                lock.lock();
+                try {
+                    rung.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        /**
+         * Polls until something shows up or the wait time is used up.
+         *
+         * @param poll      poll
+         * @param waitNanos how long to wait
+         * @param <T>       type
+         * @return item or null if the wait timed out or the thread was interrupted
+         */
+        <T> T await(final Supplier<T> poll, final long waitNanos) {
+
+            long remaining = waitNanos;
+
+            lock.lock();
+            waiting.incrementAndGet();
+            try {
+                while (true) {
+                    final T item = poll.get();
+                    if (item != null || remaining <= 0) {
+                        return item;
+                    }
+                    remaining = rung.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                return null;
+            } finally {
+                waiting.decrementAndGet();
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.queue.SendQueue;
+
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * Sends items that match the lane predicate to the high priority lane and everything else to the normal lane.
+ * Priority items are flushed right away since they are few and latency is the point. While the high priority lane
+ * is full they go to the normal lane, so a flood of them is flow controlled like any other item.
+ * <p>
+ * This is not thread safe. Create a new one for every thread by calling BasicQueue.sendQueue().
+ *
+ * @param <T> type
+ */
+class PriorityLaneSendQueue<T> implements SendQueue<T> {
+
+    private final SendQueue<T> priority;
+    private final SendQueue<T> normal;
+    private final Predicate<Object> priorityLane;
+
+    PriorityLaneSendQueue(final SendQueue<T> priority,
+                          final SendQueue<T> normal,
+                          final Predicate<Object> priorityLane) {
+        this.priority = priority;
+        this.normal = normal;
+        this.priorityLane = priorityLane;
+    }
+
+    @Override
+    public void send(final T item) {
+        if (isPriority(item)) {
+            priority.sendAndFlush(item);
+        } else {
+            normal.send(item);
+        }
+    }
+
+    @Override
+    public void sendAndFlush(final T item) {
+        if (isPriority(item)) {
+            priority.sendAndFlush(item);
+        } else {
+            normal.sendAndFlush(item);
+        }
+    }
+
+    @SafeVarargs
+    @Override
+    public final void sendMany(final T... items) {
+        for (T item : items) {
+            send(item);
+        }
+        normal.flushSends();
+    }
+
+    @Override
+    public void sendBatch(final Collection<T> items) {
+        sendBatch((Iterable<T>) items);
+    }
+
+    @Override
+    public void sendBatch(final Iterable<T> items) {
+        for (T item : items) {
+            send(item);
+        }
+        normal.flushSends();
+    }
+
+    @Override
+    public boolean shouldBatch() {
+        return normal.shouldBatch();
+    }
+
+    @Override
+    public void flushSends() {
+        priority.flushSends();
+        normal.flushSends();
+    }
+
+    @Override
+    public boolean isUnderPressure() {
+        return normal.isUnderPressure();
+    }
+
+    @Override
+    public int hashCode() {
+        return normal.hashCode();
+    }
+
+    private boolean isPriority(final T item) {
+        return priorityLane.test(item) && !priority.isUnderPressure();
+    }
+}
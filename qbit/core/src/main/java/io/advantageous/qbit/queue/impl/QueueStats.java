@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.queue.QueueStatsRecorder;
+import io.advantageous.qbit.queue.ReceiveQueueListener;
+import io.advantageous.qbit.util.Histogram;
+import io.advantageous.qbit.util.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentation for one queue, shared by its send and receive sides.
+ * <p>
+ * Senders only bump a striped counter per flushed batch, and stamp every {@code sampleEvery}th batch with the
+ * time it was sent. Everything else is kept by the one thread that receives from the queue, so it needs no
+ * locks, and is published from that thread through a {@link QueueStatsRecorder} once per interval.
+ * <p>
+ * Per interval it publishes items sent and received, depth (a gauge), batches received, batch size
+ * percentiles, time in queue percentiles in microseconds from the sampled batches, and how many times the
+ * listener got its limit, empty and idle callbacks. Time in queue is from the flush to when the listener
+ * picks the batch up. It does not include the time an item waited in the sender's local batch.
+ */
+public class QueueStats {
+
+    private static final String[] STATS = {
+            "sent", "received", "depth", "batches",
+            "batchSize.p50", "batchSize.p99", "batchSize.max",
+            "sojourn.p50", "sojourn.p99", "sojourn.p999", "sojourn.max",
+            "limit", "empty", "idle"};
+
+    private final QueueStatsRecorder recorder;
+    private final long intervalMillis;
+    private final int sampleEvery;
+    private final String[] names;
+    private final int[] counts = new int[STATS.length];
+    private final LongAdder sent = new LongAdder();
+    private final Timer timer = Timer.timer();
+
+    /* Only touched by the receiving thread. */
+    private final Histogram batchSizes;
+    private final Histogram sojourn = new Histogram(TimeUnit.MINUTES.toMicros(10));
+    private long received;
+    private long sentAtLastPublish;
+    private long receivedAtLastPublish;
+    private int limits;
+    private int empties;
+    private int idles;
+    private long lastPublish;
+
+    public QueueStats(final String name,
+                      final QueueStatsRecorder recorder,
+                      final int intervalMillis,
+                      final int sampleEvery,
+                      final int batchSize) {
+        this.recorder = recorder;
+        this.intervalMillis = intervalMillis;
+        this.sampleEvery = Math.max(sampleEvery, 1);
+        this.batchSizes = new Histogram(batchSize);
+        this.names = new String[STATS.length];
+        final String prefix = name == null ? "queue." : "queue." + name + ".";
+        for (int index = 0; index < STATS.length; index++) {
+            names[index] = prefix + STATS[index];
+        }
+        this.lastPublish = timer.now();
+    }
+
+    int sampleEvery() {
+        return sampleEvery;
+    }
+
+    void sent(final int count) {
+        sent.add(count);
+    }
+
+    Stamped stamp(final Object[] batch) {
+        return new Stamped(batch, System.nanoTime());
+    }
+
+    /**
+     * Records how long a sampled batch was in the queue.
+     *
+     * @param stamped sampled batch taken off of the queue
+     * @return the batch
+     */
+    Object[] unstamp(final Stamped stamped) {
+        sojourn.record((System.nanoTime() - stamped.sentTime) / 1_000);
+        return stamped.batch;
+    }
+
+    void received(final int count) {
+        received += count;
+        batchSizes.record(count);
+    }
+
+    /**
+     * Counts the listener's callbacks and publishes from the listener thread when an interval is up.
+     *
+     * @param listener listener
+     * @param <T>      type
+     * @return listener that counts and then delegates
+     */
+    <T> ReceiveQueueListener<T> instrument(final ReceiveQueueListener<T> listener) {
+        return BasicReceiveQueueManager.batchConsumer(listener) == null ?
+                new CountingListener<>(listener) : new CountingBatchListener<>(listener);
+    }
+
+    /**
+     * Publishes now. Only call from the thread that receives from the queue.
+     */
+    public void publish() {
+        publish(timer.now());
+    }
+
+    private void publishIfDue() {
+        final long now = timer.now();
+        if (now - lastPublish >= intervalMillis) {
+            publish(now);
+        }
+    }
+
+    private void publish(final long now) {
+
+        lastPublish = now;
+
+        final long sentTotal = sent.sum();
+
+        int index = 0;
+        counts[index++] = toInt(sentTotal - sentAtLastPublish);
+        counts[index++] = toInt(received - receivedAtLastPublish);
+        counts[index++] = toInt(Math.max(sentTotal - received, 0));
+        counts[index++] = toInt(batchSizes.totalCount());
+        counts[index++] = toInt(batchSizes.valueAtPercentile(50));
+        counts[index++] = toInt(batchSizes.valueAtPercentile(99));
+        counts[index++] = toInt(batchSizes.max());
+        counts[index++] = toInt(sojourn.valueAtPercentile(50));
+        counts[index++] = toInt(sojourn.valueAtPercentile(99));
+        counts[index++] = toInt(sojourn.valueAtPercentile(99.9));
+        counts[index++] = toInt(sojourn.max());
+        counts[index++] = limits;
+        counts[index++] = empties;
+        counts[index] = idles;
+
+        sentAtLastPublish = sentTotal;
+        receivedAtLastPublish = received;
+        batchSizes.reset();
+        sojourn.reset();
+        limits = 0;
+        empties = 0;
+        idles = 0;
+
+        recorder.recordAllCounts(now, names, counts);
+    }
+
+    private static int toInt(final long value) {
+        return value > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) value;
+    }
+
+    /**
+     * A sampled batch and the time it was sent.
+     */
+    static final class Stamped {
+        final Object[] batch;
+        final long sentTime;
+
+        Stamped(final Object[] batch, final long sentTime) {
+            this.batch = batch;
+            this.sentTime = sentTime;
+        }
+    }
+
+    private class CountingListener<T> implements ReceiveQueueListener<T> {
+
+        final ReceiveQueueListener<T> listener;
+
+        CountingListener(final ReceiveQueueListener<T> listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void receive(final T item) {
+            listener.receive(item);
+        }
+
+        @Override
+        public void empty() {
+            empties++;
+            listener.empty();
+            publishIfDue();
+        }
+
+        @Override
+        public void limit() {
+            limits++;
+            listener.limit();
+            publishIfDue();
+        }
+
+        @Override
+        public void shutdown() {
+            listener.shutdown();
+        }
+
+        @Override
+        public void idle() {
+            idles++;
+            listener.idle();
+            publishIfDue();
+        }
+
+        @Override
+        public void startBatch() {
+            listener.startBatch();
+        }
+    }
+
+    /**
+     * Only used when the listener takes whole batches, so the manager can still tell the two kinds apart.
+     */
+    private class CountingBatchListener<T> extends CountingListener<T> {
+
+        CountingBatchListener(final ReceiveQueueListener<T> listener) {
+            super(listener);
+        }
+
+        @Override
+        public void receiveBatch(final Object[] items, final int offset, final int length) {
+            listener.receiveBatch(items, offset, length);
+        }
+    }
+}
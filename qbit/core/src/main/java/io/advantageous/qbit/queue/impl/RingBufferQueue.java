@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.GlobalConstants;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated ring buffer that BasicQueue can use in place of a java.util.concurrent BlockingQueue.
+ * <p>
+ * Each slot has a sequence number that tells producers and consumers whether the slot is free or full
+ * (bounded MPMC queue as described by Dmitry Vyukov). There are no locks and no nodes are allocated per offer.
+ * The producer and consumer cursors live in one AtomicLongArray spaced far enough apart that they do
+ * not share a cache line.
+ * <p>
+ * Consumers are always allowed to race each other. Subclasses decide how producers claim a slot.
+ * Blocking operations (put, take, timed poll) spin, then yield, then park with a growing back off.
+ */
+public abstract class RingBufferQueue extends AbstractQueue<Object> implements BlockingQueue<Object> {
+
+    /**
+     * 16 longs = 128 bytes, which covers the adjacent cache line prefetch on x86.
+     */
+    private static final int PAD = 16;
+    private static final int PRODUCER = PAD;
+    private static final int CONSUMER = PAD * 2;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    protected final AtomicLongArray cursors = new AtomicLongArray(PAD * 3);
+    protected final AtomicLongArray sequences;
+    protected final Object[] buffer;
+    protected final int mask;
+    protected final int capacity;
+
+    protected RingBufferQueue(final int requestedCapacity) {
+
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("RingBufferQueue:: capacity must be at least 2 but was "
+                    + requestedCapacity);
+        }
+
+        this.capacity = powerOfTwo(requestedCapacity);
+        this.mask = capacity - 1;
+        this.buffer = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+
+        for (int index = 0; index < capacity; index++) {
+            sequences.lazySet(index, index);
+        }
+    }
+
+    protected RingBufferQueue() {
+        this(GlobalConstants.NUM_BATCHES);
+    }
+
+    static int powerOfTwo(final int value) {
+        final int highest = Integer.highestOneBit(value);
+        if (highest == value) {
+            return value;
+        }
+        if (highest >= (1 << 30)) {
+            throw new IllegalArgumentException("RingBufferQueue:: capacity too large " + value);
+        }
+        return highest << 1;
+    }
+
+    /**
+     * Try to claim a slot and publish the item.
+     *
+     * @param item item, never null
+     * @return false if the ring is full
+     */
+    protected abstract boolean publish(Object item);
+
+    protected final long producerCursor() {
+        return cursors.get(PRODUCER);
+    }
+
+    protected final boolean casProducerCursor(final long expect, final long update) {
+        return cursors.compareAndSet(PRODUCER, expect, update);
+    }
+
+    protected final void lazySetProducerCursor(final long value) {
+        cursors.lazySet(PRODUCER, value);
+    }
+
+    protected final void writeSlot(final long position, final Object item) {
+        final int index = (int) position & mask;
+        buffer[index] = item;
+        /* Publish. The release store orders the buffer write before the sequence becomes visible. */
+        sequences.lazySet(index, position + 1);
+    }
+
+    @Override
+    public boolean offer(final Object item) {
+        if (item == null) {
+            throw new NullPointerException("RingBufferQueue:: null items are not allowed");
+        }
+        return publish(item);
+    }
+
+    @Override
+    public Object poll() {
+        while (true) {
+            final long position = cursors.get(CONSUMER);
+            final int index = (int) position & mask;
+            final long sequence = sequences.get(index);
+            final long difference = sequence - (position + 1);
+
+            if (difference == 0) {
+                if (cursors.compareAndSet(CONSUMER, position, position + 1)) {
+                    final Object item = buffer[index];
+                    buffer[index] = null;
+                    /* Free the slot for the producer one lap ahead. */
+                    sequences.lazySet(index, position + capacity);
+                    return item;
+                }
+            } else if (difference < 0) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public Object peek() {
+        final long position = cursors.get(CONSUMER);
+        final int index = (int) position & mask;
+        if (sequences.get(index) == position + 1) {
+            return buffer[index];
+        }
+        return null;
+    }
+
+    @Override
+    public void put(final Object item) throws InterruptedException {
+        int tries = 0;
+        while (!offer(item)) {
+            tries = backOff(tries, Long.MAX_VALUE);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    @Override
+    public boolean offer(final Object item, final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int tries = 0;
+        while (!offer(item)) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            tries = backOff(tries, remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Object take() throws InterruptedException {
+        int tries = 0;
+        Object item;
+        while ((item = poll()) == null) {
+            tries = backOff(tries, Long.MAX_VALUE);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return item;
+    }
+
+    @Override
+    public Object poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int tries = 0;
+        Object item;
+        while ((item = poll()) == null) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            tries = backOff(tries, remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return item;
+    }
+
+    /**
+     * Spin, then yield, then park for twice as long as last time up to a millisecond.
+     */
+    private static int backOff(final int tries, final long remainingNanos) {
+        if (tries < SPIN_TRIES) {
+            return tries + 1;
+        } else if (tries < YIELD_TRIES) {
+            Thread.yield();
+            return tries + 1;
+        } else {
+            final int shift = Math.min(tries - YIELD_TRIES, 20);
+            final long parkNanos = Math.min(Math.min(1_000L << shift, MAX_PARK_NANOS), remainingNanos);
+            LockSupport.parkNanos(parkNanos);
+            return tries + 1;
+        }
+    }
+
+    @Override
+    public int size() {
+        /* Read consumer first so the difference can not go negative because of a racing poll. */
+        final long consumer = cursors.get(CONSUMER);
+        final long producer = cursors.get(PRODUCER);
+        final long size = producer - consumer;
+        if (size < 0) {
+            return 0;
+        }
+        return size > capacity ? capacity : (int) size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public int drainTo(final Collection<? super Object> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(final Collection<? super Object> collection, final int maxElements) {
+        if (collection == this) {
+            throw new IllegalArgumentException("RingBufferQueue:: can not drain to self");
+        }
+        int count = 0;
+        Object item;
+        while (count < maxElements && (item = poll()) != null) {
+            collection.add(item);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Weakly consistent snapshot of what is in the ring. Remove is not supported.
+     *
+     * @return iterator over snapshot
+     */
+    @Override
+    public Iterator<Object> iterator() {
+        final List<Object> snapshot = new ArrayList<>();
+        final long consumer = cursors.get(CONSUMER);
+        final long producer = cursors.get(PRODUCER);
+        for (long position = consumer; position < producer; position++) {
+            final int index = (int) position & mask;
+            final Object item = buffer[index];
+            if (sequences.get(index) == position + 1 && item != null) {
+                snapshot.add(item);
+            }
+        }
+        final Iterator<Object> iterator = snapshot.iterator();
+        return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                return iterator.next();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{capacity=" + capacity + ", size=" + size() + '}';
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+import io.advantageous.qbit.concurrent.ExecutorContext;
+import io.advantageous.qbit.queue.BatchConsumer;
+import io.advantageous.qbit.queue.ReceiveQueue;
+import io.advantageous.qbit.queue.ReceiveQueueListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs the listeners of many queues on a fixed pool of threads (M:N) instead of one thread per queue.
+ * <p>
+ * A queue is handed to a worker thread when a sender flushes to it, or when it has been quiet for its
+ * poll wait time so it can get its {@code idle} callback. A queue is only ever processed by one thread at
+ * a time, and gives up its thread after each batch so a busy queue can not starve the others.
+ * <p>
+ * Listeners on a shared pool must not block. A listener that blocks holds up the pool thread, and a
+ * listener that puts to a full bounded queue on the same pool can deadlock it.
+ */
+public class SharedQueueScheduler {
+
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timer;
+    private final int threadCount;
+
+    public SharedQueueScheduler(final int threadCount, final String name) {
+        this.threadCount = threadCount;
+        this.workers = Executors.newFixedThreadPool(threadCount, threadFactory(name));
+        this.timer = Executors.newSingleThreadScheduledExecutor(threadFactory(name + " Timer"));
+    }
+
+    /**
+     * The scheduler shared by every queue in the JVM that does not bring its own.
+     * Sized to the number of cores.
+     *
+     * @return shared scheduler
+     */
+    public static SharedQueueScheduler sharedQueueScheduler() {
+        return Shared.SCHEDULER;
+    }
+
+    private static ThreadFactory threadFactory(final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable);
+            thread.setName(name + " " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public int threadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Stops the worker threads. Queues still registered stop getting their callbacks.
+     */
+    public void shutdown() {
+        timer.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    <T> SharedQueueWorker<T> worker(final String name,
+                                    final BooleanSupplier pending,
+                                    final ReceiveQueue<T> receiveQueue,
+                                    final ReceiveQueueListener<T> listener,
+                                    final int batchSize,
+                                    final long idleNanos) {
+        return new SharedQueueWorker<>(this, name, pending, receiveQueue, listener, batchSize, idleNanos);
+    }
+
+    void execute(final Runnable runnable) {
+        workers.execute(runnable);
+    }
+
+    ScheduledFuture<?> scheduleIdleCheck(final Runnable runnable, final long idleNanos) {
+        return timer.scheduleAtFixedRate(runnable, idleNanos, idleNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static class Shared {
+        static final SharedQueueScheduler SCHEDULER =
+                new SharedQueueScheduler(Runtime.getRuntime().availableProcessors(), "QueueWorker");
+    }
+
+    /**
+     * One queue's listener as seen by the pool. The {@code scheduled} flag is the token that keeps
+     * the queue on one thread at a time. Everything not marked volatile is only touched by the token holder.
+     */
+    static final class SharedQueueWorker<T> implements ExecutorContext, Runnable {
+
+        private final Logger logger = LoggerFactory.getLogger(SharedQueueWorker.class);
+        private final SharedQueueScheduler scheduler;
+        private final String name;
+        /* True if anything is waiting in the underlying queue (or lanes). */
+        private final BooleanSupplier pending;
+        private final ReceiveQueue<T> receiveQueue;
+        private final ReceiveQueueListener<T> listener;
+        private final BatchConsumer<T> batchConsumer;
+        private final int batchSize;
+        private final long idleNanos;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean stopped;
+        private volatile boolean idleDue;
+        private volatile long lastActive;
+        private boolean more;
+        private boolean shutdown;
+        private ScheduledFuture<?> idleCheck;
+
+        private SharedQueueWorker(final SharedQueueScheduler scheduler,
+                                  final String name,
+                                  final BooleanSupplier pending,
+                                  final ReceiveQueue<T> receiveQueue,
+                                  final ReceiveQueueListener<T> listener,
+                                  final int batchSize,
+                                  final long idleNanos) {
+            this.scheduler = scheduler;
+            this.name = name;
+            this.pending = pending;
+            this.receiveQueue = receiveQueue;
+            this.listener = listener;
+            this.batchConsumer = BasicReceiveQueueManager.batchConsumer(listener);
+            this.batchSize = batchSize;
+            this.idleNanos = idleNanos;
+        }
+
+        @Override
+        public void start() {
+            lastActive = System.nanoTime();
+            idleCheck = scheduler.scheduleIdleCheck(this::checkIdle, idleNanos);
+            signal();
+        }
+
+        @Override
+        public void stop() {
+            stopped = true;
+            if (idleCheck != null) {
+                idleCheck.cancel(false);
+            }
+            signal();
+        }
+
+        /**
+         * Called by senders after they put a batch on the queue.
+         */
+        void signal() {
+            if (scheduled.compareAndSet(false, true)) {
+                scheduler.execute(this);
+            }
+        }
+
+        private void checkIdle() {
+            if (System.nanoTime() - lastActive >= idleNanos) {
+                idleDue = true;
+                signal();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                process();
+            } catch (Exception ex) {
+                logger.error("Problem running: " + name, ex);
+            }
+
+            final boolean done = shutdown;
+            final boolean again = stopped || more;
+            scheduled.set(false);
+
+            /* A sender that signalled while we held the token was ignored, so look again. */
+            if (!done && (again || pending.getAsBoolean())) {
+                signal();
+            }
+        }
+
+        private void process() {
+
+            if (stopped) {
+                if (!shutdown) {
+                    shutdown = true;
+                    listener.shutdown();
+                }
+                return;
+            }
+
+            final T item = receiveQueue.poll();
+
+            if (item == null) {
+                more = false;
+                if (idleDue) {
+                    idleDue = false;
+                    listener.idle();
+                }
+                return;
+            }
+
+            final int count = BasicReceiveQueueManager.processBatch(item, receiveQueue, listener, batchSize,
+                    batchConsumer);
+            listener.empty();
+            more = count >= batchSize;
+            lastActive = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+
+package io.advantageous.qbit.queue.impl;
+
+/**
+ * Ring buffer for the case where exactly one thread sends.
+ * The producer owns its cursor so it does not need to CAS to claim a slot.
+ * Sending to this from more than one thread will lose messages.
+ */
+public class SingleProducerRingBufferQueue extends RingBufferQueue {
+
+    public SingleProducerRingBufferQueue(final int capacity) {
+        super(capacity);
+    }
+
+    public SingleProducerRingBufferQueue() {
+        super();
+    }
+
+    @Override
+    protected boolean publish(final Object item) {
+        final long position = producerCursor();
+        if (sequences.get((int) position & mask) != position) {
+            return false;
+        }
+        writeSlot(position, item);
+        lazySetProducerCursor(position + 1);
+        return true;
+    }
+}
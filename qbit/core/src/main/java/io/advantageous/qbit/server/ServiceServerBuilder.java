@@ -20,6 +20,7 @@ package io.advantageous.qbit.server;
 
 import io.advantageous.qbit.GlobalConstants;
 import io.advantageous.qbit.QBit;
+import io.advantageous.qbit.events.EventManager;
 import io.advantageous.qbit.http.HttpTransport;
 import io.advantageous.qbit.http.server.HttpServer;
 import io.advantageous.qbit.json.JsonMapper;
@@ -29,6 +30,9 @@ import io.advantageous.qbit.queue.Queue;
 import io.advantageous.qbit.queue.QueueBuilder;
 import io.advantageous.qbit.service.BeforeMethodCall;
 import io.advantageous.qbit.service.ServiceBundle;
+import io.advantageous.qbit.service.impl.CallCoalescer;
+import io.advantageous.qbit.service.impl.ResponseCache;
+import io.advantageous.qbit.service.impl.ServiceBundleImpl;
 import io.advantageous.qbit.service.impl.ServiceConstants;
 import io.advantageous.qbit.spi.ProtocolEncoder;
 import io.advantageous.qbit.spi.ProtocolParser;
@@ -69,6 +73,10 @@ public class ServiceServerBuilder {
     private QueueBuilder responseQueueBuilder;
     private QueueBuilder webResponseQueueBuilder;
     private boolean eachServiceInItsOwnThread = true;
+    private long coalesceWindowMillis;
+    private long coalesceTimeoutMillis = CallCoalescer.DEFAULT_TIMEOUT_MILLIS;
+    private boolean cacheResponses;
+    private EventManager cacheEventManager;
     private HttpTransport httpServer;
     private QBitSystemManager qBitSystemManager;
 
@@ -193,6 +201,68 @@ public class ServiceServerBuilder {
         return this;
     }
 
+    public long getCoalesceWindowMillis() {
+        return coalesceWindowMillis;
+    }
+
+    /**
+     * Lets identical requests to {@code @Idempotent} methods share the response of a request already in flight,
+     * if that request was sent less than this long ago.
+     *
+     * @param coalesceWindowMillis coalescing window, 0 to send every request
+     * @return this
+     */
+    public ServiceServerBuilder setCoalesceWindowMillis(final long coalesceWindowMillis) {
+        this.coalesceWindowMillis = coalesceWindowMillis;
+        return this;
+    }
+
+    public long getCoalesceTimeoutMillis() {
+        return coalesceTimeoutMillis;
+    }
+
+    /**
+     * How long requests that joined a request in flight wait for its response, if that request has no deadline
+     * of its own. They get an error response after that. Never less than the coalescing window.
+     *
+     * @param coalesceTimeoutMillis in-flight timeout
+     * @return this
+     */
+    public ServiceServerBuilder setCoalesceTimeoutMillis(final long coalesceTimeoutMillis) {
+        this.coalesceTimeoutMillis = coalesceTimeoutMillis;
+        return this;
+    }
+
+    public boolean isCacheResponses() {
+        return cacheResponses;
+    }
+
+    /**
+     * Answers requests to {@code @Cacheable} methods from a response cache, as long as the cached response is fresh.
+     *
+     * @param cacheResponses cache responses
+     * @return this
+     */
+    public ServiceServerBuilder setCacheResponses(final boolean cacheResponses) {
+        this.cacheResponses = cacheResponses;
+        return this;
+    }
+
+    public EventManager getCacheEventManager() {
+        return cacheEventManager;
+    }
+
+    /**
+     * Event manager the cache listens to for invalidation events. Defaults to the system event manager.
+     *
+     * @param cacheEventManager event manager
+     * @return this
+     */
+    public ServiceServerBuilder setCacheEventManager(final EventManager cacheEventManager) {
+        this.cacheEventManager = cacheEventManager;
+        return this;
+    }
+
     public BeforeMethodCall getBeforeMethodCall() {
         return beforeMethodCall;
     }
@@ -365,6 +435,15 @@ public class ServiceServerBuilder {
                 this.getBeforeMethodCallAfterTransform(),
                 this.getArgTransformer(), true, getSystemManager());
 
+        if (coalesceWindowMillis > 0 && serviceBundle instanceof ServiceBundleImpl) {
+            ((ServiceBundleImpl) serviceBundle).setCallCoalescer(new CallCoalescer(coalesceWindowMillis,
+                    coalesceTimeoutMillis));
+        }
+
+        if (cacheResponses && serviceBundle instanceof ServiceBundleImpl) {
+            ((ServiceBundleImpl) serviceBundle).setResponseCache(new ResponseCache(cacheEventManager));
+        }
+
 
         final ProtocolParser parser = QBit.factory().createProtocolParser();
         final ServiceServer serviceServer = QBit.factory().createServiceServer(httpServer,
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * How the responses of one {@code @Cacheable} method are cached.
+ */
+public class CachePolicy {
+
+    private final String methodName;
+    private final Set<String> addresses = new LinkedHashSet<>();
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final String invalidationChannel;
+
+    /**
+     * @param methodName          method name
+     * @param ttlMillis           how long a response stays in the cache
+     * @param maxEntries          responses kept for the method
+     * @param invalidationChannel event bus channel that empties the cache, null or empty for none
+     */
+    public CachePolicy(final String methodName, final long ttlMillis, final int maxEntries,
+                       final String invalidationChannel) {
+        this.methodName = methodName;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.invalidationChannel = invalidationChannel;
+    }
+
+    public String methodName() {
+        return methodName;
+    }
+
+    /**
+     * @return address templates the method is bound to, path variables included
+     */
+    public Collection<String> addresses() {
+        return addresses;
+    }
+
+    public CachePolicy addAddress(final String address) {
+        addresses.add(address);
+        return this;
+    }
+
+    public long ttlMillis() {
+        return ttlMillis;
+    }
+
+    public int maxEntries() {
+        return maxEntries;
+    }
+
+    public String invalidationChannel() {
+        return invalidationChannel;
+    }
+
+    @Override
+    public String toString() {
+        return "CachePolicy{" +
+                "methodName='" + methodName + '\'' +
+                ", addresses=" + addresses +
+                ", ttlMillis=" + ttlMillis +
+                ", maxEntries=" + maxEntries +
+                ", invalidationChannel='" + invalidationChannel + '\'' +
+                '}';
+    }
+}
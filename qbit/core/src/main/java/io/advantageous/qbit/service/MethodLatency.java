@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service;
+
+import io.advantageous.qbit.util.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency of one service method over one stats interval: how long its calls waited in the request queue and how
+ * long they ran, in microseconds. Histograms of the same method from several intervals or service workers can be
+ * merged with {@link #add(MethodLatency)}.
+ */
+public class MethodLatency {
+
+    private final Histogram queueWait;
+    private final Histogram execution;
+
+    public MethodLatency(final Histogram queueWait, final Histogram execution) {
+        this.queueWait = queueWait;
+        this.execution = execution;
+    }
+
+    public long calls() {
+        return execution.totalCount();
+    }
+
+    /**
+     * @return time from the call's timestamp to when the service picked it up, in microseconds
+     */
+    public Histogram queueWait() {
+        return queueWait;
+    }
+
+    /**
+     * @return time the service method ran, in microseconds
+     */
+    public Histogram execution() {
+        return execution;
+    }
+
+    /**
+     * @param other latency of the same method from another interval or worker
+     * @return a new latency with the calls of both
+     */
+    public MethodLatency add(final MethodLatency other) {
+        final Histogram queueWait = this.queueWait.copy();
+        final Histogram execution = this.execution.copy();
+        queueWait.add(other.queueWait);
+        execution.add(other.execution);
+        return new MethodLatency(queueWait, execution);
+    }
+
+    /**
+     * @return calls, then p50, p99, p99.9 and max of queue wait and of execution, in microseconds
+     */
+    public Map<String, Long> percentiles() {
+        final Map<String, Long> percentiles = new LinkedHashMap<>();
+        percentiles.put("calls", calls());
+        putPercentiles(percentiles, "wait.", queueWait);
+        putPercentiles(percentiles, "exec.", execution);
+        return percentiles;
+    }
+
+    private static void putPercentiles(final Map<String, Long> percentiles, final String prefix,
+                                       final Histogram histogram) {
+        percentiles.put(prefix + "p50", histogram.valueAtPercentile(50));
+        percentiles.put(prefix + "p99", histogram.valueAtPercentile(99));
+        percentiles.put(prefix + "p999", histogram.valueAtPercentile(99.9));
+        percentiles.put(prefix + "max", histogram.max());
+    }
+
+    @Override
+    public String toString() {
+        return "MethodLatency" + percentiles();
+    }
+}
@@ -33,6 +33,10 @@ public class Protocol {
     public static final String OBJECT_NAME_KEY = "objectName";
     public static final String ADDRESS_KEY = "addressOfService";
     public static final String RETURN_ADDRESS_KEY = "addressOfReturn";
+    /**
+     * Header holding how many milliseconds the caller is still willing to wait for the answer.
+     */
+    public static final String DEADLINE_HEADER = "QBIT_TIMEOUT_MILLIS";
     public static final int PROTOCOL_MARKER = 0x1c;
     public static final int PROTOCOL_MESSAGE_SEPARATOR = 0x1f;
     public static final int PROTOCOL_SEPARATOR = 0x1d;
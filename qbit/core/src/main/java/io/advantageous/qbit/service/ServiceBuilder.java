@@ -18,13 +18,21 @@
 
 package io.advantageous.qbit.service;
 
+import io.advantageous.boon.core.reflection.BeanUtils;
 import io.advantageous.qbit.QBit;
 import io.advantageous.qbit.message.MethodCall;
 import io.advantageous.qbit.message.Request;
 import io.advantageous.qbit.message.Response;
 import io.advantageous.qbit.queue.Queue;
 import io.advantageous.qbit.queue.QueueBuilder;
+import io.advantageous.qbit.queue.QueueStatsRecorder;
 import io.advantageous.qbit.queue.ReceiveQueueListener;
+import io.advantageous.qbit.queue.WaitStrategy;
+import io.advantageous.qbit.queue.impl.SharedQueueScheduler;
+import io.advantageous.qbit.service.impl.BaseServiceQueueImpl;
+import io.advantageous.qbit.service.impl.LoadShedder;
+import io.advantageous.qbit.service.impl.MethodCallPriority;
+import io.advantageous.qbit.service.impl.MethodStats;
 import io.advantageous.qbit.service.impl.NoOpAfterMethodCall;
 import io.advantageous.qbit.service.impl.NoOpInputMethodCallQueueListener;
 import io.advantageous.qbit.service.impl.ServiceConstants;
@@ -60,6 +68,15 @@ public class ServiceBuilder {
     private String rootAddress;
     private String serviceAddress;
     private Object serviceObject;
+    private WaitStrategy waitStrategy;
+    private SharedQueueScheduler sharedScheduler;
+    private boolean virtualThreads;
+    private boolean priorityLanes;
+    private boolean methodStats;
+    private QueueStatsRecorder methodStatsRecorder;
+    private int methodStatsIntervalMillis = 1_000;
+    private long loadShedTargetMillis;
+    private long loadShedIntervalMillis = 100;
 
     private QBitSystemManager qBitSystemManager;
 
@@ -240,6 +257,176 @@ public class ServiceBuilder {
     }
 
 
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * How the service thread waits for requests when its request queue is empty.
+     * Overrides the wait strategy of the request queue builder.
+     *
+     * @param waitStrategy wait strategy
+     * @return this
+     */
+    public ServiceBuilder setWaitStrategy(final WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+        return this;
+    }
+
+    public SharedQueueScheduler getSharedScheduler() {
+        return sharedScheduler;
+    }
+
+    /**
+     * Runs this service on a pool of threads shared with other services instead of on its own thread.
+     * Overrides the shared scheduler of the request queue builder.
+     *
+     * @param sharedScheduler shared scheduler
+     * @return this
+     */
+    public ServiceBuilder setSharedScheduler(final SharedQueueScheduler sharedScheduler) {
+        this.sharedScheduler = sharedScheduler;
+        return this;
+    }
+
+    /**
+     * Runs this service on the JVM wide pool that is sized to the number of cores.
+     *
+     * @return this
+     */
+    public ServiceBuilder useSharedScheduler() {
+        return setSharedScheduler(SharedQueueScheduler.sharedQueueScheduler());
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Runs this service on its own virtual thread when the JDK has them (21+).
+     *
+     * @param virtualThreads use a virtual thread
+     * @return this
+     */
+    public ServiceBuilder setVirtualThreads(final boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    public boolean isPriorityLanes() {
+        return priorityLanes;
+    }
+
+    /**
+     * Gives the request queue a high priority lane that is drained first. Calls made inside the process get to it
+     * with the {@code QBIT_PRIORITY} header. Services with {@code @Priority} methods get the lane without this.
+     *
+     * @param priorityLanes use a high priority lane
+     * @return this
+     */
+    public ServiceBuilder setPriorityLanes(final boolean priorityLanes) {
+        this.priorityLanes = priorityLanes;
+        return this;
+    }
+
+    public boolean isMethodStats() {
+        return methodStats;
+    }
+
+    /**
+     * Records queue wait and execution time histograms per method, readable from
+     * {@link ServiceQueue#methodLatencies()}.
+     *
+     * @param methodStats record method stats
+     * @return this
+     */
+    public ServiceBuilder setMethodStats(final boolean methodStats) {
+        this.methodStats = methodStats;
+        return this;
+    }
+
+    public QueueStatsRecorder getMethodStatsRecorder() {
+        return methodStatsRecorder;
+    }
+
+    /**
+     * Publishes method latency percentiles once per interval, for example to {@code statService::recordAllCounts}.
+     * Turns on method stats.
+     *
+     * @param methodStatsRecorder recorder
+     * @return this
+     */
+    public ServiceBuilder setMethodStatsRecorder(final QueueStatsRecorder methodStatsRecorder) {
+        this.methodStatsRecorder = methodStatsRecorder;
+        if (methodStatsRecorder != null) {
+            this.methodStats = true;
+        }
+        return this;
+    }
+
+    public int getMethodStatsIntervalMillis() {
+        return methodStatsIntervalMillis;
+    }
+
+    public ServiceBuilder setMethodStatsIntervalMillis(final int methodStatsIntervalMillis) {
+        this.methodStatsIntervalMillis = methodStatsIntervalMillis;
+        return this;
+    }
+
+    public long getLoadShedTargetMillis() {
+        return loadShedTargetMillis;
+    }
+
+    /**
+     * Turns on load shedding. Once calls keep waiting in the request queue longer than the target for a whole
+     * interval, calls that waited longer than the target are answered with an error instead of being run.
+     * Calls are stamped with a clock that ticks every few milliseconds, so targets under 10 ms are not meaningful.
+     *
+     * @param loadShedTargetMillis how long calls may wait in the queue, 0 to turn shedding off
+     * @return this
+     */
+    public ServiceBuilder setLoadShedTargetMillis(final long loadShedTargetMillis) {
+        this.loadShedTargetMillis = loadShedTargetMillis;
+        return this;
+    }
+
+    public long getLoadShedIntervalMillis() {
+        return loadShedIntervalMillis;
+    }
+
+    /**
+     * @param loadShedIntervalMillis how long calls have to keep waiting longer than the target before they are shed
+     * @return this
+     */
+    public ServiceBuilder setLoadShedIntervalMillis(final long loadShedIntervalMillis) {
+        this.loadShedIntervalMillis = loadShedIntervalMillis;
+        return this;
+    }
+
+    private QueueBuilder requestQueueBuilderToUse() {
+
+        if (waitStrategy == null && sharedScheduler == null && !virtualThreads && !priorityLanes) {
+            return this.getRequestQueueBuilder();
+        }
+
+        final QueueBuilder queueBuilder = this.getRequestQueueBuilder() == null ? new QueueBuilder() :
+                BeanUtils.copy(this.getRequestQueueBuilder());
+        if (waitStrategy != null) {
+            queueBuilder.setWaitStrategy(waitStrategy);
+        }
+        if (sharedScheduler != null) {
+            queueBuilder.setSharedScheduler(sharedScheduler);
+        }
+        if (virtualThreads) {
+            queueBuilder.setVirtualThreads(true);
+        }
+        if (priorityLanes && queueBuilder.getPriorityLane() == null) {
+            queueBuilder.setPriorityLane(new MethodCallPriority());
+        }
+        return queueBuilder;
+    }
+
+
     public ServiceQueue build(final Object serviceObject) {
         this.serviceObject = serviceObject;
         return build();
@@ -253,7 +440,7 @@ public class ServiceBuilder {
         ServiceQueue serviceQueue = new ServiceQueueImpl(this.getRootAddress(),
                 this.getServiceAddress(),
                 this.getServiceObject(),
-                this.getRequestQueueBuilder(),
+                this.requestQueueBuilderToUse(),
                 this.getResponseQueueBuilder(),
                 QBit.factory().createServiceMethodHandler(this.isInvokeDynamic()),
                 this.getResponseQueue(),
@@ -261,6 +448,16 @@ public class ServiceBuilder {
                 this.isHandleCallbacks(),
                 this.getSystemManager());
 
+        if (methodStats && serviceQueue instanceof BaseServiceQueueImpl) {
+            ((BaseServiceQueueImpl) serviceQueue).setMethodStats(
+                    new MethodStats(serviceQueue.name(), methodStatsRecorder, methodStatsIntervalMillis));
+        }
+
+        if (loadShedTargetMillis > 0 && serviceQueue instanceof BaseServiceQueueImpl) {
+            ((BaseServiceQueueImpl) serviceQueue).setLoadShedder(
+                    new LoadShedder(loadShedTargetMillis, loadShedIntervalMillis));
+        }
+
         if (serviceQueue != null && qBitSystemManager != null) {
             qBitSystemManager.registerService(serviceQueue);
         }
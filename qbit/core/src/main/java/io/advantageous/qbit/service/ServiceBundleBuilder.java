@@ -18,12 +18,18 @@
 
 package io.advantageous.qbit.service;
 
+import io.advantageous.boon.core.reflection.BeanUtils;
 import io.advantageous.qbit.GlobalConstants;
 import io.advantageous.qbit.QBit;
+import io.advantageous.qbit.events.EventManager;
 import io.advantageous.qbit.message.Request;
 import io.advantageous.qbit.message.Response;
 import io.advantageous.qbit.queue.Queue;
 import io.advantageous.qbit.queue.QueueBuilder;
+import io.advantageous.qbit.service.impl.CallCoalescer;
+import io.advantageous.qbit.service.impl.MethodCallPriority;
+import io.advantageous.qbit.service.impl.ResponseCache;
+import io.advantageous.qbit.service.impl.ServiceBundleImpl;
 import io.advantageous.qbit.service.impl.ServiceConstants;
 import io.advantageous.qbit.system.QBitSystemManager;
 import io.advantageous.qbit.transforms.Transformer;
@@ -51,6 +57,11 @@ public class ServiceBundleBuilder {
     private boolean invokeDynamic = true;
     private String address = "/services";
     private boolean eachServiceInItsOwnThread = true;
+    private boolean priorityLanes;
+    private long coalesceWindowMillis;
+    private long coalesceTimeoutMillis = CallCoalescer.DEFAULT_TIMEOUT_MILLIS;
+    private boolean cacheResponses;
+    private EventManager cacheEventManager;
     private QBitSystemManager qBitSystemManager;
 
     private Queue<Response<Object>> responseQueue;
@@ -223,13 +234,99 @@ public class ServiceBundleBuilder {
         return this;
     }
 
+    public boolean isPriorityLanes() {
+        return priorityLanes;
+    }
+
+    /**
+     * Gives the call queue of the bundle and the request queues of its services a high priority lane that is
+     * drained first. Calls get to it by calling {@code @Priority} methods, or with the {@code QBIT_PRIORITY} header
+     * if they were made inside the process.
+     *
+     * @param priorityLanes use a high priority lane
+     * @return this
+     */
+    public ServiceBundleBuilder setPriorityLanes(final boolean priorityLanes) {
+        this.priorityLanes = priorityLanes;
+        return this;
+    }
+
+    public long getCoalesceWindowMillis() {
+        return coalesceWindowMillis;
+    }
+
+    /**
+     * Lets identical calls to {@code @Idempotent} methods share the response of a call already in flight,
+     * if that call was sent less than this long ago.
+     *
+     * @param coalesceWindowMillis coalescing window, 0 to send every call
+     * @return this
+     */
+    public ServiceBundleBuilder setCoalesceWindowMillis(final long coalesceWindowMillis) {
+        this.coalesceWindowMillis = coalesceWindowMillis;
+        return this;
+    }
+
+    public long getCoalesceTimeoutMillis() {
+        return coalesceTimeoutMillis;
+    }
+
+    /**
+     * How long calls that joined a call in flight wait for its response, if that call has no deadline of its own.
+     * They get an error response after that. Never less than the coalescing window.
+     *
+     * @param coalesceTimeoutMillis in-flight timeout
+     * @return this
+     */
+    public ServiceBundleBuilder setCoalesceTimeoutMillis(final long coalesceTimeoutMillis) {
+        this.coalesceTimeoutMillis = coalesceTimeoutMillis;
+        return this;
+    }
+
+    public boolean isCacheResponses() {
+        return cacheResponses;
+    }
+
+    /**
+     * Answers calls to {@code @Cacheable} methods from a response cache, as long as the cached response is fresh.
+     *
+     * @param cacheResponses cache responses
+     * @return this
+     */
+    public ServiceBundleBuilder setCacheResponses(final boolean cacheResponses) {
+        this.cacheResponses = cacheResponses;
+        return this;
+    }
+
+    public EventManager getCacheEventManager() {
+        return cacheEventManager;
+    }
+
+    /**
+     * Event manager the cache listens to for invalidation events. Defaults to the system event manager.
+     *
+     * @param cacheEventManager event manager
+     * @return this
+     */
+    public ServiceBundleBuilder setCacheEventManager(final EventManager cacheEventManager) {
+        this.cacheEventManager = cacheEventManager;
+        return this;
+    }
+
+    private QueueBuilder requestQueueBuilderToUse() {
+        if (!priorityLanes || getRequestQueueBuilder().getPriorityLane() != null) {
+            return getRequestQueueBuilder();
+        }
+        return BeanUtils.copy(getRequestQueueBuilder()).setPriorityLane(new MethodCallPriority());
+    }
+
     public ServiceBundle build() {
 
 
 
 
         final ServiceBundle serviceBundle = QBit.factory().createServiceBundle(this.getAddress(),
-                getRequestQueueBuilder(),
+                requestQueueBuilderToUse(),
                 getResponseQueueBuilder(),
                 getWebResponseQueueBuilder(),
                 QBit.factory(),
@@ -245,6 +342,15 @@ public class ServiceBundleBuilder {
             throw new IllegalStateException("Service Bundle was null");
         }
 
+        if (coalesceWindowMillis > 0 && serviceBundle instanceof ServiceBundleImpl) {
+            ((ServiceBundleImpl) serviceBundle).setCallCoalescer(new CallCoalescer(coalesceWindowMillis,
+                    coalesceTimeoutMillis));
+        }
+
+        if (cacheResponses && serviceBundle instanceof ServiceBundleImpl) {
+            ((ServiceBundleImpl) serviceBundle).setResponseCache(new ResponseCache(cacheEventManager));
+        }
+
         return serviceBundle;
 
 
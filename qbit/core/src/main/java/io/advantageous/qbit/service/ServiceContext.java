@@ -45,6 +45,16 @@ public class ServiceContext {
         return BaseServiceQueueImpl.currentService();
     }
 
+    /**
+     * Deadline of the call the service thread is running. Calls made through service proxies from inside the
+     * call inherit it.
+     *
+     * @return deadline in milliseconds, or 0 if the current call has none
+     */
+    public long deadline() {
+        return BaseServiceQueueImpl.currentDeadline();
+    }
+
     public EventManager eventManager() {
         return QBit.factory().systemEventManager();
     }
@@ -24,7 +24,10 @@ import io.advantageous.qbit.message.Response;
 import io.advantageous.qbit.queue.ReceiveQueueListener;
 import io.advantageous.qbit.queue.SendQueue;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * This is a plugin just for the piece that does the invocation.
@@ -54,4 +57,75 @@ public interface ServiceMethodHandler extends ReceiveQueueListener<MethodCall<Ob
     void handleEvent(Event<Object> event);
 
     void queueStartBatch();
+
+    /**
+     * Names of the methods marked {@code @Priority(HIGH)}, whose calls go to the high priority request lane.
+     *
+     * @return method names
+     */
+    default Collection<String> priorityMethodNames() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Addresses of the methods marked {@code @Priority(HIGH)}.
+     *
+     * @return method addresses
+     */
+    default Collection<String> priorityAddresses() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Names of the methods marked {@code @Idempotent}, whose identical calls can share one response.
+     *
+     * @return method names
+     */
+    default Collection<String> idempotentMethodNames() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Address templates of the methods marked {@code @Idempotent}, path variables included.
+     *
+     * @return method address templates
+     */
+    default Collection<String> idempotentAddresses() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Cache policies of the methods marked {@code @Cacheable}.
+     *
+     * @return one policy per cached method
+     */
+    default Collection<CachePolicy> cachePolicies() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Name of the {@code @BatchHandler} method this call goes to, if any. The service queue collects these calls
+     * and hands them to {@link #receiveMethodCallBatch(String, List)} at the end of the request queue batch.
+     *
+     * @param methodCall method call
+     * @return batch handler method name, or null to invoke the call on its own
+     */
+    default String batchHandler(MethodCall<Object> methodCall) {
+        return null;
+    }
+
+    /**
+     * Invokes a {@code @BatchHandler} method once for calls collected from one request queue batch.
+     *
+     * @param batchHandler batch handler method name
+     * @param methodCalls  calls to the method, in the order they came in
+     * @return one response per call in the same order, {@code ServiceConstants.VOID} for no response
+     */
+    default List<Response<Object>> receiveMethodCallBatch(String batchHandler, List<MethodCall<Object>> methodCalls) {
+        final List<Response<Object>> responses = new ArrayList<>(methodCalls.size());
+        for (MethodCall<Object> methodCall : methodCalls) {
+            responses.add(receiveMethodCall(methodCall));
+        }
+        return responses;
+    }
 }
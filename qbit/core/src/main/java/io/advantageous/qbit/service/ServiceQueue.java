@@ -26,6 +26,8 @@ import io.advantageous.qbit.queue.ReceiveQueue;
 import io.advantageous.qbit.queue.SendQueue;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -113,4 +115,23 @@ public interface ServiceQueue extends Stoppable, ServiceFlushable {
     default ServiceQueue start(boolean joinEventManager) {
         return this;
     }
+
+    /**
+     * Number of method calls this service has finished or turned away so far.
+     * Dispatchers compare it with what they sent to get each worker's depth, counting the call in progress.
+     *
+     * @return calls finished, or -1 if this service queue does not count them
+     */
+    default long callsHandled() {
+        return -1;
+    }
+
+    /**
+     * Queue wait and execution latency of each method called in the last stats interval that had calls.
+     *
+     * @return latency keyed by method name or address, empty if this service queue does not record method stats
+     */
+    default Map<String, MethodLatency> methodLatencies() {
+        return Collections.emptyMap();
+    }
 }
@@ -3,6 +3,7 @@ package io.advantageous.qbit.service.discovery.impl;
 import io.advantageous.qbit.GlobalConstants;
 import io.advantageous.qbit.QBit;
 import io.advantageous.qbit.concurrent.PeriodicScheduler;
+import io.advantageous.qbit.concurrent.VirtualThreads;
 import io.advantageous.qbit.service.discovery.*;
 import io.advantageous.qbit.service.discovery.spi.ServiceDiscoveryProvider;
 import org.slf4j.Logger;
@@ -40,6 +41,20 @@ public class ServiceDiscoveryImpl implements ServiceDiscovery {
             final ServiceDiscoveryProvider provider,
             final ServicePoolListener servicePoolListener,
             final ExecutorService executorService) {
+        this(periodicScheduler, serviceChangedEventChannel, provider, servicePoolListener, executorService, false);
+    }
+
+    /**
+     * @param virtualThreads when no executor service is passed, do the long polls on virtual threads
+     *                       instead of a pool of 100 platform threads (JDK 21+)
+     */
+    public ServiceDiscoveryImpl(
+            final PeriodicScheduler periodicScheduler,
+            final ServiceChangedEventChannel serviceChangedEventChannel,
+            final ServiceDiscoveryProvider provider,
+            final ServicePoolListener servicePoolListener,
+            final ExecutorService executorService,
+            final boolean virtualThreads) {
 
 
         this.provider = provider;
@@ -54,9 +69,16 @@ public class ServiceDiscoveryImpl implements ServiceDiscovery {
         this.servicePoolListener = servicePoolListener == null ? serviceName -> {
         } : servicePoolListener;
 
-        this.executorService = executorService == null ?
-                Executors.newFixedThreadPool(100) :
-                executorService;//Mostly sleeping threads doing long polls
+        if (executorService != null) {
+            this.executorService = executorService;
+        } else if (virtualThreads && VirtualThreads.isSupported()) {
+            this.executorService = VirtualThreads.newThreadPerTaskExecutor("ServiceDiscovery");
+        } else {
+            if (virtualThreads) {
+                logger.warn("Virtual threads are not supported by this JDK, using a platform thread pool");
+            }
+            this.executorService = Executors.newFixedThreadPool(100);//Mostly sleeping threads doing long polls
+        }
 
 
         if (trace) {
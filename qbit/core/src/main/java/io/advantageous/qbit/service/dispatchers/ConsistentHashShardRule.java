@@ -0,0 +1,160 @@
+/*******************************************************************************
+
+  * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+  *
+  *  		http://www.apache.org/licenses/LICENSE-2.0
+  *
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+  *  ________ __________.______________
+  *  \_____  \\______   \   \__    ___/
+  *   /  / \  \|    |  _/   | |    |  ______
+  *  /   \_/.  \    |   \   | |    | /_____/
+  *  \_____\ \_/______  /___| |____|
+  *         \__>      \/
+  *  ___________.__                  ____.                        _____  .__                                             .__
+  *  \__    ___/|  |__   ____       |    |____ ___  _______      /     \ |__| ___________  ____  ______ ______________  _|__| ____  ____
+  *    |    |   |  |  \_/ __ \      |    \__  \\  \/ /\__  \    /  \ /  \|  |/ ___\_  __ \/  _ \/  ___// __ \_  __ \  \/ /  |/ ___\/ __ \
+  *    |    |   |   Y  \  ___/  /\__|    |/ __ \\   /  / __ \_ /    Y    \  \  \___|  | \(  <_> )___ \\  ___/|  | \/\   /|  \  \__\  ___/
+  *    |____|   |___|  /\___  > \________(____  /\_/  (____  / \____|__  /__|\___  >__|   \____/____  >\___  >__|    \_/ |__|\___  >___  >
+  *                  \/     \/                \/           \/          \/        \/                 \/     \/                    \/    \/
+  *  .____    ._____.
+  *  |    |   |__\_ |__
+  *  |    |   |  || __ \
+  *  |    |___|  || \_\ \
+  *  |_______ \__||___  /
+  *          \/       \/
+  *       ____. _________________    _______         __      __      ___.     _________              __           __      _____________________ ____________________
+  *      |    |/   _____/\_____  \   \      \       /  \    /  \ ____\_ |__  /   _____/ ____   ____ |  | __ _____/  |_    \______   \_   _____//   _____/\__    ___/
+  *      |    |\_____  \  /   |   \  /   |   \      \   \/\/   // __ \| __ \ \_____  \ /  _ \_/ ___\|  |/ // __ \   __\    |       _/|    __)_ \_____  \   |    |
+  *  /\__|    |/        \/    |    \/    |    \      \        /\  ___/| \_\ \/        (  <_> )  \___|    <\  ___/|  |      |    |   \|        \/        \  |    |
+  *  \________/_______  /\_______  /\____|__  / /\    \__/\  /  \___  >___  /_______  /\____/ \___  >__|_ \\___  >__| /\   |____|_  /_______  /_______  /  |____|
+  *                   \/         \/         \/  )/         \/       \/    \/        \/            \/     \/    \/     )/          \/        \/        \/
+  *  __________           __  .__              __      __      ___.
+  *  \______   \ ____   _/  |_|  |__   ____   /  \    /  \ ____\_ |__
+  *  |    |  _// __ \  \   __\  |  \_/ __ \  \   \/\/   // __ \| __ \
+  *   |    |   \  ___/   |  | |   Y  \  ___/   \        /\  ___/| \_\ \
+  *   |______  /\___  >  |__| |___|  /\___  >   \__/\  /  \___  >___  /
+  *          \/     \/             \/     \/         \/       \/    \/
+  *
+  * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+  *  http://rick-hightower.blogspot.com/2014/12/rise-of-machines-writing-high-speed.html
+  *  http://rick-hightower.blogspot.com/2014/12/quick-guide-to-programming-services-in.html
+  *  http://rick-hightower.blogspot.com/2015/01/quick-start-qbit-programming.html
+  *  http://rick-hightower.blogspot.com/2015/01/high-speed-soa.html
+  *  http://rick-hightower.blogspot.com/2015/02/qbit-event-bus.html
+
+ ******************************************************************************/
+
+
+package io.advantageous.qbit.service.dispatchers;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Shard rule that places workers on a hash ring with a number of virtual nodes each,
+ * and sends a key to the first worker clockwise from the key's hash.
+ * <p>
+ * Unlike {@code hashCode() % numWorkers}, changing the number of workers only moves the keys
+ * that land on the added or removed worker's virtual nodes.
+ * Virtual nodes spread each worker's share of the ring so the shares stay close to even.
+ */
+public class ConsistentHashShardRule implements ShardRule {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final Function<Object[], Object> shardKey;
+    private final int virtualNodes;
+
+    private volatile Ring ring = new Ring(0, 0);
+
+    public ConsistentHashShardRule(final Function<Object[], Object> shardKey, final int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be at least 1");
+        }
+        this.shardKey = shardKey;
+        this.virtualNodes = virtualNodes;
+    }
+
+    public static ConsistentHashShardRule consistentHashShardRule(final Function<Object[], Object> shardKey) {
+        return new ConsistentHashShardRule(shardKey, DEFAULT_VIRTUAL_NODES);
+    }
+
+    @Override
+    public int shard(final String methodName, final Object[] methodArgs, final int numWorkers) {
+        final Object key = shardKey.apply(methodArgs);
+        return worker(key == null ? 0 : key.hashCode(), numWorkers);
+    }
+
+    /**
+     * @param hash       hash code of the shard key
+     * @param numWorkers number of workers
+     * @return worker index
+     */
+    public int worker(final int hash, final int numWorkers) {
+        Ring ring = this.ring;
+        if (ring.workers != numWorkers) {
+            ring = new Ring(numWorkers, virtualNodes);
+            this.ring = ring;
+        }
+        return ring.worker(mix(hash));
+    }
+
+    /**
+     * Murmur3 finalizer, so keys with close hash codes (sequential ids, short strings) spread over the ring.
+     */
+    static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static final class Ring {
+
+        private final int workers;
+        private final int[] points;
+        private final int[] owners;
+
+        private Ring(final int workers, final int virtualNodes) {
+            this.workers = workers;
+            final long[] entries = new long[workers * virtualNodes];
+            int entry = 0;
+            for (int worker = 0; worker < workers; worker++) {
+                for (int node = 0; node < virtualNodes; node++) {
+                    final int point = mix(worker * 0x9E3779B9 + mix(node + 1));
+                    /* Point in the high bits so sorting orders by point, owner in the low bits. */
+                    entries[entry++] = ((long) point << 32) | worker;
+                }
+            }
+            Arrays.sort(entries);
+            points = new int[entries.length];
+            owners = new int[entries.length];
+            for (int index = 0; index < entries.length; index++) {
+                points[index] = (int) (entries[index] >> 32);
+                owners[index] = (int) entries[index];
+            }
+        }
+
+        private int worker(final int hash) {
+            if (points.length == 0) {
+                return 0;
+            }
+            int index = Arrays.binarySearch(points, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return owners[index == points.length ? 0 : index];
+        }
+    }
+}
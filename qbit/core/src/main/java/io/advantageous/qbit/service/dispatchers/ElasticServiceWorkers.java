@@ -0,0 +1,527 @@
+/*******************************************************************************
+
+  * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+  *
+  *  		http://www.apache.org/licenses/LICENSE-2.0
+  *
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+  *  ________ __________.______________
+  *  \_____  \\______   \   \__    ___/
+  *   /  / \  \|    |  _/   | |    |  ______
+  *  /   \_/.  \    |   \   | |    | /_____/
+  *  \_____\ \_/______  /___| |____|
+  *         \__>      \/
+  *  ___________.__                  ____.                        _____  .__                                             .__
+  *  \__    ___/|  |__   ____       |    |____ ___  _______      /     \ |__| ___________  ____  ______ ______________  _|__| ____  ____
+  *    |    |   |  |  \_/ __ \      |    \__  \\  \/ /\__  \    /  \ /  \|  |/ ___\_  __ \/  _ \/  ___// __ \_  __ \  \/ /  |/ ___\/ __ \
+  *    |    |   |   Y  \  ___/  /\__|    |/ __ \\   /  / __ \_ /    Y    \  \  \___|  | \(  <_> )___ \\  ___/|  | \/\   /|  \  \__\  ___/
+  *    |____|   |___|  /\___  > \________(____  /\_/  (____  / \____|__  /__|\___  >__|   \____/____  >\___  >__|    \_/ |__|\___  >___  >
+  *                  \/     \/                \/           \/          \/        \/                 \/     \/                    \/    \/
+  *  .____    ._____.
+  *  |    |   |__\_ |__
+  *  |    |   |  || __ \
+  *  |    |___|  || \_\ \
+  *  |_______ \__||___  /
+  *          \/       \/
+  *       ____. _________________    _______         __      __      ___.     _________              __           __      _____________________ ____________________
+  *      |    |/   _____/\_____  \   \      \       /  \    /  \ ____\_ |__  /   _____/ ____   ____ |  | __ _____/  |_    \______   \_   _____//   _____/\__    ___/
+  *      |    |\_____  \  /   |   \  /   |   \      \   \/\/   // __ \| __ \ \_____  \ /  _ \_/ ___\|  |/ // __ \   __\    |       _/|    __)_ \_____  \   |    |
+  *  /\__|    |/        \/    |    \/    |    \      \        /\  ___/| \_\ \/        (  <_> )  \___|    <\  ___/|  |      |    |   \|        \/        \  |    |
+  *  \________/_______  /\_______  /\____|__  / /\    \__/\  /  \___  >___  /_______  /\____/ \___  >__|_ \\___  >__| /\   |____|_  /_______  /_______  /  |____|
+  *                   \/         \/         \/  )/         \/       \/    \/        \/            \/     \/    \/     )/          \/        \/        \/
+  *  __________           __  .__              __      __      ___.
+  *  \______   \ ____   _/  |_|  |__   ____   /  \    /  \ ____\_ |__
+  *  |    |  _// __ \  \   __\  |  \_/ __ \  \   \/\/   // __ \| __ \
+  *   |    |   \  ___/   |  | |   Y  \  ___/   \        /\  ___/| \_\ \
+  *   |______  /\___  >  |__| |___|  /\___  >   \__/\  /  \___  >___  /
+  *          \/     \/             \/     \/         \/       \/    \/
+  *
+  * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+  *  http://rick-hightower.blogspot.com/2014/12/rise-of-machines-writing-high-speed.html
+  *  http://rick-hightower.blogspot.com/2014/12/quick-guide-to-programming-services-in.html
+  *  http://rick-hightower.blogspot.com/2015/01/quick-start-qbit-programming.html
+  *  http://rick-hightower.blogspot.com/2015/01/high-speed-soa.html
+  *  http://rick-hightower.blogspot.com/2015/02/qbit-event-bus.html
+
+ ******************************************************************************/
+
+
+package io.advantageous.qbit.service.dispatchers;
+
+import io.advantageous.qbit.QBit;
+import io.advantageous.qbit.concurrent.PeriodicScheduler;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.queue.QueueStatsRecorder;
+import io.advantageous.qbit.queue.SendQueue;
+import io.advantageous.qbit.service.ServiceQueue;
+import io.advantageous.qbit.util.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A worker pool that grows when calls back up and shrinks when workers sit idle.
+ * <p>
+ * New workers come from a supplier of service queues, usually
+ * {@code () -> serviceBuilder.setServiceObject(new MyService()).build()}. Once per check interval the pool
+ * looks at how many calls are pending and how long a call waits, estimated from the pending calls and how
+ * fast the workers got through calls since the last check. If either is over its threshold, one worker is added.
+ * If a worker has had nothing to do for the cooldown and nothing was added in that time, one worker is retired.
+ * The pool stays between the min and max workers.
+ * <p>
+ * Calls go to the worker with the fewest pending calls, so a new worker gets traffic right away.
+ * A retired worker gets no new calls. It is stopped at a later check once its pending calls are done.
+ * <p>
+ * Each scaling decision is logged and published to the stats recorder, if one is set, as
+ * {@code <name>.workers}, {@code <name>.pending}, {@code <name>.sojournMillis}, {@code <name>.scaleUp}
+ * and {@code <name>.scaleDown}.
+ */
+public class ElasticServiceWorkers implements ServiceMethodDispatcher {
+
+    private final Logger logger = LoggerFactory.getLogger(ElasticServiceWorkers.class);
+
+    private final Supplier<ServiceQueue> workerSupplier;
+
+    private String name = "workers";
+    private int minWorkers = 1;
+    private int maxWorkers = Runtime.getRuntime().availableProcessors();
+    private long scaleUpPendingCalls = 100;
+    private long scaleUpSojournMillis = 0;
+    private long cooldownMillis = 10_000;
+    private int checkInterval = 100;
+    private TimeUnit checkTimeUnit = TimeUnit.MILLISECONDS;
+    private int flushInterval = 50;
+    private TimeUnit flushTimeUnit = TimeUnit.MILLISECONDS;
+    private boolean startServices = true;
+    private QueueStatsRecorder statsRecorder;
+    private PeriodicScheduler periodicScheduler;
+
+    /**
+     * Workers that get new calls. Replaced, never changed in place, so accept can read it without a lock.
+     */
+    private volatile Worker[] workers = new Worker[0];
+
+    /* Only used by checkScaling, which is synchronized. */
+    private final List<Worker> retiring = new ArrayList<>();
+    private String[] statNames;
+    private long lastCheck;
+    private long lastScaleUp;
+
+    private volatile long scaleUps;
+    private volatile long scaleDowns;
+    private ScheduledFuture scheduledFuture;
+
+    public ElasticServiceWorkers(final Supplier<ServiceQueue> workerSupplier) {
+        this.workerSupplier = workerSupplier;
+    }
+
+    public static ElasticServiceWorkers elasticWorkers(final Supplier<ServiceQueue> workerSupplier) {
+        return new ElasticServiceWorkers(workerSupplier);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param name prefix of the published stat names
+     * @return this
+     */
+    public ElasticServiceWorkers setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public int getMinWorkers() {
+        return minWorkers;
+    }
+
+    public ElasticServiceWorkers setMinWorkers(int minWorkers) {
+        this.minWorkers = minWorkers;
+        return this;
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    public ElasticServiceWorkers setMaxWorkers(int maxWorkers) {
+        this.maxWorkers = maxWorkers;
+        return this;
+    }
+
+    public long getScaleUpPendingCalls() {
+        return scaleUpPendingCalls;
+    }
+
+    /**
+     * @param scaleUpPendingCalls add a worker when the pending calls per worker reach this, 0 to not scale on backlog
+     * @return this
+     */
+    public ElasticServiceWorkers setScaleUpPendingCalls(long scaleUpPendingCalls) {
+        this.scaleUpPendingCalls = scaleUpPendingCalls;
+        return this;
+    }
+
+    public long getScaleUpSojournMillis() {
+        return scaleUpSojournMillis;
+    }
+
+    /**
+     * @param scaleUpSojournMillis add a worker when the estimated wait for a call reaches this, 0 to not scale on wait
+     * @return this
+     */
+    public ElasticServiceWorkers setScaleUpSojournMillis(long scaleUpSojournMillis) {
+        this.scaleUpSojournMillis = scaleUpSojournMillis;
+        return this;
+    }
+
+    public long getCooldownMillis() {
+        return cooldownMillis;
+    }
+
+    /**
+     * @param cooldownMillis how long a worker has to be idle, and the pool has not grown, before a worker is retired
+     * @return this
+     */
+    public ElasticServiceWorkers setCooldownMillis(long cooldownMillis) {
+        this.cooldownMillis = cooldownMillis;
+        return this;
+    }
+
+    public int getCheckInterval() {
+        return checkInterval;
+    }
+
+    /**
+     * @param checkInterval   how often to check, 0 to only check when {@link #checkScaling(long)} is called
+     * @param checkTimeUnit   time unit of the check interval
+     * @return this
+     */
+    public ElasticServiceWorkers setCheckInterval(int checkInterval, TimeUnit checkTimeUnit) {
+        this.checkInterval = checkInterval;
+        this.checkTimeUnit = checkTimeUnit;
+        return this;
+    }
+
+    public int getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * @param flushInterval auto flush interval of the send queue to each worker, 0 to not auto flush
+     * @param flushTimeUnit time unit of the flush interval
+     * @return this
+     */
+    public ElasticServiceWorkers setFlushInterval(int flushInterval, TimeUnit flushTimeUnit) {
+        this.flushInterval = flushInterval;
+        this.flushTimeUnit = flushTimeUnit;
+        return this;
+    }
+
+    public boolean isStartServices() {
+        return startServices;
+    }
+
+    public ElasticServiceWorkers setStartServices(boolean startServices) {
+        this.startServices = startServices;
+        return this;
+    }
+
+    public QueueStatsRecorder getStatsRecorder() {
+        return statsRecorder;
+    }
+
+    /**
+     * @param statsRecorder where scaling decisions are published, {@code statService::recordAllCounts} works
+     * @return this
+     */
+    public ElasticServiceWorkers setStatsRecorder(QueueStatsRecorder statsRecorder) {
+        this.statsRecorder = statsRecorder;
+        return this;
+    }
+
+    public PeriodicScheduler getPeriodicScheduler() {
+        return periodicScheduler;
+    }
+
+    public ElasticServiceWorkers setPeriodicScheduler(PeriodicScheduler periodicScheduler) {
+        this.periodicScheduler = periodicScheduler;
+        return this;
+    }
+
+    public synchronized ElasticServiceWorkers start() {
+
+        if (minWorkers < 1 || maxWorkers < minWorkers) {
+            throw new IllegalStateException("Workers must be at least 1 and min no more than max, min "
+                    + minWorkers + " max " + maxWorkers);
+        }
+
+        statNames = new String[]{name + ".workers", name + ".pending", name + ".sojournMillis",
+                name + ".scaleUp", name + ".scaleDown"};
+
+        final long now = Timer.timer().now();
+        final Worker[] started = new Worker[minWorkers];
+        for (int index = 0; index < started.length; index++) {
+            started[index] = newWorker(now);
+        }
+        workers = started;
+        lastCheck = now;
+        lastScaleUp = now;
+
+        if (checkInterval > 0) {
+            if (periodicScheduler == null) {
+                periodicScheduler = QBit.factory().periodicScheduler();
+            }
+            scheduledFuture = periodicScheduler.repeat(() -> checkScaling(Timer.timer().now()),
+                    checkInterval, checkTimeUnit);
+        }
+        return this;
+    }
+
+    @Override
+    public void accept(final MethodCall<Object> methodCall) {
+
+        final Worker[] workers = this.workers;
+
+        Worker best = workers[0];
+        long bestPending = best.pendingCalls();
+        for (int index = 1; index < workers.length && bestPending > 0; index++) {
+            final long pending = workers[index].pendingCalls();
+            if (pending < bestPending) {
+                best = workers[index];
+                bestPending = pending;
+            }
+        }
+        best.dispatched.incrementAndGet();
+        best.sendQueue.send(methodCall);
+    }
+
+    /**
+     * Looks at the backlog and adds or retires at most one worker. Called once per check interval.
+     *
+     * @param now current time in milliseconds
+     */
+    public synchronized void checkScaling(final long now) {
+
+        stopDrainedWorkers();
+
+        final Worker[] workers = this.workers;
+        long pending = 0;
+        long completedSinceCheck = 0;
+        for (Worker worker : workers) {
+            final long workerPending = worker.pendingCalls();
+            final long dispatched = worker.dispatched.get();
+            if (workerPending > 0 || dispatched != worker.lastDispatched) {
+                worker.lastBusy = now;
+            }
+            worker.lastDispatched = dispatched;
+            pending += workerPending;
+            completedSinceCheck += worker.completedSinceCheck();
+        }
+
+        /* Little's law: the wait is the backlog divided by the rate calls get done. */
+        final long elapsed = Math.max(1, now - lastCheck);
+        final long sojournMillis = completedSinceCheck > 0 ? pending * elapsed / completedSinceCheck
+                : pending > 0 ? Long.MAX_VALUE : 0;
+        lastCheck = now;
+
+        final boolean backedUp = scaleUpPendingCalls > 0 && pending >= scaleUpPendingCalls * workers.length;
+        final boolean slow = scaleUpSojournMillis > 0 && sojournMillis >= scaleUpSojournMillis;
+
+        if (backedUp || slow) {
+            if (workers.length < maxWorkers) {
+                final Worker[] grown = Arrays.copyOf(workers, workers.length + 1);
+                grown[workers.length] = newWorker(now);
+                this.workers = grown;
+                lastScaleUp = now;
+                scaleUps++;
+                scaled(now, grown.length, pending, sojournMillis, true);
+            }
+            return;
+        }
+
+        if (workers.length <= minWorkers || now - lastScaleUp < cooldownMillis) {
+            return;
+        }
+
+        for (int index = workers.length - 1; index >= 0; index--) {
+            if (now - workers[index].lastBusy >= cooldownMillis) {
+                final Worker[] shrunk = new Worker[workers.length - 1];
+                System.arraycopy(workers, 0, shrunk, 0, index);
+                System.arraycopy(workers, index + 1, shrunk, index, shrunk.length - index);
+                this.workers = shrunk;
+                retiring.add(workers[index]);
+                scaleDowns++;
+                scaled(now, shrunk.length, pending, sojournMillis, false);
+                return;
+            }
+        }
+    }
+
+    /**
+     * A retired worker is stopped one check after it was retired, so a call dispatched by a thread that
+     * still had the old workers is counted before its pending calls are looked at.
+     */
+    private void stopDrainedWorkers() {
+        for (Iterator<Worker> iterator = retiring.iterator(); iterator.hasNext(); ) {
+            final Worker worker = iterator.next();
+            if (worker.retireChecks++ > 0 && worker.pendingCalls() == 0) {
+                worker.stop();
+                iterator.remove();
+            } else {
+                worker.sendQueue.flushSends();
+            }
+        }
+    }
+
+    private void scaled(final long now, final int workerCount, final long pending,
+                        final long sojournMillis, final boolean up) {
+
+        logger.info("ElasticServiceWorkers::checkScaling() {} {} to {} workers, pending {}, sojourn millis {}",
+                name, up ? "grew" : "shrank", workerCount, pending,
+                sojournMillis == Long.MAX_VALUE ? "stalled" : sojournMillis);
+
+        if (statsRecorder != null) {
+            statsRecorder.recordAllCounts(now, statNames, new int[]{workerCount, toInt(pending),
+                    toInt(sojournMillis), up ? 1 : 0, up ? 0 : 1});
+        }
+    }
+
+    private static int toInt(final long value) {
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    private Worker newWorker(final long now) {
+
+        final ServiceQueue serviceQueue = workerSupplier.get();
+        if (startServices) {
+            serviceQueue.start();
+        }
+
+        final SendQueue<MethodCall<Object>> sendQueue;
+        if (flushInterval > 0) {
+            sendQueue = serviceQueue.requestsWithAutoFlush(flushInterval, flushTimeUnit);
+            sendQueue.start();
+        } else {
+            sendQueue = serviceQueue.requests();
+        }
+        return new Worker(serviceQueue, sendQueue, now);
+    }
+
+    /**
+     * @return number of workers taking calls
+     */
+    public int workerCount() {
+        return workers.length;
+    }
+
+    /**
+     * @return pending calls of each worker taking calls
+     */
+    public long[] pendingCallsByWorker() {
+        final Worker[] workers = this.workers;
+        final long[] pending = new long[workers.length];
+        for (int index = 0; index < pending.length; index++) {
+            pending[index] = workers[index].pendingCalls();
+        }
+        return pending;
+    }
+
+    public long scaleUps() {
+        return scaleUps;
+    }
+
+    public long scaleDowns() {
+        return scaleDowns;
+    }
+
+    @Override
+    public void flush() {
+        for (Worker worker : workers) {
+            worker.sendQueue.flushSends();
+            worker.serviceQueue.flush();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+
+        if (scheduledFuture != null) {
+            scheduledFuture.cancel(false);
+            scheduledFuture = null;
+        }
+
+        for (Worker worker : workers) {
+            worker.stop();
+        }
+        for (Worker worker : retiring) {
+            worker.stop();
+        }
+        retiring.clear();
+        workers = new Worker[0];
+    }
+
+    private static final class Worker {
+
+        private final ServiceQueue serviceQueue;
+        private final SendQueue<MethodCall<Object>> sendQueue;
+        private final AtomicLong dispatched = new AtomicLong();
+
+        /* Only used by checkScaling. */
+        private long lastBusy;
+        private long lastDispatched;
+        private long lastHandled;
+        private int retireChecks;
+
+        private Worker(final ServiceQueue serviceQueue, final SendQueue<MethodCall<Object>> sendQueue,
+                       final long now) {
+            this.serviceQueue = serviceQueue;
+            this.sendQueue = sendQueue;
+            this.lastBusy = now;
+        }
+
+        private long pendingCalls() {
+            final long handled = serviceQueue.callsHandled();
+            if (handled < 0) {
+                return 0;
+            }
+            return Math.max(0, dispatched.get() - handled);
+        }
+
+        /**
+         * Calls this worker finished since the last check. Counted per worker so retiring one does not
+         * take its lifetime count out of the total.
+         */
+        private long completedSinceCheck() {
+            final long handled = serviceQueue.callsHandled();
+            if (handled < 0) {
+                return 0;
+            }
+            final long completed = Math.max(0, handled - lastHandled);
+            lastHandled = handled;
+            return completed;
+        }
+
+        private void stop() {
+            sendQueue.stop();
+            serviceQueue.stop();
+        }
+    }
+}
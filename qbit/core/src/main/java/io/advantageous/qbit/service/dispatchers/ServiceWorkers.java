@@ -63,6 +63,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
 
 /**
  * @author  rhightower
@@ -82,6 +84,29 @@ public class ServiceWorkers implements ServiceMethodDispatcher {
         return new RoundRobinServiceDispatcher();
     }
 
+    public static LeastLoadedServiceDispatcher leastLoadedWorkers() {
+        return new LeastLoadedServiceDispatcher();
+    }
+
+    public static LeastLoadedServiceDispatcher leastLoadedWorkers(int flushInterval, TimeUnit timeUnit) {
+        return new LeastLoadedServiceDispatcher(flushInterval, timeUnit);
+    }
+
+    public static PowerOfTwoChoicesServiceDispatcher powerOfTwoChoicesWorkers() {
+        return new PowerOfTwoChoicesServiceDispatcher();
+    }
+
+    public static PowerOfTwoChoicesServiceDispatcher powerOfTwoChoicesWorkers(int flushInterval, TimeUnit timeUnit) {
+        return new PowerOfTwoChoicesServiceDispatcher(flushInterval, timeUnit);
+    }
+
+    /**
+     * Worker pool that adds workers from the supplier when calls back up and retires them when idle.
+     */
+    public static ElasticServiceWorkers elasticWorkers(final Supplier<ServiceQueue> workerSupplier) {
+        return new ElasticServiceWorkers(workerSupplier);
+    }
+
     public static ShardedMethodDispatcher shardedWorkers(final ShardRule shardRule) {
         return new ShardedMethodDispatcher(shardRule);
     }
@@ -93,48 +118,68 @@ public class ServiceWorkers implements ServiceMethodDispatcher {
 
     public static ShardedMethodDispatcher shardOnFirstArgumentWorkers() {
         return new ShardedMethodDispatcher((methodName, methodArgs, numWorkers) -> {
-            int shardKey =  methodArgs[0].hashCode() % numWorkers;
-            return shardKey;
+            return shardIndex(methodArgs[0].hashCode(), numWorkers);
         });
     }
 
 
     public static ShardedMethodDispatcher shardOnSecondArgumentWorkers() {
         return new ShardedMethodDispatcher((methodName, methodArgs, numWorkers) -> {
-            int shardKey =  methodArgs[1].hashCode() % numWorkers;
-            return shardKey;
+            return shardIndex(methodArgs[1].hashCode(), numWorkers);
         });
     }
 
 
     public static ShardedMethodDispatcher shardOnThirdArgumentWorkers() {
         return new ShardedMethodDispatcher((methodName, methodArgs, numWorkers) -> {
-            int shardKey =  methodArgs[2].hashCode() % numWorkers;
-            return shardKey;
+            return shardIndex(methodArgs[2].hashCode(), numWorkers);
         });
     }
 
 
     public static ShardedMethodDispatcher shardOnFourthArgumentWorkers() {
         return new ShardedMethodDispatcher((methodName, methodArgs, numWorkers) -> {
-            int shardKey =  methodArgs[3].hashCode() % numWorkers;
-            return shardKey;
+            return shardIndex(methodArgs[3].hashCode(), numWorkers);
         });
     }
 
 
     public static ShardedMethodDispatcher shardOnFifthArgumentWorkers() {
         return new ShardedMethodDispatcher((methodName, methodArgs, numWorkers) -> {
-            int shardKey =  methodArgs[4].hashCode() % numWorkers;
-            return shardKey;
+            return shardIndex(methodArgs[4].hashCode(), numWorkers);
         });
     }
 
 
+    /**
+     * Shards on the first argument with a consistent hash ring, so adding or removing a worker
+     * only moves the keys of one worker's share of the ring.
+     */
+    public static ShardedMethodDispatcher consistentHashWorkers() {
+        return new ShardedMethodDispatcher(ConsistentHashShardRule.consistentHashShardRule(args -> args[0]));
+    }
+
+    public static ShardedMethodDispatcher consistentHashWorkers(final int flushInterval, final TimeUnit timeUnit,
+                                                                final ConsistentHashShardRule shardRule) {
+        return new ShardedMethodDispatcher(flushInterval, timeUnit, shardRule);
+    }
+
+    /**
+     * Turns a hash or shard number into a worker index, including negative values and Integer.MIN_VALUE.
+     *
+     * @param shard      hash or shard number
+     * @param numWorkers number of workers
+     * @return index from 0 to numWorkers - 1
+     */
+    public static int shardIndex(final int shard, final int numWorkers) {
+        final int index = shard % numWorkers;
+        return index >= 0 ? index : -index;
+    }
+
+
     public static ShardedMethodDispatcher shardOnBeanPath(final String beanPath) {
         return new ShardedMethodDispatcher((methodName, methodArgs, numWorkers) -> {
-            int shardKey =  BeanUtils.idx(methodArgs, beanPath).hashCode() % numWorkers;
-            return shardKey;
+            return shardIndex(BeanUtils.idx(methodArgs, beanPath).hashCode(), numWorkers);
         });
     }
 
@@ -146,6 +191,10 @@ public class ServiceWorkers implements ServiceMethodDispatcher {
     protected List<ServiceQueue> serviceQueues = new ArrayList<>();
     protected List<SendQueue<MethodCall<Object>>> sendQueues = new ArrayList<>();
     protected AtomicInteger index = new AtomicInteger();
+    /**
+     * Calls sent to each worker, compared with what each worker has taken off its queue to get its depth.
+     */
+    protected AtomicLongArray dispatched = new AtomicLongArray(0);
 
 
     public ServiceWorkers(boolean startServices) {
@@ -197,6 +246,8 @@ public class ServiceWorkers implements ServiceMethodDispatcher {
             }
         }
 
+        dispatched = new AtomicLongArray(serviceQueues.size());
+
         for (ServiceQueue serviceQueue : serviceQueues) {
             if (flushInterval > 0) {
                 SendQueue<MethodCall<Object>> methodCallSendQueue = serviceQueue.requestsWithAutoFlush(flushInterval, timeUnit);
@@ -213,11 +264,74 @@ public class ServiceWorkers implements ServiceMethodDispatcher {
     public void accept(MethodCall<Object> methodCall) {
 
 
-        int localIndex = index.getAndIncrement() % serviceQueues.size();
+        int localIndex = (index.getAndIncrement() & Integer.MAX_VALUE) % serviceQueues.size();
+
+        dispatch(localIndex, methodCall);
+
+    }
 
-        final SendQueue<MethodCall<Object>> methodCallSendQueue = sendQueues.get(localIndex);
-        methodCallSendQueue.send(methodCall);
+    /**
+     * Sends the call to a worker and counts it against the worker's depth.
+     *
+     * @param worker     worker index
+     * @param methodCall method call
+     */
+    protected void dispatch(final int worker, final MethodCall<Object> methodCall) {
+        dispatched.incrementAndGet(worker);
+        sendQueues.get(worker).send(methodCall);
+    }
+
+    /**
+     * Calls sent to a worker that it has not finished yet: the call it is running, its queue, and calls still
+     * buffered in the auto flushing send queues.
+     *
+     * @param worker worker index
+     * @return queue depth, or 0 if the worker's service queue does not count calls
+     */
+    public long pendingCalls(final int worker) {
+        final long handled = serviceQueues.get(worker).callsHandled();
+        if (handled < 0) {
+            return 0;
+        }
+        return Math.max(0, dispatched.get(worker) - handled);
+    }
 
+    /**
+     * @return queue depth of each worker
+     */
+    public long[] pendingCallsByWorker() {
+        final long[] pending = new long[serviceQueues.size()];
+        for (int worker = 0; worker < pending.length; worker++) {
+            pending[worker] = pendingCalls(worker);
+        }
+        return pending;
+    }
+
+    /**
+     * @return calls sent to each worker since start
+     */
+    public long[] dispatchedByWorker() {
+        final long[] counts = new long[dispatched.length()];
+        for (int worker = 0; worker < counts.length; worker++) {
+            counts[worker] = dispatched.get(worker);
+        }
+        return counts;
+    }
+
+    /**
+     * @return index of the worker with the fewest pending calls, the lowest index on ties
+     */
+    public int leastLoadedWorker() {
+        int best = 0;
+        long bestPending = Long.MAX_VALUE;
+        for (int worker = 0; worker < serviceQueues.size(); worker++) {
+            final long pending = pendingCalls(worker);
+            if (pending < bestPending) {
+                best = worker;
+                bestPending = pending;
+            }
+        }
+        return best;
     }
 
     public void flush() {
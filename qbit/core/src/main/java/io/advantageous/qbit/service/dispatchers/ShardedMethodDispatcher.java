@@ -24,9 +24,10 @@
 package io.advantageous.qbit.service.dispatchers;
 
 import io.advantageous.qbit.message.MethodCall;
-import io.advantageous.qbit.queue.SendQueue;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
 
 /**
  * @author  rhightower
@@ -37,6 +38,19 @@ public class ShardedMethodDispatcher extends ServiceWorkers {
 
     private final ShardRule shardRule;
 
+    /**
+     * Queue depth at which a shard counts as hot. 0 turns hot shard relocation off.
+     */
+    private long hotShardDepth;
+
+    /**
+     * Picks the calls that do not need to run in order with other calls for the same key,
+     * so they can be moved off a hot shard.
+     */
+    private Predicate<MethodCall<Object>> relocatable = methodCall -> false;
+
+    private AtomicLongArray relocated = new AtomicLongArray(0);
+
 
     public ShardedMethodDispatcher(final ShardRule shardRule) {
 
@@ -48,16 +62,70 @@ public class ShardedMethodDispatcher extends ServiceWorkers {
        this.shardRule = shardRule;
     }
 
+    /**
+     * Moves relocatable calls off a shard once its queue is this deep, to the least loaded worker,
+     * if that worker's queue is no more than half as deep.
+     *
+     * @param hotShardDepth queue depth, 0 for never
+     * @return this
+     */
+    public ShardedMethodDispatcher setHotShardDepth(final long hotShardDepth) {
+        this.hotShardDepth = hotShardDepth;
+        return this;
+    }
+
+    public ShardedMethodDispatcher setRelocatable(final Predicate<MethodCall<Object>> relocatable) {
+        this.relocatable = relocatable;
+        return this;
+    }
+
+    public long getHotShardDepth() {
+        return hotShardDepth;
+    }
+
+    @Override
+    public ShardedMethodDispatcher start() {
+        relocated = new AtomicLongArray(serviceQueues.size());
+        super.start();
+        return this;
+    }
+
     @Override
     public void accept(final MethodCall<Object> methodCall) {
 
         final Object[] args = methodCall.args();
         final int shard = shardRule.shard(methodCall.name(), args, serviceQueues.size());
 
-        final int index = shard >=0 ? shard : shard * -1;
+        int index = shardIndex(shard, serviceQueues.size());
 
-        final SendQueue<MethodCall<Object>> methodCallSendQueue = sendQueues.get(index) ;
+        if (hotShardDepth > 0) {
+            index = relocateIfHot(index, methodCall);
+        }
+
+        dispatch(index, methodCall);
+    }
+
+    private int relocateIfHot(final int index, final MethodCall<Object> methodCall) {
+        final long depth = pendingCalls(index);
+        if (depth < hotShardDepth || !relocatable.test(methodCall)) {
+            return index;
+        }
+        final int coolest = leastLoadedWorker();
+        if (coolest == index || pendingCalls(coolest) * 2 > depth) {
+            return index;
+        }
+        relocated.incrementAndGet(index);
+        return coolest;
+    }
 
-        methodCallSendQueue.send(methodCall);
+    /**
+     * @return calls moved off each shard because it was hot
+     */
+    public long[] relocatedByShard() {
+        final long[] counts = new long[relocated.length()];
+        for (int shard = 0; shard < counts.length; shard++) {
+            counts[shard] = relocated.get(shard);
+        }
+        return counts;
     }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service.impl;
+
+import java.util.Arrays;
+
+/**
+ * Immutable radix tree that routes method call addresses to service dispatchers.
+ * <p>
+ * Adding an address returns a new router that shares every node off the changed path,
+ * so the bundle can publish it with a volatile write and readers never lock.
+ * A lookup walks the address once and returns the exact match if there is one, otherwise
+ * the value of the longest registered prefix address that is a prefix of it.
+ *
+ * @param <T> value type
+ */
+final class AddressRouter<T> {
+
+    private static final AddressRouter<Object> EMPTY = new AddressRouter<>(new Node<>("", null, false));
+
+    private final Node<T> root;
+
+    private AddressRouter(final Node<T> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> AddressRouter<T> empty() {
+        return (AddressRouter<T>) EMPTY;
+    }
+
+    /**
+     * Returns a router with the address added.
+     *
+     * @param address address
+     * @param value   value for the address
+     * @param prefix  true if addresses that start with this address route to it as well
+     * @return new router, this router is unchanged
+     */
+    AddressRouter<T> with(final String address, final T value, final boolean prefix) {
+        return new AddressRouter<>(insert(root, address, 0, value, prefix));
+    }
+
+    /**
+     * Looks up an address.
+     *
+     * @param address address
+     * @return the exact match, else the longest matching prefix address, else null
+     */
+    T get(final String address) {
+        Node<T> node = root;
+        T best = node.prefix ? node.value : null;
+        int position = 0;
+        final int length = address.length();
+
+        while (position < length) {
+            final Node<T> child = node.child(address.charAt(position));
+            if (child == null) {
+                return best;
+            }
+            final String label = child.label;
+            if (!address.regionMatches(position, label, 0, label.length())) {
+                return best;
+            }
+            position += label.length();
+            node = child;
+            if (node.prefix) {
+                best = node.value;
+            }
+        }
+        return node.value != null ? node.value : best;
+    }
+
+    private static <T> Node<T> insert(final Node<T> node, final String key, final int position,
+                                      final T value, final boolean prefix) {
+        if (position == key.length()) {
+            return node.withValue(value, prefix || node.prefix);
+        }
+
+        final int index = node.indexOf(key.charAt(position));
+        if (index < 0) {
+            return node.withChild(new Node<>(key.substring(position), value, prefix));
+        }
+
+        final Node<T> child = node.children[index];
+        final String label = child.label;
+        int common = 1;
+        while (common < label.length() && position + common < key.length()
+                && label.charAt(common) == key.charAt(position + common)) {
+            common++;
+        }
+
+        if (common == label.length()) {
+            return node.withChild(insert(child, key, position + common, value, prefix));
+        }
+
+        Node<T> split = new Node<T>(label.substring(0, common), null, false)
+                .withChild(child.withLabel(label.substring(common)));
+        split = insert(split, key, position + common, value, prefix);
+        return node.withChild(split);
+    }
+
+    private static final class Node<T> {
+
+        private final String label;
+        private final T value;
+        private final boolean prefix;
+        /* Sorted first characters of the children's labels, parallel to children. */
+        private final char[] firsts;
+        private final Node<T>[] children;
+
+        private Node(final String label, final T value, final boolean prefix) {
+            this(label, value, prefix, new char[0], newChildren(0));
+        }
+
+        private Node(final String label, final T value, final boolean prefix,
+                     final char[] firsts, final Node<T>[] children) {
+            this.label = label;
+            this.value = value;
+            this.prefix = prefix;
+            this.firsts = firsts;
+            this.children = children;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newChildren(final int size) {
+            return (Node<T>[]) new Node[size];
+        }
+
+        private int indexOf(final char first) {
+            return Arrays.binarySearch(firsts, first);
+        }
+
+        private Node<T> child(final char first) {
+            final int index = Arrays.binarySearch(firsts, first);
+            return index < 0 ? null : children[index];
+        }
+
+        private Node<T> withValue(final T value, final boolean prefix) {
+            return new Node<>(label, value, prefix, firsts, children);
+        }
+
+        private Node<T> withLabel(final String label) {
+            return new Node<>(label, value, prefix, firsts, children);
+        }
+
+        /**
+         * Adds the child, or replaces the child whose label starts with the same character.
+         */
+        private Node<T> withChild(final Node<T> child) {
+            final char first = child.label.charAt(0);
+            int index = indexOf(first);
+            final char[] newFirsts;
+            final Node<T>[] newChildren;
+            if (index >= 0) {
+                newFirsts = firsts;
+                newChildren = children.clone();
+            } else {
+                index = -index - 1;
+                newFirsts = new char[firsts.length + 1];
+                newChildren = newChildren(children.length + 1);
+                System.arraycopy(firsts, 0, newFirsts, 0, index);
+                System.arraycopy(children, 0, newChildren, 0, index);
+                System.arraycopy(firsts, index, newFirsts, index + 1, firsts.length - index);
+                System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+                newFirsts[index] = first;
+            }
+            newChildren[index] = child;
+            return new Node<>(label, value, prefix, newFirsts, newChildren);
+        }
+    }
+}
@@ -48,9 +48,11 @@ package io.advantageous.qbit.service.impl;
 import io.advantageous.boon.core.reflection.BeanUtils;
 import io.advantageous.qbit.GlobalConstants;
 import io.advantageous.qbit.client.ClientProxy;
+import io.advantageous.qbit.client.ProxyMethods;
 import io.advantageous.qbit.concurrent.PeriodicScheduler;
 import io.advantageous.qbit.events.EventManager;
 import io.advantageous.qbit.message.*;
+import io.advantageous.qbit.message.impl.ResponseImpl;
 import io.advantageous.qbit.queue.*;
 import io.advantageous.qbit.service.*;
 import io.advantageous.qbit.system.QBitSystemManager;
@@ -61,13 +63,18 @@ import io.advantageous.qbit.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 import static io.advantageous.qbit.QBit.factory;
 import static io.advantageous.qbit.service.ServiceContext.serviceContext;
@@ -77,6 +84,8 @@ import static io.advantageous.qbit.service.ServiceContext.serviceContext;
  */
 public class BaseServiceQueueImpl implements ServiceQueue {
     private static ThreadLocal<ServiceQueue> serviceThreadLocal = new ThreadLocal<>();
+    /* Call the service thread is running, so proxy calls made from the service can inherit its deadline. */
+    private static final ThreadLocal<MethodCall<Object>> currentCallThreadLocal = new ThreadLocal<>();
     protected final QBitSystemManager systemManager;
     protected final Logger logger = LoggerFactory.getLogger(ServiceQueueImpl.class);
     protected final boolean debug = false || GlobalConstants.DEBUG || logger.isDebugEnabled();
@@ -101,6 +110,14 @@ public class BaseServiceQueueImpl implements ServiceQueue {
     private Transformer<Request, Object> requestObjectTransformer = ServiceConstants.NO_OP_ARG_TRANSFORM;
     private Transformer<Response<Object>, Response> responseObjectTransformer = new NoOpResponseTransformer();
     private CallbackManager callbackManager;
+    private final LongAdder callsHandled = new LongAdder();
+    private final LongAdder expiredCalls = new LongAdder();
+    /* Calls to @BatchHandler methods collected in the current request queue batch, only used by the queue thread. */
+    private final Map<String, List<MethodCall<Object>>> batchedCalls = new LinkedHashMap<>();
+    /* Latency histograms per method, recorded by the queue thread. Null if method stats are off. */
+    private MethodStats methodStats;
+    /* Sheds calls that waited too long in the request queue, used by the queue thread. Null if shedding is off. */
+    private LoadShedder loadShedder;
 
     public BaseServiceQueueImpl(final String rootAddress,
                                 final String serviceAddress,
@@ -120,6 +137,10 @@ public class BaseServiceQueueImpl implements ServiceQueue {
             this.requestQueueBuilder = BeanUtils.copy(requestQueueBuilder);
         }
 
+        if (this.requestQueueBuilder.getHighWaterMark() > 0 && this.requestQueueBuilder.getRejectionHandler() == null) {
+            this.requestQueueBuilder.setRejectionHandler(this::rejectMethodCall);
+        }
+
         if (responseQueueBuilder == null) {
             this.responseQueueBuilder = new QueueBuilder();
         } else {
@@ -141,7 +162,10 @@ public class BaseServiceQueueImpl implements ServiceQueue {
         this.service = service;
         this.serviceMethodHandler = serviceMethodHandler;
         this.serviceMethodHandler.init(service, rootAddress, serviceAddress, responseSendQueue);
-        this.eventQueue = this.requestQueueBuilder.setName("Event Queue" + serviceMethodHandler.address()).build();
+        final Predicate<Object> priorityLane = priorityLane(this.requestQueueBuilder.getPriorityLane(), serviceMethodHandler);
+        this.eventQueue = this.requestQueueBuilder.setPriorityLane(null)
+                .setName("Event Queue" + serviceMethodHandler.address()).build();
+        this.requestQueueBuilder.setPriorityLane(priorityLane);
         this.handleCallbacks = handleCallbacks;
         this.requestQueue = initRequestQueue(serviceMethodHandler, async);
         this.systemManager = systemManager;
@@ -149,10 +173,36 @@ public class BaseServiceQueueImpl implements ServiceQueue {
 
     }
 
+    /**
+     * Adds the methods marked {@code @Priority(HIGH)} to the lane predicate the builder came with, if any.
+     * Services with no marked methods only get lanes if the builder asked for them.
+     */
+    private static Predicate<Object> priorityLane(final Predicate<Object> priorityLane,
+                                                  final ServiceMethodHandler serviceMethodHandler) {
+
+        if (serviceMethodHandler.priorityMethodNames().isEmpty() && serviceMethodHandler.priorityAddresses().isEmpty()) {
+            return priorityLane;
+        }
+
+        /* A MethodCallPriority from the builder may be shared, so register in a new one. */
+        final MethodCallPriority methodCallPriority = new MethodCallPriority().register("",
+                serviceMethodHandler.priorityMethodNames(), serviceMethodHandler.priorityAddresses());
+
+        if (priorityLane == null || priorityLane instanceof MethodCallPriority) {
+            return methodCallPriority;
+        }
+        return priorityLane.or(methodCallPriority);
+    }
+
     public static ServiceQueue currentService() {
         return serviceThreadLocal.get();
     }
 
+    public static long currentDeadline() {
+        final MethodCall<Object> methodCall = currentCallThreadLocal.get();
+        return methodCall == null ? 0L : methodCall.deadline();
+    }
+
     @Override
     public ServiceQueue start() {
 
@@ -272,8 +322,28 @@ public class BaseServiceQueueImpl implements ServiceQueue {
      * @param methodCall           methodCall
      * @param serviceMethodHandler handler
      */
-    private void doHandleMethodCall(MethodCall<Object> methodCall,
+    private void doHandleMethodCall(final MethodCall<Object> methodCall,
                                     final ServiceMethodHandler serviceMethodHandler) {
+        doHandleMethodCall(methodCall, serviceMethodHandler, false);
+    }
+
+    /**
+     * @param collectBatches true when called from the request queue listener, which flushes batched calls
+     *                       at the end of each batch
+     */
+    private void doHandleMethodCall(final MethodCall<Object> methodCall,
+                                    final ServiceMethodHandler serviceMethodHandler,
+                                    final boolean collectBatches) {
+        try {
+            handleMethodCall(methodCall, serviceMethodHandler, collectBatches);
+        } finally {
+            callsHandled.increment();
+        }
+    }
+
+    private void handleMethodCall(MethodCall<Object> methodCall,
+                                  final ServiceMethodHandler serviceMethodHandler,
+                                  final boolean collectBatches) {
         if (debug) {
             logger.debug("ServiceImpl::doHandleMethodCall() METHOD CALL" + methodCall);
         }
@@ -281,16 +351,77 @@ public class BaseServiceQueueImpl implements ServiceQueue {
             callbackManager.registerCallbacks(methodCall);
         }
         inputQueueListener.receive(methodCall);
-        final boolean continueFlag[] = new boolean[1];
-        methodCall = beforeMethodProcessing(methodCall, continueFlag);
-        if (continueFlag[0]) {
+        if (methodCall.deadline() != 0L && methodCall.expired(Timer.timer().now())) {
+            expireMethodCall(methodCall);
+            return;
+        }
+        if (collectBatches && loadShedder != null) {
+            final long now = Timer.timer().now();
+            if (!loadShedder.admit(now - methodCall.receivedTime(), now)) {
+                sendErrorResponse(methodCall,
+                        new ServiceOverloadedException("Call shed, service is overloaded", methodCall.address()));
+                return;
+            }
+        }
+        methodCall = beforeMethodProcessing(methodCall);
+        if (methodCall == null) {
             if (debug) logger.debug("ServiceImpl::doHandleMethodCall() before handling stopped processing");
             return;
         }
-        Response<Object> response = serviceMethodHandler.receiveMethodCall(methodCall);
+
+        final String batchHandler = serviceMethodHandler.batchHandler(methodCall);
+        if (batchHandler != null) {
+            if (collectBatches) {
+                batchedCalls.computeIfAbsent(batchHandler, name -> new ArrayList<>()).add(methodCall);
+            } else {
+                sendResponse(methodCall, serviceMethodHandler.receiveMethodCallBatch(batchHandler,
+                        Collections.singletonList(methodCall)).get(0));
+            }
+            return;
+        }
+
+        final boolean timed = collectBatches && methodStats != null;
+        final long started = timed ? System.nanoTime() : 0L;
+        final Response<Object> response;
+        currentCallThreadLocal.set(methodCall);
+        try {
+            response = serviceMethodHandler.receiveMethodCall(methodCall);
+        } finally {
+            currentCallThreadLocal.set(null);
+        }
+        if (timed) {
+            methodStats.record(methodCall, System.nanoTime() - started);
+        }
         if (debug) {
             logger.debug("ServiceImpl::receive() \nRESPONSE\n" + response + "\nFROM CALL\n" + methodCall + " name " + methodCall.name() + "\n\n");
         }
+        sendResponse(methodCall, response);
+    }
+
+    /**
+     * Hands each {@code @BatchHandler} method the calls to it collected in this request queue batch.
+     *
+     * @param serviceMethodHandler handler
+     */
+    private void flushBatchedCalls(final ServiceMethodHandler serviceMethodHandler) {
+        if (batchedCalls.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, List<MethodCall<Object>>> entry : batchedCalls.entrySet()) {
+            final List<MethodCall<Object>> methodCalls = entry.getValue();
+            if (methodCalls.isEmpty()) {
+                continue;
+            }
+            final List<Response<Object>> responses =
+                    serviceMethodHandler.receiveMethodCallBatch(entry.getKey(), methodCalls);
+            for (int index = 0; index < methodCalls.size(); index++) {
+                sendResponse(methodCalls.get(index), responses.get(index));
+            }
+            methodCalls.clear();
+        }
+    }
+
+    private void sendResponse(final MethodCall<Object> methodCall, Response<Object> response) {
         if (response != ServiceConstants.VOID) {
 
             if (!afterMethodCall.after(methodCall, response)) {
@@ -311,6 +442,43 @@ public class BaseServiceQueueImpl implements ServiceQueue {
         }
     }
 
+    /**
+     * Flow control turned this call away. Answer it with an error so the caller is not left waiting.
+     *
+     * @param item rejected item
+     */
+    @SuppressWarnings("unchecked")
+    private void rejectMethodCall(final Object item) {
+        if (!(item instanceof MethodCall)) {
+            return;
+        }
+        callsHandled.increment();
+        final MethodCall<Object> methodCall = (MethodCall<Object>) item;
+        sendErrorResponse(methodCall,
+                new ServiceOverloadedException("Call rejected, service is overloaded", methodCall.address()));
+    }
+
+    /**
+     * The caller gave up on this call while it sat in the queue. Answer it with an error instead of running it.
+     *
+     * @param methodCall expired call
+     */
+    private void expireMethodCall(final MethodCall<Object> methodCall) {
+        expiredCalls.increment();
+        sendErrorResponse(methodCall,
+                new ServiceDeadlineExceededException("Call dropped, deadline passed", methodCall.address()));
+    }
+
+    private void sendErrorResponse(final MethodCall<Object> methodCall, final Exception error) {
+        final Response<Object> response = new ResponseImpl<>(methodCall, error);
+        responseLock.lock();
+        try {
+            responseSendQueue.send(response);
+        } finally {
+            responseLock.unlock();
+        }
+    }
+
     private void start(final ServiceMethodHandler serviceMethodHandler,
                        final boolean joinEventManager) {
 
@@ -339,11 +507,15 @@ public class BaseServiceQueueImpl implements ServiceQueue {
 
             @Override
             public void receive(MethodCall<Object> methodCall) {
-                doHandleMethodCall(methodCall, serviceMethodHandler);
+                doHandleMethodCall(methodCall, serviceMethodHandler, true);
             }
 
             @Override
             public void empty() {
+                if (loadShedder != null) {
+                    loadShedder.empty();
+                }
+                flushBatchedCalls(serviceMethodHandler);
                 handle();
                 inputQueueListener.empty();
                 serviceMethodHandler.empty();
@@ -357,6 +529,7 @@ public class BaseServiceQueueImpl implements ServiceQueue {
 
             @Override
             public void limit() {
+                flushBatchedCalls(serviceMethodHandler);
                 handle();
                 inputQueueListener.limit();
                 serviceMethodHandler.limit();
@@ -364,6 +537,7 @@ public class BaseServiceQueueImpl implements ServiceQueue {
 
             @Override
             public void shutdown() {
+                flushBatchedCalls(serviceMethodHandler);
                 handle();
                 inputQueueListener.shutdown();
                 serviceMethodHandler.shutdown();
@@ -400,6 +574,9 @@ public class BaseServiceQueueImpl implements ServiceQueue {
                     event = eventReceiveQueue.poll();
                 }
                 flushEventManagerCalls();
+                if (methodStats != null) {
+                    methodStats.publishIfDue();
+                }
             }
 
         });
@@ -426,9 +603,15 @@ public class BaseServiceQueueImpl implements ServiceQueue {
         }
     }
 
-    private MethodCall<Object> beforeMethodProcessing(MethodCall<Object> methodCall, boolean[] continueFlag) {
-        if (!beforeMethodCall.before(methodCall)) {
-            continueFlag[0] = false;
+    /**
+     * Runs the before hooks and the argument transformer.
+     *
+     * @param methodCall method call
+     * @return the call to invoke, or null if a before hook stopped it
+     */
+    private MethodCall<Object> beforeMethodProcessing(MethodCall<Object> methodCall) {
+        if (beforeMethodCall != ServiceConstants.NO_OP_BEFORE_METHOD_CALL && !beforeMethodCall.before(methodCall)) {
+            return null;
         }
         if (requestObjectTransformer != null && requestObjectTransformer != ServiceConstants.NO_OP_ARG_TRANSFORM) {
             final Object arg = requestObjectTransformer.transform(methodCall);
@@ -436,7 +619,7 @@ public class BaseServiceQueueImpl implements ServiceQueue {
         }
         if (beforeMethodCallAfterTransform != null && beforeMethodCallAfterTransform != ServiceConstants.NO_OP_BEFORE_METHOD_CALL) {
             if (!beforeMethodCallAfterTransform.before(methodCall)) {
-                continueFlag[0] = false;
+                return null;
             }
         }
         return methodCall;
@@ -531,44 +714,122 @@ public class BaseServiceQueueImpl implements ServiceQueue {
     private <T> T proxy(Class<T> serviceInterface, final SendQueue<MethodCall<Object>> methodCallSendQueue) {
 
         final String uuid = UUID.randomUUID().toString();
-        InvocationHandler invocationHandler = new InvocationHandler() {
+        final ProxyMethods<ProxyMethod> proxyMethods =
+                ProxyMethods.proxyMethods(ProxyMethod::new, serviceInterface, ClientProxy.class);
+
+        final ProxyMethods.Invoker<ProxyMethod> invoker = new ProxyMethods.Invoker<ProxyMethod>() {
 
             private long messageId = 0;
-            private long timestamp = Timer.timer().now();
-            private int times = 10;
 
             @Override
-            public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
-
-                if (method.getName().equals("toString")) {
-                    return "PROXY OBJECT" + address();
-                }
-                if (method.getName().equals("clientProxyFlush")) {
-                    methodCallSendQueue.flushSends();
-                    return null;
+            public Object invoke(final Object proxy, final ProxyMethod method, final Object[] args) {
+
+                switch (method.kind) {
+                    case TO_STRING:
+                        return "PROXY OBJECT" + address();
+                    case EQUALS:
+                        return proxy == args[0];
+                    case HASH_CODE:
+                        return System.identityHashCode(proxy);
+                    case FLUSH:
+                        methodCallSendQueue.flushSends();
+                        return null;
+                    case STOP:
+                        methodCallSendQueue.stop();
+                        return null;
                 }
 
-                if (method.getName().equals("stop")) {
-                    methodCallSendQueue.stop();
-                    return null;
-                }
                 messageId++;
-                times--;
-                if (times == 0) {
-                    timestamp = Timer.timer().now();
-                    times = 10;
-                } else {
-                    timestamp++;
-                }
-                final MethodCallLocal call = new MethodCallLocal(method.getName(), uuid, timestamp, messageId, args);
+                /* The service measures queue wait from the timestamp, so it is read for every call.
+                 * Calls made while a service is handling a call get what is left of that call's time. */
+                final MethodCallLocal call = new MethodCallLocal(method.name, uuid, Timer.timer().now(), messageId,
+                        args, currentDeadline());
                 methodCallSendQueue.send(call);
                 return null;
             }
         };
-        final Object o = Proxy.newProxyInstance(serviceInterface.getClassLoader(),
-                new Class[]{serviceInterface, ClientProxy.class}, invocationHandler
-        );
-        return (T) o;
+        return proxyMethods.newProxy(serviceInterface.getClassLoader(), invoker);
+    }
+
+    /**
+     * Local proxy methods that are handled by the proxy instead of being sent to the service.
+     */
+    private enum ProxyMethodKind {
+        TO_STRING, EQUALS, HASH_CODE, FLUSH, STOP, CALL;
+
+        static ProxyMethodKind kind(final Method method) {
+            switch (method.getName()) {
+                case "toString":
+                    return method.getParameterCount() == 0 ? TO_STRING : CALL;
+                case "equals":
+                    return method.getDeclaringClass() == Object.class ? EQUALS : CALL;
+                case "hashCode":
+                    return method.getDeclaringClass() == Object.class ? HASH_CODE : CALL;
+                case "clientProxyFlush":
+                    return FLUSH;
+                case "stop":
+                    return STOP;
+                default:
+                    return CALL;
+            }
+        }
+    }
+
+    private static final class ProxyMethod {
+
+        private final ProxyMethodKind kind;
+        private final String name;
+
+        private ProxyMethod(final Method method) {
+            this.kind = ProxyMethodKind.kind(method);
+            this.name = method.getName();
+        }
+    }
+
+    @Override
+    public long callsHandled() {
+        return callsHandled.sum();
+    }
+
+    /**
+     * @return calls dropped without being run because their deadline had passed
+     */
+    public long expiredCalls() {
+        return expiredCalls.sum();
+    }
+
+    /**
+     * Records latency histograms per method. Set it before the service is started. Only calls taken off of the
+     * request queue by the service thread are recorded.
+     *
+     * @param methodStats method stats, null for none
+     * @return this
+     */
+    public BaseServiceQueueImpl setMethodStats(final MethodStats methodStats) {
+        this.methodStats = methodStats;
+        return this;
+    }
+
+    /**
+     * Sheds calls once they keep waiting in the request queue longer than the shedder's target. Set it before the
+     * service is started. Shed calls are answered with a {@code ServiceOverloadedException}, which HTTP turns
+     * into a 503.
+     *
+     * @param loadShedder load shedder, null to run every call
+     * @return this
+     */
+    public BaseServiceQueueImpl setLoadShedder(final LoadShedder loadShedder) {
+        this.loadShedder = loadShedder;
+        return this;
+    }
+
+    public LoadShedder loadShedder() {
+        return loadShedder;
+    }
+
+    @Override
+    public Map<String, MethodLatency> methodLatencies() {
+        return methodStats == null ? Collections.emptyMap() : methodStats.lastInterval();
     }
 
     @Override
@@ -592,13 +853,16 @@ public class BaseServiceQueueImpl implements ServiceQueue {
 
         private final String uuid;
         private final long messageId;
+        private final long deadline;
 
-        public MethodCallLocal(String name, final String uuid, long timestamp, long messageId, Object[] args) {
+        public MethodCallLocal(String name, final String uuid, long timestamp, long messageId, Object[] args,
+                               long deadline) {
             this.name = name;
             this.timestamp = timestamp;
             this.arguments = args;
             this.uuid = uuid;
             this.messageId = messageId;
+            this.deadline = deadline;
         }
 
         @Override
@@ -641,6 +905,11 @@ public class BaseServiceQueueImpl implements ServiceQueue {
             return timestamp;
         }
 
+        @Override
+        public long deadline() {
+            return deadline;
+        }
+
         @Override
         public boolean isHandled() {
             return false;
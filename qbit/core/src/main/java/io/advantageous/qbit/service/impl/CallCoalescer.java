@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.boon.core.Str;
+import io.advantageous.qbit.bindings.UriRouteTrie;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.Response;
+import io.advantageous.qbit.message.impl.ResponseImpl;
+import io.advantageous.qbit.service.ServiceDeadlineExceededException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single flight for {@code @Idempotent} methods: while a call is waiting for its response, identical calls that come
+ * in within the coalescing window join it instead of being sent to the service, and get a copy of its response.
+ * <p>
+ * Calls are identical if they have the same method name, address, object name, arguments (callbacks left out)
+ * and request params. Methods are matched by name as in {@link MethodCallMatcher}, and by address template,
+ * so REST methods with path variables coalesce per distinct URI.
+ * <p>
+ * The window only limits how long calls can join. Calls that joined wait for the response for as long as the
+ * call they joined is allowed to take: until its deadline if it has one, otherwise for the in-flight timeout.
+ * <p>
+ * {@link #join(MethodCall, long)} is called from the thread that dispatches calls and {@link #complete(Response)}
+ * from the thread that handles responses.
+ */
+public class CallCoalescer {
+
+    /**
+     * How long calls that joined wait for a response by default, the same as a client's default timeout.
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30_000L;
+
+    private final long windowMillis;
+    private final long timeoutMillis;
+    private final MethodCallMatcher idempotentMethods = new MethodCallMatcher();
+    /* Replaced, never changed in place, when methods are registered, so matching does not lock. */
+    private volatile UriRouteTrie<Boolean> idempotentAddresses = new UriRouteTrie<>();
+    private final List<String> addressTemplates = new ArrayList<>();
+
+    private final Map<MethodCallKey, Flight> flights = new ConcurrentHashMap<>();
+    private final Map<ResponseKey, Flight> leaders = new ConcurrentHashMap<>();
+    private final LongAdder coalescedCalls = new LongAdder();
+
+    /**
+     * @param windowMillis how long after a call was sent identical calls can still join it
+     */
+    public CallCoalescer(final long windowMillis) {
+        this(windowMillis, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param windowMillis  how long after a call was sent identical calls can still join it
+     * @param timeoutMillis how long calls that joined wait for the response of a call that has no deadline
+     */
+    public CallCoalescer(final long windowMillis, final long timeoutMillis) {
+        this.windowMillis = windowMillis;
+        this.timeoutMillis = Math.max(windowMillis, timeoutMillis);
+    }
+
+    /**
+     * Registers idempotent methods.
+     *
+     * @param service          object name or service address the names belong to, empty for any
+     * @param methodNames      method names
+     * @param addressTemplates method address templates
+     * @return this
+     */
+    public synchronized CallCoalescer register(final String service,
+                                               final Collection<String> methodNames,
+                                               final Collection<String> addressTemplates) {
+        idempotentMethods.register(service, methodNames, Collections.emptyList());
+        if (!addressTemplates.isEmpty()) {
+            this.addressTemplates.addAll(addressTemplates);
+            final UriRouteTrie<Boolean> trie = new UriRouteTrie<>();
+            for (String template : this.addressTemplates) {
+                trie.put(template, Boolean.TRUE);
+            }
+            idempotentAddresses = trie;
+        }
+        return this;
+    }
+
+    public boolean isIdempotent(final MethodCall<Object> methodCall) {
+        if (Str.isEmpty(methodCall.name())) {
+            final String address = methodCall.address();
+            return address != null && idempotentAddresses.match(address, null) != null;
+        }
+        return idempotentMethods.matches(methodCall);
+    }
+
+    /**
+     * Joins the call to an identical call in flight, or makes it the call in flight for later ones to join.
+     *
+     * @param methodCall method call about to be sent to a service
+     * @param now        current time in milliseconds
+     * @return true if the call joined another one and must not be sent
+     */
+    public boolean join(final MethodCall<Object> methodCall, final long now) {
+
+        if (!isIdempotent(methodCall)) {
+            return false;
+        }
+
+        final Flight flight = flights.compute(new MethodCallKey(methodCall), (key, current) -> {
+            if (current != null && now - current.started < windowMillis && now < current.giveUpAt) {
+                current.followers.add(methodCall);
+                return current;
+            }
+            final long deadline = methodCall.deadline();
+            return new Flight(key, new ResponseKey(methodCall.returnAddress(), methodCall.id()), methodCall, now,
+                    deadline != 0L ? deadline : now + timeoutMillis);
+        });
+
+        if (flight.leader != methodCall) {
+            coalescedCalls.increment();
+            return true;
+        }
+        leaders.put(flight.responseKey, flight);
+        return false;
+    }
+
+    /**
+     * Ends the flight this response answers.
+     *
+     * @param response response from a service
+     * @return a copy of the response for each call that joined the answered call, empty if none did
+     */
+    public List<Response<Object>> complete(final Response<Object> response) {
+
+        if (leaders.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final ResponseKey responseKey = new ResponseKey(response.returnAddress(), response.id());
+        final Flight flight = leaders.get(responseKey);
+        /* The sweep may give up on the flight at the same time, only the one that removes it answers. */
+        if (flight == null || !leaders.remove(responseKey, flight)) {
+            return Collections.emptyList();
+        }
+
+        /* Once it is out of the map nothing else can join it. */
+        flights.remove(flight.key, flight);
+        if (flight.followers.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<Response<Object>> copies = new ArrayList<>(flight.followers.size());
+        for (MethodCall<Object> follower : flight.followers) {
+            copies.add(ResponseImpl.response(follower.id(), follower.timestamp(), follower.address(),
+                    follower.returnAddress(), response.body(), follower, response.wasErrors()));
+        }
+        return copies;
+    }
+
+    /**
+     * Stops calls joining flights older than the window, and gives up on flights whose call has not been answered
+     * by its deadline or within the timeout, so a lost response does not keep them forever. The calls that joined
+     * those are answered with an error instead of waiting on.
+     *
+     * @param now current time in milliseconds
+     * @return an error response for each call that joined a flight that was given up on, empty if none did
+     */
+    public List<Response<Object>> sweep(final long now) {
+
+        flights.values().removeIf(flight -> now - flight.started >= windowMillis);
+
+        List<Response<Object>> errors = Collections.emptyList();
+        for (Flight flight : leaders.values()) {
+            if (now < flight.giveUpAt || !leaders.remove(flight.responseKey, flight)) {
+                continue;
+            }
+            /* Nothing joins it once it is out of flights, so the followers can be read. */
+            flights.remove(flight.key, flight);
+            for (MethodCall<Object> follower : flight.followers) {
+                if (errors.isEmpty()) {
+                    errors = new ArrayList<>();
+                }
+                errors.add(new ResponseImpl<>(follower, new ServiceDeadlineExceededException(
+                        "Call in flight was not answered in time", follower.address())));
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * @return calls that were answered with another call's response
+     */
+    public long coalescedCalls() {
+        return coalescedCalls.sum();
+    }
+
+    /**
+     * @return idempotent calls sent to services and not answered yet
+     */
+    public int callsInFlight() {
+        return leaders.size();
+    }
+
+    public long windowMillis() {
+        return windowMillis;
+    }
+
+    public long timeoutMillis() {
+        return timeoutMillis;
+    }
+
+    private static final class Flight {
+
+        private final MethodCallKey key;
+        private final ResponseKey responseKey;
+        private final MethodCall<Object> leader;
+        private final long started;
+        private final long giveUpAt;
+        /* Only added to inside flights.compute for this key. */
+        private final List<MethodCall<Object>> followers = new ArrayList<>(2);
+
+        private Flight(final MethodCallKey key, final ResponseKey responseKey, final MethodCall<Object> leader,
+                       final long started, final long giveUpAt) {
+            this.key = key;
+            this.responseKey = responseKey;
+            this.leader = leader;
+            this.started = started;
+            this.giveUpAt = giveUpAt;
+        }
+    }
+}
@@ -25,8 +25,8 @@ import io.advantageous.qbit.reactive.Callback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.RandomAccess;
 
 public class CallbackManager {
 
@@ -35,7 +35,7 @@ public class CallbackManager {
     /**
      * Maps incoming calls with outgoing handlers (returns, async returns really).
      */
-    private final Map<HandlerKey, Callback<Object>> handlers = new ConcurrentHashMap<>();
+    private final CallbackRegistry handlers = new CallbackRegistry();
 
     /**
      * Register a callbackWithTimeout handler
@@ -45,7 +45,7 @@ public class CallbackManager {
      */
     private void registerHandlerCallbackForClient(final MethodCall<Object> methodCall,
                                                   final Callback<Object> handler) {
-        handlers.put(new HandlerKey(methodCall.returnAddress(), methodCall.id()), handler);
+        handlers.register(methodCall.returnAddress(), methodCall.id(), handler);
     }
 
 
@@ -53,7 +53,15 @@ public class CallbackManager {
         Object args = methodCall.body();
 
         /** Look for callbackWithTimeout handler in the args */
-        if (args instanceof Iterable) {
+        if (args instanceof List && args instanceof RandomAccess) {
+            final List list = (List) args;
+            for (int index = 0; index < list.size(); index++) {
+                final Object arg = list.get(index);
+                if (arg instanceof Callback) {
+                    registerHandlerCallbackForClient(methodCall, (Callback) arg);
+                }
+            }
+        } else if (args instanceof Iterable) {
             final Iterable list = (Iterable) args;
             for (Object arg : list) {
                 if (arg instanceof Callback) {
@@ -80,8 +88,15 @@ public class CallbackManager {
         responseQueue.startListener(response -> handleResponse(response));
     }
 
+    /**
+     * @return number of callbacks waiting for a response
+     */
+    public int outstandingCallbacks() {
+        return handlers.size();
+    }
+
     public void handleResponse(Response<Object> response) {
-        final Callback<Object> handler = handlers.get(new HandlerKey(response.returnAddress(), response.id()));
+        final Callback<Object> handler = handlers.remove(response.returnAddress(), response.id());
 
         if (handler==null) {
             return;
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.reactive.Callback;
+import io.advantageous.qbit.service.Protocol;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Outstanding callbacks by return address and message id.
+ * <p>
+ * Each return address gets its own {@link LongCallbackMap} keyed by the primitive message id, so registering and
+ * looking up a callback allocates no key object. Addresses are looked up with the return address string as is,
+ * which caches its hash code.
+ * <p>
+ * Replies that come back over a WebSocket have a return address of
+ * {@code <websocket id><PROTOCOL_ARG_SEPARATOR><return address>}. The first reply with such an address finds the
+ * callbacks of the part after the separator and remembers the full address, so later replies do not split it.
+ * <p>
+ * Maps for return addresses are kept once created, which is fine for proxies that live as long as the client.
+ */
+public class CallbackRegistry {
+
+    private final ConcurrentHashMap<String, LongCallbackMap> callbacksByAddress = new ConcurrentHashMap<>();
+    /* Full WebSocket reply addresses seen so far, to the callbacks of the return address in them. */
+    private final ConcurrentHashMap<String, LongCallbackMap> callbacksByReplyAddress = new ConcurrentHashMap<>();
+    /* Calls with no return address, a ConcurrentHashMap can not have a null key. */
+    private final LongCallbackMap noAddressCallbacks = new LongCallbackMap();
+
+    /**
+     * @param returnAddress return address of the call
+     * @param id            message id of the call
+     * @param callback      callback to hand the response to
+     */
+    public void register(final String returnAddress, final long id, final Callback<Object> callback) {
+        if (returnAddress == null) {
+            noAddressCallbacks.put(id, callback);
+            return;
+        }
+        LongCallbackMap callbacks = callbacksByAddress.get(returnAddress);
+        if (callbacks == null) {
+            callbacks = callbacksByAddress.computeIfAbsent(returnAddress, address -> new LongCallbackMap());
+        }
+        callbacks.put(id, callback);
+    }
+
+    /**
+     * Takes the callback waiting for a response.
+     *
+     * @param returnAddress return address of the response
+     * @param id            message id of the response
+     * @return the callback, or null if there is none, for example because the method was one way
+     */
+    public Callback<Object> remove(final String returnAddress, final long id) {
+
+        if (returnAddress == null) {
+            return noAddressCallbacks.remove(id);
+        }
+
+        LongCallbackMap callbacks = callbacksByAddress.get(returnAddress);
+        if (callbacks == null) {
+            callbacks = callbacksByReplyAddress.get(returnAddress);
+            if (callbacks == null) {
+                callbacks = replyCallbacks(returnAddress);
+                if (callbacks == null) {
+                    return null;
+                }
+            }
+        }
+        return callbacks.remove(id);
+    }
+
+    /**
+     * @return number of callbacks waiting for a response
+     */
+    public int size() {
+        int size = noAddressCallbacks.size();
+        for (LongCallbackMap callbacks : callbacksByAddress.values()) {
+            size += callbacks.size();
+        }
+        return size;
+    }
+
+    /**
+     * Finds the callbacks of a reply address that has a WebSocket prefix and remembers the reply address.
+     */
+    private LongCallbackMap replyCallbacks(final String replyAddress) {
+        final int separator = replyAddress.lastIndexOf(Protocol.PROTOCOL_ARG_SEPARATOR);
+        if (separator < 0) {
+            return null;
+        }
+        final LongCallbackMap callbacks = callbacksByAddress.get(replyAddress.substring(separator + 1));
+        if (callbacks != null) {
+            callbacksByReplyAddress.putIfAbsent(replyAddress, callbacks);
+        }
+        return callbacks;
+    }
+}
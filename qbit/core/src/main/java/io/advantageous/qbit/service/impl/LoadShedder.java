@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sheds calls once they have been waiting in the request queue too long for too long, in the style of CoDel.
+ * <p>
+ * The queue thread hands every call it takes off of the request queue to {@link #admit(long, long)} with the time
+ * the call spent waiting. A short burst is fine, so one slow call does nothing. Once every call for a whole
+ * interval has waited longer than the target, the queue is taken to be overloaded, and calls that waited longer
+ * than the target are shed until one comes through under the target or the queue runs empty. Shed calls are
+ * answered with an error right away, so under sustained overload a fraction of callers fail fast instead of all of
+ * them timing out.
+ * <p>
+ * Only the queue thread calls {@link #admit(long, long)} and {@link #empty()}. The counters can be read from
+ * any thread.
+ */
+public class LoadShedder {
+
+    private final long targetMillis;
+    private final long intervalMillis;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    /* Only touched by the queue thread. */
+    private long overloadedAt;
+    private boolean shedding;
+
+    /**
+     * @param targetMillis   how long calls may wait in the queue before it counts as backed up
+     * @param intervalMillis how long the queue has to stay backed up before calls are shed
+     */
+    public LoadShedder(final long targetMillis, final long intervalMillis) {
+        if (targetMillis <= 0 || intervalMillis <= 0) {
+            throw new IllegalArgumentException("LoadShedder:: target " + targetMillis + " and interval "
+                    + intervalMillis + " must be positive");
+        }
+        this.targetMillis = targetMillis;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * @param waitMillis how long the call waited in the queue
+     * @param now        current time in milliseconds
+     * @return true to run the call, false to shed it
+     */
+    public boolean admit(final long waitMillis, final long now) {
+
+        if (waitMillis < targetMillis) {
+            overloadedAt = 0L;
+            shedding = false;
+            admitted.increment();
+            return true;
+        }
+
+        if (!shedding) {
+            if (overloadedAt == 0L) {
+                overloadedAt = now + intervalMillis;
+            } else if (now >= overloadedAt) {
+                shedding = true;
+            }
+        }
+
+        if (shedding) {
+            shed.increment();
+            return false;
+        }
+        admitted.increment();
+        return true;
+    }
+
+    /**
+     * The queue ran empty, so it is not backed up anymore.
+     */
+    public void empty() {
+        overloadedAt = 0L;
+        shedding = false;
+    }
+
+    public boolean isShedding() {
+        return shedding;
+    }
+
+    public long targetMillis() {
+        return targetMillis;
+    }
+
+    public long intervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * @return calls that were run
+     */
+    public long admitted() {
+        return admitted.sum();
+    }
+
+    /**
+     * @return calls that were answered with an error instead of being run
+     */
+    public long shed() {
+        return shed.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "LoadShedder{" +
+                "targetMillis=" + targetMillis +
+                ", intervalMillis=" + intervalMillis +
+                ", admitted=" + admitted.sum() +
+                ", shed=" + shed.sum() +
+                ", shedding=" + shedding +
+                '}';
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.reactive.Callback;
+
+/**
+ * Callbacks by message id for one return address. Open addressing with linear probing over a {@code long[]} of
+ * ids, so putting and removing do not box the id or allocate an entry, except when the table grows.
+ * <p>
+ * Removal shifts the entries after the removed one back instead of leaving a tombstone, so a table with lots of
+ * calls coming and going does not fill up with dead slots. Every method locks the map. There is one map per
+ * return address, usually one per proxy, so the lock is rarely contended.
+ */
+final class LongCallbackMap {
+
+    private static final int INITIAL_CAPACITY = 16;
+    /* Tables this big that run empty are swapped for a small one, so a burst does not keep memory forever. */
+    private static final int SHRINK_CAPACITY = INITIAL_CAPACITY << 10;
+
+    private long[] ids;
+    private Object[] callbacks;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    LongCallbackMap() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    synchronized void put(final long id, final Callback<Object> callback) {
+
+        int index = index(id);
+        while (callbacks[index] != null) {
+            if (ids[index] == id) {
+                callbacks[index] = callback;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        ids[index] = id;
+        callbacks[index] = callback;
+        if (++size > resizeAt) {
+            grow();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized Callback<Object> remove(final long id) {
+
+        int index = index(id);
+        while (true) {
+            final Object callback = callbacks[index];
+            if (callback == null) {
+                return null;
+            }
+            if (ids[index] == id) {
+                removeAt(index);
+                return (Callback<Object>) callback;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void removeAt(int hole) {
+
+        int next = (hole + 1) & mask;
+        while (callbacks[next] != null) {
+            final int home = index(ids[next]);
+            /* Move the entry back into the hole unless its home slot is after the hole. */
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                ids[hole] = ids[next];
+                callbacks[hole] = callbacks[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        callbacks[hole] = null;
+
+        if (--size == 0 && callbacks.length >= SHRINK_CAPACITY) {
+            allocate(INITIAL_CAPACITY);
+        }
+    }
+
+    private void grow() {
+
+        final long[] oldIds = ids;
+        final Object[] oldCallbacks = callbacks;
+        allocate(oldCallbacks.length << 1);
+
+        for (int old = 0; old < oldCallbacks.length; old++) {
+            if (oldCallbacks[old] != null) {
+                int index = index(oldIds[old]);
+                while (callbacks[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                ids[index] = oldIds[old];
+                callbacks[index] = oldCallbacks[old];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        ids = new long[capacity];
+        callbacks = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity >> 1;
+    }
+
+    /* Message ids are mostly sequential, so spread them before masking. */
+    private int index(final long id) {
+        final long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.reactive.Callback;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Identifies calls that must get the same answer: same method name, address, object name, arguments
+ * (callbacks left out) and request params.
+ */
+final class MethodCallKey {
+
+    private final String name;
+    private final String address;
+    private final String objectName;
+    private final Object[] args;
+    private final Map<?, ?> params;
+    private final int hashCode;
+
+    MethodCallKey(final MethodCall<Object> methodCall) {
+        this.name = methodCall.name();
+        this.address = methodCall.address();
+        this.objectName = methodCall.objectName();
+        this.args = argsWithoutCallbacks(methodCall.body());
+        this.params = methodCall.hasParams() ? methodCall.params().baseMap() : null;
+        this.hashCode = Objects.hash(name, address, objectName, params) * 31 + Arrays.deepHashCode(args);
+    }
+
+    private static Object[] argsWithoutCallbacks(final Object body) {
+        final Object[] args;
+        if (body instanceof Object[]) {
+            args = (Object[]) body;
+        } else if (body instanceof List) {
+            args = ((List<?>) body).toArray();
+        } else {
+            return new Object[]{body};
+        }
+        int count = 0;
+        for (Object arg : args) {
+            if (!(arg instanceof Callback)) {
+                count++;
+            }
+        }
+        if (count == args.length) {
+            return args;
+        }
+        final Object[] values = new Object[count];
+        int index = 0;
+        for (Object arg : args) {
+            if (!(arg instanceof Callback)) {
+                values[index++] = arg;
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof MethodCallKey)) {
+            return false;
+        }
+        final MethodCallKey key = (MethodCallKey) other;
+        return hashCode == key.hashCode
+                && Objects.equals(name, key.name)
+                && Objects.equals(address, key.address)
+                && Objects.equals(objectName, key.objectName)
+                && Objects.equals(params, key.params)
+                && Arrays.deepEquals(args, key.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.boon.core.Str;
+import io.advantageous.qbit.message.MethodCall;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Matches method calls against a set of methods registered by name and address.
+ * <p>
+ * Calls by name are matched on the method name, and on the object name or address when the names were registered
+ * under a service (a service bundle holds many services). Calls by address are matched on the exact address,
+ * so methods that take path variables do not match by address.
+ */
+public class MethodCallMatcher {
+
+    /* Method names keyed by object name or service address. The empty key matches any call. */
+    private final Map<String, Set<String>> methodNames = new ConcurrentHashMap<>();
+    private final Set<String> addresses = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    /**
+     * Registers methods.
+     *
+     * @param service     object name or service address the names belong to, empty for any
+     * @param methodNames method names
+     * @param addresses   method addresses
+     * @return this
+     */
+    public MethodCallMatcher register(final String service,
+                                      final Collection<String> methodNames,
+                                      final Collection<String> addresses) {
+        if (!methodNames.isEmpty()) {
+            this.methodNames.computeIfAbsent(service == null ? "" : service,
+                    key -> Collections.newSetFromMap(new ConcurrentHashMap<>())).addAll(methodNames);
+        }
+        this.addresses.addAll(addresses);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return methodNames.isEmpty() && addresses.isEmpty();
+    }
+
+    /**
+     * @param methodCall method call
+     * @return true if the call is to one of the registered methods
+     */
+    public boolean matches(final MethodCall<?> methodCall) {
+
+        if (isEmpty()) {
+            return false;
+        }
+
+        final String name = methodCall.name();
+
+        if (Str.isEmpty(name)) {
+            return addresses.contains(methodCall.address());
+        }
+
+        return hasMethod("", name) || hasMethod(methodCall.objectName(), name) || hasMethod(methodCall.address(), name);
+    }
+
+    private boolean hasMethod(final String service, final String name) {
+        if (service == null) {
+            return false;
+        }
+        final Set<String> names = methodNames.get(service);
+        return names != null && names.contains(name);
+    }
+}
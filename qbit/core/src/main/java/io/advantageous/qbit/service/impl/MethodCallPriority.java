@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.qbit.annotation.PriorityLevel;
+import io.advantageous.qbit.http.request.HttpRequest;
+import io.advantageous.qbit.http.server.websocket.WebSocketMessage;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.Request;
+import io.advantageous.qbit.util.MultiMap;
+
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * Picks the method calls that go to the high priority request lane.
+ * <p>
+ * A call goes to the high priority lane if the method it calls was marked with {@code @Priority(HIGH)}.
+ * Calls made inside the process can also pick the lane with the {@code QBIT_PRIORITY} header: {@code HIGH} sends
+ * them to the high priority lane, {@code NORMAL} keeps them in the normal lane even if the method is marked.
+ * The header is ignored on calls that came in over HTTP or WebSocket, since clients set it to whatever they like.
+ * <p>
+ * Methods are matched as in {@link MethodCallMatcher}, so methods that take path variables only get to the
+ * high priority lane by header.
+ */
+public class MethodCallPriority extends MethodCallMatcher implements Predicate<Object> {
+
+    public static final String PRIORITY_HEADER = "QBIT_PRIORITY";
+
+    @Override
+    public MethodCallPriority register(final String service,
+                                       final Collection<String> methodNames,
+                                       final Collection<String> addresses) {
+        super.register(service, methodNames, addresses);
+        return this;
+    }
+
+    @Override
+    public boolean test(final Object item) {
+
+        if (!(item instanceof MethodCall)) {
+            return false;
+        }
+
+        final MethodCall<?> methodCall = (MethodCall<?>) item;
+
+        final MultiMap<String, String> headers = methodCall.headers();
+        if (headers != null && headers.size() > 0 && !fromClient(methodCall)) {
+            final String level = headers.getFirst(PRIORITY_HEADER);
+            if (level != null) {
+                return PriorityLevel.HIGH.name().equalsIgnoreCase(level);
+            }
+        }
+
+        return matches(methodCall);
+    }
+
+    private static boolean fromClient(final MethodCall<?> methodCall) {
+        final Request<Object> request = methodCall.originatingRequest();
+        return request instanceof HttpRequest || request instanceof WebSocketMessage;
+    }
+}
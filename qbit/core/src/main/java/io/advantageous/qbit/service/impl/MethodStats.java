@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.boon.core.Str;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.queue.QueueStatsRecorder;
+import io.advantageous.qbit.service.MethodLatency;
+import io.advantageous.qbit.util.Histogram;
+import io.advantageous.qbit.util.Timer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms per method of one service queue, for queue wait and execution time.
+ * <p>
+ * Everything is recorded by the thread that runs the service, so recording is two histogram increments and takes
+ * no locks. Once per interval with calls that thread publishes p50, p99, p99.9 and max of each method called,
+ * through a {@link QueueStatsRecorder} under {@code service.<name>.<method>.*}, and as a snapshot other threads
+ * can read from {@link #lastInterval()}.
+ * <p>
+ * Execution time is measured with {@code System.nanoTime()}. Queue wait is from the call's timestamp, so it
+ * is only as fine as the clock that stamped the call (milliseconds). Calls by address are recorded under their
+ * address. Past {@value #MAX_METHODS} methods, further calls are recorded under {@code other}, so URIs with path
+ * variables can not grow the map without bound.
+ */
+public class MethodStats {
+
+    static final int MAX_METHODS = 256;
+    private static final String OTHER = "other";
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final String[] STATS = {
+            "calls",
+            "wait.p50", "wait.p99", "wait.p999", "wait.max",
+            "exec.p50", "exec.p99", "exec.p999", "exec.max"};
+
+    private final String prefix;
+    private final QueueStatsRecorder recorder;
+    private final long intervalMillis;
+    private final Timer timer = Timer.timer();
+
+    /* Only touched by the service thread. */
+    private final Map<String, Recording> methods = new HashMap<>();
+    private long lastPublish;
+
+    private volatile Map<String, MethodLatency> lastInterval = Collections.emptyMap();
+
+    /**
+     * @param name           service name
+     * @param recorder       where stats are published, can be null to only keep snapshots
+     * @param intervalMillis stats interval
+     */
+    public MethodStats(final String name, final QueueStatsRecorder recorder, final long intervalMillis) {
+        this.prefix = Str.isEmpty(name) ? "service." : "service." + name + ".";
+        this.recorder = recorder;
+        this.intervalMillis = intervalMillis;
+        this.lastPublish = timer.now();
+    }
+
+    /**
+     * Records a call. Only call from the thread that runs the service.
+     *
+     * @param methodCall     method call that was run
+     * @param executionNanos how long the method ran
+     */
+    public void record(final MethodCall<Object> methodCall, final long executionNanos) {
+        final long now = timer.now();
+        final Recording recording = recording(Str.isEmpty(methodCall.name()) ? methodCall.address() : methodCall.name());
+        recording.queueWait.record(TimeUnit.MILLISECONDS.toMicros(now - methodCall.receivedTime()));
+        recording.execution.record(executionNanos / 1_000);
+    }
+
+    private Recording recording(String method) {
+        Recording recording = methods.get(method);
+        if (recording == null) {
+            if (methods.size() >= MAX_METHODS) {
+                method = OTHER;
+                recording = methods.get(method);
+            }
+            if (recording == null) {
+                recording = new Recording(method);
+                methods.put(method, recording);
+            }
+        }
+        return recording;
+    }
+
+    /**
+     * Publishes if the interval is up. Only call from the thread that runs the service.
+     */
+    public void publishIfDue() {
+        final long now = timer.now();
+        if (now - lastPublish >= intervalMillis) {
+            publish(now);
+        }
+    }
+
+    private void publish(final long now) {
+
+        lastPublish = now;
+
+        final Map<String, MethodLatency> snapshot = new LinkedHashMap<>();
+        for (Recording recording : methods.values()) {
+            if (recording.execution.totalCount() == 0) {
+                continue;
+            }
+            snapshot.put(recording.method,
+                    new MethodLatency(recording.queueWait.copy(), recording.execution.copy()));
+            recording.queueWait.reset();
+            recording.execution.reset();
+        }
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        lastInterval = Collections.unmodifiableMap(snapshot);
+
+        if (recorder == null) {
+            return;
+        }
+
+        final String[] names = new String[snapshot.size() * STATS.length];
+        final int[] counts = new int[names.length];
+        int index = 0;
+        for (Map.Entry<String, MethodLatency> entry : snapshot.entrySet()) {
+            final String[] statNames = methods.get(entry.getKey()).statNames;
+            final Map<String, Long> percentiles = entry.getValue().percentiles();
+            for (int stat = 0; stat < STATS.length; stat++) {
+                names[index] = statNames[stat];
+                final long value = percentiles.get(STATS[stat]);
+                counts[index++] = value > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) value;
+            }
+        }
+        recorder.recordAllCounts(now, names, counts);
+    }
+
+    /**
+     * @return latency of each method called in the last interval that had calls, keyed by method name or address
+     */
+    public Map<String, MethodLatency> lastInterval() {
+        return lastInterval;
+    }
+
+    private final class Recording {
+
+        private final String method;
+        private final String[] statNames = new String[STATS.length];
+        private final Histogram queueWait = new Histogram(HIGHEST_MICROS);
+        private final Histogram execution = new Histogram(HIGHEST_MICROS);
+
+        private Recording(final String method) {
+            this.method = method;
+            for (int index = 0; index < STATS.length; index++) {
+                statNames[index] = prefix + method + "." + STATS[index];
+            }
+        }
+    }
+}
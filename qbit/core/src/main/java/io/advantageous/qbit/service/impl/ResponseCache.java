@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service.impl;
+
+import io.advantageous.boon.core.Str;
+import io.advantageous.qbit.QBit;
+import io.advantageous.qbit.bindings.UriRouteTrie;
+import io.advantageous.qbit.events.EventManager;
+import io.advantageous.qbit.message.MethodCall;
+import io.advantageous.qbit.message.Response;
+import io.advantageous.qbit.message.impl.ResponseImpl;
+import io.advantageous.qbit.service.CachePolicy;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Response cache for {@code @Cacheable} methods. A call with the same arguments as an earlier call that succeeded
+ * within the method's TTL is answered from the cache instead of being sent to the service.
+ * <p>
+ * Calls are matched to their method by name, on the object name or address they were registered under,
+ * or by address template, so REST methods with path variables cache per distinct URI. Calls are cached under the
+ * same key calls are coalesced under. Each method has its own LRU map, bounded by the method's max entries.
+ * Error responses are not cached.
+ * <p>
+ * {@link #get(MethodCall, long)} is called from the thread that dispatches calls and {@link #put(Response, long)}
+ * from the thread that handles responses. A method's cache is emptied when an event is sent to its invalidation
+ * channel.
+ */
+public class ResponseCache {
+
+    private final EventManager eventManager;
+
+    /* Method caches by method name, keyed by object name or service address. */
+    private final Map<String, Map<String, MethodCache>> byName = new ConcurrentHashMap<>();
+    /* Replaced, never changed in place, when methods are registered, so matching does not lock. */
+    private volatile UriRouteTrie<MethodCache> byAddress = new UriRouteTrie<>();
+    private final Map<String, MethodCache> addressTemplates = new LinkedHashMap<>();
+    private final Map<String, List<MethodCache>> channels = new ConcurrentHashMap<>();
+    private final List<MethodCache> methodCaches = new CopyOnWriteArrayList<>();
+
+    /* Misses waiting for their response, keyed by the return address and id of the call. */
+    private final Map<ResponseKey, Miss> misses = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param eventManager event manager invalidation channels are listened to on,
+     *                     null for the system event manager
+     */
+    public ResponseCache(final EventManager eventManager) {
+        this.eventManager = eventManager;
+    }
+
+    public ResponseCache() {
+        this(null);
+    }
+
+    /**
+     * Registers cached methods of a service.
+     *
+     * @param services object names and service addresses the service can be reached by
+     * @param policies cache policy of each cached method
+     * @return this
+     */
+    public synchronized ResponseCache register(final Collection<String> services,
+                                               final Collection<CachePolicy> policies) {
+
+        boolean addressesChanged = false;
+
+        for (CachePolicy policy : policies) {
+
+            final MethodCache methodCache = new MethodCache(policy);
+            methodCaches.add(methodCache);
+
+            for (String service : services) {
+                byName.computeIfAbsent(service, key -> new ConcurrentHashMap<>())
+                        .put(policy.methodName(), methodCache);
+            }
+
+            for (String template : policy.addresses()) {
+                addressTemplates.put(template, methodCache);
+                addressesChanged = true;
+            }
+
+            final String channel = policy.invalidationChannel();
+            if (!Str.isEmpty(channel)) {
+                listen(channel).add(methodCache);
+            }
+        }
+
+        if (addressesChanged) {
+            final UriRouteTrie<MethodCache> trie = new UriRouteTrie<>();
+            addressTemplates.forEach(trie::put);
+            byAddress = trie;
+        }
+        return this;
+    }
+
+    private List<MethodCache> listen(final String channel) {
+        List<MethodCache> invalidated = channels.get(channel);
+        if (invalidated == null) {
+            invalidated = new CopyOnWriteArrayList<>();
+            channels.put(channel, invalidated);
+            final EventManager events = eventManager == null ? QBit.factory().systemEventManager() : eventManager;
+            events.register(channel, event -> invalidate(channel));
+        }
+        return invalidated;
+    }
+
+    /**
+     * Answers the call from the cache. On a miss the call is remembered so its response can be cached.
+     *
+     * @param methodCall method call about to be sent to a service
+     * @param now        current time in milliseconds
+     * @return response for the call, null if the call must be sent
+     */
+    public Response<Object> get(final MethodCall<Object> methodCall, final long now) {
+
+        final MethodCache methodCache = methodCache(methodCall);
+        if (methodCache == null) {
+            return null;
+        }
+
+        final MethodCallKey key = new MethodCallKey(methodCall);
+        final Object body = methodCache.get(key, now);
+
+        if (body == null) {
+            missCount.increment();
+            misses.put(new ResponseKey(methodCall.returnAddress(), methodCall.id()),
+                    new Miss(methodCache, key, now, methodCache.generation));
+            return null;
+        }
+
+        hitCount.increment();
+        return ResponseImpl.response(methodCall.id(), methodCall.timestamp(), methodCall.address(),
+                methodCall.returnAddress(), body, methodCall, false);
+    }
+
+    /**
+     * Caches the response if it answers a call that missed the cache.
+     *
+     * @param response response from a service
+     * @param now      current time in milliseconds
+     */
+    public void put(final Response<Object> response, final long now) {
+
+        if (misses.isEmpty()) {
+            return;
+        }
+
+        final Miss miss = misses.remove(new ResponseKey(response.returnAddress(), response.id()));
+        if (miss == null || response.wasErrors() || response.body() == null) {
+            return;
+        }
+        miss.methodCache.put(miss.key, response.body(), now, miss.generation);
+    }
+
+    /**
+     * Empties the caches of the methods invalidated by this channel.
+     *
+     * @param channel event bus channel
+     */
+    public void invalidate(final String channel) {
+        final List<MethodCache> invalidated = channels.get(channel);
+        if (invalidated != null) {
+            for (MethodCache methodCache : invalidated) {
+                methodCache.clear();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        for (MethodCache methodCache : methodCaches) {
+            methodCache.clear();
+        }
+    }
+
+    /**
+     * Drops expired responses, and misses that were not answered within their method's TTL.
+     *
+     * @param now current time in milliseconds
+     */
+    public void sweep(final long now) {
+        misses.values().removeIf(miss -> now - miss.started >= miss.methodCache.ttlMillis);
+        for (MethodCache methodCache : methodCaches) {
+            methodCache.removeExpired(now);
+        }
+    }
+
+    private MethodCache methodCache(final MethodCall<Object> methodCall) {
+
+        final String name = methodCall.name();
+
+        if (Str.isEmpty(name)) {
+            final String address = methodCall.address();
+            return address == null ? null : byAddress.match(address, null);
+        }
+
+        MethodCache methodCache = methodCache("", name);
+        if (methodCache == null) {
+            methodCache = methodCache(methodCall.objectName(), name);
+        }
+        if (methodCache == null) {
+            methodCache = methodCache(methodCall.address(), name);
+        }
+        return methodCache;
+    }
+
+    private MethodCache methodCache(final String service, final String name) {
+        if (service == null) {
+            return null;
+        }
+        final Map<String, MethodCache> named = byName.get(service);
+        return named == null ? null : named.get(name);
+    }
+
+    /**
+     * @return calls answered from the cache
+     */
+    public long hits() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return calls to cached methods that were sent to the service
+     */
+    public long misses() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return responses dropped to keep a method's cache within its max entries
+     */
+    public long evictions() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return responses held by all cached methods
+     */
+    public int size() {
+        int size = 0;
+        for (MethodCache methodCache : methodCaches) {
+            size += methodCache.size();
+        }
+        return size;
+    }
+
+    /**
+     * LRU map of responses for one method. Locked, it is read by the call thread and written by the response thread.
+     */
+    private final class MethodCache {
+
+        private final long ttlMillis;
+        private final int maxEntries;
+
+        private final LinkedHashMap<MethodCallKey, CachedResponse> entries;
+        /* Bumped on invalidation, so responses to calls sent before it are not cached. */
+        private volatile int generation;
+
+        private MethodCache(final CachePolicy policy) {
+            this.ttlMillis = policy.ttlMillis();
+            this.maxEntries = Math.max(1, policy.maxEntries());
+            this.entries = new LinkedHashMap<MethodCallKey, CachedResponse>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<MethodCallKey, CachedResponse> eldest) {
+                    if (size() > maxEntries) {
+                        evictionCount.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        private synchronized Object get(final MethodCallKey key, final long now) {
+            final CachedResponse entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (now >= entry.expires) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.body;
+        }
+
+        private synchronized void put(final MethodCallKey key, final Object body, final long now,
+                                      final int generation) {
+            if (generation == this.generation) {
+                entries.put(key, new CachedResponse(body, now + ttlMillis));
+            }
+        }
+
+        private synchronized void removeExpired(final long now) {
+            entries.values().removeIf(entry -> now >= entry.expires);
+        }
+
+        private synchronized void clear() {
+            generation++;
+            entries.clear();
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    private static final class CachedResponse {
+
+        private final Object body;
+        private final long expires;
+
+        private CachedResponse(final Object body, final long expires) {
+            this.body = body;
+            this.expires = expires;
+        }
+    }
+
+    private static final class Miss {
+
+        private final MethodCache methodCache;
+        private final MethodCallKey key;
+        private final long started;
+        private final int generation;
+
+        private Miss(final MethodCache methodCache, final MethodCallKey key, final long started,
+                     final int generation) {
+            this.methodCache = methodCache;
+            this.key = key;
+            this.started = started;
+            this.generation = generation;
+        }
+    }
+}
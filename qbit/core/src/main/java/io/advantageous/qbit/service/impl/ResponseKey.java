@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.service.impl;
+
+import java.util.Objects;
+
+/**
+ * Matches a response to the call it answers, by the call's return address and id.
+ */
+final class ResponseKey {
+
+    private final String returnAddress;
+    private final long id;
+
+    ResponseKey(final String returnAddress, final long id) {
+        this.returnAddress = returnAddress;
+        this.id = id;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (!(other instanceof ResponseKey)) {
+            return false;
+        }
+        final ResponseKey key = (ResponseKey) other;
+        return id == key.id && Objects.equals(returnAddress, key.returnAddress);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(id) + Objects.hashCode(returnAddress);
+    }
+}
@@ -42,7 +42,10 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 
 /**
@@ -92,6 +95,13 @@ public class ServiceBundleImpl implements ServiceBundle {
      */
     private final Queue<Response<Object>> webResponseQueue;
 
+    /**
+     * Sends error responses for rejected calls and calls that failed in doCall. Rejections come from whichever
+     * thread was sending, so sends are guarded by the lock.
+     */
+    private final ReentrantLock errorResponseLock = new ReentrantLock();
+    private SendQueue<Response<Object>> errorResponseSendQueue;
+
     /**
      * Base URI for servicesToStop that this bundle is managing.
      */
@@ -114,34 +124,41 @@ public class ServiceBundleImpl implements ServiceBundle {
      * Allows transformation of arguments, for example from JSON to Java objects.
      */
     private final Transformer<Request, Object> argTransformer;
-    /*
-
-     */
-    private final TreeSet<String> addressesByDescending = new TreeSet<>(
-            new Comparator<String>() {
-                @Override
-                public int compare(String o1, String o2) {
-                    return o2.compareTo(o1);
-                }
-            }
-    );
     /**
-     * This is used for routing. It keeps track of root addresses that we have already seen.
-     * This makes it easier to compare this root addresses to new addresses coming in.
+     * Routes addresses to dispatchers. Replaced, never mutated, when services are added,
+     * so calls can route without locking.
      */
-    private final TreeSet<String> seenAddressesDescending = new TreeSet<>(
-            new Comparator<String>() {
-                @Override
-                public int compare(String o1, String o2) {
-                    return o2.compareTo(o1);
-                }
-            }
-    );
+    private volatile AddressRouter<Consumer<MethodCall<Object>>> addressRouter = AddressRouter.empty();
     /*
      */
     private final QueueBuilder requestQueueBuilder;
     private final QueueBuilder responseQueueBuilder;
 
+    /**
+     * Picks the calls for the high priority lane of the call queue. Null if the bundle has no lanes.
+     */
+    private final MethodCallPriority methodCallPriority;
+
+    /**
+     * Lets identical calls to {@code @Idempotent} methods share one response. Null if calls are not coalesced.
+     */
+    private CallCoalescer callCoalescer;
+
+    /**
+     * Answers calls to {@code @Cacheable} methods with cached responses. Null if responses are not cached.
+     */
+    private ResponseCache responseCache;
+
+    /**
+     * Sends cached responses, only used from the thread that handles calls.
+     */
+    private SendQueue<Response<Object>> cachedResponseSendQueue;
+
+    /**
+     * Calls dropped because their deadline passed before they were dispatched.
+     */
+    private final LongAdder expiredCalls = new LongAdder();
+
     public ServiceBundleImpl(final String address,
                              final QueueBuilder requestQueueBuilder,
                              final QueueBuilder responseQueueBuilder,
@@ -169,12 +186,67 @@ public class ServiceBundleImpl implements ServiceBundle {
         this.asyncCalls = asyncCalls;
         this.requestQueueBuilder = requestQueueBuilder;
         this.responseQueueBuilder = responseQueueBuilder;
-        this.methodQueue = requestQueueBuilder.setName("Call Queue " + address).build();
+        this.methodCallPriority = requestQueueBuilder.getPriorityLane() == null ? null : new MethodCallPriority();
+        this.methodQueue = methodQueueBuilder(requestQueueBuilder).setName("Call Queue " + address).build();
         this.responseQueue = responseQueueBuilder.setName("Response Queue " + address).build();
         this.webResponseQueue = webResponseQueueBuilder.setName("Web Response Queue " + address).build();
         this.methodSendQueue = methodQueue.sendQueue();
     }
 
+    /**
+     * If flow control is on and nobody said what to do with rejected calls,
+     * answer them with an error so callers (and HTTP clients) are not left hanging.
+     * If the bundle has lanes, the call queue picks its high priority calls with this bundle's own predicate,
+     * which learns the {@code @Priority} methods of the services as they are added.
+     */
+    private QueueBuilder methodQueueBuilder(final QueueBuilder requestQueueBuilder) {
+
+        final boolean rejectCalls = requestQueueBuilder.getHighWaterMark() > 0
+                && requestQueueBuilder.getRejectionHandler() == null;
+
+        if (!rejectCalls && methodCallPriority == null) {
+            return requestQueueBuilder;
+        }
+
+        final QueueBuilder queueBuilder = BeanUtils.copy(requestQueueBuilder);
+        if (rejectCalls) {
+            queueBuilder.setRejectionHandler(this::rejectMethodCall);
+        }
+        if (methodCallPriority != null) {
+            final Predicate<Object> priorityLane = requestQueueBuilder.getPriorityLane();
+            queueBuilder.setPriorityLane(priorityLane instanceof MethodCallPriority ? methodCallPriority :
+                    priorityLane.or(methodCallPriority));
+        }
+        return queueBuilder;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rejectMethodCall(final Object item) {
+        if (!(item instanceof MethodCall)) {
+            return;
+        }
+        final MethodCall<Object> methodCall = (MethodCall<Object>) item;
+        callbackManager.registerCallbacks(methodCall);
+        sendErrorResponse(methodCall,
+                new ServiceOverloadedException("Call rejected, service bundle is overloaded", methodCall.address()));
+    }
+
+    private void sendErrorResponse(final MethodCall<Object> methodCall, final Exception error) {
+        sendErrorResponse(new ResponseImpl<>(methodCall, error));
+    }
+
+    private void sendErrorResponse(final Response<Object> response) {
+        errorResponseLock.lock();
+        try {
+            if (errorResponseSendQueue == null) {
+                errorResponseSendQueue = responseQueue.sendQueue();
+            }
+            errorResponseSendQueue.sendAndFlush(response);
+        } finally {
+            errorResponseLock.unlock();
+        }
+    }
+
     /**
      * Base URI for all of the servicesToStop in this bundle.
      *
@@ -246,6 +318,8 @@ public class ServiceBundleImpl implements ServiceBundle {
         if (address != null && !address.isEmpty()) {
             serviceMapping.put(address, methodCallConsumer);
             serviceMapping.put(address.toLowerCase(), methodCallConsumer);
+            route(address, methodCallConsumer, false);
+            route(address.toLowerCase(), methodCallConsumer, false);
 
             if (methodCallConsumer instanceof ServiceFlushable) {
                 this.servicesToFlush.add((ServiceFlushable) methodCallConsumer);
@@ -283,15 +357,19 @@ public class ServiceBundleImpl implements ServiceBundle {
         /** Add the client given the address if we have an address. */
         if (serviceAddress != null && !serviceAddress.isEmpty()) {
             serviceMapping.put(serviceAddress, dispatch);
+            route(serviceAddress, dispatch, false);
         }
 
         if (objectName != null) {
             /** Put the client incoming requests in our client name, request queue mapping. */
             serviceMapping.put(objectName, dispatch);
+            route(objectName, dispatch, false);
         }
 
         serviceMapping.put(serviceQueue.name(), dispatch);
         serviceMapping.put(serviceQueue.address(), dispatch);
+        route(serviceQueue.name(), dispatch, false);
+        route(serviceQueue.address(), dispatch, false);
 
         /** Add the request queue to our set of request queues. */
         sendQueues.add(dispatch.requests);
@@ -305,8 +383,119 @@ public class ServiceBundleImpl implements ServiceBundle {
 
         /** Add mappings to all addresses for this client to our serviceMapping. */
         for (String addr : addresses) {
-            addressesByDescending.add(addr);
             serviceMapping.put(addr, dispatch);
+            route(addr, dispatch, true);
+        }
+
+        if (methodCallPriority != null && serviceQueue instanceof BaseServiceQueueImpl) {
+            registerPriorityMethods(objectName, serviceAddress, (BaseServiceQueueImpl) serviceQueue);
+        }
+
+        if (callCoalescer != null && serviceQueue instanceof BaseServiceQueueImpl) {
+            registerIdempotentMethods(objectName, serviceAddress, (BaseServiceQueueImpl) serviceQueue);
+        }
+
+        if (responseCache != null && serviceQueue instanceof BaseServiceQueueImpl) {
+            registerCachedMethods(objectName, serviceAddress, (BaseServiceQueueImpl) serviceQueue);
+        }
+    }
+
+    private void registerCachedMethods(final String objectName, final String serviceAddress,
+                                       final BaseServiceQueueImpl serviceQueue) {
+
+        final Collection<CachePolicy> policies = serviceQueue.serviceMethodHandler.cachePolicies();
+
+        if (policies.isEmpty()) {
+            return;
+        }
+
+        final List<String> services = new ArrayList<>(4);
+        for (String service : new String[]{objectName, serviceAddress, serviceQueue.name(), serviceQueue.address()}) {
+            if (!Str.isEmpty(service)) {
+                services.add(service);
+            }
+        }
+        responseCache.register(services, policies);
+    }
+
+    private void registerIdempotentMethods(final String objectName, final String serviceAddress,
+                                           final BaseServiceQueueImpl serviceQueue) {
+
+        final ServiceMethodHandler handler = serviceQueue.serviceMethodHandler;
+        final Collection<String> names = handler.idempotentMethodNames();
+        final Collection<String> idempotentAddresses = handler.idempotentAddresses();
+
+        if (names.isEmpty() && idempotentAddresses.isEmpty()) {
+            return;
+        }
+
+        for (String service : new String[]{objectName, serviceAddress, serviceQueue.name(), serviceQueue.address()}) {
+            if (!Str.isEmpty(service)) {
+                callCoalescer.register(service, names, idempotentAddresses);
+            }
+        }
+    }
+
+    /**
+     * Turns on single flight for {@code @Idempotent} methods. Set it before services are added.
+     * Followers get their copy of the response from {@link #startReturnHandlerProcessor()}, so a bundle that
+     * handles its own responses with a custom listener should not coalesce calls.
+     *
+     * @param callCoalescer coalescer, null to send every call
+     * @return this
+     */
+    public ServiceBundleImpl setCallCoalescer(final CallCoalescer callCoalescer) {
+        this.callCoalescer = callCoalescer;
+        return this;
+    }
+
+    public CallCoalescer callCoalescer() {
+        return callCoalescer;
+    }
+
+    /**
+     * Turns on response caching for {@code @Cacheable} methods. Set it before services are added and the bundle
+     * is started. Responses are cached by {@link #startReturnHandlerProcessor()}, so a bundle that handles its own
+     * responses with a custom listener gets no cache hits.
+     *
+     * @param responseCache response cache, null to send every call
+     * @return this
+     */
+    public ServiceBundleImpl setResponseCache(final ResponseCache responseCache) {
+        this.responseCache = responseCache;
+        return this;
+    }
+
+    public ResponseCache responseCache() {
+        return responseCache;
+    }
+
+    /**
+     * @return calls dropped without being dispatched because their deadline had passed
+     */
+    public long expiredCalls() {
+        return expiredCalls.sum();
+    }
+
+    /**
+     * Lets the call queue put calls to the service's {@code @Priority} methods in the high priority lane.
+     * The names are registered under every key a call can reach the service by.
+     */
+    private void registerPriorityMethods(final String objectName, final String serviceAddress,
+                                         final BaseServiceQueueImpl serviceQueue) {
+
+        final ServiceMethodHandler handler = serviceQueue.serviceMethodHandler;
+        final Collection<String> names = handler.priorityMethodNames();
+        final Collection<String> priorityAddresses = handler.priorityAddresses();
+
+        if (names.isEmpty() && priorityAddresses.isEmpty()) {
+            return;
+        }
+
+        for (String service : new String[]{objectName, serviceAddress, serviceQueue.name(), serviceQueue.address()}) {
+            if (!Str.isEmpty(service)) {
+                methodCallPriority.register(service, names, priorityAddresses);
+            }
         }
     }
 
@@ -406,6 +595,12 @@ public class ServiceBundleImpl implements ServiceBundle {
         try {
 
             callbackManager.registerCallbacks(methodCall);
+            if (methodCall.deadline() != 0L && methodCall.expired(Timer.timer().now())) {
+                expiredCalls.increment();
+                sendErrorResponse(methodCall,
+                        new ServiceDeadlineExceededException("Call dropped, deadline passed", methodCall.address()));
+                return;
+            }
             boolean[] continueFlag = new boolean[1];
 
 
@@ -417,7 +612,11 @@ public class ServiceBundleImpl implements ServiceBundle {
                     logger.debug(ServiceBundleImpl.class.getName() + "::doCall() " +
                             "Flag from before call handling does not want to continue");
                 }
-            } else {
+            } else if (cachedResponseSendQueue != null && answerFromCache(methodCall)) {
+                if (debug) {
+                    logger.debug(ServiceBundleImpl.class.getName() + "::doCall() answered from cache");
+                }
+            } else if (callCoalescer == null || !callCoalescer.join(methodCall, Timer.timer().now())) {
                 final Consumer<MethodCall<Object>> methodDispatcher = getMethodDispatcher(methodCall);
                 methodDispatcher.accept(methodCall);
 
@@ -425,9 +624,17 @@ public class ServiceBundleImpl implements ServiceBundle {
 
         } catch (Exception ex) {
 
-            Response<Object> response = new ResponseImpl<>(methodCall, ex);
-            this.responseQueue.sendQueue().sendAndFlush(response);
+            sendErrorResponse(methodCall, ex);
+        }
+    }
+
+    private boolean answerFromCache(final MethodCall<Object> methodCall) {
+        final Response<Object> response = responseCache.get(methodCall, Timer.timer().now());
+        if (response == null) {
+            return false;
         }
+        cachedResponseSendQueue.send(response);
+        return true;
     }
 
     private MethodCall<Object> handleBeforeMethodCall(MethodCall<Object> methodCall, boolean[] continueFlag) {
@@ -454,49 +661,44 @@ public class ServiceBundleImpl implements ServiceBundle {
         }
 
         if (methodCallConsumer == null) {
-            logger.error("No service at method address " + methodCall.address()
-                    + " method name " + methodCall.name() + " object name " + methodCall.objectName() + "\n SERVICES" + serviceMapping.keySet() + "\n");
-
-            Set<String> uris = serviceMapping.keySet();
-
-            uris.forEach((String it) -> {
-                logger.error("known URI path " + it);
-            });
-
-            throw new ServiceMethodNotFoundException("there is no object at this address: " + methodCall.address()
-                    + "\n method name=" + methodCall.name() + "\n objectName=" + methodCall.objectName(), methodCall.address());
+            if (debug) {
+                logger.debug("No service at method address " + methodCall.address()
+                        + " method name " + methodCall.name() + " object name " + methodCall.objectName());
+            }
+            throw new AddressNotFoundException(methodCall);
         }
         return methodCallConsumer;
     }
 
     private Consumer<MethodCall<Object>> getMethodDispatchByAddress(final MethodCall<Object> methodCall) {
-        Consumer<MethodCall<Object>> methodConsumerByAddress;
-        final String callAddress = methodCall.address();
-        methodConsumerByAddress = serviceMapping.get(callAddress);
-
-        if (methodConsumerByAddress == null) {
-
-            String addr;
+        return addressRouter.get(methodCall.address());
+    }
 
-            /* Check the ones we are using to reduce search time. */
-            addr = seenAddressesDescending.higher(callAddress);
-            if (addr != null && callAddress.startsWith(addr)) {
-                methodConsumerByAddress = serviceMapping.get(addr);
-                return methodConsumerByAddress;
-            }
+    /**
+     * Publishes a new router with the address added. Only service registration calls this.
+     */
+    private synchronized void route(final String address, final Consumer<MethodCall<Object>> consumer,
+                                    final boolean prefix) {
+        if (address != null) {
+            addressRouter = addressRouter.with(address, consumer, prefix);
+        }
+    }
 
-            /* if it was not in one of the ones we are using check the rest. */
-            addr = addressesByDescending.higher(callAddress);
+    /**
+     * Not finding a service is an expected outcome for a bad address, so this skips the stack trace.
+     */
+    private static final class AddressNotFoundException extends ServiceMethodNotFoundException {
 
-            if (addr != null && callAddress.startsWith(addr)) {
-                methodConsumerByAddress = serviceMapping.get(addr);
+        private AddressNotFoundException(final MethodCall<Object> methodCall) {
+            super("there is no object at this address: " + methodCall.address()
+                    + "\n method name=" + methodCall.name() + "\n objectName=" + methodCall.objectName(),
+                    methodCall.address());
+        }
 
-                if (methodConsumerByAddress != null) {
-                    seenAddressesDescending.add(addr);
-                }
-            }
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
         }
-        return methodConsumerByAddress;
     }
 
     /**
@@ -601,6 +803,20 @@ public class ServiceBundleImpl implements ServiceBundle {
             @Override
             public void receive(Response<Object> response) {
 
+                route(response);
+
+                if (callCoalescer != null) {
+                    for (Response<Object> copy : callCoalescer.complete(response)) {
+                        route(copy);
+                    }
+                }
+            }
+
+            private void route(final Response<Object> response) {
+
+                if (responseCache != null) {
+                    responseCache.put(response, Timer.timer().now());
+                }
 
                 final Request<Object> originatingRequest = response.request().originatingRequest();
 
@@ -645,12 +861,19 @@ public class ServiceBundleImpl implements ServiceBundle {
      * Start the client bundle.
      */
     public void start() {
+        if (responseCache != null) {
+            cachedResponseSendQueue = responseQueue.sendQueue();
+        }
         methodQueue.startListener(new ReceiveQueueListener<MethodCall<Object>>() {
 
             long time;
 
             long lastTimeAutoFlush;
 
+            long lastSweep;
+
+            long lastCacheSweep;
+
             /**
              * When we receive a method call, we call doCall.
              * @param item item
@@ -673,6 +896,19 @@ public class ServiceBundleImpl implements ServiceBundle {
                     }
                     lastTimeAutoFlush = time;
                 }
+                if (cachedResponseSendQueue != null) {
+                    cachedResponseSendQueue.flushSends();
+                }
+                if (callCoalescer != null && time > lastSweep + callCoalescer.windowMillis()) {
+                    for (Response<Object> error : callCoalescer.sweep(time)) {
+                        sendErrorResponse(error);
+                    }
+                    lastSweep = time;
+                }
+                if (responseCache != null && time > lastCacheSweep + 1000) {
+                    responseCache.sweep(time);
+                    lastCacheSweep = time;
+                }
             }
 
         });
@@ -26,6 +26,7 @@ import io.advantageous.qbit.service.ServiceQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -76,6 +77,13 @@ public class QBitSystemManager {
     }
 
 
+    /**
+     * @return service queues registered so far
+     */
+    public List<ServiceQueue> serviceQueues() {
+        return Collections.unmodifiableList(serviceQueueList);
+    }
+
     public void registerServer(final Server server) {
         countTracked++;
         serverList.add(server);
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2015. Rick Hightower, Geoff Chandler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * QBit - The Microservice lib for Java : JSON, WebSocket, REST. Be The Web!
+ */
+package io.advantageous.qbit.util;
+
+import java.util.Arrays;
+
+/**
+ * Log-linear histogram of positive longs, in the style of HdrHistogram.
+ * <p>
+ * Values below 64 get a bucket each. Above that every power of two is split into 32 buckets, so a recorded
+ * value is off by at most about 3%. Values above the highest trackable value are counted as that value.
+ * Recording is an array increment and never allocates.
+ * <p>
+ * This is not thread safe. Record from one thread, and merge or copy from that thread to hand results off.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS >> 1;
+
+    private final long highestTrackableValue;
+    private final long[] counts;
+    private long totalCount;
+    private long max;
+
+    public Histogram(final long highestTrackableValue) {
+        this.highestTrackableValue = Math.max(highestTrackableValue, SUB_BUCKETS);
+        this.counts = new long[index(this.highestTrackableValue) + 1];
+    }
+
+    static int index(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift);
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (subBucket - HALF_SUB_BUCKETS);
+    }
+
+    static long highestEquivalentValue(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        final long subBucket = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return (subBucket << shift) + (1L << shift) - 1;
+    }
+
+    public void record(final long value) {
+        recordCount(value, 1);
+    }
+
+    public void recordCount(long value, final long count) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > highestTrackableValue) {
+            value = highestTrackableValue;
+        }
+        counts[index(value)] += count;
+        totalCount += count;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds all of the counts of another histogram to this one.
+     *
+     * @param other histogram to merge in
+     */
+    public void add(final Histogram other) {
+        final int length = Math.min(counts.length, other.counts.length);
+        for (int index = 0; index < length; index++) {
+            counts[index] += other.counts[index];
+        }
+        for (int index = length; index < other.counts.length; index++) {
+            counts[length - 1] += other.counts[index];
+        }
+        totalCount += other.totalCount;
+        max = Math.max(max, Math.min(other.max, highestTrackableValue));
+    }
+
+    public Histogram copy() {
+        final Histogram copy = new Histogram(highestTrackableValue);
+        copy.add(this);
+        return copy;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        max = 0;
+    }
+
+    public long totalCount() {
+        return totalCount;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    /**
+     * @param percentile 0 to 100
+     * @return highest value that percentile of the recorded values are at or below, give or take the bucket width
+     */
+    public long valueAtPercentile(final double percentile) {
+
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        final long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+
+        long count = 0;
+        for (int index = 0; index < counts.length; index++) {
+            count += counts[index];
+            if (count >= countAtPercentile) {
+                return Math.min(highestEquivalentValue(index), max);
+            }
+        }
+        return max;
+    }
+
+    public long highestTrackableValue() {
+        return highestTrackableValue;
+    }
+}